@@ -0,0 +1,60 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.torgo;
+
+import java.awt.GraphicsEnvironment;
+
+/**
+ * The time source used when a script waits, e.g. with Logo's {@code pause}.
+ * When a person is watching, the wait is real; when nobody is (headless runs,
+ * tests and exports), a {@link VirtualClock} moves time forward instantly. The
+ * waits are still recorded with the drawing, so animated exports space their
+ * frames the same either way.
+ *
+ * @author matta
+ */
+public interface Clock {
+
+    /**
+     * Get the current time.
+     *
+     * @return in milliseconds.
+     */
+    long currentTimeMillis();
+
+    /**
+     * Wait for some time to pass.
+     *
+     * @param millis
+     * @throws InterruptedException
+     */
+    void sleep(long millis) throws InterruptedException;
+
+    /**
+     * Get the clock to use by default. The {@code torgo.clock} system
+     * property selects {@code system} or {@code virtual}; if it is not set,
+     * the virtual clock is used when running headless.
+     *
+     * @return a new clock.
+     */
+    static Clock getDefault() {
+        String clock = System.getProperty("torgo.clock");
+        if (clock == null) {
+            return GraphicsEnvironment.isHeadless() ? new VirtualClock() : SystemClock.INSTANCE;
+        }
+        return "virtual".equalsIgnoreCase(clock) ? new VirtualClock() : SystemClock.INSTANCE;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.torgo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records how long each phase of startup takes. Phases are marked as they
+ * finish and are measured from when this class is loaded, which {@link Main}
+ * does first. The report is logged at debug
+ * once the first frame is shown or the first line is rendered, and is also
+ * written to stderr when run with {@code -Dtorgo.startup.report=true}.
+ *
+ * @author matta
+ */
+public final class StartupTimer {
+
+    private static final long START = System.nanoTime();
+    private static final Map<String, Long> PHASES = new LinkedHashMap<>();
+    private static boolean reported;
+
+    /**
+     * Hidden constructor.
+     */
+    private StartupTimer() {
+    }
+
+    /**
+     * Mark the end of a phase. Only the first mark of a phase is kept.
+     *
+     * @param phase
+     */
+    public static synchronized void mark(String phase) {
+        if (!PHASES.containsKey(phase)) {
+            PHASES.put(phase, System.nanoTime() - START);
+        }
+    }
+
+    /**
+     * Get the time from startup to the end of a phase.
+     *
+     * @param phase
+     * @return the time in milliseconds, or -1 if the phase was not marked.
+     */
+    public static synchronized long getMillis(String phase) {
+        Long time = PHASES.get(phase);
+        return time == null ? -1 : time / 1000000;
+    }
+
+    /**
+     * Mark the last phase of startup and report all of the phases. Only the
+     * first call reports.
+     *
+     * @param phase
+     */
+    public static void finish(String phase) {
+        String report;
+        synchronized (StartupTimer.class) {
+            mark(phase);
+            if (reported) {
+                return;
+            }
+            reported = true;
+            report = report();
+        }
+        org.tros.utils.logging.Logging.getLogFactory().getLogger(StartupTimer.class).debug("Startup:{0}", report);
+        if (Boolean.getBoolean("torgo.startup.report")) {
+            System.err.println("Startup:" + report);
+        }
+    }
+
+    /**
+     * Get the phases marked so far, each with its own duration and the time
+     * since startup.
+     *
+     * @return
+     */
+    public static synchronized String report() {
+        StringBuilder sb = new StringBuilder();
+        long last = 0;
+        for (Map.Entry<String, Long> entry : PHASES.entrySet()) {
+            long time = entry.getValue();
+            sb.append(String.format("%n  %-20s %6d ms %8d ms", entry.getKey(), (time - last) / 1000000, time / 1000000));
+            last = time;
+        }
+        return sb.toString();
+    }
+}
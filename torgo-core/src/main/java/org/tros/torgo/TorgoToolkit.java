@@ -17,25 +17,21 @@ package org.tros.torgo;
 
 import java.text.MessageFormat;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.ServiceConfigurationError;
 import java.util.ServiceLoader;
 import java.util.Set;
 import org.tros.utils.ResourceAccessor;
 
 /**
+ * Finds the controllers, visualizations and resource accessors that are
+ * available. Each kind is only loaded the first time it is asked for, so
+ * starting up does not pay for the ones it does not use yet.
+ *
  * @author matta
  */
 public final class TorgoToolkit {
 
-    private static final HashMap<String, Controller> CONTROLLER_MAP;
-    private static final ServiceLoader<Controller> CONTROLLERS;
-
-    private static final HashMap<String, InterpreterVisualization> VIZ_MAP;
-    private static final ServiceLoader<InterpreterVisualization> VIZUALIZERS;
-
-    private static final HashMap<String, ResourceAccessor> RESOURCE_MAP;
-    private static final ServiceLoader<ResourceAccessor> RESOURCES;
-
     private static final org.tros.utils.logging.Logger LOGGER
             = org.tros.utils.logging.Logging.getLogFactory().getLogger(TorgoToolkit.class);
 
@@ -46,18 +42,42 @@ public final class TorgoToolkit {
     private static boolean configExcep3 = false;
 
     /**
-     * Static constructor.
+     * Controllers, loaded when first used.
+     */
+    private static final class Controllers {
+
+        static final HashMap<String, Controller> MAP = new HashMap<>();
+        static final ServiceLoader<Controller> LOADER = ServiceLoader.load(Controller.class);
+
+        static {
+            initController();
+        }
+    }
+
+    /**
+     * Visualizations, loaded when first used.
      */
-    static {
-        CONTROLLER_MAP = new HashMap<>();
-        CONTROLLERS = ServiceLoader.load(Controller.class);
-        initController();
-        VIZ_MAP = new HashMap<>();
-        VIZUALIZERS = ServiceLoader.load(InterpreterVisualization.class);
-        initInterpreterVis();
-        RESOURCE_MAP = new HashMap<>();
-        RESOURCES = ServiceLoader.load(ResourceAccessor.class);
-        initResAccessor();
+    private static final class Visualizations {
+
+        static final HashMap<String, InterpreterVisualization> MAP = new HashMap<>();
+        static final ServiceLoader<InterpreterVisualization> LOADER = ServiceLoader.load(InterpreterVisualization.class);
+
+        static {
+            initInterpreterVis();
+        }
+    }
+
+    /**
+     * Resource accessors, loaded when first used.
+     */
+    private static final class Resources {
+
+        static final HashMap<String, ResourceAccessor> MAP = new HashMap<>();
+        static final ServiceLoader<ResourceAccessor> LOADER = ServiceLoader.load(ResourceAccessor.class);
+
+        static {
+            initResAccessor();
+        }
     }
 
     /**
@@ -71,9 +91,9 @@ public final class TorgoToolkit {
             if (configExcep1) {
                 throw new ServiceConfigurationError("test");
             }
-            for (Controller controller : CONTROLLERS) {
+            for (Controller controller : Controllers.LOADER) {
                 LOGGER.info(MessageFormat.format("Loaded: {0}", controller.getClass().getName()));
-                CONTROLLER_MAP.put(controller.getLang(), controller);
+                Controllers.MAP.put(controller.getLang(), controller);
             }
         } catch (ServiceConfigurationError serviceError) {
             configExceptionTest1();
@@ -86,9 +106,9 @@ public final class TorgoToolkit {
             if (configExcep2) {
                 throw new ServiceConfigurationError("test");
             }
-            for (InterpreterVisualization viz : VIZUALIZERS) {
+            for (InterpreterVisualization viz : Visualizations.LOADER) {
                 LOGGER.info(MessageFormat.format("Loaded: {0}", viz.getClass().getName()));
-                VIZ_MAP.put(viz.getName(), viz);
+                Visualizations.MAP.put(viz.getName(), viz);
             }
         } catch (ServiceConfigurationError serviceError) {
             configExceptionTest2();
@@ -102,9 +122,9 @@ public final class TorgoToolkit {
             if (configExcep3) {
                 throw new ServiceConfigurationError("test");
             }
-            for (ResourceAccessor ressource : RESOURCES) {
+            for (ResourceAccessor ressource : Resources.LOADER) {
                 LOGGER.info(MessageFormat.format("Loaded: {0}", ressource.getClass().getName()));
-                RESOURCE_MAP.put(ressource.getName(), ressource);
+                Resources.MAP.put(ressource.getName(), ressource);
                 if (!set) {
                     defaultResourceAccessor = ressource.getName();
                     set = true;
@@ -123,7 +143,7 @@ public final class TorgoToolkit {
      * @return Controller of the desired type.
      */
     public static Controller getController(String name) {
-        return CONTROLLER_MAP.get(name);
+        return Controllers.MAP.get(name);
     }
 
     /**
@@ -132,7 +152,7 @@ public final class TorgoToolkit {
      * @return Get a list of controllers available.
      */
     public static Set<String> getToolkits() {
-        return CONTROLLER_MAP.keySet();
+        return Controllers.MAP.keySet();
     }
 
     /**
@@ -141,7 +161,7 @@ public final class TorgoToolkit {
      * @return Get a list of visualizers available.
      */
     public static Set<String> getVisualizers() {
-        return VIZ_MAP.keySet();
+        return Visualizations.MAP.keySet();
     }
 
     /**
@@ -151,7 +171,7 @@ public final class TorgoToolkit {
      * @return The desired visualizer.
      */
     public static InterpreterVisualization getVisualization(String name) {
-        return VIZ_MAP.get(name);
+        return Visualizations.MAP.get(name);
     }
 
     /**
@@ -160,7 +180,7 @@ public final class TorgoToolkit {
      * @return Get a list of resource accessors available.
      */
     public static Set<String> getResourceAccessors() {
-        return RESOURCE_MAP.keySet();
+        return Resources.MAP.keySet();
     }
 
     /**
@@ -170,7 +190,7 @@ public final class TorgoToolkit {
      * @return The desired resource accessor.
      */
     public static ResourceAccessor getResourceAccessor(String name) {
-        return RESOURCE_MAP.get(name);
+        return Resources.MAP.get(name);
     }
 
     /**
@@ -179,7 +199,9 @@ public final class TorgoToolkit {
      * @return The default resource accessor.
      */
     public static ResourceAccessor getDefaultResourceAccessor() {
-        return getResourceAccessor(defaultResourceAccessor);
+        //the default is set while the accessors are loaded.
+        Map<String, ResourceAccessor> accessors = Resources.MAP;
+        return accessors.get(defaultResourceAccessor);
     }
 
     public static void configExceptionTest1() {
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.torgo;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A clock that only moves when it is waited on. Waiting returns immediately
+ * and adds the time to the clock, so a script that animates with pauses runs
+ * as fast as it can draw while its timeline stays the same.
+ *
+ * @author matta
+ */
+public final class VirtualClock implements Clock {
+
+    private final AtomicLong time = new AtomicLong();
+    private final AtomicLong sleeps = new AtomicLong();
+
+    @Override
+    public long currentTimeMillis() {
+        return time.get();
+    }
+
+    /**
+     * Move the clock forward without waiting. Interrupting the thread still
+     * ends the wait, so a halted script stops the same way it would with the
+     * system clock.
+     *
+     * @param millis
+     * @throws InterruptedException
+     */
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (millis > 0) {
+            time.addAndGet(millis);
+        }
+        sleeps.incrementAndGet();
+    }
+
+    /**
+     * Get the number of waits that were skipped.
+     *
+     * @return
+     */
+    public long getSleepCount() {
+        return sleeps.get();
+    }
+
+    /**
+     * Set the clock back to zero.
+     */
+    public void reset() {
+        time.set(0);
+        sleeps.set(0);
+    }
+}
@@ -16,7 +16,6 @@
 package org.tros.torgo.interpreter;
 
 import java.util.Collection;
-import org.antlr.v4.runtime.ParserRuleContext;
 import org.tros.utils.HaltListener;
 
 /**
@@ -101,11 +100,33 @@ public interface CodeBlock extends InterpreterType, HaltListener {
     void addFunction(CodeFunction function);
 
     /**
-     * Get the local context of this ANTLR generated parse tree stub.
+     * Get the line the block starts on.
      *
      * @return
      */
-    ParserRuleContext getParserRuleContext();
+    int getLine();
+
+    /**
+     * Get the column the block starts at.
+     *
+     * @return
+     */
+    int getColumn();
+
+    /**
+     * Get the index in the source of the first character of the block.
+     *
+     * @return
+     */
+    int getStartIndex();
+
+    /**
+     * Get the index in the source of the last character of the first token of
+     * the block.
+     *
+     * @return
+     */
+    int getStopIndex();
 
     /**
      * Check to see if there is a variable in the block.
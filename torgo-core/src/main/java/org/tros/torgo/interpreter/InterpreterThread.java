@@ -27,6 +27,12 @@ import org.tros.utils.HaltMonitor;
  */
 public abstract class InterpreterThread extends Thread {
 
+    /**
+     * Scripts larger than this, in bytes, are run as they are read if the
+     * language supports it.
+     */
+    public static final long STREAM_THRESHOLD = Long.getLong("torgo.stream.threshold", 8L << 20);
+
     protected final Scope scope;
 
     private final HaltMonitor monitor;
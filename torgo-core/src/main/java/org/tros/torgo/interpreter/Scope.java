@@ -17,6 +17,7 @@ package org.tros.torgo.interpreter;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.SplittableRandom;
 
 /**
  * Scoping interface. Not sure that this is sufficient to describe lexical
@@ -62,6 +63,13 @@ public interface Scope {
      */
     void push(CodeBlock block);
 
+    /**
+     * Get the number of code blocks on the stack.
+     *
+     * @return
+     */
+    int size();
+
     /**
      * Set a name value pair in the scope.
      *
@@ -108,4 +116,21 @@ public interface Scope {
      * @return
      */
     Map<String, InterpreterValue> variablesPeek(int val);
+
+    /**
+     * Get the random numbers for this run. The random object belongs to the
+     * run, so it is not thread safe; use {@link SplittableRandom#split()} to
+     * hand numbers to other threads.
+     *
+     * @return
+     */
+    SplittableRandom getRandom();
+
+    /**
+     * Seed the random numbers for this run, so that a script draws the same
+     * way every time it is run.
+     *
+     * @param seed
+     */
+    void setRandomSeed(long seed);
 }
@@ -17,6 +17,7 @@ package org.tros.torgo.interpreter;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.SplittableRandom;
 import org.apache.commons.lang3.event.EventListenerSupport;
 
 /**
@@ -30,6 +31,7 @@ abstract class ScopeImpl implements Scope {
     protected final ArrayList<CodeBlock> stack = new ArrayList<>();
     private final EventListenerSupport<ScopeListener> listeners
             = EventListenerSupport.create(ScopeListener.class);
+    private SplittableRandom random;
 
     /**
      * Add a scope listener.
@@ -97,4 +99,21 @@ abstract class ScopeImpl implements Scope {
         return InterpreterValue.NULL;
     }
 
+    @Override
+    public int size() {
+        return stack.size();
+    }
+
+    @Override
+    public SplittableRandom getRandom() {
+        if (random == null) {
+            random = org.tros.utils.Random.newSplittableRandom();
+        }
+        return random;
+    }
+
+    @Override
+    public void setRandomSeed(long seed) {
+        random = new SplittableRandom(seed);
+    }
 }
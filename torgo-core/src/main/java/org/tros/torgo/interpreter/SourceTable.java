@@ -0,0 +1,122 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.torgo.interpreter;
+
+import java.util.Arrays;
+
+/**
+ * A compact table of where code blocks start in the source. Each row holds
+ * the line, column and character range of the first token of a block, so
+ * that blocks can report their position without keeping the parse tree and
+ * token stream they came from.
+ *
+ * @author matta
+ */
+public final class SourceTable {
+
+    private static final int LINE = 0;
+    private static final int COLUMN = 1;
+    private static final int START = 2;
+    private static final int STOP = 3;
+    private static final int WIDTH = 4;
+
+    private int[] rows = new int[16 * WIDTH];
+    private int size;
+
+    /**
+     * Add a row.
+     *
+     * @param line the line, starting at 1.
+     * @param column the column, starting at 0.
+     * @param startIndex the index of the first character.
+     * @param stopIndex the index of the last character.
+     * @return the index of the new row.
+     */
+    public synchronized int add(int line, int column, int startIndex, int stopIndex) {
+        if ((size + 1) * WIDTH > rows.length) {
+            rows = Arrays.copyOf(rows, rows.length * 2);
+        }
+        int offset = size * WIDTH;
+        rows[offset + LINE] = line;
+        rows[offset + COLUMN] = column;
+        rows[offset + START] = startIndex;
+        rows[offset + STOP] = stopIndex;
+        return size++;
+    }
+
+    /**
+     * Release the unused end of the table once all rows have been added.
+     */
+    public synchronized void trim() {
+        rows = Arrays.copyOf(rows, Math.max(size, 1) * WIDTH);
+    }
+
+    /**
+     * Get the number of rows.
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Get the line of a row.
+     *
+     * @param row
+     * @return
+     */
+    public int getLine(int row) {
+        return get(row, LINE);
+    }
+
+    /**
+     * Get the column of a row.
+     *
+     * @param row
+     * @return
+     */
+    public int getColumn(int row) {
+        return get(row, COLUMN);
+    }
+
+    /**
+     * Get the index of the first character of a row.
+     *
+     * @param row
+     * @return
+     */
+    public int getStartIndex(int row) {
+        return get(row, START);
+    }
+
+    /**
+     * Get the index of the last character of a row.
+     *
+     * @param row
+     * @return
+     */
+    public int getStopIndex(int row) {
+        return get(row, STOP);
+    }
+
+    private synchronized int get(int row, int field) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + size);
+        }
+        return rows[row * WIDTH + field];
+    }
+}
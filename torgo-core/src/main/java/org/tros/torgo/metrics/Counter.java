@@ -0,0 +1,84 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.torgo.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count of events. Threads add to separate cells when they contend, so a
+ * counter is cheap enough to update on every statement.
+ *
+ * @author matta
+ */
+public final class Counter implements Metric, CounterMXBean {
+
+    private static final long SAMPLE_NANOS = 1000000000L;
+
+    private final LongAdder count = new LongAdder();
+    private long sampleCount;
+    private long sampleNanos = System.nanoTime();
+    private double rate;
+    private boolean sampled;
+
+    /**
+     * Add one.
+     */
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * Add to the count.
+     *
+     * @param value
+     */
+    public void add(long value) {
+        count.add(value);
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Get the average increase per second since the previous reading of the
+     * rate, or since the counter was made for the first reading. Readings
+     * less than a second after the previous one return the same rate.
+     *
+     * @return
+     */
+    @Override
+    public synchronized double getRate() {
+        long now = System.nanoTime();
+        long elapsed = now - sampleNanos;
+        if (elapsed >= SAMPLE_NANOS || !sampled) {
+            long current = count.sum();
+            rate = elapsed > 0 ? (current - sampleCount) * 1e9 / elapsed : 0;
+            sampleCount = current;
+            sampleNanos = now;
+            sampled = true;
+        }
+        return rate;
+    }
+
+    @Override
+    public void toJson(StringBuilder json) {
+        json.append("{\"count\": ").append(getCount())
+                .append(", \"rate\": ").append(Metrics.number(getRate()))
+                .append('}');
+    }
+}
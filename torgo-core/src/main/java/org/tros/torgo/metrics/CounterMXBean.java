@@ -0,0 +1,39 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.torgo.metrics;
+
+/**
+ * The management interface of a {@link Counter}.
+ *
+ * @author matta
+ */
+public interface CounterMXBean {
+
+    /**
+     * Get the total.
+     *
+     * @return
+     */
+    long getCount();
+
+    /**
+     * Get the average increase per second since the previous reading of the
+     * rate, or since the counter was made.
+     *
+     * @return
+     */
+    double getRate();
+}
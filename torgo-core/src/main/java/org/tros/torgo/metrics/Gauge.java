@@ -0,0 +1,47 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.torgo.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A value read when it is reported, such as the size of a collection.
+ *
+ * @author matta
+ */
+public final class Gauge implements Metric, GaugeMXBean {
+
+    private final LongSupplier value;
+
+    /**
+     * Constructor.
+     *
+     * @param value reads the value, from any thread.
+     */
+    public Gauge(LongSupplier value) {
+        this.value = value;
+    }
+
+    @Override
+    public long getValue() {
+        return value.getAsLong();
+    }
+
+    @Override
+    public void toJson(StringBuilder json) {
+        json.append("{\"value\": ").append(getValue()).append('}');
+    }
+}
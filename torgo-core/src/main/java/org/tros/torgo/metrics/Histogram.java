@@ -0,0 +1,161 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.torgo.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The distribution of recorded values, such as latencies. Values are counted
+ * in buckets whose width grows with the value: each power of two is split
+ * into 32 buckets, so a percentile is within about 3% of the true value while
+ * the whole range of a long fits in a fixed array. Recording a value is a
+ * couple of atomic adds, with no locks or allocation.
+ *
+ * @author matta
+ */
+public final class Histogram implements Metric, HistogramMXBean {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (62 - SUB_BUCKET_BITS) * SUB_BUCKETS + 2 * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Get the bucket of a value.
+     *
+     * @param value
+     * @return
+     */
+    static int bucket(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * Get the largest value counted in a bucket.
+     *
+     * @param bucket
+     * @return
+     */
+    static long highest(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket >> SUB_BUCKET_BITS) - 1;
+        long sub = SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1));
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /**
+     * Record a value. Negative values are recorded as zero.
+     *
+     * @param value
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        buckets.incrementAndGet(bucket(value));
+        count.increment();
+        sum.add(value);
+        if (value > max.get()) {
+            max.accumulate(value);
+        }
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public double getMean() {
+        long c = count.sum();
+        return c == 0 ? 0 : (double) sum.sum() / c;
+    }
+
+    @Override
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Get the value that a percentage of the recorded values are at or below.
+     *
+     * @param percentile from 0 to 100.
+     * @return 0 if nothing has been recorded.
+     */
+    public long getPercentile(double percentile) {
+        long total = 0;
+        long[] counts = new long[BUCKETS];
+        for (int ii = 0; ii < BUCKETS; ii++) {
+            counts[ii] = buckets.get(ii);
+            total += counts[ii];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100.0));
+        long seen = 0;
+        for (int ii = 0; ii < BUCKETS; ii++) {
+            seen += counts[ii];
+            if (seen >= rank) {
+                return Math.min(highest(ii), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    @Override
+    public long getP50() {
+        return getPercentile(50);
+    }
+
+    @Override
+    public long getP90() {
+        return getPercentile(90);
+    }
+
+    @Override
+    public long getP99() {
+        return getPercentile(99);
+    }
+
+    @Override
+    public long getP999() {
+        return getPercentile(99.9);
+    }
+
+    @Override
+    public void toJson(StringBuilder json) {
+        json.append("{\"count\": ").append(getCount())
+                .append(", \"mean\": ").append(Metrics.number(getMean()))
+                .append(", \"max\": ").append(getMax())
+                .append(", \"p50\": ").append(getP50())
+                .append(", \"p90\": ").append(getP90())
+                .append(", \"p99\": ").append(getP99())
+                .append(", \"p999\": ").append(getP999())
+                .append('}');
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.torgo.metrics;
+
+/**
+ * The management interface of a {@link Histogram}. Percentiles are within
+ * about 3% of the recorded values.
+ *
+ * @author matta
+ */
+public interface HistogramMXBean {
+
+    /**
+     * Get the number of recorded values.
+     *
+     * @return
+     */
+    long getCount();
+
+    /**
+     * Get the mean of the recorded values.
+     *
+     * @return
+     */
+    double getMean();
+
+    /**
+     * Get the largest recorded value.
+     *
+     * @return
+     */
+    long getMax();
+
+    /**
+     * Get the median.
+     *
+     * @return
+     */
+    long getP50();
+
+    /**
+     * Get the 90th percentile.
+     *
+     * @return
+     */
+    long getP90();
+
+    /**
+     * Get the 99th percentile.
+     *
+     * @return
+     */
+    long getP99();
+
+    /**
+     * Get the 99.9th percentile.
+     *
+     * @return
+     */
+    long getP999();
+}
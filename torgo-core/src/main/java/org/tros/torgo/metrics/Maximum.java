@@ -0,0 +1,50 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.torgo.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * The largest value seen. Updates that do not raise the maximum only read
+ * it, so contended updates are cheap.
+ *
+ * @author matta
+ */
+public final class Maximum implements Metric, GaugeMXBean {
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Raise the maximum to a value, if it is larger.
+     *
+     * @param value
+     */
+    public void update(long value) {
+        if (value > max.get()) {
+            max.accumulate(value);
+        }
+    }
+
+    @Override
+    public long getValue() {
+        return max.get();
+    }
+
+    @Override
+    public void toJson(StringBuilder json) {
+        json.append("{\"value\": ").append(getValue()).append('}');
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.torgo.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registry of the runtime metrics. Metrics are kept by name and are always
+ * on; they are cheap enough to update from the interpreter and the paint
+ * code. Once {@link #registerMBeans()} is called, each metric is also a
+ * platform MBean named {@code org.tros.torgo:type=Metrics,name=<name>}, and
+ * {@link #toJson()} reports all of them at once, for example at the end of a
+ * batch run.
+ *
+ * @author matta
+ */
+public final class Metrics {
+
+    public static final String DOMAIN = "org.tros.torgo";
+
+    private static final ConcurrentSkipListMap<String, Metric> METRICS = new ConcurrentSkipListMap<>();
+    private static boolean registered;
+
+    /**
+     * Hidden constructor.
+     */
+    private Metrics() {
+    }
+
+    /**
+     * Get a counter, making it if needed.
+     *
+     * @param name
+     * @return
+     */
+    public static Counter counter(String name) {
+        return get(name, Counter.class);
+    }
+
+    /**
+     * Get a histogram, making it if needed.
+     *
+     * @param name
+     * @return
+     */
+    public static Histogram histogram(String name) {
+        return get(name, Histogram.class);
+    }
+
+    /**
+     * Get a maximum, making it if needed.
+     *
+     * @param name
+     * @return
+     */
+    public static Maximum maximum(String name) {
+        return get(name, Maximum.class);
+    }
+
+    /**
+     * Report a value read when the metrics are reported, replacing any metric
+     * with the same name.
+     *
+     * @param name
+     * @param value
+     * @return
+     */
+    public static Gauge gauge(String name, LongSupplier value) {
+        return register(name, new Gauge(value));
+    }
+
+    /**
+     * Add a metric, replacing any metric with the same name. Used for metrics
+     * that belong to an object, such as a canvas, when the newest object
+     * should be reported.
+     *
+     * @param <T>
+     * @param name
+     * @param metric
+     * @return the metric.
+     */
+    public static <T extends Metric> T register(String name, T metric) {
+        synchronized (METRICS) {
+            METRICS.put(name, metric);
+            if (registered) {
+                MBeans.register(name, metric);
+            }
+        }
+        return metric;
+    }
+
+    /**
+     * Remove a metric added with {@link #register(String, Metric)}, unless it
+     * has since been replaced.
+     *
+     * @param name
+     * @param metric
+     * @return true if the metric was removed.
+     */
+    public static boolean unregister(String name, Metric metric) {
+        synchronized (METRICS) {
+            if (!METRICS.remove(name, metric)) {
+                return false;
+            }
+            if (registered) {
+                MBeans.unregister(name);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get a metric.
+     *
+     * @param name
+     * @return null if there is no metric with the name.
+     */
+    public static Metric get(String name) {
+        return METRICS.get(name);
+    }
+
+    private static <T extends Metric> T get(String name, Class<T> type) {
+        Metric metric = METRICS.get(name);
+        if (metric == null) {
+            synchronized (METRICS) {
+                metric = METRICS.get(name);
+                if (metric == null) {
+                    try {
+                        metric = register(name, type.getDeclaredConstructor().newInstance());
+                    } catch (ReflectiveOperationException ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                }
+            }
+        }
+        if (!type.isInstance(metric)) {
+            throw new IllegalArgumentException(name + " is not a " + type.getSimpleName());
+        }
+        return type.cast(metric);
+    }
+
+    /**
+     * Register every metric, and metrics added later, with the platform MBean
+     * server. Calling this again does nothing.
+     */
+    public static void registerMBeans() {
+        synchronized (METRICS) {
+            if (registered) {
+                return;
+            }
+            registered = true;
+            METRICS.forEach(MBeans::register);
+        }
+    }
+
+    /**
+     * Registers metrics with the platform MBean server. Kept apart so that
+     * JMX is only loaded once the MBeans are asked for.
+     */
+    private static final class MBeans {
+
+        private static final MBeanServer SERVER = ManagementFactory.getPlatformMBeanServer();
+
+        static void register(String name, Metric metric) {
+            try {
+                ObjectName objectName = new ObjectName(DOMAIN + ":type=Metrics,name=" + ObjectName.quote(name));
+                if (SERVER.isRegistered(objectName)) {
+                    SERVER.unregisterMBean(objectName);
+                }
+                SERVER.registerMBean(metric, objectName);
+            } catch (JMException ex) {
+                org.tros.utils.logging.Logging.getLogFactory().getLogger(Metrics.class).warn("Could not register {0}: {1}", name, ex);
+            }
+        }
+
+        static void unregister(String name) {
+            try {
+                ObjectName objectName = new ObjectName(DOMAIN + ":type=Metrics,name=" + ObjectName.quote(name));
+                if (SERVER.isRegistered(objectName)) {
+                    SERVER.unregisterMBean(objectName);
+                }
+            } catch (JMException ex) {
+                org.tros.utils.logging.Logging.getLogFactory().getLogger(Metrics.class).warn("Could not unregister {0}: {1}", name, ex);
+            }
+        }
+    }
+
+    /**
+     * Get all of the metrics as a JSON object, keyed and sorted by name.
+     *
+     * @return
+     */
+    public static String toJson() {
+        StringBuilder json = new StringBuilder("{");
+        boolean first = true;
+        for (Map.Entry<String, Metric> entry : METRICS.entrySet()) {
+            json.append(first ? "\n" : ",\n").append("  \"");
+            for (char c : entry.getKey().toCharArray()) {
+                if (c == '"' || c == '\\') {
+                    json.append('\\');
+                }
+                json.append(c);
+            }
+            json.append("\": ");
+            entry.getValue().toJson(json);
+            first = false;
+        }
+        return json.append("\n}\n").toString();
+    }
+
+    /**
+     * Write all of the metrics as JSON.
+     *
+     * @param file
+     * @throws IOException
+     */
+    public static void dump(File file) throws IOException {
+        try (Writer out = new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8)) {
+            out.write(toJson());
+        }
+    }
+
+    /**
+     * Format a number for JSON, which has no NaN or infinity.
+     *
+     * @param value
+     * @return
+     */
+    static String number(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? "0" : Double.toString(value);
+    }
+}
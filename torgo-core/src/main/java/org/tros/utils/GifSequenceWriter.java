@@ -112,6 +112,47 @@ public class GifSequenceWriter {
                 imageWriteParam);
     }
 
+    /**
+     * Write a frame that only covers part of the animation, such as the area
+     * that changed since the previous frame. Indexed images keep their own
+     * palette instead of being quantized by the writer.
+     *
+     * @param img the frame.
+     * @param left the x offset of the frame in the animation.
+     * @param top the y offset of the frame in the animation.
+     * @param delayMS how long to show the frame in milliseconds.
+     * @param disposalMethod what to do with the frame before drawing the next
+     * one: "none", "doNotDispose", "restoreToBackgroundColor" or
+     * "restoreToPrevious".
+     * @throws IOException
+     */
+    public void writeToSequence(RenderedImage img, int left, int top, int delayMS, String disposalMethod) throws IOException {
+        IIOMetadata frameMetaData = gifWriter.getDefaultImageMetadata(
+                new ImageTypeSpecifier(img), imageWriteParam);
+        String metaFormatName = frameMetaData.getNativeMetadataFormatName();
+        IIOMetadataNode root = (IIOMetadataNode) imageMetaData.getAsTree(metaFormatName);
+        //keep the palette of the frame, not the one the defaults were made with.
+        for (int i = root.getLength() - 1; i >= 0; i--) {
+            if ("LocalColorTable".equals(root.item(i).getNodeName())) {
+                root.removeChild(root.item(i));
+            }
+        }
+
+        IIOMetadataNode descriptor = getNode(root, "ImageDescriptor");
+        descriptor.setAttribute("imageLeftPosition", Integer.toString(left));
+        descriptor.setAttribute("imageTopPosition", Integer.toString(top));
+        descriptor.setAttribute("imageWidth", Integer.toString(img.getWidth()));
+        descriptor.setAttribute("imageHeight", Integer.toString(img.getHeight()));
+        descriptor.setAttribute("interlaceFlag", "FALSE");
+
+        IIOMetadataNode graphicsControlExtensionNode = getNode(root, "GraphicControlExtension");
+        graphicsControlExtensionNode.setAttribute("disposalMethod", disposalMethod);
+        graphicsControlExtensionNode.setAttribute("delayTime", Integer.toString(delayMS / 10));
+
+        frameMetaData.mergeTree(metaFormatName, root);
+        gifWriter.writeToSequence(new IIOImage(img, null, frameMetaData), imageWriteParam);
+    }
+
     /**
      * Close this GifSequenceWriter object. This does not close the underlying
      * stream, just finishes off the GIF.
@@ -0,0 +1,411 @@
+/*
+ * This work is licensed under the Creative Commons Attribution 3.0 Unported
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/3.0/ or send a letter to Creative
+ * Commons, 171 Second Street, Suite 300, San Francisco, California, 94105, USA.
+ */
+package org.tros.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Mailbox: A lock-free class for high-performance message handling. Since
+ * Suspend and Resume are deprecated from the Java API, we need a way to halt a
+ * sending/receiving thread without the need for polling. This solves that
+ * problem.
+ * <p>
+ * Any number of threads may send, but only one thread at a time may receive.
+ * Messages are kept in a ring of fixed size segments: senders claim a slot by
+ * incrementing the tail and the receiver reads slots in order, so neither
+ * side takes a lock and nothing is shifted or copied. A waiting receiver, and
+ * senders waiting for room in a bounded mailbox, are parked rather than
+ * notified through a monitor. Each message the receiver takes unparks the
+ * longest waiting sender, and a sender that finds more room on its way out
+ * hands the wakeup on to the next one.
+ * <p>
+ * Unlike the synchronized mailbox this replaced, null messages are rejected:
+ * an empty slot is how a claimed but unwritten message is recognized, and
+ * null is what the receiving methods return when the mailbox is halted.
+ *
+ * @param <T>
+ */
+public class Mailbox<T> {
+
+    /**
+     * What to do with a message sent to a full mailbox.
+     */
+    public enum Overflow {
+
+        /**
+         * Wait for room.
+         */
+        BLOCK,
+        /**
+         * Drop the message.
+         */
+        DROP
+    }
+
+    private static final int SEGMENT_SIZE = 1024;
+
+    /**
+     * A fixed size piece of the ring.
+     *
+     * @param <T>
+     */
+    private static final class Segment<T> {
+
+        private final long id;
+        private final AtomicReferenceArray<T> slots = new AtomicReferenceArray<>(SEGMENT_SIZE);
+        private final AtomicReference<Segment<T>> next = new AtomicReference<>();
+
+        Segment(long id) {
+            this.id = id;
+        }
+    }
+
+    private final long capacity;
+    private final Overflow overflow;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicReference<Segment<T>> tailSegment;
+    private final ConcurrentLinkedQueue<Thread> senders = new ConcurrentLinkedQueue<>();
+    private volatile Segment<T> headSegment;
+    private volatile long head;
+    private volatile Thread receiver;
+    private volatile boolean halt;
+
+    /**
+     * Constructor, for a mailbox without a limit.
+     */
+    public Mailbox() {
+        this(Long.MAX_VALUE, Overflow.BLOCK);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param capacity the most messages the mailbox holds.
+     * @param overflow what to do with messages sent when it is full.
+     */
+    public Mailbox(long capacity, Overflow overflow) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        this.capacity = capacity;
+        this.overflow = overflow;
+        this.headSegment = new Segment<>(0);
+        this.tailSegment = new AtomicReference<>(headSegment);
+    }
+
+    /**
+     * Get the size.
+     *
+     * @return
+     */
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, tail.get() - head));
+    }
+
+    /**
+     * Get the number of messages dropped because the mailbox was full.
+     *
+     * @return
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Halt the mailbox.
+     */
+    public void halt() {
+        if (!halt) {
+            halt = true;
+            LockSupport.unpark(receiver);
+            senders.forEach(LockSupport::unpark);
+        }
+    }
+
+    /**
+     * Add a message to the queue, notifying any waiting processes that a
+     * message is available. If the mailbox is full the message is dropped or
+     * this waits for room, depending on how it was constructed.
+     *
+     * @param inMsg
+     * @return false if the message was dropped or the mailbox is halted; the
+     * synchronized mailbox this replaced returned nothing.
+     * @throws NullPointerException if the message is null.
+     */
+    public boolean addMessage(T inMsg) {
+        return addMessage(inMsg, overflow == Overflow.BLOCK ? Long.MAX_VALUE : 0);
+    }
+
+    /**
+     * Add a message to the queue, waiting at most the given time for room.
+     *
+     * @param inMsg
+     * @param timeout
+     * @param unit
+     * @return false if the message was dropped or the mailbox is halted.
+     * @throws NullPointerException if the message is null.
+     */
+    public boolean addMessage(T inMsg, long timeout, TimeUnit unit) {
+        return addMessage(inMsg, unit.toNanos(timeout));
+    }
+
+    private boolean addMessage(T inMsg, long nanos) {
+        Objects.requireNonNull(inMsg);
+        long index = claim();
+        if (index < 0 && !halt && nanos > 0) {
+            index = awaitRoom(nanos);
+        }
+        if (index < 0) {
+            if (!halt) {
+                dropped.incrementAndGet();
+            }
+            return false;
+        }
+        segment(index).slots.set((int) (index % SEGMENT_SIZE), inMsg);
+        Thread waiting = receiver;
+        if (waiting != null) {
+            LockSupport.unpark(waiting);
+        }
+        return true;
+    }
+
+    /**
+     * Claim the next slot.
+     *
+     * @return the index of the slot, or -1 if the mailbox is full or halted.
+     */
+    private long claim() {
+        if (halt) {
+            return -1;
+        }
+        if (capacity == Long.MAX_VALUE) {
+            return tail.getAndIncrement();
+        }
+        while (true) {
+            long t = tail.get();
+            if (t - head >= capacity) {
+                return -1;
+            }
+            if (tail.compareAndSet(t, t + 1)) {
+                return t;
+            }
+        }
+    }
+
+    /**
+     * Wait for room, parked until the receiver takes a message. The sender is
+     * queued before it checks for room, so a message taken between the check
+     * and the park leaves a permit and the park returns at once.
+     *
+     * @param nanos
+     * @return the index of the claimed slot, or -1.
+     */
+    private long awaitRoom(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        Thread current = Thread.currentThread();
+        senders.add(current);
+        long index = -1;
+        try {
+            while ((index = claim()) < 0 && !halt) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || current.isInterrupted()) {
+                    break;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+            return index;
+        } finally {
+            senders.remove(current);
+            //the receiver may have freed several slots while only this sender
+            //was woken, or this sender gave up; wake the next one.
+            if (!halt && tail.get() - head < capacity) {
+                Thread next = senders.peek();
+                if (next != null) {
+                    LockSupport.unpark(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the segment holding a claimed slot, adding segments as needed.
+     *
+     * @param index
+     * @return
+     */
+    private Segment<T> segment(long index) {
+        long id = index / SEGMENT_SIZE;
+        Segment<T> s = tailSegment.get();
+        if (s.id > id) {
+            //the slot has not been read, so the receiver has not passed it.
+            s = headSegment;
+        }
+        while (s.id < id) {
+            Segment<T> next = s.next.get();
+            if (next == null) {
+                s.next.compareAndSet(null, new Segment<>(s.id + 1));
+                next = s.next.get();
+            }
+            s = next;
+        }
+        Segment<T> hint = tailSegment.get();
+        while (hint.id < s.id && !tailSegment.compareAndSet(hint, s)) {
+            hint = tailSegment.get();
+        }
+        return s;
+    }
+
+    /**
+     * Take the next message without waiting. Only called by the receiver.
+     *
+     * @return null if there is no message.
+     */
+    private T poll() {
+        long h = head;
+        if (h >= tail.get()) {
+            return null;
+        }
+        Segment<T> s = headSegment;
+        if (s.id != h / SEGMENT_SIZE) {
+            Segment<T> next;
+            while ((next = s.next.get()) == null) {
+                Thread.yield();
+            }
+            s = next;
+            headSegment = s;
+        }
+        int slot = (int) (h % SEGMENT_SIZE);
+        T ret;
+        //the slot is claimed, wait for the sender to finish writing it.
+        while ((ret = s.slots.get(slot)) == null) {
+            Thread.yield();
+        }
+        s.slots.lazySet(slot, null);
+        head = h + 1;
+        Thread sender = senders.peek();
+        if (sender != null) {
+            LockSupport.unpark(sender);
+        }
+        return ret;
+    }
+
+    /**
+     * Wait until there is a message.
+     *
+     * @param nanos the longest time to wait.
+     * @return false if the mailbox was halted or the wait timed out.
+     */
+    private boolean await(long nanos) {
+        if (halt) {
+            return false;
+        }
+        if (head < tail.get()) {
+            return true;
+        }
+        long deadline = System.nanoTime() + nanos;
+        receiver = Thread.currentThread();
+        try {
+            while (head >= tail.get()) {
+                if (halt) {
+                    return false;
+                }
+                if (Thread.interrupted()) {
+                    halt = true;
+                    return false;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+        } finally {
+            receiver = null;
+        }
+        return !halt;
+    }
+
+    /**
+     * Receive a message from the queue.
+     *
+     * @return
+     */
+    public T getMessage() {
+        return getMessage(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Receive a message from the queue, waiting at most the given time.
+     *
+     * @param timeout
+     * @param unit
+     * @return null if the mailbox was halted or the wait timed out.
+     */
+    public T getMessage(long timeout, TimeUnit unit) {
+        return await(unit.toNanos(timeout)) ? poll() : null;
+    }
+
+    /**
+     * Get all messages in the mailbox.
+     *
+     * @return
+     */
+    public ArrayList<T> getMessages() {
+        ArrayList<T> ret = new ArrayList<>();
+        return awaitMessages(ret, Integer.MAX_VALUE) < 0 ? null : ret;
+    }
+
+    /**
+     * Wait for messages and move them to a collection.
+     *
+     * @param target
+     * @param max the most messages to move.
+     * @return the number of messages moved, or -1 if the mailbox was halted.
+     */
+    public int awaitMessages(Collection<? super T> target, int max) {
+        if (!await(Long.MAX_VALUE)) {
+            return -1;
+        }
+        return drainTo(target, max);
+    }
+
+    /**
+     * Move the messages that are in the mailbox to a collection without
+     * waiting.
+     *
+     * @param target
+     * @param max the most messages to move.
+     * @return the number of messages moved.
+     */
+    public int drainTo(Collection<? super T> target, int max) {
+        int count = 0;
+        T msg;
+        while (count < max && !halt && (msg = poll()) != null) {
+            target.add(msg);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Is the mailbox halted?
+     *
+     * @return
+     */
+    public boolean isHalted() {
+        return halt;
+    }
+}
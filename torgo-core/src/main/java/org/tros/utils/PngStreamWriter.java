@@ -0,0 +1,214 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a 24-bit RGB PNG one row at a time. Unlike ImageIO, the whole image
+ * never has to be in memory; rows are deflated and flushed out in IDAT chunks
+ * as they are written.
+ *
+ * @author matta
+ */
+public final class PngStreamWriter implements Closeable {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int BYTES_PER_PIXEL = 3;
+
+    private final OutputStream out;
+    private final int width;
+    private final int height;
+    private final byte[] row;
+    private final Deflater deflater;
+    private final DeflaterOutputStream idat;
+    private int rowsWritten;
+    private boolean closed;
+
+    /**
+     * Buffers deflated data and emits it as IDAT chunks.
+     */
+    private final class ChunkOutputStream extends OutputStream {
+
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private int count;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flushChunk();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    flushChunk();
+                }
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushChunk();
+        }
+
+        private void flushChunk() throws IOException {
+            if (count > 0) {
+                writeChunk("IDAT", buffer, count);
+                count = 0;
+            }
+        }
+    }
+
+    /**
+     * Constructor. Writes the PNG signature and header immediately.
+     *
+     * @param out the stream to write to, not closed by this writer.
+     * @param width image width in pixels.
+     * @param height image height in pixels.
+     * @throws IOException
+     */
+    public PngStreamWriter(OutputStream out, int width, int height) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Image dimensions must be positive.");
+        }
+        this.out = out;
+        this.width = width;
+        this.height = height;
+        this.row = new byte[1 + width * BYTES_PER_PIXEL];
+        this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        this.idat = new DeflaterOutputStream(new ChunkOutputStream(), deflater, CHUNK_SIZE);
+
+        out.write(SIGNATURE);
+        byte[] ihdr = new byte[13];
+        putInt(ihdr, 0, width);
+        putInt(ihdr, 4, height);
+        //8 bit depth, color type 2 (truecolor), deflate, adaptive filtering, no interlace.
+        ihdr[8] = 8;
+        ihdr[9] = 2;
+        writeChunk("IHDR", ihdr, ihdr.length);
+    }
+
+    /**
+     * Write a single row of pixels.
+     *
+     * @param rgb packed RGB pixels, alpha is ignored.
+     * @param offset the offset of the first pixel of the row.
+     * @throws IOException
+     */
+    public void writeRow(int[] rgb, int offset) throws IOException {
+        if (rowsWritten >= height) {
+            throw new IllegalStateException("All rows have already been written.");
+        }
+        //filter type 0 (none); line art is mostly flat color and deflates well as-is.
+        row[0] = 0;
+        for (int x = 0, p = 1; x < width; x++) {
+            int c = rgb[offset + x];
+            row[p++] = (byte) (c >> 16);
+            row[p++] = (byte) (c >> 8);
+            row[p++] = (byte) c;
+        }
+        idat.write(row, 0, row.length);
+        rowsWritten++;
+    }
+
+    /**
+     * Get the number of rows written so far.
+     *
+     * @return
+     */
+    public int getRowsWritten() {
+        return rowsWritten;
+    }
+
+    /**
+     * Release the compressor without writing the trailer. Used when an export
+     * is cancelled or fails part way; the partial output is not a valid PNG.
+     * Does not close the underlying stream.
+     */
+    public void abort() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        deflater.end();
+    }
+
+    /**
+     * Finish the image data and write the trailer. Does not close the
+     * underlying stream.
+     *
+     * @throws IOException
+     * @throws IllegalStateException if fewer than height rows were written;
+     * the compressor is released but no trailer is written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (rowsWritten < height) {
+            abort();
+            throw new IllegalStateException("Only " + rowsWritten + " of " + height + " rows written.");
+        }
+        closed = true;
+        try {
+            idat.finish();
+            idat.flush();
+            writeChunk("IEND", new byte[0], 0);
+            out.flush();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        byte[] header = new byte[4];
+        putInt(header, 0, length);
+        out.write(header);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        putInt(header, 0, (int) crc.getValue());
+        out.write(header);
+    }
+
+    private static void putInt(byte[] b, int off, int value) {
+        b[off] = (byte) (value >>> 24);
+        b[off + 1] = (byte) (value >>> 16);
+        b[off + 2] = (byte) (value >>> 8);
+        b[off + 3] = (byte) value;
+    }
+}
@@ -130,7 +130,11 @@ public abstract class PropertiesInitializer {
                     boolean success = false;
                     String val = prop.getProperty(p.getName());
                     if (val != null) {
-                        Object o = TypeHandler.fromString(p.getPropertyType(), val);
+                        //strings need no converting, and skipping the converters
+                        //keeps them from being loaded while starting up.
+                        Object o = p.getPropertyType() == String.class
+                                ? val
+                                : TypeHandler.fromString(p.getPropertyType(), val);
                         if (o != null) {
                             p.getWriteMethod().invoke(this, o);
                             success = true;
@@ -7,11 +7,13 @@
 package org.tros.utils;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.Properties;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import org.tros.torgo.TorgoToolkit;
 
@@ -23,6 +25,11 @@ import org.tros.torgo.TorgoToolkit;
  * These values are unique within a given simulation, but can be duplicated for
  * repeatability
  *
+ * None of the methods lock. Each thread has its own random object, which is
+ * replaced after a {@link #reset()}. Interpreters do not use these at all but
+ * draw from a {@link SplittableRandom} owned by the run, see
+ * {@link #newSplittableRandom()}.
+ *
  * @author matta
  */
 public final class Random {
@@ -48,12 +55,22 @@ public final class Random {
     }
 
     private static final double EPSILON = 1E-14;
-    private static final HashMap<Thread, java.util.Random> RANDOMS;
-    private static final HashMap<Object, java.util.Random> SPECIFIC_RANDOMS;
-    private static UuidIncrementType incrementType = UuidIncrementType.useClass;
-    private static boolean doSeed;
-    private static int seedValue;
-    private static final HashMap<String, AtomicLong> COUNTERS;
+    private static final ThreadLocal<ThreadRandom> RANDOMS = new ThreadLocal<>();
+    private static final ConcurrentHashMap<Object, java.util.Random> SPECIFIC_RANDOMS;
+    private static final AtomicInteger GENERATION = new AtomicInteger();
+    private static volatile UuidIncrementType incrementType = UuidIncrementType.useClass;
+    private static volatile boolean doSeed;
+    private static volatile int seedValue;
+    private static final ConcurrentHashMap<String, AtomicLong> COUNTERS;
+
+    /**
+     * A thread's random object and the reset it was created after.
+     */
+    private static final class ThreadRandom {
+
+        private final int generation = GENERATION.get();
+        private final java.util.Random random = newRandom();
+    }
     private static final String DEFAULT_KEY = "puid";
 
     /**
@@ -66,7 +83,7 @@ public final class Random {
      * Static Constructor.
      */
     static {
-        COUNTERS = new HashMap<>();
+        COUNTERS = new ConcurrentHashMap<>();
         Properties prop = new Properties();
         String propFile = Random.class.getCanonicalName().replace('.', '/') + ".properties";
         try {
@@ -77,8 +94,27 @@ public final class Random {
         } catch (NullPointerException | IOException ex) {
             org.tros.utils.logging.Logging.getLogFactory().getLogger(Random.class).fatal(null, ex);
         }
-        RANDOMS = new HashMap<>();
-        SPECIFIC_RANDOMS = new HashMap<>();
+        SPECIFIC_RANDOMS = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Get a new random object, seeded if the random system is seeded.
+     *
+     * @return
+     */
+    private static java.util.Random newRandom() {
+        return doSeed ? new java.util.Random(seedValue) : new java.util.Random();
+    }
+
+    /**
+     * Get a new splittable random object, seeded if the random system is
+     * seeded. These are not thread safe and are meant to be owned by a single
+     * interpreter run, so that runs neither share a sequence nor contend.
+     *
+     * @return
+     */
+    public static SplittableRandom newSplittableRandom() {
+        return doSeed ? new SplittableRandom(seedValue) : new SplittableRandom();
     }
 
     /**
@@ -87,15 +123,12 @@ public final class Random {
      * @return
      */
     private static java.util.Random getInstance() {
-        Thread curr = Thread.currentThread();
-        if (!RANDOMS.containsKey(curr)) {
-            if (doSeed) {
-                RANDOMS.put(curr, new java.util.Random(seedValue));
-            } else {
-                RANDOMS.put(curr, new java.util.Random());
-            }
+        ThreadRandom curr = RANDOMS.get();
+        if (curr == null || curr.generation != GENERATION.get()) {
+            curr = new ThreadRandom();
+            RANDOMS.set(curr);
         }
-        return RANDOMS.get(curr);
+        return curr.random;
     }
 
     /**
@@ -105,21 +138,14 @@ public final class Random {
      * @return
      */
     public static java.util.Random getInstance(final Object key) {
-        if (!SPECIFIC_RANDOMS.containsKey(key)) {
-            if (doSeed) {
-                SPECIFIC_RANDOMS.put(key, new java.util.Random(seedValue));
-            } else {
-                SPECIFIC_RANDOMS.put(key, new java.util.Random());
-            }
-        }
-        return SPECIFIC_RANDOMS.get(key);
+        return SPECIFIC_RANDOMS.computeIfAbsent(key, (k) -> newRandom());
     }
 
     /**
      * Reset the random object to initial state (only useful if the random
      * object is seeded). This will clear the PUID counters.
      */
-    public static synchronized void reset() {
+    public static void reset() {
         reset(true);
     }
 
@@ -129,7 +155,7 @@ public final class Random {
      * @param c
      * @param value
      */
-    public static synchronized void reset(Class<?> c, long value) {
+    public static void reset(Class<?> c, long value) {
         String key = DEFAULT_KEY;
         switch (incrementType) {
             case useClass:
@@ -139,11 +165,7 @@ public final class Random {
                 key = c.getPackage().getName();
                 break;
         }
-        if (!COUNTERS.containsKey(key)) {
-            COUNTERS.put(key, new AtomicLong(1));
-        }
-        AtomicLong l = COUNTERS.get(key);
-        l.set(value + 1);
+        COUNTERS.computeIfAbsent(key, (k) -> new AtomicLong(1)).set(value + 1);
     }
 
     /**
@@ -153,8 +175,8 @@ public final class Random {
      *
      * @param clearCount specify if we want to clear the UUID values.
      */
-    public static synchronized void reset(final boolean clearCount) {
-        RANDOMS.clear();
+    public static void reset(final boolean clearCount) {
+        GENERATION.incrementAndGet();
         SPECIFIC_RANDOMS.clear();
         if (clearCount) {
             COUNTERS.clear();
@@ -178,7 +200,7 @@ public final class Random {
      * @param type
      * @return
      */
-    public static synchronized String getPUID(final Class<?> c, UuidIncrementType type) {
+    public static String getPUID(final Class<?> c, UuidIncrementType type) {
         String key = DEFAULT_KEY;
         switch (type) {
             case useClass:
@@ -188,12 +210,7 @@ public final class Random {
                 key = c.getPackage().getName();
                 break;
         }
-        if (!COUNTERS.containsKey(key)) {
-            COUNTERS.put(key, new AtomicLong(1));
-        }
-        AtomicLong l = COUNTERS.get(key);
-
-        Long l2 = l.getAndIncrement();
+        Long l2 = COUNTERS.computeIfAbsent(key, (k) -> new AtomicLong(1)).getAndIncrement();
         return key + "-" + l2.toString();
     }
 
@@ -203,7 +220,7 @@ public final class Random {
      * @param c the class type
      * @return a new PUID value
      */
-    public static synchronized String getPUID(final Class<?> c) {
+    public static String getPUID(final Class<?> c) {
         return getPUID(c, incrementType);
     }
 
@@ -215,7 +232,7 @@ public final class Random {
      * @param strength the strength of the PUID (unused for now)
      * @return a new PUID value
      */
-    public static synchronized String getPUID(final Class<?> c, final int strength) {
+    public static String getPUID(final Class<?> c, final int strength) {
         return getPUID(c);
     }
 
@@ -225,7 +242,7 @@ public final class Random {
      * @param random
      * @return a random true/false value
      */
-    public static synchronized boolean nextBoolean(java.util.Random random) {
+    public static boolean nextBoolean(java.util.Random random) {
         return random.nextBoolean();
     }
 
@@ -234,7 +251,7 @@ public final class Random {
      *
      * @return a random true/false value
      */
-    public static synchronized boolean nextBoolean() {
+    public static boolean nextBoolean() {
         return nextBoolean(getInstance());
     }
 
@@ -244,7 +261,7 @@ public final class Random {
      * @param random
      * @return a random tri-state value TRUE/FALSE/MAYBE
      */
-    public static synchronized TriState nextTriState(java.util.Random random) {
+    public static TriState nextTriState(java.util.Random random) {
         double d = random.nextDouble();
         if (d < (1.0 / 3.0)) {
             return TriState.FALSE;
@@ -260,7 +277,7 @@ public final class Random {
      *
      * @return a random tri-state value TRUE/FALSE/MAYBE
      */
-    public static synchronized TriState nextTriState() {
+    public static TriState nextTriState() {
         return nextTriState(getInstance());
     }
 
@@ -270,7 +287,7 @@ public final class Random {
      * @param random
      * @return a new double value from 0.0 inclusive to 1.0 exclusive.
      */
-    public static synchronized double nextDouble(java.util.Random random) {
+    public static double nextDouble(java.util.Random random) {
         return random.nextDouble();
     }
 
@@ -294,7 +311,7 @@ public final class Random {
      *
      * @return a new double value from 0.0 inclusive to 1.0 exclusive.
      */
-    public static synchronized double nextDouble() {
+    public static double nextDouble() {
         return nextDouble(getInstance());
     }
 
@@ -304,7 +321,7 @@ public final class Random {
      * @param random
      * @return a new float value from 0.0 inclusive to 1.0 exclusive.
      */
-    public static synchronized float nextFloat(java.util.Random random) {
+    public static float nextFloat(java.util.Random random) {
         return random.nextFloat();
     }
 
@@ -313,7 +330,7 @@ public final class Random {
      *
      * @return a new float value from 0.0 inclusive to 1.0 exclusive.
      */
-    public static synchronized float nextFloat() {
+    public static float nextFloat() {
         return nextFloat(getInstance());
     }
 
@@ -323,7 +340,7 @@ public final class Random {
      * @param random
      * @return a random integer
      */
-    public static synchronized int nextInt(java.util.Random random) {
+    public static int nextInt(java.util.Random random) {
         return random.nextInt();
     }
 
@@ -332,7 +349,7 @@ public final class Random {
      *
      * @return a random integer
      */
-    public static synchronized int nextInt() {
+    public static int nextInt() {
         return nextInt(getInstance());
     }
 
@@ -343,7 +360,7 @@ public final class Random {
      * @param n the specified value
      * @return a random integer >= 0 and < n
      */
-    public static synchronized int nextInt(java.util.Random random, final int n) {
+    public static int nextInt(java.util.Random random, final int n) {
         return random.nextInt(Math.max(1, n));
     }
 
@@ -353,7 +370,7 @@ public final class Random {
      * @param n the specified value
      * @return a random integer >= 0 and < n
      */
-    public static synchronized int nextInt(final int n) {
+    public static int nextInt(final int n) {
         return nextInt(getInstance(), Math.max(1, n));
     }
 
@@ -365,7 +382,7 @@ public final class Random {
      * @param max the max value (exclusive)
      * @return a random integer within the specified range.
      */
-    public static synchronized int nextInt(java.util.Random random, final int min, final int max) {
+    public static int nextInt(java.util.Random random, final int min, final int max) {
         return (random.nextInt(Math.max(1, max - min)) + min);
     }
 
@@ -376,7 +393,7 @@ public final class Random {
      * @param max the max value (exclusive)
      * @return a random integer within the specified range.
      */
-    public static synchronized int nextInt(final int min, final int max) {
+    public static int nextInt(final int min, final int max) {
         return nextInt(getInstance(), min, max);
     }
 
@@ -386,7 +403,7 @@ public final class Random {
      * @param random
      * @return a random long value.
      */
-    public static synchronized long nextLong(java.util.Random random) {
+    public static long nextLong(java.util.Random random) {
         return random.nextLong();
     }
 
@@ -395,7 +412,7 @@ public final class Random {
      *
      * @return a random long value.
      */
-    public static synchronized long nextLong() {
+    public static long nextLong() {
         return nextLong(getInstance());
     }
 
@@ -406,7 +423,7 @@ public final class Random {
      * @param max
      * @return
      */
-    public static synchronized long nextLong(java.util.Random random, final long max) {
+    public static long nextLong(java.util.Random random, final long max) {
         // error checking and 2^x checking removed for simplicity.
         return nextLong(random, 0, Math.max(max, 1));
     }
@@ -417,7 +434,7 @@ public final class Random {
      * @param max
      * @return
      */
-    public static synchronized long nextLong(final long max) {
+    public static long nextLong(final long max) {
         // error checking and 2^x checking removed for simplicity.
         return nextLong(getInstance(), max);
     }
@@ -430,7 +447,7 @@ public final class Random {
      * @param max
      * @return
      */
-    public static synchronized long nextLong(java.util.Random random, final long min, final long max) {
+    public static long nextLong(java.util.Random random, final long min, final long max) {
         // error checking and 2^x checking removed for simplicity.
         long bits, val;
         java.util.Random rng = random;
@@ -449,7 +466,7 @@ public final class Random {
      * @param max
      * @return
      */
-    public static synchronized long nextLong(final long min, final long max) {
+    public static long nextLong(final long min, final long max) {
         // error checking and 2^x checking removed for simplicity.
         long bits, val;
         java.util.Random rng = getInstance();
@@ -467,7 +484,7 @@ public final class Random {
      * @param key the key for the Guassian series.
      * @return a random value with a Guassian distribution.
      */
-    public static synchronized double nextGaussian(final Object key) {
+    public static double nextGaussian(final Object key) {
         return getInstance(key).nextGaussian();
     }
 
@@ -745,7 +762,7 @@ public final class Random {
      * @return a random real number from a standard Gaussian distribution (mean
      * 0 and standard deviation 1).
      */
-    public static synchronized double gaussian() {
+    public static double gaussian() {
         // use the polar form of the Box-Muller transform
         double r, x, y;
         do {
@@ -864,7 +881,7 @@ public final class Random {
      * @throws IllegalArgumentException unless <tt>probabilities[i] >= 0.0</tt>
      * for each index <tt>i</tt>
      */
-    public static synchronized int discrete(double[] probabilities) {
+    public static int discrete(double[] probabilities) {
         if (probabilities == null) {
             throw new NullPointerException("argument array is null");
         }
@@ -961,7 +978,7 @@ public final class Random {
      * @param a the array to shuffle
      * @throws NullPointerException if <tt>a</tt> is <tt>null</tt>
      */
-    public static synchronized void shuffle(Object[] a) {
+    public static void shuffle(Object[] a) {
         if (a == null) {
             throw new NullPointerException("argument array is null");
         }
@@ -980,7 +997,7 @@ public final class Random {
      * @param a the array to shuffle
      * @throws NullPointerException if <tt>a</tt> is <tt>null</tt>
      */
-    public static synchronized void shuffle(double[] a) {
+    public static void shuffle(double[] a) {
         if (a == null) {
             throw new NullPointerException("argument array is null");
         }
@@ -999,7 +1016,7 @@ public final class Random {
      * @param a the array to shuffle
      * @throws NullPointerException if <tt>a</tt> is <tt>null</tt>
      */
-    public static synchronized void shuffle(int[] a) {
+    public static void shuffle(int[] a) {
         if (a == null) {
             throw new NullPointerException("argument array is null");
         }
@@ -1024,7 +1041,7 @@ public final class Random {
      * (hi < a.length)</tt>
      *
      */
-    public static synchronized void shuffle(Object[] a, int lo, int hi) {
+    public static void shuffle(Object[] a, int lo, int hi) {
         if (a == null) {
             throw new NullPointerException("argument array is null");
         }
@@ -1050,7 +1067,7 @@ public final class Random {
      * @throws IndexOutOfBoundsException unless <tt>(0 <= lo) && (lo <= hi) &&
      * (hi < a.length)</tt>
      */
-    public static synchronized void shuffle(double[] a, int lo, int hi) {
+    public static void shuffle(double[] a, int lo, int hi) {
         if (a == null) {
             throw new NullPointerException("argument array is null");
         }
@@ -1076,7 +1093,7 @@ public final class Random {
      * @throws IndexOutOfBoundsException unless <tt>(0 <= lo) && (lo <= hi) &&
      * (hi < a.length)</tt>
      */
-    public static synchronized void shuffle(int[] a, int lo, int hi) {
+    public static void shuffle(int[] a, int lo, int hi) {
         if (a == null) {
             throw new NullPointerException("argument array is null");
         }
@@ -113,10 +113,10 @@ public final class TypeHandler {
      * @param <T>
      * @param to
      * @param val
-     * @return
+     * @return null if there is no converter for the types.
      */
     public static <T> T convert(Class<T> to, Object val) {
         Converter lookup = UtilsBeanFactory.getConverter(val.getClass(), to);
-        return lookup.convert(to, val);
+        return lookup != null ? lookup.convert(to, val) : null;
     }
 }
@@ -7,8 +7,12 @@
 package org.tros.utils.converters;
 
 import java.awt.Color;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import org.apache.commons.beanutils.ConvertUtilsBean;
 import org.apache.commons.beanutils.Converter;
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -20,6 +24,49 @@ import org.apache.commons.lang3.tuple.ImmutablePair;
  */
 public class ColorConverter implements Converter, ConverterRegister {
 
+    //keyed by lower case name, so darkGray and DARK_GRAY are both darkgray.
+    private static final HashMap<String, Color> NAMED;
+
+    /**
+     * Static Constructor, finds the named colors once rather than on each
+     * conversion.
+     */
+    static {
+        NAMED = new HashMap<>();
+        for (Field f : Color.class.getFields()) {
+            if (Modifier.isStatic(f.getModifiers()) && f.getType() == Color.class) {
+                try {
+                    NAMED.put(f.getName().toLowerCase(Locale.ROOT), (Color) f.get(null));
+                } catch (IllegalArgumentException | IllegalAccessException ex) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Look up a color by its name in {@link Color}, ignoring case, or as a
+     * hex value.
+     *
+     * @param color
+     * @return black if the color is unknown.
+     */
+    public static Color getColorByName(String color) {
+        color = color.toLowerCase(Locale.ROOT);
+        Color named = NAMED.get(color);
+        if (named != null) {
+            return named;
+        }
+        if (!color.startsWith("#")) {
+            color = "#" + color;
+        }
+        try {
+            return Color.decode(color);
+        } catch (NumberFormatException ex) {
+            org.tros.utils.logging.Logging.getLogFactory().getLogger(ColorConverter.class).warn("Unknown color: {0}", color);
+        }
+        return Color.black;
+    }
+
     /**
      * Convert.
      *
@@ -39,11 +86,8 @@ public class ColorConverter implements Converter, ConverterRegister {
                 return (T) value;
             }
         } else {
-            try {
-                return (T) Color.class.getField(value.toString()).get(null);
-            } catch (NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException ex) {
-            }
-            return (T) Color.decode(value.toString());
+            Color named = NAMED.get(value.toString().toLowerCase(Locale.ROOT));
+            return (T) (named != null ? named : Color.decode(value.toString()));
         }
     }
 
@@ -43,10 +43,10 @@ public class DateConverter implements Converter, ConverterRegister {
         if (value == null) {
             return null;
         }
-        if (Date.class.isAssignableFrom(value.getClass())) {
+        if (value instanceof Date) {
             Date val = (Date) value;
             return (T) TypeHandler.dateToString(val);
-        } else if (Calendar.class.isAssignableFrom(value.getClass())) {
+        } else if (value instanceof Calendar) {
             Calendar val = (Calendar) value;
             return (T) TypeHandler.dateToString(val);
         } else if (Calendar.class.isAssignableFrom(type)) {
@@ -10,7 +10,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.beanutils.BeanUtilsBean;
 import org.apache.commons.beanutils.ConvertUtilsBean;
 import org.apache.commons.beanutils.Converter;
@@ -22,12 +24,23 @@ import org.apache.commons.lang3.tuple.ImmutablePair;
  *
  * A single object does not have to know how to do all conversions concerning a
  * type, they can be added piece-by-piece.
+ * <p>
+ * Lookups are cached per pair of types, including pairs without a converter,
+ * so the registered conversions and the default beanutils converters are only
+ * searched once. Converters registered with beanutils after a pair has been
+ * looked up are not seen for that pair.
  *
  * @author matta
  */
 public final class UtilsBeanFactory {
 
     private static final Map<Class<?>, ArrayList<ImmutablePair<Class<?>, BeanUtilsBean>>> MAP;
+    private static final ClassValue<ConcurrentHashMap<Class<?>, Optional<Converter>>> CACHE = new ClassValue<ConcurrentHashMap<Class<?>, Optional<Converter>>>() {
+        @Override
+        protected ConcurrentHashMap<Class<?>, Optional<Converter>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
 
     private UtilsBeanFactory() {
     }
@@ -61,9 +74,20 @@ public final class UtilsBeanFactory {
      *
      * @param from
      * @param to
-     * @return
+     * @return null if there is no converter.
      */
     public static Converter getConverter(Class<?> from, Class<?> to) {
+        return CACHE.get(from).computeIfAbsent(to, (t) -> Optional.ofNullable(lookup(from, t))).orElse(null);
+    }
+
+    /**
+     * Find a converter that goes from From to To, without the cache.
+     *
+     * @param from
+     * @param to
+     * @return
+     */
+    static Converter lookup(Class<?> from, Class<?> to) {
         if (MAP.containsKey(from)) {
             ArrayList<ImmutablePair<Class<?>, BeanUtilsBean>> m2 = MAP.get(from);
             for (ImmutablePair<Class<?>, BeanUtilsBean> p : m2) {
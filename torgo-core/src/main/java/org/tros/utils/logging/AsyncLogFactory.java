@@ -0,0 +1,387 @@
+/*
+ * This work is licensed under the Creative Commons Attribution 3.0 Unported
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/3.0/ or send a letter to Creative
+ * Commons, 171 Second Street, Suite 300, San Francisco, California, 94105, USA.
+ */
+package org.tros.utils.logging;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.tros.utils.Mailbox;
+
+/**
+ * Hands log records to a background thread, which formats and writes them
+ * with the loggers of another factory. The calling thread only checks the
+ * level and queues the format and its objects, so a disabled level costs a
+ * check and an enabled one never waits on formatting or handlers, unless the
+ * queue is full.
+ * <p>
+ * Objects are formatted when the record is written, so they should not
+ * change after being logged. Records from one thread are written in order.
+ *
+ * @author matta
+ */
+public final class AsyncLogFactory implements LogFactory {
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    private static final int BATCH_SIZE = 256;
+
+    private final LogFactory delegate;
+    private final Mailbox<Record> queue;
+    private final ConcurrentHashMap<String, Logger> loggers = new ConcurrentHashMap<>();
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final Thread writer;
+
+    /**
+     * The levels of the logger interface.
+     */
+    private enum Level {
+
+        VERBOSE,
+        DEBUG,
+        INFO,
+        WARN,
+        ERROR,
+        FATAL
+    }
+
+    /**
+     * A message to write.
+     */
+    private static final class Record {
+
+        private final Logger logger;
+        private final Level level;
+        private final String format;
+        private final Object[] objs;
+        private final Throwable thrw;
+
+        Record(Logger logger, Level level, String format, Object[] objs, Throwable thrw) {
+            this.logger = logger;
+            this.level = level;
+            this.format = format;
+            this.objs = objs;
+            this.thrw = thrw;
+        }
+
+        void write() {
+            switch (level) {
+                case VERBOSE:
+                    if (objs != null) {
+                        logger.verbose(format, objs);
+                    } else {
+                        logger.verbose(format, thrw);
+                    }
+                    break;
+                case DEBUG:
+                    if (objs != null) {
+                        logger.debug(format, objs);
+                    } else {
+                        logger.debug(format, thrw);
+                    }
+                    break;
+                case INFO:
+                    if (objs != null) {
+                        logger.info(format, objs);
+                    } else {
+                        logger.info(format, thrw);
+                    }
+                    break;
+                case WARN:
+                    if (objs != null) {
+                        logger.warn(format, objs);
+                    } else {
+                        logger.warn(format, thrw);
+                    }
+                    break;
+                case ERROR:
+                    if (objs != null) {
+                        logger.error(format, objs);
+                    } else {
+                        logger.error(format, thrw);
+                    }
+                    break;
+                default:
+                    if (objs != null) {
+                        logger.fatal(format, objs);
+                    } else {
+                        logger.fatal(format, thrw);
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param delegate the factory whose loggers write the records.
+     */
+    public AsyncLogFactory(LogFactory delegate) {
+        this(delegate, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param delegate the factory whose loggers write the records.
+     * @param capacity the most records waiting to be written before logging
+     * threads have to wait.
+     */
+    public AsyncLogFactory(LogFactory delegate, int capacity) {
+        this.delegate = delegate;
+        this.queue = new Mailbox<>(capacity, Mailbox.Overflow.BLOCK);
+        this.writer = new Thread(this::write, "torgo-log");
+        writer.setDaemon(true);
+        writer.setPriority(Thread.MIN_PRIORITY);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            flushOnExit(1, TimeUnit.SECONDS);
+        }));
+    }
+
+    private void write() {
+        ArrayList<Record> batch = new ArrayList<>(BATCH_SIZE);
+        while (queue.awaitMessages(batch, BATCH_SIZE) >= 0) {
+            for (Record record : batch) {
+                try {
+                    record.write();
+                } catch (RuntimeException ex) {
+                    //a bad format or object should not stop the writer.
+                    java.util.logging.Logger.getLogger(AsyncLogFactory.class.getName()).log(java.util.logging.Level.SEVERE, null, ex);
+                }
+            }
+            written.addAndGet(batch.size());
+            batch.clear();
+        }
+    }
+
+    /**
+     * Wait for the records queued so far to be written.
+     *
+     * @param timeout
+     * @param unit
+     * @return false if the wait timed out.
+     */
+    public boolean flush(long timeout, TimeUnit unit) {
+        long target = queued.get();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (written.get() < target) {
+            if (System.nanoTime() - deadline >= 0 || queue.isHalted()) {
+                return false;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+
+    /**
+     * Flush before exiting and report any records that could not be written
+     * in time, so they are not dropped silently.
+     *
+     * @param timeout
+     * @param unit
+     * @return the number of records that were not written.
+     */
+    long flushOnExit(long timeout, TimeUnit unit) {
+        if (flush(timeout, unit)) {
+            return 0;
+        }
+        long lost = queued.get() - written.get();
+        if (lost > 0) {
+            java.util.logging.Logger.getLogger(AsyncLogFactory.class.getName()).log(java.util.logging.Level.WARNING, "{0} log records were not written before exit.", lost);
+        }
+        return lost;
+    }
+
+    /**
+     * Stop writing records. Records that have not been written are dropped.
+     */
+    public void close() {
+        queue.halt();
+    }
+
+    private void log(Logger logger, Level level, String format, Object[] objs, Throwable thrw) {
+        if (queue.addMessage(new Record(logger, level, format, objs, thrw))) {
+            queued.incrementAndGet();
+        }
+    }
+
+    @Override
+    public Logger getLogger(Class<?> c) {
+        return getLogger(c.getName());
+    }
+
+    @Override
+    public Logger getLogger(String name) {
+        return loggers.computeIfAbsent(name, (n) -> new AsyncLogger(delegate.getLogger(n)));
+    }
+
+    /**
+     * Checks the level of the logger it writes with, then queues the record.
+     */
+    private final class AsyncLogger implements Logger {
+
+        private final Logger logger;
+
+        AsyncLogger(Logger logger) {
+            this.logger = logger;
+        }
+
+        @Override
+        public boolean isVerboseEnabled() {
+            return logger.isVerboseEnabled();
+        }
+
+        @Override
+        public boolean isDebugEnabled() {
+            return logger.isDebugEnabled();
+        }
+
+        @Override
+        public boolean isInfoEnabled() {
+            return logger.isInfoEnabled();
+        }
+
+        @Override
+        public boolean isWarnEnabled() {
+            return logger.isWarnEnabled();
+        }
+
+        @Override
+        public boolean isErrorEnabled() {
+            return logger.isErrorEnabled();
+        }
+
+        @Override
+        public void warn(String message) {
+            if (logger.isWarnEnabled()) {
+                log(logger, Level.WARN, message, null, null);
+            }
+        }
+
+        @Override
+        public void warn(String format, Object... objs) {
+            if (logger.isWarnEnabled()) {
+                log(logger, Level.WARN, format, objs, null);
+            }
+        }
+
+        @Override
+        public void warn(String message, Throwable thrw) {
+            if (logger.isWarnEnabled()) {
+                log(logger, Level.WARN, message, null, thrw);
+            }
+        }
+
+        @Override
+        public void debug(String message) {
+            if (logger.isDebugEnabled()) {
+                log(logger, Level.DEBUG, message, null, null);
+            }
+        }
+
+        @Override
+        public void debug(String format, Object... objs) {
+            if (logger.isDebugEnabled()) {
+                log(logger, Level.DEBUG, format, objs, null);
+            }
+        }
+
+        @Override
+        public void debug(String message, Throwable thrw) {
+            if (logger.isDebugEnabled()) {
+                log(logger, Level.DEBUG, message, null, thrw);
+            }
+        }
+
+        @Override
+        public void error(String message) {
+            if (logger.isErrorEnabled()) {
+                log(logger, Level.ERROR, message, null, null);
+            }
+        }
+
+        @Override
+        public void error(String format, Object... objs) {
+            if (logger.isErrorEnabled()) {
+                log(logger, Level.ERROR, format, objs, null);
+            }
+        }
+
+        @Override
+        public void error(String message, Throwable thrw) {
+            if (logger.isErrorEnabled()) {
+                log(logger, Level.ERROR, message, null, thrw);
+            }
+        }
+
+        @Override
+        public void info(String message) {
+            if (logger.isInfoEnabled()) {
+                log(logger, Level.INFO, message, null, null);
+            }
+        }
+
+        @Override
+        public void info(String format, Object... objs) {
+            if (logger.isInfoEnabled()) {
+                log(logger, Level.INFO, format, objs, null);
+            }
+        }
+
+        @Override
+        public void info(String message, Throwable thrw) {
+            if (logger.isInfoEnabled()) {
+                log(logger, Level.INFO, message, null, thrw);
+            }
+        }
+
+        @Override
+        public void verbose(String message) {
+            if (logger.isVerboseEnabled()) {
+                log(logger, Level.VERBOSE, message, null, null);
+            }
+        }
+
+        @Override
+        public void verbose(String format, Object... objs) {
+            if (logger.isVerboseEnabled()) {
+                log(logger, Level.VERBOSE, format, objs, null);
+            }
+        }
+
+        @Override
+        public void verbose(String message, Throwable thrw) {
+            if (logger.isVerboseEnabled()) {
+                log(logger, Level.VERBOSE, message, null, thrw);
+            }
+        }
+
+        @Override
+        public void fatal(String format, Object... objs) {
+            if (logger.isErrorEnabled()) {
+                log(logger, Level.FATAL, format, objs, null);
+            }
+        }
+
+        @Override
+        public void fatal(String message) {
+            if (logger.isErrorEnabled()) {
+                log(logger, Level.FATAL, message, null, null);
+            }
+        }
+
+        @Override
+        public void fatal(String message, Throwable thrw) {
+            if (logger.isErrorEnabled()) {
+                log(logger, Level.FATAL, message, null, thrw);
+            }
+        }
+    }
+}
@@ -20,6 +20,31 @@ public final class CommonsLogger implements Logger {
         this.log = log;
     }
 
+    @Override
+    public boolean isVerboseEnabled() {
+        return log.isTraceEnabled();
+    }
+
+    @Override
+    public boolean isDebugEnabled() {
+        return log.isDebugEnabled();
+    }
+
+    @Override
+    public boolean isInfoEnabled() {
+        return log.isInfoEnabled();
+    }
+
+    @Override
+    public boolean isWarnEnabled() {
+        return log.isWarnEnabled();
+    }
+
+    @Override
+    public boolean isErrorEnabled() {
+        return log.isErrorEnabled();
+    }
+
     @Override
     public void warn(String message) {
         log.warn(message);
@@ -27,7 +52,9 @@ public final class CommonsLogger implements Logger {
 
     @Override
     public void warn(String format, Object... objs) {
-        log.warn(MessageFormat.format(format, objs));
+        if (log.isWarnEnabled()) {
+            log.warn(MessageFormat.format(format, objs));
+        }
     }
 
     @Override
@@ -42,7 +69,9 @@ public final class CommonsLogger implements Logger {
 
     @Override
     public void debug(String format, Object... objs) {
-        log.debug(MessageFormat.format(format, objs));
+        if (log.isDebugEnabled()) {
+            log.debug(MessageFormat.format(format, objs));
+        }
     }
 
     @Override
@@ -57,7 +86,9 @@ public final class CommonsLogger implements Logger {
 
     @Override
     public void error(String format, Object... objs) {
-        log.error(MessageFormat.format(format, objs));
+        if (log.isErrorEnabled()) {
+            log.error(MessageFormat.format(format, objs));
+        }
     }
 
     @Override
@@ -72,7 +103,9 @@ public final class CommonsLogger implements Logger {
 
     @Override
     public void info(String format, Object... objs) {
-        log.info(MessageFormat.format(format, objs));
+        if (log.isInfoEnabled()) {
+            log.info(MessageFormat.format(format, objs));
+        }
     }
 
     @Override
@@ -87,10 +120,11 @@ public final class CommonsLogger implements Logger {
 
     @Override
     public void verbose(String format, Object... objs) {
-        log.trace(MessageFormat.format(format, objs));
+        if (log.isTraceEnabled()) {
+            log.trace(MessageFormat.format(format, objs));
+        }
     }
 
-
     @Override
     public void verbose(String message, Throwable thrw) {
         log.trace(message, thrw);
@@ -103,7 +137,9 @@ public final class CommonsLogger implements Logger {
 
     @Override
     public void fatal(String format, Object... objs) {
-        log.fatal(MessageFormat.format(format, objs));
+        if (log.isFatalEnabled()) {
+            log.fatal(MessageFormat.format(format, objs));
+        }
     }
 
     @Override
@@ -0,0 +1,134 @@
+/*
+ * This work is licensed under the Creative Commons Attribution 3.0 Unported
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/3.0/ or send a letter to Creative
+ * Commons, 171 Second Street, Suite 300, San Francisco, California, 94105, USA.
+ */
+package org.tros.utils.logging;
+
+import java.util.function.Supplier;
+
+/**
+ * Messages with a format and objects are only formatted if their level is
+ * enabled. Code that builds its message up front on a hot path should check
+ * the level first, or pass a supplier.
+ *
+ * @author matta
+ */
+public interface Logger {
+
+    /**
+     * Check to see if verbose messages are logged. Loggers that cannot tell
+     * report true.
+     *
+     * @return
+     */
+    default boolean isVerboseEnabled() {
+        return true;
+    }
+
+    /**
+     * Check to see if debug messages are logged.
+     *
+     * @return
+     */
+    default boolean isDebugEnabled() {
+        return true;
+    }
+
+    /**
+     * Check to see if info messages are logged.
+     *
+     * @return
+     */
+    default boolean isInfoEnabled() {
+        return true;
+    }
+
+    /**
+     * Check to see if warnings are logged.
+     *
+     * @return
+     */
+    default boolean isWarnEnabled() {
+        return true;
+    }
+
+    /**
+     * Check to see if errors are logged.
+     *
+     * @return
+     */
+    default boolean isErrorEnabled() {
+        return true;
+    }
+
+    void warn(String message);
+
+    void warn(String format, Object... objs);
+
+    void warn(String message, Throwable thrw);
+
+    void debug(String message);
+
+    void debug(String format, Object... objs);
+
+    void debug(String message, Throwable thrw);
+
+    /**
+     * Log a message built only if debug logging is enabled.
+     *
+     * @param message
+     */
+    default void debug(Supplier<String> message) {
+        if (isDebugEnabled()) {
+            debug(message.get());
+        }
+    }
+
+    void error(String message);
+
+    void error(String format, Object... objs);
+
+    void error(String message, Throwable thrw);
+
+    void info(String message);
+
+    void info(String format, Object... objs);
+
+    void info(String message, Throwable thrw);
+
+    /**
+     * Log a message built only if info logging is enabled.
+     *
+     * @param message
+     */
+    default void info(Supplier<String> message) {
+        if (isInfoEnabled()) {
+            info(message.get());
+        }
+    }
+
+    void verbose(String message);
+
+    void verbose(String format, Object... objs);
+
+    void verbose(String message, Throwable thrw);
+
+    /**
+     * Log a message built only if verbose logging is enabled.
+     *
+     * @param message
+     */
+    default void verbose(Supplier<String> message) {
+        if (isVerboseEnabled()) {
+            verbose(message.get());
+        }
+    }
+
+    void fatal(String format, Object... objs);
+
+    void fatal(String message);
+
+    void fatal(String message, Throwable thrw);
+}
@@ -31,10 +31,16 @@ import org.apache.commons.io.IOUtils;
 public final class Logging {
 
     private static final LogFactory LOG_FACTORY;
+    private static final String SWING_HANDLER = "org.tros.utils.logging.SwingComponentHandler";
 
     static {
         ServiceLoader<LogFactory> logFactories = ServiceLoader.load(LogFactory.class);
-        LOG_FACTORY = logFactories.iterator().next();
+        LogFactory factory = logFactories.iterator().next();
+        //formatting and writing can be moved off of the logging threads.
+        if (Boolean.getBoolean("torgo.logging.async")) {
+            factory = new AsyncLogFactory(factory, Integer.getInteger("torgo.logging.async.capacity", AsyncLogFactory.DEFAULT_CAPACITY));
+        }
+        LOG_FACTORY = factory;
     }
 
     private Logging() {
@@ -83,20 +89,46 @@ public final class Logging {
         //Small hack to close SwingComponentHandler which should only be used by a GUI
         //however, if the logging.properties file is already set with this handler, remove
         //it and then the GUI will manually re-add it in the LogConsole constructor.
+        //It is taken out of the root handlers as the file is loaded, since building
+        //its text pane is slow; this catches it if it was configured elsewhere.
         Logger logger = Logger.getLogger("");
-        try {
-            Class<?> swingLogger = Class.forName("org.tros.utils.logging.SwingComponentHandler");
-            for (Handler h : logger.getHandlers()) {
-                if (swingLogger.isAssignableFrom(h.getClass())) {
-                    logger.removeHandler(h);
-                    h.close();
-                }
+        for (Handler h : logger.getHandlers()) {
+            if (isSwingHandler(h.getClass())) {
+                logger.removeHandler(h);
+                h.close();
             }
-        } catch (ClassNotFoundException ex) {
-            Logger.getLogger(Logging.class.getName()).log(Level.SEVERE, null, ex);
         }
     }
 
+    /**
+     * Remove the Swing handler from a handlers line, so the log manager does
+     * not create it only to have it removed again.
+     *
+     * @param line
+     * @return
+     */
+    private static String withoutSwingHandler(String line) {
+        int eq = line.indexOf('=');
+        StringBuilder sb = new StringBuilder(line.substring(0, eq + 1));
+        String separator = " ";
+        for (String handler : line.substring(eq + 1).split(",")) {
+            if (!handler.trim().equals(SWING_HANDLER) && !handler.trim().isEmpty()) {
+                sb.append(separator).append(handler.trim());
+                separator = ", ";
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isSwingHandler(Class<?> c) {
+        for (; c != null; c = c.getSuperclass()) {
+            if (SWING_HANDLER.equals(c.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private static void copyFile(BuildInfo binfo, Class init, File logProp) {
         try {
             String propFile = init.getCanonicalName().replace('.', '/') + ".properties";
@@ -134,6 +166,9 @@ public final class Logging {
                         && lineFromFile.contains("java.util.logging.FileHandler.pattern")) {
                     lineFromFile = "java.util.logging.FileHandler.pattern = " + definedLogFile;
                 }
+                if (lineFromFile.startsWith("handlers") && lineFromFile.contains(SWING_HANDLER)) {
+                    lineFromFile = withoutSwingHandler(lineFromFile);
+                }
                 sb.append(lineFromFile).append(System.getProperty("line.separator"));
             }
 
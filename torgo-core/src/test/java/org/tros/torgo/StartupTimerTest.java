@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.torgo;
+
+import java.util.logging.Logger;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.tros.utils.logging.Logging;
+
+/**
+ *
+ * @author matta
+ */
+public class StartupTimerTest {
+
+    private final static Logger LOGGER;
+
+    static {
+        Logging.initLogging(TorgoInfo.INSTANCE);
+        LOGGER = Logger.getLogger(StartupTimerTest.class.getName());
+    }
+
+    public StartupTimerTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test that phases keep their first mark and are reported in order.
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void testMark() throws InterruptedException {
+        LOGGER.info("mark");
+        assertEquals(-1, StartupTimer.getMillis("test phase one"));
+        StartupTimer.mark("test phase one");
+        long first = StartupTimer.getMillis("test phase one");
+        assertTrue(first >= 0);
+
+        Thread.sleep(20);
+        StartupTimer.mark("test phase one");
+        assertEquals(first, StartupTimer.getMillis("test phase one"));
+
+        StartupTimer.finish("test phase two");
+        assertTrue(StartupTimer.getMillis("test phase two") >= first + 20);
+        String report = StartupTimer.report();
+        assertTrue(report.indexOf("test phase one") < report.indexOf("test phase two"));
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.torgo.metrics;
+
+import java.util.Random;
+import java.util.logging.Logger;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.tros.torgo.TorgoInfo;
+import org.tros.utils.logging.Logging;
+
+/**
+ *
+ * @author matta
+ */
+public class HistogramTest {
+
+    private final static Logger LOGGER;
+
+    static {
+        Logging.initLogging(TorgoInfo.INSTANCE);
+        LOGGER = Logger.getLogger(HistogramTest.class.getName());
+    }
+
+    public HistogramTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test that every value falls in a bucket whose highest value is at or
+     * above it and within the precision of the histogram.
+     */
+    @Test
+    public void testBuckets() {
+        LOGGER.info("buckets");
+        Random random = new Random(1);
+        for (int ii = 0; ii < 100000; ii++) {
+            long value = random.nextLong() >>> (1 + random.nextInt(63));
+            int bucket = Histogram.bucket(value);
+            long highest = Histogram.highest(bucket);
+            assertTrue(value + " in " + bucket, highest >= value);
+            assertTrue(value + " in " + bucket, highest - value <= value / 32);
+            if (bucket > 0) {
+                assertTrue(Histogram.highest(bucket - 1) < value);
+            }
+        }
+        assertEquals(Long.MAX_VALUE, Histogram.highest(Histogram.bucket(Long.MAX_VALUE)));
+        assertEquals(0, Histogram.bucket(0));
+    }
+
+    /**
+     * Test the percentiles of a known distribution.
+     */
+    @Test
+    public void testPercentiles() {
+        LOGGER.info("percentiles");
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getP50());
+        assertEquals(0, histogram.getMean(), 0);
+        for (int ii = 1; ii <= 10000; ii++) {
+            histogram.record(ii);
+        }
+        histogram.record(-5);
+        assertEquals(10001, histogram.getCount());
+        assertEquals(10000, histogram.getMax());
+        assertEquals(5000, histogram.getMean(), 1);
+        assertEquals(5000, histogram.getP50(), 5000 / 32);
+        assertEquals(9000, histogram.getP90(), 9000 / 32);
+        assertEquals(9900, histogram.getP99(), 9900 / 32);
+        assertEquals(10000, histogram.getPercentile(100));
+        assertEquals(0, histogram.getPercentile(0));
+        StringBuilder json = new StringBuilder();
+        histogram.toJson(json);
+        assertTrue(json.toString(), json.toString().startsWith("{\"count\": 10001, "));
+    }
+
+    /**
+     * Test that values recorded from many threads are all counted.
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void testConcurrent() throws InterruptedException {
+        LOGGER.info("concurrent");
+        final Histogram histogram = new Histogram();
+        final int count = 100000;
+        Thread[] threads = new Thread[4];
+        long start = System.nanoTime();
+        for (int ii = 0; ii < threads.length; ii++) {
+            threads[ii] = new Thread(() -> {
+                for (int jj = 0; jj < count; jj++) {
+                    histogram.record(jj);
+                }
+            });
+            threads[ii].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        LOGGER.info(String.format("%d values recorded in %d ms", threads.length * count, (System.nanoTime() - start) / 1000000));
+        assertEquals(threads.length * count, histogram.getCount());
+        assertEquals(count - 1, histogram.getMax());
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.torgo.metrics;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.tros.torgo.TorgoInfo;
+import org.tros.utils.logging.Logging;
+
+/**
+ *
+ * @author matta
+ */
+public class MetricsTest {
+
+    private final static Logger LOGGER;
+
+    static {
+        Logging.initLogging(TorgoInfo.INSTANCE);
+        LOGGER = Logger.getLogger(MetricsTest.class.getName());
+    }
+
+    public MetricsTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test that metrics are made once per name and keep their type.
+     */
+    @Test
+    public void testRegistry() {
+        LOGGER.info("registry");
+        Counter counter = Metrics.counter("test.counter");
+        assertSame(counter, Metrics.counter("test.counter"));
+        assertSame(counter, Metrics.get("test.counter"));
+        counter.increment();
+        counter.add(4);
+        assertEquals(5, counter.getCount());
+        assertTrue(counter.getRate() > 0);
+
+        Maximum max = Metrics.maximum("test.max");
+        max.update(3);
+        max.update(7);
+        max.update(5);
+        assertEquals(7, max.getValue());
+
+        AtomicLong value = new AtomicLong(1);
+        Gauge gauge = Metrics.gauge("test.gauge", value::get);
+        value.set(9);
+        assertEquals(9, gauge.getValue());
+        assertNotSame(gauge, Metrics.gauge("test.gauge", value::get));
+
+        try {
+            Metrics.histogram("test.counter");
+            fail("a counter is not a histogram");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    /**
+     * Test that the metrics are registered as MBeans, including metrics made
+     * afterwards.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMBeans() throws Exception {
+        LOGGER.info("mbeans");
+        Metrics.counter("test.before").add(2);
+        Metrics.registerMBeans();
+        Metrics.registerMBeans();
+        Metrics.histogram("test.after").record(12);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertEquals(2L, server.getAttribute(new ObjectName(Metrics.DOMAIN + ":type=Metrics,name=\"test.before\""), "Count"));
+        assertEquals(12L, server.getAttribute(new ObjectName(Metrics.DOMAIN + ":type=Metrics,name=\"test.after\""), "P99"));
+        Metrics.gauge("test.replaced", () -> 1);
+        Metrics.gauge("test.replaced", () -> 2);
+        assertEquals(2L, server.getAttribute(new ObjectName(Metrics.DOMAIN + ":type=Metrics,name=\"test.replaced\""), "Value"));
+    }
+
+    /**
+     * Test that a metric is only removed by its owner, and that its MBean goes
+     * with it.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testUnregister() throws Exception {
+        LOGGER.info("unregister");
+        Metrics.registerMBeans();
+        Gauge first = Metrics.gauge("test.owned", () -> 1);
+        Gauge second = Metrics.gauge("test.owned", () -> 2);
+        assertFalse(Metrics.unregister("test.owned", first));
+        assertSame(second, Metrics.get("test.owned"));
+        ObjectName name = new ObjectName(Metrics.DOMAIN + ":type=Metrics,name=\"test.owned\"");
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        assertTrue(Metrics.unregister("test.owned", second));
+        assertNull(Metrics.get("test.owned"));
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+
+    /**
+     * Test the JSON dump.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testJson() throws Exception {
+        LOGGER.info("json");
+        Metrics.counter("test.json").add(3);
+        String json = Metrics.toJson();
+        assertTrue(json, json.startsWith("{\n"));
+        assertTrue(json, json.contains("\"test.json\": {\"count\": 3, \"rate\": "));
+        File file = File.createTempFile("torgo-metrics", ".json");
+        file.deleteOnExit();
+        Metrics.dump(file);
+        String written = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertTrue(written.contains("\"test.json\""));
+        assertTrue(written.trim().endsWith("}"));
+    }
+
+    /**
+     * Measure what a counter costs on the interpreter thread.
+     */
+    @Test
+    public void testBenchmark() {
+        LOGGER.info("benchmark");
+        Counter counter = new Counter();
+        final int count = 50000000;
+        long start = System.nanoTime();
+        for (int ii = 0; ii < count; ii++) {
+            counter.increment();
+        }
+        long elapsed = System.nanoTime() - start;
+        assertEquals(count, counter.getCount());
+        LOGGER.info(String.format("%d increments: %.2f ns each", count, (double) elapsed / count));
+    }
+}
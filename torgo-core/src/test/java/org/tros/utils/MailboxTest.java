@@ -16,6 +16,7 @@
 package org.tros.utils;
 
 import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
@@ -99,10 +100,23 @@ public class MailboxTest {
         Mailbox<Integer> ints = new Mailbox<>();
         int size = 10;
         for (int ii = 0; ii < size; ii++) {
-            ints.addMessage(ii);
+            assertTrue(ints.addMessage(ii));
         }
         assertEquals(size, ints.size());
         ints.halt();
+        assertFalse(ints.addMessage(size));
+        assertEquals(0, ints.getDropped());
+    }
+
+    /**
+     * Null messages are rejected, since null is returned when the mailbox is
+     * halted.
+     */
+    @Test(expected = NullPointerException.class)
+    public void testAddNullMessage() {
+        LOGGER.info("addNullMessage");
+        Mailbox<Integer> ints = new Mailbox<>();
+        ints.addMessage(null);
     }
 
     /**
@@ -334,4 +348,230 @@ public class MailboxTest {
             }
         }
     }
+
+    /**
+     * Test that a full mailbox drops messages when told to.
+     */
+    @Test
+    public void testDrop() {
+        LOGGER.info("drop");
+        Mailbox<Integer> ints = new Mailbox<>(4, Mailbox.Overflow.DROP);
+        for (int ii = 0; ii < 10; ii++) {
+            assertEquals(ii < 4, ints.addMessage(ii));
+        }
+        assertEquals(4, ints.size());
+        assertEquals(6, ints.getDropped());
+        assertEquals(0, ints.getMessage().intValue());
+        assertTrue(ints.addMessage(10));
+        ints.halt();
+    }
+
+    /**
+     * Test waiting for room and for messages with a timeout.
+     */
+    @Test
+    public void testTimeout() {
+        LOGGER.info("timeout");
+        Mailbox<Integer> ints = new Mailbox<>(1, Mailbox.Overflow.BLOCK);
+        assertNull(ints.getMessage(10, TimeUnit.MILLISECONDS));
+        assertTrue(ints.addMessage(1, 10, TimeUnit.MILLISECONDS));
+        assertFalse(ints.addMessage(2, 10, TimeUnit.MILLISECONDS));
+        assertEquals(1, ints.getDropped());
+        assertEquals(1, ints.getMessage(10, TimeUnit.MILLISECONDS).intValue());
+        ints.halt();
+    }
+
+    /**
+     * Test that a blocked sender continues once the receiver makes room.
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void testBlock() throws InterruptedException {
+        LOGGER.info("block");
+        final Mailbox<Integer> ints = new Mailbox<>(2, Mailbox.Overflow.BLOCK);
+        final int size = 10000;
+        Thread write = new Thread(() -> {
+            for (int ii = 0; ii < size; ii++) {
+                ints.addMessage(ii);
+            }
+        });
+        write.start();
+        for (int ii = 0; ii < size; ii++) {
+            assertEquals(ii, ints.getMessage().intValue());
+        }
+        write.join();
+        assertEquals(0, ints.getDropped());
+        ints.halt();
+    }
+
+    /**
+     * Test draining into a collection, across several segments of the ring.
+     */
+    @Test
+    public void testDrainTo() {
+        LOGGER.info("drainTo");
+        Mailbox<Integer> ints = new Mailbox<>();
+        int size = 5000;
+        for (int ii = 0; ii < size; ii++) {
+            ints.addMessage(ii);
+        }
+        ArrayList<Integer> messages = new ArrayList<>();
+        assertEquals(100, ints.drainTo(messages, 100));
+        assertEquals(size - 100, ints.awaitMessages(messages, Integer.MAX_VALUE));
+        for (int ii = 0; ii < size; ii++) {
+            assertEquals(ii, messages.get(ii).intValue());
+        }
+        assertEquals(0, ints.drainTo(messages, 100));
+        ints.halt();
+        assertEquals(-1, ints.awaitMessages(messages, 100));
+    }
+
+    /**
+     * Test that messages from many senders all arrive, each sender's in
+     * order.
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void testManySenders() throws InterruptedException {
+        LOGGER.info("manySenders");
+        final Mailbox<long[]> mailbox = new Mailbox<>(256, Mailbox.Overflow.BLOCK);
+        final int senders = 4;
+        final int size = 50000;
+        ArrayList<Thread> threads = new ArrayList<>();
+        for (int ss = 0; ss < senders; ss++) {
+            final int sender = ss;
+            Thread t = new Thread(() -> {
+                for (int ii = 0; ii < size; ii++) {
+                    mailbox.addMessage(new long[]{sender, ii});
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        long[] next = new long[senders];
+        ArrayList<long[]> batch = new ArrayList<>();
+        int received = 0;
+        while (received < senders * size) {
+            batch.clear();
+            received += mailbox.awaitMessages(batch, 64);
+            for (long[] msg : batch) {
+                assertEquals(next[(int) msg[0]]++, msg[1]);
+            }
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        mailbox.halt();
+    }
+
+    /**
+     * Compare throughput and latency with a mailbox that locks, like this one
+     * used to, and with a bounded ring whose senders block.
+     * <p>
+     * Latency here is mostly scheduling. Senders to an unbounded ring never
+     * block, so when there are fewer CPUs than threads each sender runs out
+     * its time slice before the receiver gets to run, and the messages wait.
+     * Senders to the locked mailbox block on its monitor whenever the
+     * receiver holds it, which hands the receiver the CPU sooner at the cost
+     * of throughput. A bounded ring gets the same back pressure without the
+     * lock.
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void testBenchmark() throws InterruptedException {
+        LOGGER.info("benchmark");
+        final int senders = 4;
+        final int size = 200000;
+        //best of several runs, after a warm up.
+        long[] ring = {Long.MAX_VALUE, Long.MAX_VALUE};
+        long[] bounded = {Long.MAX_VALUE, Long.MAX_VALUE};
+        long[] locked = {Long.MAX_VALUE, Long.MAX_VALUE};
+        for (int ii = 0; ii < 6; ii++) {
+            best(ring, run(new Mailbox<>(), senders, size), ii);
+            best(bounded, run(new Mailbox<>(4096, Mailbox.Overflow.BLOCK), senders, size), ii);
+            best(locked, run(new SynchronizedMailbox(), senders, size), ii);
+        }
+        LOGGER.info(String.format("messages/s: ring %.0f, bounded ring %.0f, locked %.0f; mean latency us: ring %.1f, bounded ring %.1f, locked %.1f",
+                senders * size * 1e9 / ring[0], senders * size * 1e9 / bounded[0], senders * size * 1e9 / locked[0],
+                ring[1] / 1e3 / (senders * size), bounded[1] / 1e3 / (senders * size), locked[1] / 1e3 / (senders * size)));
+    }
+
+    private static void best(long[] best, long[] result, int run) {
+        if (run > 0) {
+            best[0] = Math.min(best[0], result[0]);
+            best[1] = Math.min(best[1], result[1]);
+        }
+    }
+
+    /**
+     * The send time of every message is carried in the message, so the
+     * receiver can add up how long messages waited.
+     *
+     * @return the elapsed time and the total latency, in nanoseconds.
+     */
+    private static long[] run(Object mailbox, int senders, int size) throws InterruptedException {
+        final Mailbox<Long> ring = mailbox instanceof Mailbox ? (Mailbox<Long>) mailbox : null;
+        final SynchronizedMailbox locked = ring == null ? (SynchronizedMailbox) mailbox : null;
+        long start = System.nanoTime();
+        ArrayList<Thread> threads = new ArrayList<>();
+        for (int ss = 0; ss < senders; ss++) {
+            Thread t = new Thread(() -> {
+                for (int ii = 0; ii < size; ii++) {
+                    if (ring != null) {
+                        ring.addMessage(System.nanoTime());
+                    } else {
+                        locked.addMessage(System.nanoTime());
+                    }
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        long latency = 0;
+        int received = 0;
+        ArrayList<Long> batch = new ArrayList<>();
+        while (received < senders * size) {
+            batch.clear();
+            if (ring != null) {
+                ring.awaitMessages(batch, Integer.MAX_VALUE);
+            } else {
+                batch.addAll(locked.getMessages());
+            }
+            long now = System.nanoTime();
+            for (Long sent : batch) {
+                latency += now - sent;
+            }
+            received += batch.size();
+        }
+        long elapsed = System.nanoTime() - start;
+        for (Thread t : threads) {
+            t.join();
+        }
+        return new long[]{elapsed, latency};
+    }
+
+    /**
+     * The mailbox as it was before it was lock-free.
+     */
+    private static final class SynchronizedMailbox {
+
+        private final ArrayList<Long> messages = new ArrayList<>();
+
+        synchronized void addMessage(Long msg) {
+            messages.add(msg);
+            notifyAll();
+        }
+
+        synchronized ArrayList<Long> getMessages() throws InterruptedException {
+            while (messages.isEmpty()) {
+                wait();
+            }
+            ArrayList<Long> ret = new ArrayList<>(messages);
+            messages.clear();
+            return ret;
+        }
+    }
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.utils;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.logging.Logger;
+import javax.imageio.ImageIO;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.tros.torgo.TorgoInfo;
+import org.tros.utils.logging.Logging;
+
+/**
+ *
+ * @author matta
+ */
+public class PngStreamWriterTest {
+
+    private final static Logger LOGGER;
+
+    static {
+        Logging.initLogging(TorgoInfo.INSTANCE);
+        LOGGER = Logger.getLogger(PngStreamWriterTest.class.getName());
+    }
+
+    public PngStreamWriterTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of writeRow method, of class PngStreamWriter. The written image
+     * must be readable by ImageIO with the same pixels.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testWriteRow() throws IOException {
+        LOGGER.info("writeRow");
+        int width = 300;
+        int height = 200;
+        int[] pixels = new int[width * height];
+        for (int ii = 0; ii < pixels.length; ii++) {
+            pixels[ii] = (ii * 7919) & 0xffffff;
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (PngStreamWriter png = new PngStreamWriter(baos, width, height)) {
+            for (int y = 0; y < height; y++) {
+                png.writeRow(pixels, y * width);
+            }
+            assertEquals(height, png.getRowsWritten());
+        }
+
+        BufferedImage read = ImageIO.read(new ByteArrayInputStream(baos.toByteArray()));
+        assertEquals(width, read.getWidth());
+        assertEquals(height, read.getHeight());
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                assertEquals(pixels[y * width + x], read.getRGB(x, y) & 0xffffff);
+            }
+        }
+    }
+
+    /**
+     * Writing more rows than the height is an error.
+     *
+     * @throws IOException
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testTooManyRows() throws IOException {
+        LOGGER.info("tooManyRows");
+        PngStreamWriter png = new PngStreamWriter(new ByteArrayOutputStream(), 1, 1);
+        png.writeRow(new int[1], 0);
+        png.writeRow(new int[1], 0);
+    }
+
+    /**
+     * Closing before all rows are written is an error and writes no trailer.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testTooFewRows() throws IOException {
+        LOGGER.info("tooFewRows");
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        PngStreamWriter png = new PngStreamWriter(baos, 1, 2);
+        png.writeRow(new int[1], 0);
+        try {
+            png.close();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+        int length = baos.size();
+        png.close();
+        png.abort();
+        assertEquals(length, baos.size());
+    }
+
+    /**
+     * Test of abort method, of class PngStreamWriter.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testAbort() throws IOException {
+        LOGGER.info("abort");
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        PngStreamWriter png = new PngStreamWriter(baos, 1, 1);
+        int length = baos.size();
+        png.abort();
+        png.close();
+        assertEquals(length, baos.size());
+    }
+
+    /**
+     * Test of the constructor with bad dimensions.
+     *
+     * @throws IOException
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadDimensions() throws IOException {
+        LOGGER.info("badDimensions");
+        PngStreamWriter png = new PngStreamWriter(new ByteArrayOutputStream(), 0, 10);
+    }
+}
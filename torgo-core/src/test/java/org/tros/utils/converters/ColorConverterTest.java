@@ -86,4 +86,19 @@ public class ColorConverterTest {
         Assert.assertNotNull(redHex);
         Assert.assertEquals("#ff0000", redHex);
     }
+
+    /**
+     * Test of getColorByName method, of class ColorConverter.
+     */
+    @Test
+    public void testGetColorByName() {
+        LOGGER.info("getColorByName");
+        assertEquals(Color.red, ColorConverter.getColorByName("red"));
+        assertEquals(Color.red, ColorConverter.getColorByName("RED"));
+        assertEquals(Color.darkGray, ColorConverter.getColorByName("darkgray"));
+        assertEquals(Color.lightGray, ColorConverter.getColorByName("LightGray"));
+        assertEquals(new Color(0x0d, 0xff, 0x00), ColorConverter.getColorByName("0dff00"));
+        assertEquals(new Color(0x0d, 0xff, 0x00), ColorConverter.getColorByName("#0DFF00"));
+        assertEquals(Color.black, ColorConverter.getColorByName("nocolor"));
+    }
 }
@@ -15,6 +15,7 @@
  */
 package org.tros.utils.converters;
 
+import java.awt.Color;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.logging.Logger;
@@ -84,5 +85,48 @@ public class UtilsBeanFactoryTest {
         result = UtilsBeanFactory.getConverter(Date2.class, UtilsBeanFactoryTest.class);
         assertNull(result);
     }
-    
+
+    /**
+     * Test that lookups are cached, including types without a converter.
+     */
+    @Test
+    public void testCache() {
+        LOGGER.info("cache");
+        Converter result = UtilsBeanFactory.getConverter(Date2.class, String.class);
+        assertSame(result, UtilsBeanFactory.getConverter(Date2.class, String.class));
+        assertNull(UtilsBeanFactory.getConverter(Date2.class, UtilsBeanFactoryTest.class));
+        assertNull(UtilsBeanFactory.getConverter(Date2.class, UtilsBeanFactoryTest.class));
+        assertNull(TypeHandler.convert(UtilsBeanFactoryTest.class, new Date2()));
+
+        assertEquals(Color.RED, TypeHandler.fromString(Color.class, "red"));
+        assertEquals(Color.RED, TypeHandler.fromString(Color.class, "RED"));
+        assertEquals(Color.RED, TypeHandler.fromString(Color.class, "#ff0000"));
+        assertEquals("#ff0000", TypeHandler.toString(Color.RED));
+    }
+
+    /**
+     * Compare cached lookups and conversions to searching for the converter
+     * each time.
+     */
+    @Test
+    public void testBenchmark() {
+        LOGGER.info("benchmark");
+        final int count = 200000;
+        long start = System.nanoTime();
+        for (int ii = 0; ii < count; ii++) {
+            assertNotNull(UtilsBeanFactory.lookup(Date2.class, String.class));
+        }
+        long lookup = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int ii = 0; ii < count; ii++) {
+            assertNotNull(UtilsBeanFactory.getConverter(Date2.class, String.class));
+        }
+        long cached = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int ii = 0; ii < count; ii++) {
+            assertNotNull(TypeHandler.fromString(Color.class, "#ff0000"));
+        }
+        long color = System.nanoTime() - start;
+        LOGGER.info(String.format("%d lookups: uncached %d ms, cached %d ms, string to color %d ms", count, lookup / 1000000, cached / 1000000, color / 1000000));
+    }
 }
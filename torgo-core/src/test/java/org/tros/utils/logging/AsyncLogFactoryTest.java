@@ -0,0 +1,158 @@
+/*
+ * This work is licensed under the Creative Commons Attribution 3.0 Unported
+ * License. To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by/3.0/ or send a letter to Creative
+ * Commons, 171 Second Street, Suite 300, San Francisco, California, 94105, USA.
+ */
+package org.tros.utils.logging;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.tros.torgo.TorgoInfo;
+
+/**
+ *
+ * @author matta
+ */
+public class AsyncLogFactoryTest {
+
+    private final static java.util.logging.Logger LOGGER;
+
+    static {
+        Logging.initLogging(TorgoInfo.INSTANCE);
+        LOGGER = java.util.logging.Logger.getLogger(AsyncLogFactoryTest.class.getName());
+    }
+
+    private final List<String> written = Collections.synchronizedList(new ArrayList<>());
+    private final Handler handler = new Handler() {
+        @Override
+        public void publish(LogRecord record) {
+            written.add(Thread.currentThread().getName() + ": " + record.getMessage());
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+    private java.util.logging.Logger target;
+
+    public AsyncLogFactoryTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+        target = java.util.logging.Logger.getLogger(AsyncLogFactoryTest.class.getName() + ".target");
+        target.setLevel(Level.INFO);
+        target.setUseParentHandlers(false);
+        target.addHandler(handler);
+    }
+
+    @After
+    public void tearDown() {
+        target.removeHandler(handler);
+    }
+
+    /**
+     * Test that records are formatted and written on the log thread, in
+     * order, and that disabled levels are not queued.
+     */
+    @Test
+    public void testAsync() {
+        LOGGER.info("async");
+        AsyncLogFactory factory = new AsyncLogFactory(new CommonsLogFactory(), 16);
+        try {
+            Logger logger = factory.getLogger(target.getName());
+            assertSame(logger, factory.getLogger(target.getName()));
+            final String caller = Thread.currentThread().getName();
+            Object formatted = new Object() {
+                @Override
+                public String toString() {
+                    //the writer thread has to do the formatting.
+                    return caller.equals(Thread.currentThread().getName()) ? "caller" : "writer";
+                }
+            };
+            logger.debug("hidden {0}", formatted);
+            for (int ii = 0; ii < 100; ii++) {
+                logger.info("message {0} {1}", ii, formatted);
+            }
+            logger.warn("plain {0}");
+            assertTrue(factory.flush(10, TimeUnit.SECONDS));
+
+            assertEquals(101, written.size());
+            for (int ii = 0; ii < 100; ii++) {
+                assertEquals("torgo-log: message " + ii + " writer", written.get(ii));
+            }
+            assertEquals("torgo-log: plain {0}", written.get(100));
+        } finally {
+            factory.close();
+        }
+    }
+
+    /**
+     * Test that records still waiting when the exit flush times out are
+     * counted and reported.
+     */
+    @Test
+    public void testFlushOnExit() throws InterruptedException {
+        LOGGER.info("flushOnExit");
+        final CountDownLatch release = new CountDownLatch(1);
+        Handler blocking = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        target.addHandler(blocking);
+        AsyncLogFactory factory = new AsyncLogFactory(new CommonsLogFactory(), 16);
+        try {
+            Logger logger = factory.getLogger(target.getName());
+            for (int ii = 0; ii < 5; ii++) {
+                logger.info("message {0}", ii);
+            }
+            long lost = factory.flushOnExit(10, TimeUnit.MILLISECONDS);
+            assertTrue(lost > 0 && lost <= 5);
+            release.countDown();
+            assertEquals(0, factory.flushOnExit(10, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            target.removeHandler(blocking);
+            factory.close();
+        }
+    }
+}
@@ -20,6 +20,7 @@ import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import static org.junit.Assert.*;
 
 /**
  *
@@ -243,5 +244,37 @@ public class LoggerTest {
         Logger instance = Logging.getLogFactory().getLogger(LoggerTest.class);
         instance.fatal("Message: ", new Throwable(message));
     }
-    
+
+    /**
+     * Test that messages of a disabled level are not built or formatted.
+     */
+    @Test
+    public void testDisabledLevel() {
+        System.out.println("disabledLevel");
+        java.util.logging.Logger jul = java.util.logging.Logger.getLogger(LoggerTest.class.getName());
+        java.util.logging.Level level = jul.getLevel();
+        jul.setLevel(java.util.logging.Level.INFO);
+        try {
+            Logger instance = Logging.getLogFactory().getLogger(LoggerTest.class);
+            assertFalse(instance.isVerboseEnabled());
+            assertFalse(instance.isDebugEnabled());
+            assertTrue(instance.isInfoEnabled());
+            final int[] built = new int[1];
+            Object counted = new Object() {
+                @Override
+                public String toString() {
+                    built[0]++;
+                    return "counted";
+                }
+            };
+            instance.verbose(() -> String.valueOf(counted));
+            instance.debug("Message: {0}", counted);
+            assertEquals(0, built[0]);
+            instance.info(() -> String.valueOf(counted));
+            assertEquals(1, built[0]);
+        } finally {
+            //the other tests must not depend on running before this one.
+            jul.setLevel(level);
+        }
+    }
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import org.apache.batik.anim.dom.SVGDOMImplementation;
+import org.apache.batik.dom.GenericDOMImplementation;
+import org.apache.batik.svggen.CachedImageHandlerPNGEncoder;
+import org.apache.batik.svggen.GenericImageHandler;
+import org.apache.batik.svggen.SVGGeneratorContext;
+import org.apache.batik.svggen.SVGGraphics2D;
+import org.w3c.dom.DOMImplementation;
+import org.w3c.dom.Document;
+
+/**
+ * SVG export: display lists are streamed with {@link SvgExporter}, and other
+ * canvases are drawn with Batik.
+ *
+ * @author matta
+ */
+public class SvgExportService implements SvgExport {
+
+    @Override
+    public ExportJob stream(DisplayList displayList, int width, int height) {
+        return new SvgExporter(displayList, width, height);
+    }
+
+    /**
+     * Create a SVG image using Batik. This builds the whole document in memory
+     * before writing it. The image handler will write all images files to
+     * "res/images".
+     *
+     * @param drawable
+     * @param out
+     * @throws IOException
+     */
+    @Override
+    public void write(Drawable drawable, OutputStream out) throws IOException {
+        DOMImplementation domImpl
+                = GenericDOMImplementation.getDOMImplementation();
+        String svgNS = SVGDOMImplementation.SVG_NAMESPACE_URI;
+        Document myFactory = domImpl.createDocument(svgNS, "svg", null);
+        SVGGeneratorContext ctx
+                = SVGGeneratorContext.createDefault(myFactory);
+        GenericImageHandler ihandler = new CachedImageHandlerPNGEncoder("res/images", null);
+        ctx.setGenericImageHandler(ihandler);
+
+        SVGGraphics2D svgGenerator = new SVGGraphics2D(ctx, false);
+
+        TurtleState ts = new TurtleState();
+
+        drawable.draw(svgGenerator, ts);
+        // Create the SVG DOM tree.
+        Writer writer = new OutputStreamWriter(out, "UTF-8");
+        svgGenerator.stream(writer, true);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Exports a display list to SVG by streaming it through a
+ * {@link SvgStreamWriter}. Unlike the Batik generator, no DOM is built, so it
+ * works for arbitrarily large drawings and does not need a display.
+ *
+ * @author matta
+ */
+public class SvgExporter extends ExportJob {
+
+    private static final int PROGRESS_INTERVAL = 1024;
+
+    private final DisplayList displayList;
+    private final int width;
+    private final int height;
+
+    /**
+     * Constructor.
+     *
+     * @param displayList
+     * @param width the canvas width.
+     * @param height the canvas height.
+     */
+    public SvgExporter(DisplayList displayList, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Export dimensions must be positive.");
+        }
+        this.displayList = displayList;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Export the SVG. Returns early, leaving an incomplete document, if the
+     * job is cancelled.
+     *
+     * @param out
+     * @throws IOException
+     */
+    @Override
+    public void export(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        SvgStreamWriter svg = new SvgStreamWriter(writer, width, height);
+        TurtleState ts = new TurtleState();
+        ts.width = width;
+        ts.height = height;
+
+        final long total = displayList.size();
+        try {
+            displayList.renderBaked(svg, ts);
+            CommandStore.Cursor cursor = displayList.cursor();
+            while (cursor.next()) {
+                cursor.render(svg, ts);
+                long ii = cursor.getIndex() - 1;
+                if (ii % PROGRESS_INTERVAL == 0) {
+                    if (isCancelled()) {
+                        writer.flush();
+                        return;
+                    }
+                    fireProgress(ii, total);
+                }
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        svg.close();
+        fireProgress(total, total);
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.tros.utils.PngStreamWriter;
+
+/**
+ * Writes drawing primitives straight out as SVG. Nothing is kept in memory
+ * besides the current polyline end point and the table of stroke styles, so
+ * heap use does not depend on the size of the drawing. Raster layers (see
+ * {@link #image(BufferedImage, double, double)}) are embedded as PNG data.
+ *
+ * <p>
+ * Connected segments of the same color are merged into a single polyline and
+ * each stroke color is written once as a CSS class. The style sheet is written
+ * at the end of the document, which is fine since CSS applies to the whole
+ * document wherever it is declared.</p>
+ *
+ * @author matta
+ */
+public final class SvgStreamWriter implements DrawingSink, Closeable {
+
+    /**
+     * Past this many distinct colors, strokes are written inline so the style
+     * table stays bounded.
+     */
+    private static final int MAX_STYLE_CLASSES = 256;
+
+    private final Writer out;
+    private final LinkedHashMap<Integer, String> styles = new LinkedHashMap<>();
+    private boolean polylineOpen;
+    private double lastX;
+    private double lastY;
+    private int lastColor;
+    private long segments;
+    private long polylines;
+    private boolean closed;
+
+    /**
+     * Constructor. Writes the document header immediately.
+     *
+     * @param out the writer, which should be buffered. Not closed by this
+     * writer.
+     * @param width
+     * @param height
+     * @throws IOException
+     */
+    public SvgStreamWriter(Writer out, int width, int height) throws IOException {
+        this.out = out;
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\" version=\"1.1\" width=\"");
+        out.write(Integer.toString(width));
+        out.write("\" height=\"");
+        out.write(Integer.toString(height));
+        out.write("\" viewBox=\"0 0 ");
+        out.write(Integer.toString(width));
+        out.write(' ');
+        out.write(Integer.toString(height));
+        out.write("\">\n");
+    }
+
+    @Override
+    public void line(double x1, double y1, double x2, double y2, Color color) {
+        try {
+            int rgba = color.getRGB();
+            if (!polylineOpen || rgba != lastColor || x1 != lastX || y1 != lastY) {
+                endPolyline();
+                out.write("<polyline ");
+                writeStroke(color);
+                out.write(" points=\"");
+                writePoint(x1, y1);
+                polylineOpen = true;
+                lastColor = rgba;
+                polylines++;
+            }
+            out.write(' ');
+            writePoint(x2, y2);
+            lastX = x2;
+            lastY = y2;
+            segments++;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public void text(String text, double x, double y, double angle, Font font, Color color) {
+        try {
+            endPolyline();
+            out.write("<text x=\"");
+            writeNumber(x);
+            out.write("\" y=\"");
+            writeNumber(y);
+            out.write("\" fill=\"");
+            out.write(toHex(color));
+            out.write('"');
+            if (color.getAlpha() < 255) {
+                out.write(" fill-opacity=\"");
+                writeNumber(color.getAlpha() / 255.0);
+                out.write('"');
+            }
+            if (font != null) {
+                out.write(" font-family=\"");
+                writeEscaped(font.getFamily());
+                out.write("\" font-size=\"");
+                out.write(Integer.toString(font.getSize()));
+                out.write('"');
+                if (font.isBold()) {
+                    out.write(" font-weight=\"bold\"");
+                }
+                if (font.isItalic()) {
+                    out.write(" font-style=\"italic\"");
+                }
+            }
+            if (angle != 0) {
+                out.write(" transform=\"rotate(");
+                writeNumber(Math.toDegrees(angle));
+                out.write(' ');
+                writeNumber(x);
+                out.write(' ');
+                writeNumber(y);
+                out.write(")\"");
+            }
+            out.write('>');
+            writeEscaped(text);
+            out.write("</text>\n");
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Elements that were already written cannot be taken back, so a clear
+     * paints over them with the background.
+     *
+     * @param width
+     * @param height
+     */
+    @Override
+    public void clear(double width, double height) {
+        try {
+            endPolyline();
+            out.write("<rect x=\"0\" y=\"0\" width=\"100%\" height=\"100%\" fill=\"#ffffff\"/>\n");
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * The canvas color is not part of the drawing, so it is ignored here.
+     *
+     * @param color
+     */
+    @Override
+    public void canvasColor(Color color) {
+    }
+
+    /**
+     * Embed an image as an inline PNG.
+     *
+     * @param image
+     * @param x
+     * @param y
+     */
+    @Override
+    public void image(BufferedImage image, double x, double y) {
+        try {
+            endPolyline();
+            final int w = image.getWidth();
+            final int h = image.getHeight();
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            PngStreamWriter writer = new PngStreamWriter(png, w, h);
+            int[] row = new int[w];
+            for (int ii = 0; ii < h; ii++) {
+                image.getRGB(0, ii, w, 1, row, 0, w);
+                writer.writeRow(row, 0);
+            }
+            writer.close();
+            out.write("<image x=\"");
+            writeNumber(x);
+            out.write("\" y=\"");
+            writeNumber(y);
+            out.write("\" width=\"");
+            out.write(Integer.toString(w));
+            out.write("\" height=\"");
+            out.write(Integer.toString(h));
+            out.write("\" xlink:href=\"data:image/png;base64,");
+            out.write(Base64.getEncoder().encodeToString(png.toByteArray()));
+            out.write("\"/>\n");
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Get the number of line segments written.
+     *
+     * @return
+     */
+    public long getSegmentCount() {
+        return segments;
+    }
+
+    /**
+     * Get the number of polylines the segments were merged into.
+     *
+     * @return
+     */
+    public long getPolylineCount() {
+        return polylines;
+    }
+
+    /**
+     * Write the style sheet and close the document. Does not close the
+     * underlying writer.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        endPolyline();
+        out.write("<style type=\"text/css\"><![CDATA[\n");
+        out.write("polyline{fill:none;stroke-width:1;stroke-linecap:square;stroke-linejoin:miter}\n");
+        for (Map.Entry<Integer, String> style : styles.entrySet()) {
+            Color color = new Color(style.getKey(), true);
+            out.write('.');
+            out.write(style.getValue());
+            out.write("{stroke:");
+            out.write(toHex(color));
+            if (color.getAlpha() < 255) {
+                out.write(";stroke-opacity:");
+                writeNumber(color.getAlpha() / 255.0);
+            }
+            out.write("}\n");
+        }
+        out.write("]]></style>\n");
+        out.write("</svg>\n");
+        out.flush();
+    }
+
+    private void endPolyline() throws IOException {
+        if (polylineOpen) {
+            out.write("\"/>\n");
+            polylineOpen = false;
+        }
+    }
+
+    private void writeStroke(Color color) throws IOException {
+        Integer key = color.getRGB();
+        String name = styles.get(key);
+        if (name == null && styles.size() < MAX_STYLE_CLASSES) {
+            name = "s" + styles.size();
+            styles.put(key, name);
+        }
+        if (name != null) {
+            out.write("class=\"");
+            out.write(name);
+            out.write('"');
+        } else {
+            out.write("style=\"stroke:");
+            out.write(toHex(color));
+            if (color.getAlpha() < 255) {
+                out.write(";stroke-opacity:");
+                writeNumber(color.getAlpha() / 255.0);
+            }
+            out.write('"');
+        }
+    }
+
+    private void writePoint(double x, double y) throws IOException {
+        writeNumber(x);
+        out.write(',');
+        writeNumber(y);
+    }
+
+    /**
+     * Write a number rounded to two decimal places without going through
+     * String.format or the locale.
+     *
+     * @param value
+     * @throws IOException
+     */
+    private void writeNumber(double value) throws IOException {
+        //round the magnitude so that positive and negative values match.
+        long hundredths = Math.round(Math.abs(value) * 100);
+        if (value < 0 && hundredths != 0) {
+            out.write('-');
+        }
+        out.write(Long.toString(hundredths / 100));
+        int fraction = (int) (hundredths % 100);
+        if (fraction != 0) {
+            out.write('.');
+            out.write((char) ('0' + fraction / 10));
+            if (fraction % 10 != 0) {
+                out.write((char) ('0' + fraction % 10));
+            }
+        }
+    }
+
+    private void writeEscaped(String text) throws IOException {
+        for (int ii = 0; ii < text.length(); ii++) {
+            char c = text.charAt(ii);
+            switch (c) {
+                case '<':
+                    out.write("&lt;");
+                    break;
+                case '>':
+                    out.write("&gt;");
+                    break;
+                case '&':
+                    out.write("&amp;");
+                    break;
+                case '"':
+                    out.write("&quot;");
+                    break;
+                default:
+                    out.write(c);
+                    break;
+            }
+        }
+    }
+
+    private static String toHex(Color color) {
+        return String.format("#%06x", color.getRGB() & 0xffffff);
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Base64;
+import java.util.logging.Logger;
+import javax.imageio.ImageIO;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.tros.torgo.TorgoInfo;
+import org.tros.utils.logging.Logging;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ *
+ * @author matta
+ */
+public class SvgExporterTest {
+
+    private final static Logger LOGGER;
+
+    static {
+        Logging.initLogging(TorgoInfo.INSTANCE);
+        LOGGER = Logger.getLogger(SvgExporterTest.class.getName());
+    }
+
+    public SvgExporterTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private static Document parse(byte[] svg) throws ParserConfigurationException, SAXException, IOException {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(svg));
+    }
+
+    /**
+     * Test of export method, of class SvgExporter. Connected segments of one
+     * color end up in a single polyline.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testExport() throws Exception {
+        LOGGER.info("export");
+        LogoPanel panel = new LogoPanel(null);
+        panel.setSize(120, 80);
+        panel.reset();
+        panel.pencolor("red");
+        for (int ii = 0; ii < 4; ii++) {
+            panel.forward(20);
+            panel.right(90);
+        }
+        panel.pencolor("blue");
+        panel.forward(10);
+        panel.penUp();
+        panel.forward(10);
+        panel.penDown();
+        panel.forward(10);
+        panel.drawString("a < b & c");
+
+        SvgExporter exporter = new SvgExporter(panel.cloneDrawable(), panel.getWidth(), panel.getHeight());
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        exporter.export(baos);
+        Document doc = parse(baos.toByteArray());
+
+        Element root = doc.getDocumentElement();
+        assertEquals("svg", root.getTagName());
+        assertEquals("120", root.getAttribute("width"));
+        assertEquals("80", root.getAttribute("height"));
+
+        NodeList polylines = doc.getElementsByTagName("polyline");
+        assertEquals(3, polylines.getLength());
+        Element square = (Element) polylines.item(0);
+        assertEquals("s0", square.getAttribute("class"));
+        assertEquals("60,40 60,20 80,20 80,40 60,40", square.getAttribute("points"));
+        assertEquals("s1", ((Element) polylines.item(1)).getAttribute("class"));
+        assertEquals("s1", ((Element) polylines.item(2)).getAttribute("class"));
+
+        assertEquals(1, doc.getElementsByTagName("rect").getLength());
+        assertEquals("a < b & c", doc.getElementsByTagName("text").item(0).getTextContent());
+        String style = doc.getElementsByTagName("style").item(0).getTextContent();
+        assertTrue(style.contains(".s0{stroke:#ff0000}"));
+        assertTrue(style.contains(".s1{stroke:#0000ff}"));
+    }
+
+    /**
+     * Test of the SvgStreamWriter number formatting, style overflow and
+     * transparency.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testStreamWriter() throws Exception {
+        LOGGER.info("streamWriter");
+        StringWriter sw = new StringWriter();
+        SvgStreamWriter svg = new SvgStreamWriter(sw, 10, 10);
+        for (int ii = 0; ii < 300; ii++) {
+            svg.line(0, 0, ii, -0.125, new Color(0, ii % 256, ii / 256));
+        }
+        svg.line(1.5, 2.25, 3, 4, new Color(0, 255, 0, 128));
+        svg.text("x", 1, 2, Math.PI / 2, new Font(Font.SERIF, Font.BOLD, 14), Color.black);
+        svg.close();
+        assertEquals(301, svg.getPolylineCount());
+        assertEquals(301, svg.getSegmentCount());
+
+        Document doc = parse(sw.toString().getBytes("UTF-8"));
+        NodeList polylines = doc.getElementsByTagName("polyline");
+        assertEquals("0,0 0,-0.13", ((Element) polylines.item(0)).getAttribute("points"));
+        //only the first 256 colors get a class.
+        assertEquals("s255", ((Element) polylines.item(255)).getAttribute("class"));
+        assertEquals("stroke:#000001", ((Element) polylines.item(256)).getAttribute("style").substring(0, 14));
+        assertEquals("1.5,2.25 3,4", ((Element) polylines.item(300)).getAttribute("points"));
+        Element text = (Element) doc.getElementsByTagName("text").item(0);
+        assertEquals("rotate(90 1 2)", text.getAttribute("transform"));
+        assertEquals("bold", text.getAttribute("font-weight"));
+    }
+
+    /**
+     * Test that commands flattened into the panel's layer are exported as an
+     * embedded image, followed by the live commands.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBakedExport() throws Exception {
+        LOGGER.info("bakedExport");
+        final int size = 100;
+        LogoPanel panel = new LogoPanel(null);
+        panel.setSize(size, size);
+        panel.setMaxLiveCommands(20);
+        panel.reset();
+        panel.hideTurtle();
+        for (int ii = 0; ii < 40; ii++) {
+            panel.pencolor(ii % 2 == 0 ? "red" : "blue");
+            panel.forward(2 + ii);
+            panel.right(50);
+        }
+        DisplayList snapshot = panel.cloneDrawable();
+        assertTrue(snapshot.getBakedCount() > 0);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new SvgExporter(snapshot, size, size).export(baos);
+        Document doc = parse(baos.toByteArray());
+        NodeList images = doc.getElementsByTagName("image");
+        assertEquals(1, images.getLength());
+        String href = ((Element) images.item(0)).getAttribute("xlink:href");
+        assertTrue(href.startsWith("data:image/png;base64,"));
+        BufferedImage embedded = ImageIO.read(new ByteArrayInputStream(
+                Base64.getDecoder().decode(href.substring("data:image/png;base64,".length()))));
+        assertEquals(size, embedded.getWidth());
+        assertTrue(doc.getElementsByTagName("polyline").getLength() > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadSize() {
+        LOGGER.info("badSize");
+        SvgExporter exporter = new SvgExporter(new LogoPanel(null).cloneDrawable(), 0, 10);
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.apache.commons.io.IOUtils;
+import org.tros.logo.antlr.LogoParser;
+
+/**
+ * A parsed Logo script in the compiled ({@code .logoc}) format, which loads
+ * without running ANTLR. The file is read front to back in one pass, memory
+ * mapped when it is a local file, and holds:
+ * <ul>
+ * <li>a header with the format version and the language to run it with,</li>
+ * <li>the source, so it can still be shown and edited,</li>
+ * <li>a table of where each line starts in the source, for mapping the
+ * character offsets the debugger reports back to lines and columns,</li>
+ * <li>the parse tree, see {@link ParseTreeCodec}; its tokens keep their
+ * lines, columns and offsets.</li>
+ * </ul>
+ * A file made with another grammar version fails to load, in which case the
+ * source should be compiled again.
+ *
+ * @author matta
+ */
+public final class CompiledProgram {
+
+    public static final String EXTENSION = "logoc";
+
+    private static final int MAGIC = 0x4c4f4743;
+    private static final int FORMAT_VERSION = 1;
+
+    private final String language;
+    private final String source;
+    private final int[] lineStarts;
+    private final LogoParser.ProgContext tree;
+
+    private CompiledProgram(String language, String source, int[] lineStarts, LogoParser.ProgContext tree) {
+        this.language = language;
+        this.source = source;
+        this.lineStarts = lineStarts;
+        this.tree = tree;
+    }
+
+    /**
+     * Parse a script.
+     *
+     * @param language the controller to run the script with, e.g.
+     * dynamic-logo.
+     * @param source
+     * @return
+     * @throws IllegalArgumentException if the script has syntax errors.
+     */
+    public static CompiledProgram compile(String language, String source) {
+        ScriptParser parser = ScriptParser.get();
+        LogoParser.ProgContext tree = parser.parse(source);
+        if (parser.getNumberOfSyntaxErrors() > 0) {
+            throw new IllegalArgumentException("The script has " + parser.getNumberOfSyntaxErrors() + " syntax errors.");
+        }
+        return new CompiledProgram(language, source, lineStarts(source), tree);
+    }
+
+    /**
+     * Check to see if a file name is for a compiled program.
+     *
+     * @param name
+     * @return
+     */
+    public static boolean isCompiled(String name) {
+        return name != null && name.toLowerCase().endsWith("." + EXTENSION);
+    }
+
+    /**
+     * Load a compiled program from a file, memory mapping it.
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static CompiledProgram load(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Load a compiled program from a URL, such as a resource in a jar.
+     *
+     * @param url
+     * @return
+     * @throws IOException
+     */
+    public static CompiledProgram load(URL url) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return load(new File(url.toURI()));
+            } catch (java.net.URISyntaxException | IllegalArgumentException ex) {
+                //fall through to reading the stream.
+            }
+        }
+        try (InputStream in = url.openStream()) {
+            return read(ByteBuffer.wrap(IOUtils.toByteArray(in)));
+        }
+    }
+
+    /**
+     * Read a compiled program.
+     *
+     * @param in read from its position.
+     * @return
+     * @throws IOException
+     */
+    public static CompiledProgram read(ByteBuffer in) throws IOException {
+        try {
+            if (in.getInt() != MAGIC || in.getShort() != FORMAT_VERSION) {
+                throw new IOException("Not a compiled program.");
+            }
+            String language = readString(in, in.getShort() & 0xffff);
+            String source = readString(in, in.getInt());
+            int[] lineStarts = new int[in.getInt()];
+            in.asIntBuffer().get(lineStarts);
+            in.position(in.position() + lineStarts.length * Integer.BYTES);
+            LogoParser.ProgContext tree = ParseTreeCodec.read(in);
+            return new CompiledProgram(language, source, lineStarts, tree);
+        } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException ex) {
+            throw new IOException("The compiled program is truncated or corrupt.", ex);
+        }
+    }
+
+    /**
+     * Write the compiled program.
+     *
+     * @param out not closed.
+     * @throws IOException
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeShort(FORMAT_VERSION);
+        data.writeUTF(language);
+        byte[] utf8 = source.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(utf8.length);
+        data.write(utf8);
+        data.writeInt(lineStarts.length);
+        for (int start : lineStarts) {
+            data.writeInt(start);
+        }
+        ParseTreeCodec.write(tree, data);
+        data.flush();
+    }
+
+    /**
+     * Get the compiled program as bytes.
+     *
+     * @return
+     */
+    public byte[] toByteArray() {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            write(out);
+            return out.toByteArray();
+        } catch (IOException ex) {
+            //only the byte array is written to.
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Get the language a compiled program is for, reading only its header.
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static String getLanguage(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.readInt() != MAGIC || raf.readShort() != FORMAT_VERSION) {
+                throw new IOException("Not a compiled program: " + file);
+            }
+            return raf.readUTF();
+        }
+    }
+
+    /**
+     * Get the language to run the program with.
+     *
+     * @return
+     */
+    public String getLanguage() {
+        return language;
+    }
+
+    /**
+     * Get the source the program was compiled from.
+     *
+     * @return
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Get the parse tree.
+     *
+     * @return
+     */
+    public LogoParser.ProgContext getTree() {
+        return tree;
+    }
+
+    /**
+     * Get the number of lines in the source.
+     *
+     * @return
+     */
+    public int getLineCount() {
+        return lineStarts.length;
+    }
+
+    /**
+     * Get the offset in the source that a line starts at.
+     *
+     * @param line one-based, the way ANTLR numbers lines.
+     * @return
+     */
+    public int getLineStart(int line) {
+        return lineStarts[line - 1];
+    }
+
+    /**
+     * Get the line an offset in the source is on.
+     *
+     * @param offset a character offset, e.g. from a token's start index.
+     * @return one-based.
+     */
+    public int getLine(int offset) {
+        int index = Arrays.binarySearch(lineStarts, offset);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    private static int[] lineStarts(String source) {
+        int count = 1;
+        for (int ii = 0; ii < source.length(); ii++) {
+            if (source.charAt(ii) == '\n') {
+                count++;
+            }
+        }
+        int[] starts = new int[count];
+        for (int ii = 0, line = 1; ii < source.length(); ii++) {
+            if (source.charAt(ii) == '\n') {
+                starts[line++] = ii + 1;
+            }
+        }
+        return starts;
+    }
+
+    private static String readString(ByteBuffer in, int length) {
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
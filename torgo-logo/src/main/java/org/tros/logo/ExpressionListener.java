@@ -0,0 +1,176 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo;
+
+import java.util.ArrayList;
+import java.util.Stack;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.tros.logo.antlr.LogoBaseListener;
+import org.tros.logo.antlr.LogoParser;
+import org.tros.torgo.interpreter.InterpreterValue;
+import org.tros.torgo.interpreter.types.NumberType;
+import org.tros.torgo.interpreter.types.StringType;
+
+/**
+ * Lowers expressions. Builds a stack/tree of {@link LogoExpression} nodes as
+ * the tree walker visits/exists nodes in the parse tree, so that the parse
+ * tree is not needed to evaluate them. This is for the Logo language only.
+ *
+ * @author matta
+ */
+final class ExpressionListener extends LogoBaseListener {
+
+    private final Stack<ArrayList<LogoExpression>> value = new Stack<>();
+
+    /**
+     * Hidden constructor, forces use of "lower" method.
+     */
+    private ExpressionListener() {
+        value.push(new ArrayList<>());
+    }
+
+    /**
+     * Lower an expression as defined in the logo.g4 grammar.
+     *
+     * @param ctx
+     * @return null if there is no expression in the tree.
+     */
+    protected static LogoExpression lower(ParseTree ctx) {
+        ExpressionListener el = new ExpressionListener();
+        ParseTreeWalker.DEFAULT.walk(el, ctx);
+        return el.getValue();
+    }
+
+    /**
+     * Fold the operands of a chain of binary operations, left to right.
+     *
+     * @param ctx
+     */
+    private void fold(ParseTree ctx) {
+        ArrayList<LogoExpression> values = value.pop();
+        for (int ii = 1; ii < ctx.getChildCount(); ii += 2) {
+            values.add(0, new LogoExpression.Binary(ctx.getChild(ii).getText().charAt(0), values.remove(0), values.remove(0)));
+        }
+        value.peek().add(values.get(0));
+    }
+
+    @Override
+    public void enterExpression(LogoParser.ExpressionContext ctx) {
+        value.push(new ArrayList<>());
+    }
+
+    @Override
+    public void exitExpression(LogoParser.ExpressionContext ctx) {
+        fold(ctx);
+    }
+
+    @Override
+    public void enterDeref(LogoParser.DerefContext ctx) {
+        value.peek().add(new LogoExpression.Variable(ctx.name().STRING().getText()));
+    }
+
+    @Override
+    public void enterNumber(LogoParser.NumberContext ctx) {
+        Double d = Double.parseDouble(ctx.NUMBER().getSymbol().getText());
+        value.peek().add(new LogoExpression.Constant(new InterpreterValue(NumberType.INSTANCE, d)));
+    }
+
+    @Override
+    public void enterMultiplyingExpression(LogoParser.MultiplyingExpressionContext ctx) {
+        value.push(new ArrayList<>());
+    }
+
+    @Override
+    public void exitMultiplyingExpression(LogoParser.MultiplyingExpressionContext ctx) {
+        fold(ctx);
+    }
+
+    @Override
+    public void enterPowerExpression(LogoParser.PowerExpressionContext ctx) {
+        if (ctx.getChildCount() > 1) {
+            value.push(new ArrayList<>());
+        }
+    }
+
+    @Override
+    public void exitPowerExpression(LogoParser.PowerExpressionContext ctx) {
+        if (ctx.getChildCount() > 1) {
+            fold(ctx);
+        }
+    }
+
+    @Override
+    public void enterRandom(LogoParser.RandomContext ctx) {
+        value.push(new ArrayList<>());
+    }
+
+    @Override
+    public void exitRandom(LogoParser.RandomContext ctx) {
+        ArrayList<LogoExpression> values = value.pop();
+        value.peek().add(new LogoExpression.Random(values.get(0)));
+    }
+
+    @Override
+    public void exitSignExpression(LogoParser.SignExpressionContext ctx) {
+        boolean negate = "-".equals(ctx.getChild(0).getText());
+        ArrayList<LogoExpression> peek = this.value.peek();
+        int index = peek.size() - 1;
+        LogoExpression operand = peek.remove(index);
+        InterpreterValue constant = operand instanceof LogoExpression.Constant ? operand.evaluate(null) : null;
+        if (constant != null && constant.getValue() instanceof Double) {
+            //literal numbers are folded rather than signed every time.
+            if (negate) {
+                operand = new LogoExpression.Constant(new InterpreterValue(NumberType.INSTANCE, -((Double) constant.getValue())));
+            }
+        } else {
+            //numbers are always converted to doubles, even without a sign.
+            operand = new LogoExpression.Sign(negate, operand);
+        }
+        peek.add(index, operand);
+    }
+
+    @Override
+    public void enterGetx(LogoParser.GetxContext ctx) {
+        value.peek().add(new LogoExpression.Variable(LogoStatement.TURTLE_X_VAR));
+    }
+
+    @Override
+    public void enterGety(LogoParser.GetyContext ctx) {
+        value.peek().add(new LogoExpression.Variable(LogoStatement.TURTLE_Y_VAR));
+    }
+
+    @Override
+    public void enterGetangle(LogoParser.GetangleContext ctx) {
+        value.peek().add(new LogoExpression.Variable(LogoStatement.TURTLE_ANGLE_VAR));
+    }
+
+    @Override
+    public void enterRepcount(LogoParser.RepcountContext ctx) {
+        value.peek().add(new LogoExpression.Variable(LogoRepeat.REPCOUNT_VAR));
+    }
+
+    @Override
+    public void enterValue(LogoParser.ValueContext ctx) {
+        if (ctx.STRINGLITERAL() != null) {
+            value.peek().add(new LogoExpression.Constant(new InterpreterValue(StringType.INSTANCE, ctx.STRINGLITERAL().getText().substring(1))));
+        }
+    }
+
+    public LogoExpression getValue() {
+        return value.peek().isEmpty() ? null : value.peek().get(0);
+    }
+}
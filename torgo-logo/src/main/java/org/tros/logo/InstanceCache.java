@@ -0,0 +1,467 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.tros.logo.antlr.LogoParser;
+import org.tros.torgo.interpreter.InterpreterValue;
+
+/**
+ * Remembers what procedures draw so repeated calls can be stamped instead of
+ * interpreted.
+ *
+ * <p>
+ * A procedure can be instanced when all it does, including the procedures it
+ * calls, is move and turn the turtle and lift or lower the pen, and when
+ * everything it reads comes from its parameters or its own local variables.
+ * The first call with a given set of arguments is interpreted as usual while
+ * the moves are recorded into a {@link TurtleGeometry}; later calls with the
+ * same arguments replay it. Recordings nest, so a recursive procedure reuses
+ * the moves of its smaller calls while its own is being recorded.</p>
+ *
+ * <p>
+ * The cache is least-recently-used and bounded both by the number of entries
+ * and by the total number of moves held. It is used from the
+ * interpreter thread; the counters can be read from any thread.</p>
+ *
+ * @author matta
+ */
+public final class InstanceCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+    public static final int DEFAULT_MAX_MOVES = 1 << 18;
+
+    private final int maxEntries;
+    private final int maxMoves;
+    private final LinkedHashMap<List<Object>, TurtleGeometry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final IdentityHashMap<LogoFunction, Boolean> instanceable = new IdentityHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong uncacheable = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private volatile int entryCount;
+    private volatile int moveCount;
+
+    //the moves of all open recordings; each recording is a suffix of the log.
+    private byte[] logOps = new byte[256];
+    private double[] logArgs = new double[256];
+    private int logSize;
+    private int[] frames = new int[16];
+    private int depth;
+    private boolean overflow;
+
+    /**
+     * Constructor.
+     */
+    public InstanceCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_MOVES);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxEntries the most argument tuples to remember.
+     * @param maxMoves the most moves to hold over all entries; a single
+     * recording may use at most a quarter of this.
+     */
+    public InstanceCache(int maxEntries, int maxMoves) {
+        if (maxEntries <= 0 || maxMoves <= 0) {
+            throw new IllegalArgumentException("Cache bounds must be positive.");
+        }
+        this.maxEntries = maxEntries;
+        this.maxMoves = maxMoves;
+    }
+
+    /**
+     * Forget everything, including the counters. Called when a new script
+     * starts since procedures may have been redefined.
+     */
+    public void clear() {
+        entries.clear();
+        instanceable.clear();
+        entryCount = 0;
+        moveCount = 0;
+        logSize = 0;
+        depth = 0;
+        overflow = false;
+        hits.set(0);
+        misses.set(0);
+        uncacheable.set(0);
+        evictions.set(0);
+    }
+
+    /**
+     * Get the number of calls that were stamped from the cache.
+     *
+     * @return
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of calls that had to be interpreted and recorded.
+     *
+     * @return
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Get the number of calls to procedures that cannot be instanced.
+     *
+     * @return
+     */
+    public long getUncacheable() {
+        return uncacheable.get();
+    }
+
+    /**
+     * Get the number of entries dropped to stay within the bounds.
+     *
+     * @return
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Get the number of cached entries.
+     *
+     * @return
+     */
+    public int size() {
+        return entryCount;
+    }
+
+    /**
+     * Get the number of moves held by the cached entries.
+     *
+     * @return
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Get the most entries the cache will hold.
+     *
+     * @return
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Get the most moves the cache will hold.
+     *
+     * @return
+     */
+    public int getMaxMoves() {
+        return maxMoves;
+    }
+
+    @Override
+    public String toString() {
+        return "hits: " + getHits()
+                + ", misses: " + getMisses()
+                + ", uncacheable: " + getUncacheable()
+                + ", evictions: " + getEvictions()
+                + ", entries: " + size()
+                + ", moves: " + getMoveCount();
+    }
+
+    /**
+     * Check to see if calls to a procedure can be instanced.
+     *
+     * @param procedure
+     * @param resolver looks up the procedure called by name, returning null if
+     * there is none.
+     * @return
+     */
+    boolean isInstanceable(LogoFunction procedure, Function<String, LogoFunction> resolver) {
+        Boolean ret = instanceable.get(procedure);
+        if (ret == null) {
+            //every procedure reachable from this one has to be pure on its own.
+            ret = true;
+            IdentityHashMap<LogoFunction, Boolean> visited = new IdentityHashMap<>();
+            ArrayList<LogoFunction> pending = new ArrayList<>();
+            pending.add(procedure);
+            visited.put(procedure, Boolean.TRUE);
+            while (ret && !pending.isEmpty()) {
+                LogoFunction proc = pending.remove(pending.size() - 1);
+                ret = proc.isLocallyPure();
+                for (Iterator<String> it = proc.getCallees().iterator(); ret && it.hasNext();) {
+                    LogoFunction callee = resolver.apply(it.next());
+                    if (callee == null) {
+                        ret = false;
+                    } else if (visited.put(callee, Boolean.TRUE) == null) {
+                        pending.add(callee);
+                    }
+                }
+            }
+            instanceable.put(procedure, ret);
+        }
+        if (!ret) {
+            uncacheable.incrementAndGet();
+        }
+        return ret;
+    }
+
+    /**
+     * Check a single procedure declaration, collecting the names of the
+     * procedures it calls. This is done once, when the procedure is lowered,
+     * since it needs the parse tree.
+     *
+     * @param proc
+     * @param callees
+     * @return
+     */
+    static boolean isLocallyPure(LogoParser.ProcedureDeclarationContext proc, Set<String> callees) {
+        HashSet<String> names = new HashSet<>();
+        proc.parameterDeclarations().forEach((param) -> {
+            names.add(param.getText().substring(1));
+        });
+        collectLocals(proc, names);
+        boolean ret = true;
+        for (int ii = 0; ret && ii < proc.getChildCount(); ii++) {
+            ret = isPure(proc.getChild(ii), names, false);
+        }
+        if (ret) {
+            collectCallees(proc, callees);
+        }
+        return ret;
+    }
+
+    private static void collectLocals(ParseTree tree, HashSet<String> names) {
+        if (tree instanceof LogoParser.LocalmakeContext) {
+            names.add(tree.getChild(1).getText().substring(1));
+        } else if (tree instanceof LogoParser.ForeContext) {
+            names.add(((LogoParser.ForeContext) tree).name().STRING().getText());
+        }
+        for (int ii = 0; ii < tree.getChildCount(); ii++) {
+            collectLocals(tree.getChild(ii), names);
+        }
+    }
+
+    private static void collectCallees(ParseTree tree, Set<String> callees) {
+        if (tree instanceof LogoParser.ProcedureInvocationContext) {
+            callees.add(((LogoParser.ProcedureInvocationContext) tree).name().getText());
+        }
+        for (int ii = 0; ii < tree.getChildCount(); ii++) {
+            collectCallees(tree.getChild(ii), callees);
+        }
+    }
+
+    /**
+     * Anything that draws other than with lines, changes state other than the
+     * turtle's position, heading and pen, or reads the turtle, the random
+     * generator or variables from outside of the procedure is impure.
+     *
+     * @param tree
+     * @param names the parameters and local variables of the procedure.
+     * @param inRepeat
+     * @return
+     */
+    private static boolean isPure(ParseTree tree, HashSet<String> names, boolean inRepeat) {
+        if (tree instanceof LogoParser.MakeContext
+                || tree instanceof LogoParser.SetxyContext
+                || tree instanceof LogoParser.HomeContext
+                || tree instanceof LogoParser.CsContext
+                || tree instanceof LogoParser.PcContext
+                || tree instanceof LogoParser.CcContext
+                || tree instanceof LogoParser.DsContext
+                || tree instanceof LogoParser.FontsizeContext
+                || tree instanceof LogoParser.FontstyleContext
+                || tree instanceof LogoParser.FontnameContext
+                || tree instanceof LogoParser.PauseContext
+                || tree instanceof LogoParser.HtContext
+                || tree instanceof LogoParser.StContext
+                || tree instanceof LogoParser.Print_commandContext
+                || tree instanceof LogoParser.RandomContext
+                || tree instanceof LogoParser.GetxContext
+                || tree instanceof LogoParser.GetyContext
+                || tree instanceof LogoParser.GetangleContext
+                || tree instanceof LogoParser.ProcedureDeclarationContext) {
+            return false;
+        } else if (tree instanceof LogoParser.RepcountContext) {
+            //outside of a repeat this reads the caller's loop.
+            return inRepeat;
+        } else if (tree instanceof LogoParser.DerefContext) {
+            return names.contains(((LogoParser.DerefContext) tree).name().STRING().getText());
+        }
+        boolean repeat = inRepeat || tree instanceof LogoParser.RepeatContext;
+        for (int ii = 0; ii < tree.getChildCount(); ii++) {
+            if (!isPure(tree.getChild(ii), names, repeat)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Make the cache key for a call.
+     *
+     * @param procedure
+     * @param values the argument values in parameter order.
+     * @return null if an argument is not a number or string.
+     */
+    List<Object> key(LogoFunction procedure, List<InterpreterValue> values) {
+        Object[] key = new Object[values.size() + 1];
+        key[0] = procedure;
+        for (int ii = 0; ii < values.size(); ii++) {
+            Object value = values.get(ii).getValue();
+            if (!(value instanceof Number || value instanceof String)) {
+                uncacheable.incrementAndGet();
+                return null;
+            }
+            key[ii + 1] = value;
+        }
+        return Arrays.asList(key);
+    }
+
+    /**
+     * Look for the moves of a call. The moves of a hit are also copied into
+     * any open recordings.
+     *
+     * @param key
+     * @return null on a miss.
+     */
+    TurtleGeometry lookup(List<Object> key) {
+        TurtleGeometry geometry = entries.get(key);
+        if (geometry == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+            if (reserve(geometry.getMoveCount())) {
+                geometry.copyTo(logOps, logArgs, logSize);
+                logSize += geometry.getMoveCount();
+            }
+        }
+        return geometry;
+    }
+
+    /**
+     * Start recording a call.
+     */
+    void begin() {
+        if (depth == frames.length) {
+            frames = Arrays.copyOf(frames, depth * 2);
+        }
+        frames[depth++] = logSize;
+    }
+
+    /**
+     * Finish recording a call.
+     *
+     * @param key
+     * @param keep false if the call did not finish, in which case nothing is
+     * cached.
+     */
+    void end(List<Object> key, boolean keep) {
+        int start = frames[--depth];
+        if (keep && !overflow && logSize - start <= maxMoves / 4) {
+            put(key, new TurtleGeometry(Arrays.copyOfRange(logOps, start, logSize), Arrays.copyOfRange(logArgs, start, logSize)));
+        }
+        if (depth == 0) {
+            logSize = 0;
+            overflow = false;
+        }
+    }
+
+    void forward(double distance) {
+        record(TurtleGeometry.FORWARD, distance);
+    }
+
+    void backward(double distance) {
+        record(TurtleGeometry.BACKWARD, distance);
+    }
+
+    void left(double angle) {
+        record(TurtleGeometry.LEFT, angle);
+    }
+
+    void right(double angle) {
+        record(TurtleGeometry.RIGHT, angle);
+    }
+
+    void penUp() {
+        record(TurtleGeometry.PEN_UP, 0);
+    }
+
+    void penDown() {
+        record(TurtleGeometry.PEN_DOWN, 0);
+    }
+
+    private void record(byte op, double arg) {
+        if (reserve(1)) {
+            logOps[logSize] = op;
+            logArgs[logSize] = arg;
+            logSize++;
+        }
+    }
+
+    /**
+     * Make room in the log for moves of the open recordings.
+     *
+     * @param count
+     * @return false if nothing is being recorded.
+     */
+    private boolean reserve(int count) {
+        if (depth == 0 || overflow) {
+            return false;
+        }
+        if (logSize + count > maxMoves) {
+            //too big to be worth keeping, let the open recordings lapse.
+            overflow = true;
+            return false;
+        }
+        if (logSize + count > logOps.length) {
+            int length = Math.max(logSize + count, logOps.length * 2);
+            logOps = Arrays.copyOf(logOps, length);
+            logArgs = Arrays.copyOf(logArgs, length);
+        }
+        return true;
+    }
+
+    private void put(List<Object> key, TurtleGeometry geometry) {
+        TurtleGeometry old = entries.put(key, geometry);
+        int moves = moveCount + geometry.getMoveCount();
+        if (old != null) {
+            moves -= old.getMoveCount();
+        }
+        Iterator<Map.Entry<List<Object>, TurtleGeometry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxEntries || moves > maxMoves) {
+            moves -= it.next().getValue().getMoveCount();
+            it.remove();
+            evictions.incrementAndGet();
+        }
+        entryCount = entries.size();
+        moveCount = moves;
+    }
+}
@@ -24,11 +24,13 @@ import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import org.tros.logo.antlr.LogoBaseListener;
 import org.tros.logo.antlr.LogoParser;
 import org.tros.torgo.interpreter.LexicalAnalyzer;
+import org.tros.torgo.interpreter.SourceTable;
 
 /**
  * Gets a list of commands to execute. This does not execute then, but instead
  * builds a tree of commands to run. Once this tree is built, it will be
- * interpreted. This is for the Logo language only.
+ * interpreted. The commands are lowered as they are made and do not refer
+ * back to the parse tree. This is for the Logo language only.
  *
  * @author matta
  */
@@ -36,6 +38,7 @@ final class LexicalListener extends LogoBaseListener implements LexicalAnalyzer
 
     private final Stack<CodeBlock> stack = new Stack<>();
     private final ArrayList<CodeBlock> blocks = new ArrayList<>();
+    private final SourceTable source = new SourceTable();
     private final LogoCanvas canvas;
 
     /**
@@ -54,12 +57,30 @@ final class LexicalListener extends LogoBaseListener implements LexicalAnalyzer
     protected static LexicalAnalyzer lexicalAnalysis(ParseTree tree, LogoCanvas canvas) {
         LexicalListener cl = new LexicalListener(canvas);
         ParseTreeWalker.DEFAULT.walk(cl, tree);
+        cl.source.trim();
+        return cl;
+    }
+
+    /**
+     * Walk part of a parse tree, adding the commands and procedures in it to
+     * a block that already exists. Used to lower a script one line at a time.
+     *
+     * @param tree
+     * @param root
+     * @param canvas
+     * @return the new code blocks, with root as the entry point.
+     */
+    protected static LexicalAnalyzer lexicalAnalysis(ParseTree tree, CodeBlock root, LogoCanvas canvas) {
+        LexicalListener cl = new LexicalListener(canvas);
+        cl.stack.push(root);
+        ParseTreeWalker.DEFAULT.walk(cl, tree);
+        cl.source.trim();
         return cl;
     }
 
     @Override
     public void enterProcedureDeclaration(LogoParser.ProcedureDeclarationContext ctx) {
-        LogoFunction lf = new LogoFunction(ctx.name().getText(), ctx);
+        LogoFunction lf = new LogoFunction(ctx.name().getText(), source, ctx);
         blocks.add(lf);
         stack.peek().addFunction(lf);
         lf.setParent(stack.peek());
@@ -73,152 +94,152 @@ final class LexicalListener extends LogoBaseListener implements LexicalAnalyzer
 
     @Override
     public void enterDs(LogoParser.DsContext ctx) {
-        LogoStatement logoStatement = new LogoStatement("ds", ctx, canvas);
+        LogoStatement logoStatement = new LogoStatement("ds", source, ctx, canvas);
         blocks.add(logoStatement);
         stack.peek().addCommand(logoStatement);
     }
 
     @Override
     public void enterCc(LogoParser.CcContext ctx) {
-        LogoStatement logoStatement = new LogoStatement("cc", ctx, canvas);
+        LogoStatement logoStatement = new LogoStatement("cc", source, ctx, canvas);
         blocks.add(logoStatement);
         stack.peek().addCommand(logoStatement);
     }
 
     @Override
     public void enterPc(LogoParser.PcContext ctx) {
-        LogoStatement logoStatement = new LogoStatement("pc", ctx, canvas);
+        LogoStatement logoStatement = new LogoStatement("pc", source, ctx, canvas);
         blocks.add(logoStatement);
         stack.peek().addCommand(logoStatement);
     }
 
     @Override
     public void enterFontname(LogoParser.FontnameContext ctx) {
-        LogoStatement logoStatement = new LogoStatement("fontname", ctx, canvas);
+        LogoStatement logoStatement = new LogoStatement("fontname", source, ctx, canvas);
         blocks.add(logoStatement);
         stack.peek().addCommand(logoStatement);
     }
 
     @Override
     public void enterFontstyle(LogoParser.FontstyleContext ctx) {
-        LogoStatement logoStatement = new LogoStatement("fontstyle", ctx, canvas);
+        LogoStatement logoStatement = new LogoStatement("fontstyle", source, ctx, canvas);
         blocks.add(logoStatement);
         stack.peek().addCommand(logoStatement);
     }
 
     @Override
     public void enterFontsize(LogoParser.FontsizeContext ctx) {
-        LogoStatement logoStatement = new LogoStatement("fontsize", ctx, canvas);
+        LogoStatement logoStatement = new LogoStatement("fontsize", source, ctx, canvas);
         blocks.add(logoStatement);
         stack.peek().addCommand(logoStatement);
     }
 
     @Override
     public void enterProg(LogoParser.ProgContext ctx) {
-        stack.push(new LogoProg(ctx));
+        stack.push(new LogoProg(source, ctx));
     }
 
     @Override
     public void enterPrint_command(LogoParser.Print_commandContext ctx) {
-        LogoStatement logoStatement = new LogoStatement("print", ctx, canvas);
+        LogoStatement logoStatement = new LogoStatement("print", source, ctx, canvas);
         blocks.add(logoStatement);
         stack.peek().addCommand(logoStatement);
     }
 
     @Override
     public void enterFd(LogoParser.FdContext ctx) {
-        LogoStatement logoStatement = new LogoStatement("fd", ctx, canvas);
+        LogoStatement logoStatement = new LogoStatement("fd", source, ctx, canvas);
         blocks.add(logoStatement);
         stack.peek().addCommand(logoStatement);
     }
 
     @Override
     public void enterBk(LogoParser.BkContext ctx) {
-        LogoStatement logoStatement = new LogoStatement("bk", ctx, canvas);
+        LogoStatement logoStatement = new LogoStatement("bk", source, ctx, canvas);
         blocks.add(logoStatement);
         stack.peek().addCommand(logoStatement);
     }
 
     @Override
     public void enterRt(LogoParser.RtContext ctx) {
-        LogoStatement logoStatement = new LogoStatement("rt", ctx, canvas);
+        LogoStatement logoStatement = new LogoStatement("rt", source, ctx, canvas);
         blocks.add(logoStatement);
         stack.peek().addCommand(logoStatement);
     }
 
     @Override
     public void enterLt(LogoParser.LtContext ctx) {
-        LogoStatement logoStatement = new LogoStatement("lt", ctx, canvas);
+        LogoStatement logoStatement = new LogoStatement("lt", source, ctx, canvas);
         blocks.add(logoStatement);
         stack.peek().addCommand(logoStatement);
     }
 
     @Override
     public void enterPu(LogoParser.PuContext ctx) {
-        LogoStatement logoStatement = new LogoStatement("pu", ctx, canvas);
+        LogoStatement logoStatement = new LogoStatement("pu", source, ctx, canvas);
         blocks.add(logoStatement);
         stack.peek().addCommand(logoStatement);
     }
 
     @Override
     public void enterPd(LogoParser.PdContext ctx) {
-        LogoStatement logoStatement = new LogoStatement("pd", ctx, canvas);
+        LogoStatement logoStatement = new LogoStatement("pd", source, ctx, canvas);
         blocks.add(logoStatement);
         stack.peek().addCommand(logoStatement);
     }
 
     @Override
     public void enterCs(LogoParser.CsContext ctx) {
-        LogoStatement logoStatement = new LogoStatement("cs", ctx, canvas);
+        LogoStatement logoStatement = new LogoStatement("cs", source, ctx, canvas);
         blocks.add(logoStatement);
         stack.peek().addCommand(logoStatement);
     }
 
     @Override
     public void enterHt(LogoParser.HtContext ctx) {
-        LogoStatement logoStatement = new LogoStatement("ht", ctx, canvas);
+        LogoStatement logoStatement = new LogoStatement("ht", source, ctx, canvas);
         blocks.add(logoStatement);
         stack.peek().addCommand(logoStatement);
     }
 
     @Override
     public void enterSt(LogoParser.StContext ctx) {
-        LogoStatement logoStatement = new LogoStatement("st", ctx, canvas);
+        LogoStatement logoStatement = new LogoStatement("st", source, ctx, canvas);
         blocks.add(logoStatement);
         stack.peek().addCommand(logoStatement);
     }
 
     @Override
     public void enterHome(LogoParser.HomeContext ctx) {
-        LogoStatement logoStatement = new LogoStatement("home", ctx, canvas);
+        LogoStatement logoStatement = new LogoStatement("home", source, ctx, canvas);
         blocks.add(logoStatement);
         stack.peek().addCommand(logoStatement);
     }
 
     @Override
     public void enterSetxy(LogoParser.SetxyContext ctx) {
-        LogoStatement logoStatement = new LogoStatement("setxy", ctx, canvas);
+        LogoStatement logoStatement = new LogoStatement("setxy", source, ctx, canvas);
         blocks.add(logoStatement);
         stack.peek().addCommand(logoStatement);
     }
 
     @Override
     public void enterProcedureInvocation(LogoParser.ProcedureInvocationContext ctx) {
-        LogoStatement logoStatement = new LogoStatement(ctx.name().getText(), ctx, canvas);
+        LogoStatement logoStatement = new LogoStatement(ctx.name().getText(), source, ctx, canvas);
         blocks.add(logoStatement);
         stack.peek().addCommand(logoStatement);
     }
 
     @Override
     public void enterMake(LogoParser.MakeContext ctx) {
-        LogoStatement logoStatement = new LogoStatement("make", ctx, canvas);
+        LogoStatement logoStatement = new LogoStatement("make", source, ctx, canvas);
         blocks.add(logoStatement);
         stack.peek().addCommand(logoStatement);
     }
 
     @Override
     public void enterLocalmake(LogoParser.LocalmakeContext ctx) {
-        LogoStatement logoStatement = new LogoStatement("localmake", ctx, canvas);
+        LogoStatement logoStatement = new LogoStatement("localmake", source, ctx, canvas);
         blocks.add(logoStatement);
         stack.peek().addCommand(logoStatement);
     }
@@ -226,7 +247,7 @@ final class LexicalListener extends LogoBaseListener implements LexicalAnalyzer
     @Override
     public void enterIfe(LogoParser.IfeContext ctx) {
         //LogoIf ife = new LogoIf(ctx.comparison());
-        LogoIf lc = new LogoIf(ctx);
+        LogoIf lc = new LogoIf(source, ctx);
         blocks.add(lc);
         stack.peek().addCommand(lc);
         lc.setParent(stack.peek());
@@ -240,14 +261,14 @@ final class LexicalListener extends LogoBaseListener implements LexicalAnalyzer
 
     @Override
     public void enterStop(LogoParser.StopContext ctx) {
-        LogoStatement logoStatement = new LogoStatement("stop", ctx, canvas);
+        LogoStatement logoStatement = new LogoStatement("stop", source, ctx, canvas);
         blocks.add(logoStatement);
         stack.peek().addCommand(logoStatement);
     }
 
     @Override
     public void enterFore(LogoParser.ForeContext ctx) {
-        LogoFor lc = new LogoFor(ctx);
+        LogoFor lc = new LogoFor(source, ctx);
         blocks.add(lc);
         stack.peek().addCommand(lc);
         lc.setParent(stack.peek());
@@ -261,7 +282,7 @@ final class LexicalListener extends LogoBaseListener implements LexicalAnalyzer
 
     @Override
     public void enterRepeat(LogoParser.RepeatContext ctx) {
-        LogoRepeat lc = new LogoRepeat(ctx);
+        LogoRepeat lc = new LogoRepeat(source, ctx);
         blocks.add(lc);
         stack.peek().addCommand(lc);
         lc.setParent(stack.peek());
@@ -270,7 +291,7 @@ final class LexicalListener extends LogoBaseListener implements LexicalAnalyzer
 
     @Override
     public void enterPause(LogoParser.PauseContext ctx) {
-        LogoStatement logoStatement = new LogoStatement("pause", ctx, canvas);
+        LogoStatement logoStatement = new LogoStatement("pause", source, ctx, canvas);
         blocks.add(logoStatement);
         stack.peek().addCommand(logoStatement);
     }
@@ -15,11 +15,13 @@
  */
 package org.tros.logo;
 
+import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
 import org.apache.commons.lang3.event.EventListenerSupport;
 import org.tros.torgo.interpreter.CodeBlock;
 import org.tros.torgo.interpreter.CodeFunction;
@@ -28,6 +30,7 @@ import org.tros.torgo.interpreter.InterpreterValue;
 import org.tros.torgo.interpreter.ReturnValue;
 import org.tros.torgo.interpreter.ReturnValue.ProcessResult;
 import org.tros.torgo.interpreter.Scope;
+import org.tros.torgo.interpreter.SourceTable;
 import org.tros.torgo.interpreter.types.NullType;
 import org.tros.utils.ImmutableHaltMonitor;
 
@@ -35,11 +38,17 @@ import org.tros.utils.ImmutableHaltMonitor;
  * Base component of Logo. This is a grouping of commands to run. A LogoBlock
  * can contain more LogoBlocks.
  *
+ * Blocks are lowered from the parse tree when they are made: the operands they
+ * need are copied out of the context, and its position is added to a shared
+ * {@link SourceTable}. The context itself is not kept, so the parse tree can
+ * be collected once lexical analysis is done.
+ *
  * @author matta
  */
 abstract class LogoBlock implements CodeBlock {
 
-    protected final ParserRuleContext ctx;
+    protected final SourceTable source;
+    protected final int position;
     protected final EventListenerSupport<InterpreterListener> listeners
             = EventListenerSupport.create(InterpreterListener.class);
     protected final ArrayList<HashMap<String, InterpreterValue>> variables = new ArrayList<>();
@@ -52,10 +61,15 @@ abstract class LogoBlock implements CodeBlock {
     /**
      * Constructor.
      *
+     * @param source
      * @param ctx
      */
-    protected LogoBlock(ParserRuleContext ctx) {
-        this.ctx = ctx;
+    protected LogoBlock(SourceTable source, ParserRuleContext ctx) {
+        Token start = ctx.getStart();
+        this.source = source;
+        this.position = start == null
+                ? source.add(0, -1, -1, -1)
+                : source.add(start.getLine(), start.getCharPositionInLine(), start.getStartIndex(), start.getStopIndex());
     }
 
     @Override
@@ -190,8 +204,32 @@ abstract class LogoBlock implements CodeBlock {
     }
 
     @Override
-    public ParserRuleContext getParserRuleContext() {
-        return ctx;
+    public int getLine() {
+        return source.getLine(position);
+    }
+
+    @Override
+    public int getColumn() {
+        return source.getColumn(position);
+    }
+
+    @Override
+    public int getStartIndex() {
+        return source.getStartIndex(position);
+    }
+
+    @Override
+    public int getStopIndex() {
+        return source.getStopIndex(position);
+    }
+
+    /**
+     * Describe where the block is for logging.
+     *
+     * @return
+     */
+    protected String describe() {
+        return MessageFormat.format("[{0}]: Line: {1}, Start: {2}, End: {3}", getClass().getName(), getLine(), getStartIndex(), getStopIndex());
     }
 
     /**
@@ -73,4 +73,55 @@ public interface LogoCanvas {
     double getTurtleY();
 
     double getTurtleAngle();
+
+    /**
+     * Get the cache used to stamp repeated procedure calls.
+     *
+     * @return null if every call should be interpreted step by step, which
+     * is the default.
+     */
+    default InstanceCache getInstanceCache() {
+        return null;
+    }
+
+    /**
+     * Stamp a procedure's moves from the turtle's position and heading,
+     * leaving the turtle where the procedure would have. By default the moves
+     * are replayed through this canvas one by one.
+     *
+     * @param geometry
+     */
+    default void drawInstance(TurtleGeometry geometry) {
+        geometry.replay(new TurtleGeometry.Moves() {
+            @Override
+            public void forward(double distance) {
+                LogoCanvas.this.forward(distance);
+            }
+
+            @Override
+            public void backward(double distance) {
+                LogoCanvas.this.backward(distance);
+            }
+
+            @Override
+            public void left(double angle) {
+                LogoCanvas.this.left(angle);
+            }
+
+            @Override
+            public void right(double angle) {
+                LogoCanvas.this.right(angle);
+            }
+
+            @Override
+            public void penUp() {
+                LogoCanvas.this.penUp();
+            }
+
+            @Override
+            public void penDown() {
+                LogoCanvas.this.penDown();
+            }
+        });
+    }
 }
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo;
+
+import org.tros.torgo.interpreter.InterpreterValue;
+import org.tros.torgo.interpreter.Scope;
+import org.tros.torgo.interpreter.types.NumberType;
+import org.tros.torgo.metrics.Counter;
+import org.tros.torgo.metrics.Metrics;
+
+/**
+ * A lowered expression. Expressions are lowered from the parse tree once, by
+ * {@link ExpressionListener}, into a small tree of these nodes which holds
+ * only the operands that are needed to evaluate it.
+ *
+ * @author matta
+ */
+abstract class LogoExpression {
+
+    private static final Counter EVALUATIONS = Metrics.counter("interpreter.expressions");
+
+    /**
+     * Evaluate the expression.
+     *
+     * @param scope used for variable dereferencing.
+     * @return
+     */
+    abstract InterpreterValue evaluate(Scope scope);
+
+    /**
+     * Evaluate the expression for a statement. Counted as one evaluation,
+     * however many nodes the expression has.
+     *
+     * @param scope
+     * @return
+     */
+    final InterpreterValue value(Scope scope) {
+        EVALUATIONS.increment();
+        return evaluate(scope);
+    }
+
+    /**
+     * Evaluate the expression for a statement, as a number.
+     *
+     * @param scope
+     * @return
+     */
+    final Number number(Scope scope) {
+        return (Number) value(scope).getValue();
+    }
+
+    /**
+     * A literal number or string.
+     */
+    static final class Constant extends LogoExpression {
+
+        private final InterpreterValue value;
+
+        Constant(InterpreterValue value) {
+            this.value = value;
+        }
+
+        @Override
+        InterpreterValue evaluate(Scope scope) {
+            return value;
+        }
+    }
+
+    /**
+     * A variable, including the turtle and repcount values which are kept in
+     * specially named variables.
+     */
+    static final class Variable extends LogoExpression {
+
+        private final String name;
+
+        Variable(String name) {
+            this.name = name;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        @Override
+        InterpreterValue evaluate(Scope scope) {
+            return scope.get(name);
+        }
+    }
+
+    /**
+     * A binary math operation.
+     */
+    static final class Binary extends LogoExpression {
+
+        private final char op;
+        private final LogoExpression left;
+        private final LogoExpression right;
+
+        Binary(char op, LogoExpression left, LogoExpression right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        InterpreterValue evaluate(Scope scope) {
+            double num1 = ((Number) left.evaluate(scope).getValue()).doubleValue();
+            double num2 = ((Number) right.evaluate(scope).getValue()).doubleValue();
+            switch (op) {
+                case '-':
+                    num1 = num1 - num2;
+                    break;
+                case '+':
+                    num1 = num1 + num2;
+                    break;
+                case '*':
+                    num1 = num1 * num2;
+                    break;
+                case '%':
+                    num1 = num1 % num2;
+                    break;
+                case '/':
+                    num1 = num1 / num2;
+                    break;
+                case '\\':
+                    num1 = (int) (num1 / num2);
+                    break;
+                case '^':
+                    num1 = Math.pow(num1, num2);
+                    break;
+            }
+            return new InterpreterValue(NumberType.INSTANCE, num1);
+        }
+    }
+
+    /**
+     * A leading sign. Non-numeric values are passed through unchanged.
+     */
+    static final class Sign extends LogoExpression {
+
+        private final boolean negate;
+        private final LogoExpression operand;
+
+        Sign(boolean negate, LogoExpression operand) {
+            this.negate = negate;
+            this.operand = operand;
+        }
+
+        @Override
+        InterpreterValue evaluate(Scope scope) {
+            InterpreterValue val = operand.evaluate(scope);
+            if (!val.getType().equals(NumberType.INSTANCE)) {
+                return val;
+            }
+            double n = ((Number) val.getValue()).doubleValue();
+            if (negate) {
+                n *= -1;
+            }
+            return new InterpreterValue(NumberType.INSTANCE, n);
+        }
+    }
+
+    /**
+     * A random integer less than the operand, drawn from the run's own random
+     * numbers.
+     */
+    static final class Random extends LogoExpression {
+
+        private final LogoExpression max;
+
+        Random(LogoExpression max) {
+            this.max = max;
+        }
+
+        @Override
+        InterpreterValue evaluate(Scope scope) {
+            return new InterpreterValue(NumberType.INSTANCE, scope.getRandom().nextInt(Math.max(1, ((Number) max.evaluate(scope).getValue()).intValue())));
+        }
+    }
+}
@@ -15,14 +15,13 @@
  */
 package org.tros.logo;
 
-import java.text.MessageFormat;
 import java.util.HashMap;
-import org.antlr.v4.runtime.ParserRuleContext;
 import org.tros.logo.antlr.LogoParser;
 import org.tros.torgo.interpreter.InterpreterValue;
 import org.tros.torgo.interpreter.ReturnValue;
 import org.tros.torgo.interpreter.ReturnValue.ProcessResult;
 import org.tros.torgo.interpreter.Scope;
+import org.tros.torgo.interpreter.SourceTable;
 import org.tros.torgo.interpreter.types.NumberType;
 
 /**
@@ -45,14 +44,23 @@ class LogoFor extends LogoBlock {
     }
 
     private ForType type = ForType.UNDETERMINED;
+    private final String variable;
+    private final LogoExpression from;
+    private final LogoExpression to;
+    private final LogoExpression by;
 
     /**
      * Constructor.
      *
+     * @param source
      * @param ctx
      */
-    protected LogoFor(ParserRuleContext ctx) {
-        super(ctx);
+    protected LogoFor(SourceTable source, LogoParser.ForeContext ctx) {
+        super(source, ctx);
+        this.variable = ctx.name().STRING().getText();
+        this.from = ExpressionListener.lower(ctx.expression(0));
+        this.to = ExpressionListener.lower(ctx.expression(1));
+        this.by = ctx.expression().size() > 2 ? ExpressionListener.lower(ctx.expression(2)) : null;
     }
 
     /**
@@ -63,16 +71,15 @@ class LogoFor extends LogoBlock {
      */
     @Override
     public ReturnValue process(Scope scope) {
-        LOGGER.verbose(MessageFormat.format("[{0}]: Line: {1}, Start: {2}, End: {3}", ctx.getClass().getName(), ctx.getStart().getLine(), ctx.getStart().getStartIndex(), ctx.getStart().getStopIndex()));
+        if (LOGGER.isVerboseEnabled()) {
+            LOGGER.verbose(describe());
+        }
         scope.push(this);
         super.variables.add(0, new HashMap<>());
         listeners.fire().currStatement(this, scope);
 
-        LogoParser.ForeContext fore = (LogoParser.ForeContext) ctx;
-        String variable = fore.name().STRING().getText();
-
-        double start = ((Number) ExpressionListener.evaluate(scope, fore.expression(0)).getValue()).doubleValue();
-        double stop = ((Number) ExpressionListener.evaluate(scope, fore.expression(1)).getValue()).doubleValue();
+        double start = from.number(scope).doubleValue();
+        double stop = to.number(scope).doubleValue();
 
         //Are we increasing/decreasing.
         //set the default step accordingly.
@@ -89,8 +96,8 @@ class LogoFor extends LogoBlock {
         }
 
         //if the step value is specified, evalutate.
-        if (fore.expression().size() > 2) {
-            step = ((Number) ExpressionListener.evaluate(scope, fore.expression(2)).getValue()).doubleValue();
+        if (by != null) {
+            step = by.number(scope).doubleValue();
         }
 
         //process and step
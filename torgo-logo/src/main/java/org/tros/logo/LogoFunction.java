@@ -15,15 +15,22 @@
  */
 package org.tros.logo;
 
-import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import org.antlr.v4.runtime.ParserRuleContext;
+import java.util.Set;
+import org.tros.logo.antlr.LogoParser;
 import org.tros.torgo.interpreter.CodeFunction;
 import org.tros.torgo.interpreter.InterpreterValue;
 import org.tros.torgo.interpreter.ReturnValue;
 import org.tros.torgo.interpreter.ReturnValue.ProcessResult;
 import org.tros.torgo.interpreter.Scope;
+import org.tros.torgo.interpreter.SourceTable;
+import org.tros.torgo.metrics.Maximum;
+import org.tros.torgo.metrics.Metrics;
 
 /**
  * Supports functions with parameters.
@@ -33,17 +40,59 @@ import org.tros.torgo.interpreter.Scope;
 class LogoFunction extends LogoBlock implements CodeFunction {
 
     private static final org.tros.utils.logging.Logger LOGGER = org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoFunction.class);
+    private static final Maximum DEPTH = Metrics.maximum("interpreter.maxDepth");
     private final String funcitonName;
+    private final List<String> parameterNames;
+    private final Set<String> callees;
+    private final boolean locallyPure;
 
     /**
      * Constructor.
      *
      * @param functionName
+     * @param source
      * @param ctx
      */
-    protected LogoFunction(String functionName, ParserRuleContext ctx) {
-        super(ctx);
+    protected LogoFunction(String functionName, SourceTable source, LogoParser.ProcedureDeclarationContext ctx) {
+        super(source, ctx);
         this.funcitonName = functionName;
+        ArrayList<String> names = new ArrayList<>();
+        ctx.parameterDeclarations().forEach((param) -> {
+            names.add(param.getText().substring(1));
+        });
+        this.parameterNames = Collections.unmodifiableList(names);
+        HashSet<String> called = new HashSet<>();
+        this.locallyPure = InstanceCache.isLocallyPure(ctx, called);
+        this.callees = Collections.unmodifiableSet(called);
+    }
+
+    /**
+     * Get the names of the parameters, in declaration order.
+     *
+     * @return
+     */
+    List<String> getParameterNames() {
+        return parameterNames;
+    }
+
+    /**
+     * Check to see if the procedure, not counting the procedures it calls,
+     * only moves the turtle and reads its own parameters and locals.
+     *
+     * @return
+     */
+    boolean isLocallyPure() {
+        return locallyPure;
+    }
+
+    /**
+     * Get the names of the procedures called. Empty unless the procedure is
+     * locally pure.
+     *
+     * @return
+     */
+    Set<String> getCallees() {
+        return callees;
     }
 
     /**
@@ -64,8 +113,11 @@ class LogoFunction extends LogoBlock implements CodeFunction {
      */
     @Override
     public ReturnValue process(Scope scope, Map<String, InterpreterValue> params) {
-        LOGGER.verbose(MessageFormat.format("[{0}]: Line: {1}, Start: {2}, End: {3}", ctx.getClass().getName(), ctx.getStart().getLine(), ctx.getStart().getStartIndex(), ctx.getStart().getStopIndex()));
+        if (LOGGER.isVerboseEnabled()) {
+            LOGGER.verbose(describe());
+        }
         scope.push(this);
+        DEPTH.update(scope.size());
 
         super.variables.add(0, new HashMap<>());
 
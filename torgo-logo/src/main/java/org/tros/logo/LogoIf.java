@@ -15,12 +15,11 @@
  */
 package org.tros.logo;
 
-import java.text.MessageFormat;
 import java.util.HashMap;
-import org.antlr.v4.runtime.ParserRuleContext;
 import org.tros.logo.antlr.LogoParser;
 import org.tros.torgo.interpreter.ReturnValue;
 import org.tros.torgo.interpreter.Scope;
+import org.tros.torgo.interpreter.SourceTable;
 
 /**
  * Supports if statements/expressions.
@@ -30,14 +29,21 @@ import org.tros.torgo.interpreter.Scope;
 class LogoIf extends LogoBlock {
 
     private static final org.tros.utils.logging.Logger LOGGER = org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoIf.class);
+    private final LogoExpression left;
+    private final LogoExpression right;
+    private final String comparator;
 
     /**
      * Constructor.
      *
+     * @param source
      * @param ctx
      */
-    protected LogoIf(ParserRuleContext ctx) {
-        super(ctx);
+    protected LogoIf(SourceTable source, LogoParser.IfeContext ctx) {
+        super(source, ctx);
+        this.left = ExpressionListener.lower(ctx.comparison().expression(0));
+        this.right = ExpressionListener.lower(ctx.comparison().expression(1));
+        this.comparator = ctx.comparison().comparisonOperator().getText();
     }
 
     /**
@@ -48,16 +54,16 @@ class LogoIf extends LogoBlock {
      */
     @Override
     public ReturnValue process(Scope scope) {
-        LOGGER.verbose(MessageFormat.format("[{0}]: Line: {1}, Start: {2}, End: {3}", ctx.getClass().getName(), ctx.getStart().getLine(), ctx.getStart().getStartIndex(), ctx.getStart().getStopIndex()));
+        if (LOGGER.isVerboseEnabled()) {
+            LOGGER.verbose(describe());
+        }
         scope.push(this);
         super.variables.add(0, new HashMap<>());
         listeners.fire().currStatement(this, scope);
 
         //evaluate the 2 expressions.
-        LogoParser.IfeContext ct = (LogoParser.IfeContext) ctx;
-        double val1 = ((Number) ExpressionListener.evaluate(scope, ct.comparison().expression(0)).getValue()).doubleValue();
-        double val2 = ((Number) ExpressionListener.evaluate(scope, ct.comparison().expression(1)).getValue()).doubleValue();
-        String comparator = ct.comparison().comparisonOperator().getText();
+        double val1 = left.number(scope).doubleValue();
+        double val2 = right.number(scope).doubleValue();
 
         ReturnValue success = ReturnValue.SUCCESS;
 
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.tros.logo.antlr.LogoParser;
+import org.tros.torgo.TorgoScreen;
+import org.tros.torgo.interpreter.CodeBlock;
+import org.tros.torgo.interpreter.DynamicScope;
+import org.tros.torgo.interpreter.InterpreterThread;
+import org.tros.torgo.interpreter.LexicalAnalyzer;
+import org.tros.torgo.interpreter.LexicalScope;
+import org.tros.torgo.interpreter.Scope;
+
+/**
+ * Runs Logo scripts on any canvas. This is the part of a
+ * {@link LogoController} that does not need a window, so that scripts can be
+ * run headless without loading Swing or the docking frames.
+ *
+ * @author matta
+ */
+public final class LogoInterpreter {
+
+    private static final Map<String, Supplier<Scope>> LANGUAGES;
+
+    static {
+        //the same languages as the logo controllers.
+        LinkedHashMap<String, Supplier<Scope>> languages = new LinkedHashMap<>();
+        languages.put("dynamic-logo", DynamicScope::new);
+        languages.put("lexical-logo", LexicalScope::new);
+        LANGUAGES = Collections.unmodifiableMap(languages);
+    }
+
+    private final String lang;
+    private final Supplier<Scope> scopes;
+    private Long seed;
+
+    /**
+     * Constructor.
+     *
+     * @param lang the language name.
+     * @param scopes creates the global scope for each run.
+     */
+    public LogoInterpreter(String lang, Supplier<Scope> scopes) {
+        this.lang = lang;
+        this.scopes = scopes;
+    }
+
+    /**
+     * Get the interpreter for a language.
+     *
+     * @param lang
+     * @return null if the language is not a logo language.
+     */
+    public static LogoInterpreter forLanguage(String lang) {
+        Supplier<Scope> scopes = LANGUAGES.get(lang);
+        return scopes == null ? null : new LogoInterpreter(lang, scopes);
+    }
+
+    /**
+     * Get the names of the languages that can be run without a window.
+     *
+     * @return
+     */
+    public static Set<String> getLanguages() {
+        return LANGUAGES.keySet();
+    }
+
+    /**
+     * Get the language name.
+     *
+     * @return
+     */
+    public String getLang() {
+        return lang;
+    }
+
+    /**
+     * Seed the random numbers of every run, so that scripts using
+     * <code>random</code> draw the same way each time. Each run has its own
+     * random numbers, so concurrent runs do not affect each other.
+     *
+     * @param seed the seed, or null to use the default random numbers.
+     */
+    public void setRandomSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    private Scope createScope() {
+        Scope scope = scopes.get();
+        if (seed != null) {
+            scope.setRandomSeed(seed);
+        }
+        return scope;
+    }
+
+    /**
+     * Get an interpreter thread for a script file, picking the cheapest way to
+     * run it: compiled programs are not parsed, very large scripts are run as
+     * they are read and anything else is read and parsed up front.
+     *
+     * @param script
+     * @param target
+     * @return
+     * @throws IOException
+     */
+    public InterpreterThread createInterpreterThread(File script, LogoCanvas target) throws IOException {
+        if (CompiledProgram.isCompiled(script.getName())) {
+            return createInterpreterThread(CompiledProgram.load(script), target);
+        } else if (script.length() > InterpreterThread.STREAM_THRESHOLD) {
+            return createStreamingThread(script, target);
+        }
+        return createInterpreterThread(new String(Files.readAllBytes(script.toPath()), StandardCharsets.UTF_8), target);
+    }
+
+    /**
+     * Get an interpreter thread that runs a compiled program, without
+     * parsing.
+     *
+     * @param program
+     * @param target
+     * @return
+     */
+    public InterpreterThread createInterpreterThread(final CompiledProgram program, final LogoCanvas target) {
+        return new InterpreterThread(program.getSource(), createScope()) {
+
+            @Override
+            protected LexicalAnalyzer getLexicalAnalysis(String source) {
+                reset(target);
+                return LexicalListener.lexicalAnalysis(program.getTree(), target);
+            }
+
+            @Override
+            protected void process(CodeBlock entryPoint) {
+                entryPoint.process(scope);
+            }
+        };
+    }
+
+    /**
+     * Get an interpreter thread that runs a script.
+     *
+     * @param source
+     * @param target
+     * @return
+     */
+    public InterpreterThread createInterpreterThread(String source, final LogoCanvas target) {
+        return new InterpreterThread(source, createScope()) {
+
+            @Override
+            protected LexicalAnalyzer getLexicalAnalysis(String source) {
+                reset(target);
+                //lexical analysis and parsing with ANTLR, unless the same
+                //source has been parsed before.
+                //the prog element is the root element defined in the logo.g4 grammar.
+                ProgramCache cache = ProgramCache.getDefault();
+                LogoParser.ProgContext tree = cache.parse(source);
+                org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoInterpreter.class).debug("Parse cache: {0}", cache);
+                return LexicalListener.lexicalAnalysis(tree, target);
+            }
+
+            @Override
+            protected void process(CodeBlock entryPoint) {
+                entryPoint.process(scope);
+            }
+        };
+    }
+
+    /**
+     * Get an interpreter thread that runs a script while it is read from a
+     * file, so that drawing starts right away and memory use does not grow
+     * with the size of the script. See {@link LogoStream}.
+     *
+     * @param file
+     * @param target
+     * @return
+     */
+    public InterpreterThread createStreamingThread(final File file, final LogoCanvas target) {
+        return new InterpreterThread(file.getPath(), createScope()) {
+
+            private LogoStream stream;
+
+            @Override
+            protected LexicalAnalyzer getLexicalAnalysis(String source) {
+                reset(target);
+                try {
+                    stream = new LogoStream(Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8), target);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                return new LexicalAnalyzer() {
+                    @Override
+                    public CodeBlock getEntryPoint() {
+                        return stream;
+                    }
+
+                    @Override
+                    public Collection<CodeBlock> getCodeBlocks() {
+                        return Collections.singletonList(stream);
+                    }
+                };
+            }
+
+            @Override
+            protected void process(CodeBlock entryPoint) {
+                try {
+                    entryPoint.process(scope);
+                } finally {
+                    try {
+                        stream.close();
+                    } catch (IOException ex) {
+                        org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoInterpreter.class).warn(null, ex);
+                    }
+                    org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoInterpreter.class).debug("Streamed {0}: {1} lines, {2} blocks, {3} syntax errors",
+                            file, stream.getLineCount(), stream.getStatementCount(), stream.getSyntaxErrorCount());
+                }
+            }
+        };
+    }
+
+    private static void reset(LogoCanvas target) {
+        if (target instanceof TorgoScreen) {
+            ((TorgoScreen) target).reset();
+        }
+    }
+}
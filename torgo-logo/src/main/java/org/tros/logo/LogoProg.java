@@ -15,11 +15,11 @@
  */
 package org.tros.logo;
 
-import java.text.MessageFormat;
 import java.util.HashMap;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.tros.torgo.interpreter.ReturnValue;
 import org.tros.torgo.interpreter.Scope;
+import org.tros.torgo.interpreter.SourceTable;
 
 /**
  * Represents the entrypoint of execution for the Logo script.
@@ -33,10 +33,11 @@ class LogoProg extends LogoBlock {
     /**
      * Constructor.
      *
+     * @param source
      * @param ctx
      */
-    protected LogoProg(ParserRuleContext ctx) {
-        super(ctx);
+    protected LogoProg(SourceTable source, ParserRuleContext ctx) {
+        super(source, ctx);
     }
 
     /**
@@ -49,7 +50,9 @@ class LogoProg extends LogoBlock {
      */
     @Override
     public ReturnValue process(Scope scope) {
-        LOGGER.verbose(MessageFormat.format("[{0}]: Line: {1}, Start: {2}, End: {3}", ctx.getClass().getName(), ctx.getStart().getLine(), ctx.getStart().getStartIndex(), ctx.getStart().getStopIndex()));
+        if (LOGGER.isVerboseEnabled()) {
+            LOGGER.verbose(describe());
+        }
         scope.push(this);
         super.variables.add(0, new HashMap<>());
         listeners.fire().currStatement(this, scope);
@@ -15,14 +15,13 @@
  */
 package org.tros.logo;
 
-import java.text.MessageFormat;
 import java.util.HashMap;
-import org.antlr.v4.runtime.ParserRuleContext;
 import org.tros.logo.antlr.LogoParser;
 import org.tros.torgo.interpreter.InterpreterValue;
 import org.tros.torgo.interpreter.ReturnValue;
 import org.tros.torgo.interpreter.ReturnValue.ProcessResult;
 import org.tros.torgo.interpreter.Scope;
+import org.tros.torgo.interpreter.SourceTable;
 import org.tros.torgo.interpreter.types.NumberType;
 
 /**
@@ -39,14 +38,17 @@ class LogoRepeat extends LogoBlock {
      */
     public static final String REPCOUNT_VAR = "1_repcount%";
     private static final org.tros.utils.logging.Logger LOGGER = org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoRepeat.class);
+    private final LogoExpression count;
 
     /**
      * Constructor.
      *
+     * @param source
      * @param ctx
      */
-    protected LogoRepeat(ParserRuleContext ctx) {
-        super(ctx);
+    protected LogoRepeat(SourceTable source, LogoParser.RepeatContext ctx) {
+        super(source, ctx);
+        this.count = ExpressionListener.lower(ctx.expression());
     }
 
     /**
@@ -57,13 +59,15 @@ class LogoRepeat extends LogoBlock {
      */
     @Override
     public ReturnValue process(Scope scope) {
-        LOGGER.verbose(MessageFormat.format("[{0}]: Line: {1}, Start: {2}, End: {3}", ctx.getClass().getName(), ctx.getStart().getLine(), ctx.getStart().getStartIndex(), ctx.getStart().getStopIndex()));
+        if (LOGGER.isVerboseEnabled()) {
+            LOGGER.verbose(describe());
+        }
         scope.push(this);
         super.variables.add(0, new HashMap<>());
         listeners.fire().currStatement(this, scope);
 
         ReturnValue success = ReturnValue.SUCCESS;
-        int repeat = ((Number) ExpressionListener.evaluate(scope, ((LogoParser.RepeatContext) ctx).expression()).getValue()).intValue();
+        int repeat = count.number(scope).intValue();
         for (int ii = 0; ii < repeat && success.getResult() == ProcessResult.SUCCESS; ii++) {
             //this sets the repcount variable for dereferencing in the block.
             scope.setNew(REPCOUNT_VAR, new InterpreterValue(NumberType.INSTANCE, ii + 1));
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.tros.logo.antlr.LogoParser;
+import org.tros.torgo.interpreter.CodeFunction;
+import org.tros.torgo.interpreter.InterpreterValue;
+import org.tros.torgo.interpreter.ReturnValue;
+import org.tros.torgo.interpreter.Scope;
+import org.tros.torgo.interpreter.SourceTable;
+import org.tros.torgo.interpreter.types.NumberType;
+import org.tros.torgo.metrics.Counter;
+import org.tros.torgo.metrics.Metrics;
+
+/**
+ * This is perhaps the most trickily named class. This inherits from LogoBlock,
+ * but is in-fact only a single statement or command. In effect, this is the
+ * terminal node of the call tree. The operands of the command are lowered
+ * when the statement is made: expressions into {@link LogoExpression}s and
+ * names, colors and styles into a string.
+ *
+ * @author matta
+ */
+class LogoStatement extends LogoBlock {
+
+    public static final String TURTLE_X_VAR = "1_turtlex%";
+    public static final String TURTLE_Y_VAR = "1_turtley%";
+    public static final String TURTLE_ANGLE_VAR = "1_turtlea%";
+
+    private static final org.tros.utils.logging.Logger LOGGER = org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoStatement.class);
+    private static final Counter STATEMENTS = Metrics.counter("interpreter.statements");
+    private static final Counter CALLS = Metrics.counter("interpreter.calls");
+    private static final LogoExpression[] NO_ARGUMENTS = new LogoExpression[0];
+    private final String command;
+    private final LogoCanvas canvas;
+    private final LogoExpression[] arguments;
+    private final String operand;
+
+    /**
+     * Constructor.
+     *
+     * @param command
+     * @param source
+     * @param ctx
+     * @param canvas
+     */
+    protected LogoStatement(String command, SourceTable source, ParserRuleContext ctx, LogoCanvas canvas) {
+        super(source, ctx);
+        this.canvas = canvas;
+        this.command = command.trim();
+        String op = null;
+        List<? extends ParseTree> args = new ArrayList<>();
+        switch (this.command) {
+            case "fd":
+            case "bk":
+            case "lt":
+            case "rt":
+            case "fontsize":
+            case "pause":
+            case "setxy":
+                args = ctx.getRuleContexts(LogoParser.ExpressionContext.class);
+                break;
+            case "pc":
+            case "cc":
+                args = ctx.getRuleContexts(LogoParser.ExpressionContext.class);
+                if (args.isEmpty()) {
+                    LogoParser.HexcolorContext hex = ctx.getRuleContext(LogoParser.HexcolorContext.class, 0);
+                    op = hex != null ? hex.HEX().toString() : ctx.getRuleContext(LogoParser.NameContext.class, 0).STRING().getText();
+                }
+                break;
+            case "ds":
+                LogoParser.DsContext ds = (LogoParser.DsContext) ctx;
+                if (ds.value().STRINGLITERAL() != null) {
+                    op = ds.value().STRINGLITERAL().getText().substring(1);
+                } else if (ds.value().expression() != null) {
+                    args = Collections.singletonList(ds.value().expression());
+                }
+                break;
+            case "fontstyle":
+                op = ((LogoParser.FontstyleContext) ctx).style().getText();
+                break;
+            case "fontname":
+                op = ((LogoParser.FontnameContext) ctx).name().STRING().getText();
+                break;
+            case "make":
+            case "localmake":
+                op = ctx.getChild(1).getText().substring(1);
+                args = ctx.children.subList(2, 3);
+                break;
+            case "print":
+                args = ctx.children.subList(1, 2);
+                break;
+            default:
+                if (ctx instanceof LogoParser.ProcedureInvocationContext) {
+                    args = ((LogoParser.ProcedureInvocationContext) ctx).expression();
+                }
+                break;
+        }
+        this.operand = op;
+        this.arguments = args.isEmpty() ? NO_ARGUMENTS : new LogoExpression[args.size()];
+        for (int ii = 0; ii < arguments.length; ii++) {
+            arguments[ii] = ExpressionListener.lower(args.get(ii));
+        }
+        super.addCommand((LogoBlock) this);
+    }
+
+    /**
+     * Get the command.
+     *
+     * @return
+     */
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * Process the statement.
+     *
+     * @param scope
+     * @return
+     */
+    @Override
+    public ReturnValue process(Scope scope) {
+        //if the thread has halted, don't process and pop up the stack.
+        if (isHalted()) {
+            return ReturnValue.HALT;
+        }
+        STATEMENTS.increment();
+
+        if (LOGGER.isVerboseEnabled()) {
+            LOGGER.verbose(describe());
+        }
+
+        //we don't do scope.push(this) here because of the chance we will
+        //be doing a variable creation (localmake) and so it is possible
+        //that we would push onto the stack, create, and the pop the new
+        //value right off of the stack again.
+        listeners.fire().currStatement(this, scope);
+
+        scope.setGlobal(TURTLE_X_VAR, new InterpreterValue(NumberType.INSTANCE, canvas.getTurtleX()));
+        scope.setGlobal(TURTLE_Y_VAR, new InterpreterValue(NumberType.INSTANCE, canvas.getTurtleY()));
+        scope.setGlobal(TURTLE_ANGLE_VAR, new InterpreterValue(NumberType.INSTANCE, canvas.getTurtleAngle()));
+
+        ReturnValue success = ReturnValue.SUCCESS;
+        InstanceCache instances = canvas.getInstanceCache();
+        if (null != command) {
+            switch (command) {
+                case "fd":
+                    double fd = arguments[0].number(scope).doubleValue();
+                    canvas.forward(fd);
+                    if (instances != null) {
+                        instances.forward(fd);
+                    }
+                    break;
+                case "bk":
+                    double bk = arguments[0].number(scope).doubleValue();
+                    canvas.backward(bk);
+                    if (instances != null) {
+                        instances.backward(bk);
+                    }
+                    break;
+                case "lt":
+                    double lt = arguments[0].number(scope).doubleValue();
+                    canvas.left(lt);
+                    if (instances != null) {
+                        instances.left(lt);
+                    }
+                    break;
+                case "rt":
+                    double rt = arguments[0].number(scope).doubleValue();
+                    canvas.right(rt);
+                    if (instances != null) {
+                        instances.right(rt);
+                    }
+                    break;
+                case "setxy":
+                    double x = arguments[0].number(scope).doubleValue();
+                    double y = arguments[1].number(scope).doubleValue();
+                    canvas.setXY(x, y);
+                    break;
+                case "pd":
+                    canvas.penDown();
+                    if (instances != null) {
+                        instances.penDown();
+                    }
+                    break;
+                case "pu":
+                    canvas.penUp();
+                    if (instances != null) {
+                        instances.penUp();
+                    }
+                    break;
+                case "stop":
+                    //note, this is the one time false is returned (except thread halting).
+                    //this is used to break out of functions.
+                    success = ReturnValue.RETURN;
+                    break;
+                case "pc":
+                    if (arguments.length >= 3) {
+                        int a = 255;
+                        int r = arguments[0].number(scope).intValue();
+                        int g = arguments[1].number(scope).intValue();
+                        int b = arguments[2].number(scope).intValue();
+                        if (arguments.length > 3) {
+                            a = arguments[3].number(scope).intValue();
+                        }
+                        canvas.pencolor(r, g, b, a);
+                    } else {
+                        //either a hex color or a color name.
+                        canvas.pencolor(operand);
+                    }
+                    break;
+                case "cc":
+                    if (arguments.length == 3) {
+                        int r = arguments[0].number(scope).intValue();
+                        int g = arguments[1].number(scope).intValue();
+                        int b = arguments[2].number(scope).intValue();
+                        canvas.canvascolor(r, g, b);
+                    } else {
+                        canvas.canvascolor(operand);
+                    }
+                    break;
+                case "ds":
+                    //either a string literal or an expression.
+                    String str = operand;
+                    if (str == null && arguments.length > 0) {
+                        str = arguments[0].value(scope).toString();
+                    }
+                    if (str != null) {
+                        canvas.drawString(str);
+                    }
+                    break;
+                case "fontsize":
+                    canvas.fontSize(arguments[0].number(scope).intValue());
+                    break;
+                case "fontstyle":
+                    String styleString = operand;
+                    if (null != styleString) {
+                        switch (styleString) {
+                            case "bold":
+                                canvas.fontStyle(1);
+                                break;
+                            case "italic":
+                                canvas.fontStyle(2);
+                                break;
+                            case "bold_italic":
+                                canvas.fontStyle(3);
+                                break;
+                            case "plain":
+                            default:
+                                canvas.fontStyle(0);
+                                break;
+                        }
+                    }
+                    break;
+                case "fontname":
+                    canvas.fontName(operand);
+                    break;
+                case "pause":
+                    canvas.pause(arguments[0].number(scope).intValue());
+                    break;
+                case "cs":
+                    canvas.clear();
+                    break;
+                case "home":
+                    canvas.home();
+                    break;
+                case "ht":
+                    canvas.hideTurtle();
+                    break;
+                case "st":
+                    canvas.showTurtle();
+                    break;
+                case "make":
+                    scope.set(operand, arguments[0].value(scope));
+                    break;
+                case "localmake":
+                    //this is the statement that is why we don't do a scope.push() at the
+                    //beginning of this method.
+                    scope.setNew(operand, arguments[0].value(scope));
+                    break;
+                case "print":
+                    //will need to support strings...
+                    if (arguments[0] == null) {
+                        //lists are not expressions yet.
+                        throw new IllegalArgumentException("print: not an expression");
+                    }
+                    InterpreterValue evaluate = arguments[0].value(scope);
+//                    canvas.message(this.getClass().getName() + " -> " + evaluate.getValue().toString());
+                    super.listeners.fire().message(evaluate.getValue().toString());
+                    break;
+                default:
+                    //if it is not a known value form above, it is probably a funciton,
+                    //get the function by name and invoke.
+                    CodeFunction lf = getFunction(command, scope);
+                    if (lf != null) {
+                        //get the procedure so we can get the parameter names to set to values from the invocation.
+                        LogoFunction funct = (LogoFunction) lf;
+                        List<String> paramNames = funct.getParameterNames();
+                        HashMap<String, InterpreterValue> paramValues = new HashMap<>();
+
+                        //get the paremeter values
+                        ArrayList<InterpreterValue> values = new ArrayList<>(paramNames.size());
+                        for (int ii = 0; ii < paramNames.size(); ii++) {
+                            InterpreterValue value = arguments[ii].value(scope);
+                            paramValues.put(paramNames.get(ii), value);
+                            values.add(value);
+                        }
+
+                        //if the procedure only moves the turtle, replay its moves from last time.
+                        List<Object> key = null;
+                        if (instances != null && instances.isInstanceable(funct, (callName) -> {
+                            CodeFunction callee = getFunction(callName, scope);
+                            return callee instanceof LogoFunction ? (LogoFunction) callee : null;
+                        })) {
+                            key = instances.key(funct, values);
+                        }
+                        TurtleGeometry geometry = key == null ? null : instances.lookup(key);
+                        CALLS.increment();
+                        if (geometry != null) {
+                            canvas.drawInstance(geometry);
+                        } else {
+                            if (key != null) {
+                                instances.begin();
+                            }
+                            //Invoke the procedure w/ the parameters
+                            success = lf.process(scope, paramValues);
+                            if (key != null) {
+                                instances.end(key, success.getResult() != ReturnValue.ProcessResult.HALT && !isHalted());
+                            }
+                        }
+                    } else {
+                        //no function by that name was found.
+                        //halt interpreting.
+                        success = ReturnValue.HALT;
+                        super.listeners.fire().error(new Exception(MessageFormat.format("process(): UNKNOWN -> {0}", command)));
+                        canvas.warning(this.getClass().getName() + "process(): UNKNOWN -> " + command);
+                        LOGGER.warn(MessageFormat.format("process(): UNKNOWN -> {0}", command));
+                    }
+                    break;
+            }
+        }
+        canvas.repaint();
+
+        return success;
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.InputMismatchException;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.UnbufferedCharStream;
+import org.antlr.v4.runtime.UnbufferedTokenStream;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.atn.RuleTransition;
+import org.antlr.v4.runtime.atn.Transition;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.tros.logo.antlr.LogoLexer;
+import org.tros.logo.antlr.LogoParser;
+import org.tros.torgo.interpreter.CodeBlock;
+import org.tros.torgo.interpreter.InterpreterListener;
+import org.tros.torgo.interpreter.ReturnValue;
+import org.tros.torgo.interpreter.ReturnValue.ProcessResult;
+import org.tros.torgo.interpreter.Scope;
+import org.tros.torgo.interpreter.SourceTable;
+import org.tros.torgo.interpreter.types.NullType;
+import org.tros.utils.ImmutableHaltMonitor;
+
+/**
+ * The entry point of a script that is run while it is read. Meant for very
+ * large generated scripts, which are mostly long runs of simple commands.
+ *
+ * <p>
+ * The script is lexed and parsed through unbuffered streams, so only a small
+ * window of characters and tokens is held at a time. Each top-level line is
+ * parsed, lowered and run before the next one is read, and its blocks are
+ * dropped once it has run. Procedures are kept once they are declared, but
+ * unlike a script that is parsed as a whole, a procedure can only be called
+ * after the line that declares it has been read.</p>
+ *
+ * <p>
+ * A line with a syntax error is reported as a message and skipped, the rest
+ * of the script still runs.</p>
+ *
+ * @author matta
+ */
+final class LogoStream extends LogoBlock implements Closeable {
+
+    static final int BUFFER_SIZE = 1 << 16;
+
+    //where prog invokes a line that is followed by an EOL.
+    private static final int LINE_INVOKING_STATE = lineInvokingState();
+
+    private static final org.tros.utils.logging.Logger LOGGER = org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoStream.class);
+
+    private final Reader reader;
+    private final LogoCanvas canvas;
+    private final UnbufferedTokenStream<Token> tokens;
+    private final LogoParser parser;
+    //the blocks of the line being run, and those of declared procedures.
+    private final ArrayList<CodeBlock> current = new ArrayList<>();
+    private final ArrayList<CodeBlock> procedures = new ArrayList<>();
+    private long lines;
+    private long statements;
+    //the first syntax error in the line being parsed.
+    private String syntaxError;
+
+    /**
+     * Constructor.
+     *
+     * @param reader the script, closed along with the stream.
+     * @param canvas
+     */
+    LogoStream(Reader reader, LogoCanvas canvas) {
+        super(new SourceTable(), new ParserRuleContext());
+        this.reader = reader;
+        this.canvas = canvas;
+        LogoLexer lexer = new LogoLexer(new UnbufferedCharStream(reader, BUFFER_SIZE));
+        //the characters are gone once a token is read, so tokens keep their text.
+        lexer.setTokenFactory(new CommonTokenFactory(true));
+        this.tokens = new UnbufferedTokenStream<>(lexer, BUFFER_SIZE / 64);
+        this.parser = new LogoParser(tokens);
+        parser.setErrorHandler(new LineErrorStrategy());
+        parser.removeErrorListeners();
+        parser.addErrorListener(new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
+                if (syntaxError == null) {
+                    syntaxError = MessageFormat.format("line {0}:{1} {2}", line, charPositionInLine, msg);
+                }
+            }
+        });
+    }
+
+    /**
+     * Read and run the script a line at a time.
+     *
+     * @param scope
+     * @return
+     */
+    @Override
+    public ReturnValue process(Scope scope) {
+        if (LOGGER.isVerboseEnabled()) {
+            LOGGER.verbose(describe());
+        }
+        scope.push(this);
+        super.variables.add(0, new HashMap<>());
+        listeners.fire().currStatement(this, scope);
+
+        ProcessResult result = ProcessResult.SUCCESS;
+        try {
+            LogoParser.LineContext line;
+            while (result == ProcessResult.SUCCESS && !isHalted() && (line = next()) != null) {
+                if (syntaxError != null) {
+                    //a partly parsed line cannot be lowered, so it is not run.
+                    String msg = MessageFormat.format("Syntax error, skipped the line: {0}", syntaxError);
+                    LOGGER.warn(msg);
+                    listeners.fire().message(msg);
+                } else {
+                    result = run(line, scope);
+                }
+            }
+            if (isHalted()) {
+                result = ProcessResult.HALT;
+            }
+        } finally {
+            synchronized (current) {
+                current.clear();
+            }
+            getCommandsList().clear();
+            super.variables.remove(0);
+            scope.pop();
+        }
+        return new ReturnValue(NullType.INSTANCE, null, result);
+    }
+
+    /**
+     * Parse the next top-level line.
+     *
+     * @return null at the end of the script.
+     */
+    private LogoParser.LineContext next() {
+        while (tokens.LA(1) == LogoLexer.EOL) {
+            tokens.consume();
+        }
+        if (tokens.LA(1) == Token.EOF) {
+            return null;
+        }
+        int index = tokens.index();
+        final int errors = parser.getNumberOfSyntaxErrors();
+        syntaxError = null;
+        //leave recovery from the last line, or errors in this one are not reported.
+        parser.getErrorHandler().reset(parser);
+        //parse as if called from prog, so the EOL ending the line is expected.
+        parser.setState(LINE_INVOKING_STATE);
+        LogoParser.LineContext line;
+        try {
+            line = parser.line();
+        } catch (ParseCancellationException ex) {
+            //drop the rest of the line, the next one is parsed on its own.
+            while (tokens.LA(1) != LogoLexer.EOL && tokens.LA(1) != Token.EOF) {
+                tokens.consume();
+            }
+            line = new LogoParser.LineContext(null, LINE_INVOKING_STATE);
+        }
+        if (tokens.index() == index) {
+            //nothing could be parsed, skip the token so the stream moves on.
+            tokens.consume();
+        }
+        if (syntaxError == null && (line.exception != null || parser.getNumberOfSyntaxErrors() > errors)) {
+            syntaxError = MessageFormat.format("line {0}", tokens.LT(-1).getLine());
+        }
+        lines++;
+        return line;
+    }
+
+    /**
+     * Lower and run one line.
+     *
+     * @param line
+     * @param scope
+     * @return
+     */
+    private ProcessResult run(LogoParser.LineContext line, Scope scope) {
+        Iterable<CodeBlock> blocks = LexicalListener.lexicalAnalysis(line, this, canvas).getCodeBlocks();
+        InterpreterListener forward = listeners.fire();
+        synchronized (current) {
+            current.clear();
+            for (CodeBlock cb : blocks) {
+                cb.addInterpreterListener(forward);
+                current.add(cb);
+                statements++;
+            }
+            if (line.procedureDeclaration() != null) {
+                procedures.addAll(current);
+            }
+        }
+        if (isHalted()) {
+            return ProcessResult.HALT;
+        }
+        ReturnValue ret = super.process(scope);
+        getCommandsList().clear();
+        return ret.getResult();
+    }
+
+    /**
+     * Pass halting on to the blocks of the line being run and of the declared
+     * procedures, since they are not known to the monitor.
+     *
+     * @param monitor
+     */
+    @Override
+    public void halted(ImmutableHaltMonitor monitor) {
+        super.halted(monitor);
+        synchronized (current) {
+            current.forEach((cb) -> {
+                cb.halted(monitor);
+            });
+            procedures.forEach((cb) -> {
+                cb.halted(monitor);
+            });
+        }
+    }
+
+    /**
+     * Get the number of top-level lines read so far, including skipped ones.
+     *
+     * @return
+     */
+    long getLineCount() {
+        return lines;
+    }
+
+    /**
+     * Get the number of code blocks made so far.
+     *
+     * @return
+     */
+    long getStatementCount() {
+        return statements;
+    }
+
+    /**
+     * Get the number of syntax errors so far. Lines with errors are skipped.
+     *
+     * @return
+     */
+    int getSyntaxErrorCount() {
+        return parser.getNumberOfSyntaxErrors();
+    }
+
+    /**
+     * Find the state in prog that invokes line with an EOL to follow. Without
+     * it a line is parsed as the whole script, and the EOL ending it is
+     * reported as extraneous.
+     *
+     * @return
+     */
+    private static int lineInvokingState() {
+        ATN atn = LogoParser._ATN;
+        ATNState lineStart = atn.ruleToStartState[LogoParser.RULE_line];
+        for (ATNState state : atn.states) {
+            if (state == null || state.ruleIndex != LogoParser.RULE_prog) {
+                continue;
+            }
+            for (int i = 0; i < state.getNumberOfTransitions(); i++) {
+                Transition t = state.transition(i);
+                if (t instanceof RuleTransition && t.target == lineStart
+                        && atn.nextTokens(((RuleTransition) t).followState).contains(LogoLexer.EOL)) {
+                    return state.stateNumber;
+                }
+            }
+        }
+        return ATNState.INVALID_STATE_NUMBER;
+    }
+
+    /**
+     * Reports the first error in a line and then gives up on the line, rather
+     * than recovering by reading on into the lines after it.
+     */
+    private static final class LineErrorStrategy extends DefaultErrorStrategy {
+
+        @Override
+        public void recover(Parser recognizer, RecognitionException e) {
+            throw new ParseCancellationException(e);
+        }
+
+        @Override
+        public Token recoverInline(Parser recognizer) {
+            InputMismatchException e = new InputMismatchException(recognizer);
+            reportError(recognizer, e);
+            throw new ParseCancellationException(e);
+        }
+
+        @Override
+        public void sync(Parser recognizer) {
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.tros.logo.antlr.LogoLexer;
+import org.tros.logo.antlr.LogoParser;
+
+/**
+ * Writes a Logo parse tree to bytes and reads it back without lexing or
+ * parsing. The tree is written in pre-order after a table of the tokens it
+ * refers to; each token keeps its line, column and character offsets so that
+ * the debugger and error messages point at the same place in the source.
+ * <p>
+ * Trees are tied to the grammar they were parsed with, so the encoding
+ * starts with {@link #GRAMMAR_VERSION}, a hash of the generated lexer and
+ * parser. Reading a tree written for another grammar fails with an
+ * IOException.
+ *
+ * @author matta
+ */
+final class ParseTreeCodec {
+
+    public static final String GRAMMAR_VERSION = hash(LogoLexer._serializedATN + LogoParser._serializedATN, 16);
+
+    private static final int MAGIC = 0x544c5054;
+    private static final int FORMAT_VERSION = 1;
+    private static final int RULE = 0;
+    private static final int TERMINAL = 1;
+    private static final int ERROR = 2;
+    private static final Constructor<?>[] RULES = ruleConstructors();
+
+    private ParseTreeCodec() {
+    }
+
+    /**
+     * Encode a parse tree.
+     *
+     * @param tree
+     * @return
+     */
+    static byte[] encode(LogoParser.ProgContext tree) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            write(tree, out);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            //only the byte array is written to.
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Write a parse tree.
+     *
+     * @param tree
+     * @param out
+     * @throws IOException
+     */
+    static void write(LogoParser.ProgContext tree, DataOutputStream out) throws IOException {
+        IdentityHashMap<Token, Integer> ids = new IdentityHashMap<>();
+        ArrayList<Token> tokens = new ArrayList<>();
+        collectTokens(tree, ids, tokens);
+
+        out.writeInt(MAGIC);
+        out.writeShort(FORMAT_VERSION);
+        out.writeUTF(GRAMMAR_VERSION);
+        writeVar(out, tokens.size());
+        for (Token token : tokens) {
+            writeVar(out, token.getType());
+            writeVar(out, token.getLine());
+            writeVar(out, token.getCharPositionInLine());
+            writeVar(out, token.getStartIndex());
+            writeVar(out, token.getStopIndex());
+            writeVar(out, token.getTokenIndex());
+            writeVar(out, token.getChannel());
+            String text = token.getText();
+            if (text == null) {
+                writeVar(out, -1);
+            } else {
+                byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+                writeVar(out, utf8.length);
+                out.write(utf8);
+            }
+        }
+        writeNode(tree, ids, out);
+    }
+
+    /**
+     * Read a parse tree. The buffer is read from its position and left after
+     * the tree.
+     *
+     * @param in
+     * @return
+     * @throws IOException if the bytes are not a tree for this grammar.
+     */
+    static LogoParser.ProgContext read(ByteBuffer in) throws IOException {
+        try {
+            if (in.getInt() != MAGIC || in.getShort() != FORMAT_VERSION) {
+                throw new IOException("Not an encoded parse tree.");
+            }
+            byte[] version = new byte[in.getShort() & 0xffff];
+            in.get(version);
+            if (!GRAMMAR_VERSION.equals(new String(version, StandardCharsets.UTF_8))) {
+                throw new IOException("The parse tree was written for another grammar.");
+            }
+            Token[] tokens = new Token[(int) readVar(in)];
+            for (int ii = 0; ii < tokens.length; ii++) {
+                CommonToken token = new CommonToken((int) readVar(in));
+                token.setLine((int) readVar(in));
+                token.setCharPositionInLine((int) readVar(in));
+                token.setStartIndex((int) readVar(in));
+                token.setStopIndex((int) readVar(in));
+                token.setTokenIndex((int) readVar(in));
+                token.setChannel((int) readVar(in));
+                int length = (int) readVar(in);
+                if (length >= 0) {
+                    byte[] utf8 = new byte[length];
+                    in.get(utf8);
+                    token.setText(new String(utf8, StandardCharsets.UTF_8));
+                }
+                tokens[ii] = token;
+            }
+            ParseTree tree = readNode(in, null, tokens);
+            if (!(tree instanceof LogoParser.ProgContext)) {
+                throw new IOException("The parse tree is not a program.");
+            }
+            return (LogoParser.ProgContext) tree;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | ClassCastException ex) {
+            throw new IOException("The parse tree is truncated or corrupt.", ex);
+        }
+    }
+
+    /**
+     * Hash a string.
+     *
+     * @param text
+     * @param length the number of hex digits to keep.
+     * @return
+     */
+    static String hash(String text, int length) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (int ii = 0; ii < digest.length && sb.length() < length; ii++) {
+                sb.append(String.format("%02x", digest[ii]));
+            }
+            return sb.substring(0, Math.min(length, sb.length()));
+        } catch (NoSuchAlgorithmException ex) {
+            //every JRE has SHA-256.
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void collectTokens(ParseTree node, IdentityHashMap<Token, Integer> ids, ArrayList<Token> tokens) {
+        if (node instanceof TerminalNode) {
+            addToken(((TerminalNode) node).getSymbol(), ids, tokens);
+            return;
+        }
+        ParserRuleContext ctx = (ParserRuleContext) node;
+        addToken(ctx.getStart(), ids, tokens);
+        addToken(ctx.getStop(), ids, tokens);
+        for (int ii = 0; ii < ctx.getChildCount(); ii++) {
+            collectTokens(ctx.getChild(ii), ids, tokens);
+        }
+    }
+
+    private static void addToken(Token token, IdentityHashMap<Token, Integer> ids, ArrayList<Token> tokens) {
+        if (token != null && !ids.containsKey(token)) {
+            ids.put(token, tokens.size());
+            tokens.add(token);
+        }
+    }
+
+    private static void writeNode(ParseTree node, IdentityHashMap<Token, Integer> ids, DataOutputStream out) throws IOException {
+        if (node instanceof TerminalNode) {
+            out.writeByte(node instanceof ErrorNode ? ERROR : TERMINAL);
+            writeVar(out, ids.get(((TerminalNode) node).getSymbol()));
+            return;
+        }
+        ParserRuleContext ctx = (ParserRuleContext) node;
+        out.writeByte(RULE);
+        writeVar(out, ctx.getRuleIndex());
+        writeVar(out, ctx.invokingState);
+        writeVar(out, ctx.getStart() == null ? -1 : ids.get(ctx.getStart()));
+        writeVar(out, ctx.getStop() == null ? -1 : ids.get(ctx.getStop()));
+        writeVar(out, ctx.getChildCount());
+        for (int ii = 0; ii < ctx.getChildCount(); ii++) {
+            writeNode(ctx.getChild(ii), ids, out);
+        }
+    }
+
+    private static ParseTree readNode(ByteBuffer in, ParserRuleContext parent, Token[] tokens) throws IOException {
+        int kind = in.get();
+        switch (kind) {
+            case TERMINAL:
+                return parent.addChild(tokens[(int) readVar(in)]);
+            case ERROR:
+                return parent.addErrorNode(tokens[(int) readVar(in)]);
+            case RULE:
+                break;
+            default:
+                throw new IOException("Unknown parse tree node: " + kind);
+        }
+        int rule = (int) readVar(in);
+        int invokingState = (int) readVar(in);
+        ParserRuleContext ctx;
+        try {
+            ctx = (ParserRuleContext) RULES[rule].newInstance(parent, invokingState);
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException ex) {
+            throw new IOException(ex);
+        }
+        int start = (int) readVar(in);
+        int stop = (int) readVar(in);
+        ctx.start = start < 0 ? null : tokens[start];
+        ctx.stop = stop < 0 ? null : tokens[stop];
+        if (parent != null) {
+            parent.addChild(ctx);
+        }
+        int children = (int) readVar(in);
+        for (int ii = 0; ii < children; ii++) {
+            readNode(in, ctx, tokens);
+        }
+        return ctx;
+    }
+
+    /**
+     * Find the context class the parser makes for each rule.
+     *
+     * @return
+     */
+    private static Constructor<?>[] ruleConstructors() {
+        Constructor<?>[] constructors = new Constructor<?>[LogoParser.ruleNames.length];
+        for (int ii = 0; ii < constructors.length; ii++) {
+            String name = LogoParser.ruleNames[ii];
+            String className = LogoParser.class.getName() + "$" + Character.toUpperCase(name.charAt(0)) + name.substring(1) + "Context";
+            try {
+                constructors[ii] = Class.forName(className).getConstructor(ParserRuleContext.class, int.class);
+            } catch (ClassNotFoundException | NoSuchMethodException ex) {
+                throw new IllegalStateException("No context class for rule: " + name, ex);
+            }
+        }
+        return constructors;
+    }
+
+    private static void writeVar(DataOutputStream out, long value) throws IOException {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7fL) != 0) {
+            out.writeByte((int) ((v & 0x7f) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVar(ByteBuffer in) {
+        long v = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.get();
+            v |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
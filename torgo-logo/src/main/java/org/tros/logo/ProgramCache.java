@@ -0,0 +1,333 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.tros.logo.antlr.LogoParser;
+import org.tros.torgo.TorgoInfo;
+import org.tros.utils.PathUtils;
+
+/**
+ * Caches parsed scripts so that running the same source again does not lex
+ * or parse it. Parse trees are looked up by a hash of the source and the
+ * grammar version, first in an in-memory LRU and then in a directory of
+ * encoded trees (see {@link ParseTreeCodec}) that is kept between sessions.
+ * <p>
+ * Trees are held in memory in their encoded form and decoded for each run,
+ * which is much cheaper than parsing. The code blocks built from a tree by
+ * {@link LexicalListener} do not refer back to it, so the live tree, its
+ * tokens and its contexts can be collected as soon as lexical analysis is
+ * done rather than staying reachable from the cache. Scripts with syntax
+ * errors are never cached, so their errors are reported on every run.
+ *
+ * @author matta
+ */
+public final class ProgramCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = Integer.getInteger("torgo.parsecache.entries", 32);
+    public static final int DEFAULT_MAX_FILES = Integer.getInteger("torgo.parsecache.files", 256);
+    private static final String EXTENSION = ".tree";
+
+    private static ProgramCache instance;
+
+    private final int maxEntries;
+    private final File directory;
+    private final int maxFiles;
+    private final LinkedHashMap<String, byte[]> entries;
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong diskWrites = new AtomicLong();
+    private final AtomicLong diskErrors = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param maxEntries the number of parse trees kept in memory.
+     * @param directory where parse trees are kept between sessions, null to
+     * only cache in memory.
+     * @param maxFiles the number of parse trees kept in the directory.
+     */
+    public ProgramCache(final int maxEntries, File directory, int maxFiles) {
+        this.maxEntries = maxEntries;
+        this.directory = directory;
+        this.maxFiles = maxFiles;
+        this.entries = new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            org.tros.utils.logging.Logging.getLogFactory().getLogger(ProgramCache.class).warn("Could not create parse cache: {0}", directory);
+        }
+    }
+
+    /**
+     * Get the cache shared by the Logo controllers. The disk cache is kept
+     * under the application config directory and can be turned off with
+     * {@code -Dtorgo.parsecache.disk=false}.
+     *
+     * @return
+     */
+    public static synchronized ProgramCache getDefault() {
+        if (instance == null) {
+            File dir = null;
+            if (Boolean.parseBoolean(System.getProperty("torgo.parsecache.disk", "true"))) {
+                dir = new File(PathUtils.getApplicationConfigDirectory(TorgoInfo.INSTANCE), "parse-cache");
+            }
+            instance = new ProgramCache(DEFAULT_MAX_ENTRIES, dir, DEFAULT_MAX_FILES);
+        }
+        return instance;
+    }
+
+    /**
+     * Get the key a source is cached under.
+     *
+     * @param source
+     * @return
+     */
+    public static String key(String source) {
+        return ParseTreeCodec.hash(source, 40) + "-" + ParseTreeCodec.GRAMMAR_VERSION;
+    }
+
+    /**
+     * Get the parse tree of a script, parsing it only if it is not cached.
+     * Every call returns a tree of its own.
+     *
+     * @param source
+     * @return
+     */
+    public LogoParser.ProgContext parse(String source) {
+        String key = key(source);
+        byte[] bytes;
+        synchronized (entries) {
+            bytes = entries.get(key);
+        }
+        LogoParser.ProgContext tree = bytes == null ? null : decode(key, bytes);
+        if (tree != null) {
+            memoryHits.incrementAndGet();
+            return tree;
+        }
+        tree = readFile(key);
+        if (tree != null) {
+            diskHits.incrementAndGet();
+            return tree;
+        }
+        misses.incrementAndGet();
+        ScriptParser parser = ScriptParser.get();
+        tree = parser.parse(source);
+        if (parser.getNumberOfSyntaxErrors() == 0) {
+            bytes = ParseTreeCodec.encode(tree);
+            putEntry(key, bytes);
+            writeFile(key, bytes);
+        }
+        return tree;
+    }
+
+    /**
+     * Add a parse tree that was made elsewhere, such as one loaded from a
+     * {@link CompiledProgram}, so that running its source does not parse it
+     * again. It is only kept in memory.
+     *
+     * @param source
+     * @param tree
+     */
+    public void put(String source, LogoParser.ProgContext tree) {
+        putEntry(key(source), ParseTreeCodec.encode(tree));
+    }
+
+    /**
+     * Drop the parse trees held in memory and reset the statistics. The
+     * files on disk are kept.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+        memoryHits.set(0);
+        diskHits.set(0);
+        misses.set(0);
+        diskWrites.set(0);
+        diskErrors.set(0);
+    }
+
+    /**
+     * Get the number of parse trees held in memory.
+     *
+     * @return
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Get the number of lookups found in memory.
+     *
+     * @return
+     */
+    public long getMemoryHits() {
+        return memoryHits.get();
+    }
+
+    /**
+     * Get the number of lookups read from disk.
+     *
+     * @return
+     */
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    /**
+     * Get the number of lookups that had to be parsed.
+     *
+     * @return
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Get the number of parse trees written to disk.
+     *
+     * @return
+     */
+    public long getDiskWrites() {
+        return diskWrites.get();
+    }
+
+    /**
+     * Get the number of disk reads or writes that failed, including files
+     * written for another grammar.
+     *
+     * @return
+     */
+    public long getDiskErrors() {
+        return diskErrors.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d in memory, %d memory hits, %d disk hits, %d misses, %d written, %d disk errors",
+                size(), getMemoryHits(), getDiskHits(), getMisses(), getDiskWrites(), getDiskErrors());
+    }
+
+    private void putEntry(String key, byte[] bytes) {
+        if (maxEntries > 0) {
+            synchronized (entries) {
+                entries.put(key, bytes);
+            }
+        }
+    }
+
+    /**
+     * Decode a tree held in memory, dropping it if it cannot be read.
+     *
+     * @param key
+     * @param bytes
+     * @return null if the tree could not be decoded.
+     */
+    private LogoParser.ProgContext decode(String key, byte[] bytes) {
+        try {
+            return ParseTreeCodec.read(ByteBuffer.wrap(bytes));
+        } catch (IOException ex) {
+            org.tros.utils.logging.Logging.getLogFactory().getLogger(ProgramCache.class).warn("Discarding cached parse tree {0}: {1}", key, ex.getMessage());
+            synchronized (entries) {
+                entries.remove(key);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Read a tree from disk. A tree that is read is also kept in memory.
+     *
+     * @param key
+     * @return null if there is no usable file.
+     */
+    private LogoParser.ProgContext readFile(String key) {
+        if (directory == null) {
+            return null;
+        }
+        File file = new File(directory, key + EXTENSION);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            LogoParser.ProgContext tree = ParseTreeCodec.read(ByteBuffer.wrap(bytes));
+            putEntry(key, bytes);
+            //mark it as recently used so it is not pruned.
+            if (!file.setLastModified(System.currentTimeMillis())) {
+                org.tros.utils.logging.Logging.getLogFactory().getLogger(ProgramCache.class).debug("Could not touch: {0}", file);
+            }
+            return tree;
+        } catch (IOException ex) {
+            diskErrors.incrementAndGet();
+            org.tros.utils.logging.Logging.getLogFactory().getLogger(ProgramCache.class).warn("Discarding cached parse tree {0}: {1}", file, ex.getMessage());
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+            return null;
+        }
+    }
+
+    private void writeFile(String key, byte[] bytes) {
+        if (directory == null || maxFiles <= 0) {
+            return;
+        }
+        try {
+            //write to a temporary file and move it into place so that a
+            //concurrent reader never sees half of a tree.
+            File temp = File.createTempFile(key, ".tmp", directory);
+            Files.write(temp.toPath(), bytes);
+            Files.move(temp.toPath(), new File(directory, key + EXTENSION).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            diskWrites.incrementAndGet();
+            prune();
+        } catch (IOException ex) {
+            diskErrors.incrementAndGet();
+            org.tros.utils.logging.Logging.getLogFactory().getLogger(ProgramCache.class).warn("Could not cache parse tree: {0}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Remove the least recently used files over the limit.
+     */
+    private void prune() {
+        File[] files = directory.listFiles((File dir, String name) -> name.endsWith(EXTENSION));
+        if (files == null || files.length <= maxFiles) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int ii = 0; ii < files.length - maxFiles; ii++) {
+            if (!files[ii].delete()) {
+                org.tros.utils.logging.Logging.getLogFactory().getLogger(ProgramCache.class).debug("Could not remove: {0}", files[ii]);
+            }
+        }
+    }
+}
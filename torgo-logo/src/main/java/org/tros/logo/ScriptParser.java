@@ -0,0 +1,247 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.DecisionInfo;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.apache.commons.io.IOUtils;
+import org.tros.logo.antlr.LogoLexer;
+import org.tros.logo.antlr.LogoParser;
+import org.tros.torgo.TorgoToolkit;
+import org.tros.utils.ResourceAccessor;
+
+/**
+ * Parses Logo scripts in two stages. A script is first parsed with SLL
+ * prediction, which never looks at the context a rule was called from and is
+ * much cheaper, bailing out at the first syntax error. Only if that fails is
+ * it parsed again with full LL prediction and the usual error reporting, so
+ * a script with real syntax errors gets the same messages and recovery as
+ * before.
+ * <p>
+ * The lexer and parser are reused by each thread. The DFA that ANTLR builds
+ * while predicting is shared by all parsers, so the first parse in a JVM pays
+ * for building it; {@link #prewarm()} parses the bundled examples on a
+ * background thread so that the first script a user runs does not.
+ *
+ * @author matta
+ */
+public final class ScriptParser {
+
+    /**
+     * The example directories parsed by {@link #prewarm()}.
+     */
+    public static final String[] EXAMPLES = {"logo/examples/antlr", "logo/examples/tortue"};
+
+    private static final ThreadLocal<ScriptParser> PARSERS = ThreadLocal.withInitial(ScriptParser::new);
+    private static final AtomicLong SLL_PARSES = new AtomicLong();
+    private static final AtomicLong LL_PARSES = new AtomicLong();
+
+    private LogoLexer lexer;
+    private LogoParser parser;
+    private boolean fallback;
+
+    private ScriptParser() {
+    }
+
+    /**
+     * Get the parser for the current thread.
+     *
+     * @return
+     */
+    public static ScriptParser get() {
+        return PARSERS.get();
+    }
+
+    /**
+     * Parse a script, falling back to full LL prediction only if SLL
+     * prediction fails.
+     *
+     * @param source
+     * @return
+     */
+    public LogoParser.ProgContext parse(String source) {
+        setSource(source);
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.removeErrorListeners();
+        try {
+            LogoParser.ProgContext tree = parser.prog();
+            fallback = false;
+            SLL_PARSES.incrementAndGet();
+            return tree;
+        } catch (ParseCancellationException ex) {
+            //either a syntax error or SLL was too weak, LL tells them apart.
+            fallback = true;
+            LL_PARSES.incrementAndGet();
+            parser.reset();
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            parser.setErrorHandler(new DefaultErrorStrategy());
+            parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+            return parser.prog();
+        }
+    }
+
+    /**
+     * Get the number of syntax errors in the last script parsed on this
+     * thread.
+     *
+     * @return
+     */
+    public int getNumberOfSyntaxErrors() {
+        return parser == null ? 0 : parser.getNumberOfSyntaxErrors();
+    }
+
+    /**
+     * Check to see if the last script parsed on this thread needed full LL
+     * prediction.
+     *
+     * @return
+     */
+    public boolean isFallback() {
+        return fallback;
+    }
+
+    /**
+     * Get the number of scripts parsed with SLL prediction alone.
+     *
+     * @return
+     */
+    public static long getSllParses() {
+        return SLL_PARSES.get();
+    }
+
+    /**
+     * Get the number of scripts that were parsed again with LL prediction.
+     *
+     * @return
+     */
+    public static long getLlParses() {
+        return LL_PARSES.get();
+    }
+
+    private void setSource(String source) {
+        ANTLRInputStream input = new ANTLRInputStream(source);
+        if (parser == null) {
+            lexer = new LogoLexer(input);
+            parser = new LogoParser(new CommonTokenStream(lexer));
+        } else {
+            //the token stream is not reused, it does not fully reset in 4.6.
+            lexer.setInputStream(input);
+            parser.setTokenStream(new CommonTokenStream(lexer));
+        }
+    }
+
+    /**
+     * Parse the bundled examples on a daemon thread to build the shared DFA.
+     * Turned off with {@code -Dtorgo.parser.prewarm=false}.
+     *
+     * @return the started thread, or null if pre-warming is turned off.
+     */
+    public static Thread prewarm() {
+        if (!Boolean.parseBoolean(System.getProperty("torgo.parser.prewarm", "true"))) {
+            return null;
+        }
+        Thread t = new Thread(() -> {
+            long start = System.nanoTime();
+            int count = 0;
+            for (String source : readExamples(TorgoToolkit.getDefaultResourceAccessor(), EXAMPLES)) {
+                get().parse(source);
+                count++;
+            }
+            org.tros.utils.logging.Logging.getLogFactory().getLogger(ScriptParser.class).debug("Pre-warmed parser with {0} examples in {1} ms", count, (System.nanoTime() - start) / 1000000);
+        }, "ScriptParser-prewarm");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        t.start();
+        return t;
+    }
+
+    /**
+     * Read the scripts listed in the manifests of the given directories.
+     * Scripts that cannot be read are skipped.
+     *
+     * @param accessor
+     * @param bases
+     * @return
+     */
+    static List<String> readExamples(ResourceAccessor accessor, String... bases) {
+        ArrayList<String> sources = new ArrayList<>();
+        for (String base : bases) {
+            try (InputStream manifest = accessor.open(base + "/resource.manifest")) {
+                for (String name : IOUtils.readLines(manifest, StandardCharsets.UTF_8)) {
+                    if (name.trim().isEmpty() || name.endsWith("manifest")) {
+                        continue;
+                    }
+                    try (InputStream script = accessor.open(base + "/" + name.trim())) {
+                        sources.add(IOUtils.toString(script, StandardCharsets.UTF_8));
+                    }
+                }
+            } catch (IOException | RuntimeException ex) {
+                org.tros.utils.logging.Logging.getLogFactory().getLogger(ScriptParser.class).debug("Could not read examples in {0}: {1}", base, ex.getMessage());
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * Parse scripts with full LL prediction while profiling the parser, and
+     * report the decisions that fell back from SLL to full-context prediction
+     * or were ambiguous. Decisions are listed by the time spent predicting
+     * them; a large max look means a decision scans far ahead of the token it
+     * is deciding on.
+     *
+     * @param sources
+     * @return
+     */
+    public static String profile(Iterable<String> sources) {
+        LogoParser profiler = new LogoParser(null);
+        profiler.setProfile(true);
+        profiler.removeErrorListeners();
+        for (String source : sources) {
+            profiler.setTokenStream(new CommonTokenStream(new LogoLexer(new ANTLRInputStream(source))));
+            profiler.prog();
+        }
+        DecisionInfo[] decisions = profiler.getParseInfo().getDecisionInfo();
+        Arrays.sort(decisions, Comparator.comparingLong((DecisionInfo d) -> d.timeInPrediction).reversed());
+
+        StringBuilder report = new StringBuilder(String.format("%-8s %-22s %10s %10s %10s %10s %10s %10s %8s%n",
+                "decision", "rule", "calls", "time(us)", "SLL look", "max look", "fallbacks", "LL look", "ambig"));
+        for (DecisionInfo d : decisions) {
+            if (d.LL_Fallback == 0 && d.ambiguities.isEmpty()) {
+                continue;
+            }
+            int rule = profiler.getATN().getDecisionState(d.decision).ruleIndex;
+            report.append(String.format("%-8d %-22s %10d %10d %10d %10d %10d %10d %8d%n",
+                    d.decision, LogoParser.ruleNames[rule], d.invocations, d.timeInPrediction / 1000,
+                    d.SLL_TotalLook, d.SLL_MaxLook, d.LL_Fallback, d.LL_TotalLook, d.ambiguities.size()));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo;
+
+/**
+ * The moves made by one call of a procedure. Stamping the geometry replays
+ * the moves against the live turtle, so it draws exactly the lines the
+ * procedure would have drawn step by step; only the interpreting is skipped.
+ *
+ * <p>
+ * Nested recordings are flattened, so a geometry holds nothing but forward,
+ * backward, left, right, pen up and pen down.</p>
+ *
+ * @author matta
+ */
+public final class TurtleGeometry {
+
+    /**
+     * Receives replayed moves.
+     */
+    public interface Moves {
+
+        void forward(double distance);
+
+        void backward(double distance);
+
+        void left(double angle);
+
+        void right(double angle);
+
+        void penUp();
+
+        void penDown();
+    }
+
+    static final byte FORWARD = 0;
+    static final byte BACKWARD = 1;
+    static final byte LEFT = 2;
+    static final byte RIGHT = 3;
+    static final byte PEN_UP = 4;
+    static final byte PEN_DOWN = 5;
+
+    private final byte[] ops;
+    private final double[] args;
+    private final int segments;
+
+    /**
+     * Constructor.
+     *
+     * @param ops one of the move constants for each move.
+     * @param args the distance or angle of each move.
+     */
+    TurtleGeometry(byte[] ops, double[] args) {
+        this.ops = ops;
+        this.args = args;
+        int count = 0;
+        for (byte op : ops) {
+            if (op == FORWARD || op == BACKWARD) {
+                count++;
+            }
+        }
+        this.segments = count;
+    }
+
+    /**
+     * Get the number of moves.
+     *
+     * @return
+     */
+    public int getMoveCount() {
+        return ops.length;
+    }
+
+    /**
+     * Get the number of forward and backward moves, which is the most line
+     * segments a stamp can draw.
+     *
+     * @return
+     */
+    public int getSegmentCount() {
+        return segments;
+    }
+
+    /**
+     * Replay the moves in order.
+     *
+     * @param moves
+     */
+    public void replay(Moves moves) {
+        for (int ii = 0; ii < ops.length; ii++) {
+            switch (ops[ii]) {
+                case FORWARD:
+                    moves.forward(args[ii]);
+                    break;
+                case BACKWARD:
+                    moves.backward(args[ii]);
+                    break;
+                case LEFT:
+                    moves.left(args[ii]);
+                    break;
+                case RIGHT:
+                    moves.right(args[ii]);
+                    break;
+                case PEN_UP:
+                    moves.penUp();
+                    break;
+                case PEN_DOWN:
+                    moves.penDown();
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Copy the moves into a recording.
+     *
+     * @param ops
+     * @param args
+     * @param offset
+     */
+    void copyTo(byte[] ops, double[] args, int offset) {
+        System.arraycopy(this.ops, 0, ops, offset, this.ops.length);
+        System.arraycopy(this.args, 0, args, offset, this.args.length);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.stream;
+
+import java.awt.Font;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes line segments as CSV, one row per segment:
+ * {@code x1,y1,x2,y2,color} with the color as {@code #AARRGGBB}. Labels,
+ * clears and the canvas color are not written.
+ *
+ * @author matta
+ */
+public final class CsvStreamSink implements StreamSink {
+
+    private Writer writer;
+
+    @Override
+    public String getName() {
+        return "csv";
+    }
+
+    @Override
+    public String getExtension() {
+        return "csv";
+    }
+
+    @Override
+    public StreamSink create() {
+        return new CsvStreamSink();
+    }
+
+    @Override
+    public void start(OutputStream out, int width, int height) throws IOException {
+        writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write("x1,y1,x2,y2,color\n");
+    }
+
+    @Override
+    public void line(double x1, double y1, double x2, double y2, int color) throws IOException {
+        writer.write(format(x1));
+        writer.write(',');
+        writer.write(format(y1));
+        writer.write(',');
+        writer.write(format(x2));
+        writer.write(',');
+        writer.write(format(y2));
+        writer.write(",#");
+        writer.write(String.format("%08x", color));
+        writer.write('\n');
+    }
+
+    @Override
+    public void text(String text, double x, double y, double angle, Font font, int color) {
+    }
+
+    @Override
+    public void clear() {
+    }
+
+    @Override
+    public void canvasColor(int color) {
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writer.flush();
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15
+                ? Long.toString((long) value)
+                : Double.toString(value);
+    }
+}
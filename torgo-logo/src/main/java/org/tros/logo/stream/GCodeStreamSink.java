@@ -0,0 +1,150 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.stream;
+
+import java.awt.Font;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes G-code for a pen plotter. The pen is lifted and lowered on the Z
+ * axis, and connected segments are drawn without lifting it. The y axis is
+ * flipped so the plot is the right way up, and a pen color change pauses the
+ * plotter (M0) so the pen can be swapped. Labels and clears are not plotted.
+ *
+ * <p>
+ * The size of a canvas pixel in millimeters is set with the
+ * {@code torgo.gcode.scale} system property (0.25 by default).</p>
+ *
+ * @author matta
+ */
+public final class GCodeStreamSink implements StreamSink {
+
+    public static final double DEFAULT_SCALE = 0.25;
+    private static final double PEN_UP_Z = 5;
+    private static final int TRAVEL_FEED = 3000;
+    private static final int DRAW_FEED = 1000;
+    private static final double EPSILON = 1e-6;
+
+    private final double scale = Double.parseDouble(System.getProperty("torgo.gcode.scale", Double.toString(DEFAULT_SCALE)));
+    private Writer writer;
+    private int height;
+    private boolean penDown;
+    private double x = Double.NaN;
+    private double y = Double.NaN;
+    private Integer color;
+
+    @Override
+    public String getName() {
+        return "gcode";
+    }
+
+    @Override
+    public String getExtension() {
+        return "gcode";
+    }
+
+    @Override
+    public StreamSink create() {
+        return new GCodeStreamSink();
+    }
+
+    @Override
+    public void start(OutputStream out, int width, int height) throws IOException {
+        this.height = height;
+        writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII));
+        writer.write("; torgo, " + width + "x" + height + " at " + scale + "mm per pixel\n");
+        writer.write("G21\n");
+        writer.write("G90\n");
+        writer.write("G0 Z" + format(PEN_UP_Z) + " F" + TRAVEL_FEED + "\n");
+    }
+
+    @Override
+    public void line(double x1, double y1, double x2, double y2, int color) throws IOException {
+        if (this.color != null && this.color != color) {
+            penUp();
+            writer.write("M0 ; pen " + String.format("#%06x", color & 0xffffff) + "\n");
+        }
+        this.color = color;
+        if (!penDown || Math.abs(x1 - x) > EPSILON || Math.abs(y1 - y) > EPSILON) {
+            penUp();
+            writer.write("G0 X" + format(x1 * scale) + " Y" + format((height - y1) * scale) + "\n");
+            writer.write("G1 Z0 F" + DRAW_FEED + "\n");
+            penDown = true;
+        }
+        writer.write("G1 X" + format(x2 * scale) + " Y" + format((height - y2) * scale) + "\n");
+        x = x2;
+        y = y2;
+    }
+
+    private void penUp() throws IOException {
+        if (penDown) {
+            writer.write("G0 Z" + format(PEN_UP_Z) + "\n");
+            penDown = false;
+        }
+    }
+
+    @Override
+    public void text(String text, double x, double y, double angle, Font font, int color) {
+    }
+
+    @Override
+    public void clear() {
+    }
+
+    @Override
+    public void canvasColor(int color) {
+    }
+
+    @Override
+    public void finish() throws IOException {
+        penUp();
+        writer.write("G0 X0 Y0\n");
+        writer.flush();
+    }
+
+    /**
+     * Format with at most three decimals and never an exponent, which
+     * G-code readers do not accept.
+     *
+     * @param value
+     * @return
+     */
+    static String format(double value) {
+        long thousandths = Math.round(value * 1000);
+        StringBuilder sb = new StringBuilder();
+        if (thousandths < 0) {
+            sb.append('-');
+            thousandths = -thousandths;
+        }
+        sb.append(thousandths / 1000);
+        long fraction = thousandths % 1000;
+        if (fraction != 0) {
+            sb.append('.');
+            String digits = Long.toString(1000 + fraction).substring(1);
+            int end = digits.length();
+            while (digits.charAt(end - 1) == '0') {
+                end--;
+            }
+            sb.append(digits, 0, end);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.stream;
+
+import java.awt.Font;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+import org.tros.logo.LogoInterpreter;
+import org.tros.torgo.StartupTimer;
+import org.tros.torgo.interpreter.CodeBlock;
+import org.tros.torgo.interpreter.InterpreterListener;
+import org.tros.torgo.interpreter.InterpreterThread;
+import org.tros.torgo.interpreter.Scope;
+import org.tros.torgo.metrics.Metrics;
+
+/**
+ * Runs a script without a window and streams its drawing to a file. Used by
+ * the command line export option and by the class-data-sharing training run.
+ *
+ * @author matta
+ */
+public final class HeadlessExport {
+
+    public static final int DEFAULT_SIZE = 1000;
+
+    /**
+     * Hidden constructor.
+     */
+    private HeadlessExport() {
+    }
+
+    /**
+     * Run a script and write its drawing.
+     *
+     * @param interpreter the language to run the script with.
+     * @param script a script or a compiled program.
+     * @param format the name of a {@link StreamSink}.
+     * @param output the file to write, null to write next to the script.
+     * @return true if the script ran without errors.
+     * @throws IOException
+     * @throws IllegalArgumentException if there is no sink for the format.
+     */
+    public static boolean export(LogoInterpreter interpreter, File script, String format, File output) throws IOException {
+        StreamSink sink = StreamSinks.getSink(format);
+        if (sink == null) {
+            throw new IllegalArgumentException("Unknown export format: " + format + ", expected one of " + StreamSinks.getSinks());
+        }
+        if (output == null) {
+            String name = script.getName();
+            int dot = name.lastIndexOf('.');
+            output = new File(script.getAbsoluteFile().getParentFile(), (dot > 0 ? name.substring(0, dot) : name) + "." + sink.getExtension());
+        }
+        final AtomicReference<Exception> error = new AtomicReference<>();
+        long start = System.nanoTime();
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(output))) {
+            FirstRender timed = new FirstRender(sink);
+            timed.start(out, DEFAULT_SIZE, DEFAULT_SIZE);
+            StreamingCanvas canvas = new StreamingCanvas(DEFAULT_SIZE, DEFAULT_SIZE, Collections.singletonList(timed));
+            InterpreterThread thread = interpreter.createInterpreterThread(script, canvas);
+            thread.addInterpreterListener(new InterpreterListener() {
+
+                @Override
+                public void started() {
+                }
+
+                @Override
+                public void finished() {
+                }
+
+                @Override
+                public void error(Exception e) {
+                    error.compareAndSet(null, e);
+                }
+
+                @Override
+                public void message(String msg) {
+                    System.out.println(msg);
+                }
+
+                @Override
+                public void currStatement(CodeBlock block, Scope scope) {
+                }
+            });
+            thread.start();
+            try {
+                thread.join();
+            } catch (InterruptedException ex) {
+                thread.halt();
+                Thread.currentThread().interrupt();
+            }
+            canvas.close();
+            org.tros.utils.logging.Logging.getLogFactory().getLogger(HeadlessExport.class).info("{0} primitives streamed to {1}", canvas.getPrimitiveCount(), output);
+        }
+        Metrics.histogram("export.millis").record((System.nanoTime() - start) / 1000000L);
+        if (error.get() != null) {
+            org.tros.utils.logging.Logging.getLogFactory().getLogger(HeadlessExport.class).warn(null, error.get());
+        }
+        return error.get() == null;
+    }
+
+    /**
+     * Marks the end of startup when the first primitive is drawn.
+     */
+    private static final class FirstRender implements StreamSink {
+
+        private final StreamSink sink;
+        private boolean rendered;
+
+        FirstRender(StreamSink sink) {
+            this.sink = sink;
+        }
+
+        private void rendered() {
+            if (!rendered) {
+                rendered = true;
+                StartupTimer.finish("first render");
+            }
+        }
+
+        @Override
+        public String getName() {
+            return sink.getName();
+        }
+
+        @Override
+        public String getExtension() {
+            return sink.getExtension();
+        }
+
+        @Override
+        public StreamSink create() {
+            return new FirstRender(sink.create());
+        }
+
+        @Override
+        public void start(OutputStream out, int width, int height) throws IOException {
+            sink.start(out, width, height);
+        }
+
+        @Override
+        public void line(double x1, double y1, double x2, double y2, int color) throws IOException {
+            rendered();
+            sink.line(x1, y1, x2, y2, color);
+        }
+
+        @Override
+        public void text(String text, double x, double y, double angle, Font font, int color) throws IOException {
+            rendered();
+            sink.text(text, x, y, angle, font, color);
+        }
+
+        @Override
+        public void clear() throws IOException {
+            sink.clear();
+        }
+
+        @Override
+        public void canvasColor(int color) throws IOException {
+            sink.canvasColor(color);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            sink.finish();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.stream;
+
+import java.awt.Font;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes line segments in a compact big-endian binary form.
+ *
+ * <p>
+ * The stream starts with the bytes {@code TSEG}, a version int (1), and the
+ * canvas width and height as ints. Each record is a type byte: 0 is a line
+ * followed by x1, y1, x2, y2 as floats and an ARGB int; 1 is a clear; 2 is a
+ * canvas color change followed by an ARGB int. Labels are not written.</p>
+ *
+ * @author matta
+ */
+public final class SegmentStreamSink implements StreamSink {
+
+    public static final int VERSION = 1;
+    public static final byte LINE = 0;
+    public static final byte CLEAR = 1;
+    public static final byte CANVAS_COLOR = 2;
+
+    private DataOutputStream data;
+
+    @Override
+    public String getName() {
+        return "segments";
+    }
+
+    @Override
+    public String getExtension() {
+        return "seg";
+    }
+
+    @Override
+    public StreamSink create() {
+        return new SegmentStreamSink();
+    }
+
+    @Override
+    public void start(OutputStream out, int width, int height) throws IOException {
+        data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        data.writeBytes("TSEG");
+        data.writeInt(VERSION);
+        data.writeInt(width);
+        data.writeInt(height);
+    }
+
+    @Override
+    public void line(double x1, double y1, double x2, double y2, int color) throws IOException {
+        data.writeByte(LINE);
+        data.writeFloat((float) x1);
+        data.writeFloat((float) y1);
+        data.writeFloat((float) x2);
+        data.writeFloat((float) y2);
+        data.writeInt(color);
+    }
+
+    @Override
+    public void text(String text, double x, double y, double angle, Font font, int color) {
+    }
+
+    @Override
+    public void clear() throws IOException {
+        data.writeByte(CLEAR);
+    }
+
+    @Override
+    public void canvasColor(int color) throws IOException {
+        data.writeByte(CANVAS_COLOR);
+        data.writeInt(color);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        data.flush();
+    }
+}
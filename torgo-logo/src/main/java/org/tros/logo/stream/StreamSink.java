@@ -0,0 +1,113 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.stream;
+
+import java.awt.Font;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Receives the primitives drawn by a {@link StreamingCanvas} and writes them
+ * out as they arrive. Sinks are found with the {@link java.util.ServiceLoader}
+ * (see {@link StreamSinks}); a sink should not hold on to what it has
+ * written.
+ *
+ * <p>
+ * Coordinates are in canvas pixels with the origin at the top left and y
+ * pointing down, the same as the Logo canvas. Colors are ARGB.</p>
+ *
+ * @author matta
+ */
+public interface StreamSink {
+
+    /**
+     * The name of the sink.
+     *
+     * @return
+     */
+    String getName();
+
+    /**
+     * The file extension for the sink's output, without the dot.
+     *
+     * @return
+     */
+    String getExtension();
+
+    /**
+     * Abstract Factory Method.
+     *
+     * @return
+     */
+    StreamSink create();
+
+    /**
+     * Start writing.
+     *
+     * @param out the stream to write to, not closed by the sink.
+     * @param width canvas width.
+     * @param height canvas height.
+     * @throws IOException
+     */
+    void start(OutputStream out, int width, int height) throws IOException;
+
+    /**
+     * A line segment.
+     *
+     * @param x1
+     * @param y1
+     * @param x2
+     * @param y2
+     * @param color
+     * @throws IOException
+     */
+    void line(double x1, double y1, double x2, double y2, int color) throws IOException;
+
+    /**
+     * Text drawn at the turtle.
+     *
+     * @param text
+     * @param x
+     * @param y
+     * @param angle heading in radians.
+     * @param font
+     * @param color
+     * @throws IOException
+     */
+    void text(String text, double x, double y, double angle, Font font, int color) throws IOException;
+
+    /**
+     * The canvas was cleared.
+     *
+     * @throws IOException
+     */
+    void clear() throws IOException;
+
+    /**
+     * The canvas color changed.
+     *
+     * @param color
+     * @throws IOException
+     */
+    void canvasColor(int color) throws IOException;
+
+    /**
+     * Finish writing and flush. Does not close the stream.
+     *
+     * @throws IOException
+     */
+    void finish() throws IOException;
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.stream;
+
+import java.text.MessageFormat;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Finds the available {@link StreamSink}s.
+ *
+ * @author matta
+ */
+public final class StreamSinks {
+
+    private static final Map<String, StreamSink> SINK_MAP = new TreeMap<>();
+
+    private static final org.tros.utils.logging.Logger LOGGER
+            = org.tros.utils.logging.Logging.getLogFactory().getLogger(StreamSinks.class);
+
+    static {
+        try {
+            for (StreamSink sink : ServiceLoader.load(StreamSink.class)) {
+                LOGGER.info(MessageFormat.format("Loaded: {0}", sink.getClass().getName()));
+                SINK_MAP.put(sink.getName(), sink);
+            }
+        } catch (ServiceConfigurationError serviceError) {
+            LOGGER.warn(null, serviceError);
+        }
+    }
+
+    /**
+     * Hidden constructor.
+     */
+    private StreamSinks() {
+    }
+
+    /**
+     * Get the names of all available sinks.
+     *
+     * @return
+     */
+    public static Set<String> getSinks() {
+        return SINK_MAP.keySet();
+    }
+
+    /**
+     * Get a new instance of a sink.
+     *
+     * @param name
+     * @return null if there is no sink by that name.
+     */
+    public static StreamSink getSink(String name) {
+        StreamSink sink = SINK_MAP.get(name);
+        return sink == null ? null : sink.create();
+    }
+}
@@ -0,0 +1,489 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.stream;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.tros.logo.InstanceCache;
+import org.tros.logo.LogoCanvas;
+import org.tros.torgo.VirtualClock;
+import org.tros.utils.converters.ColorConverter;
+
+/**
+ * A canvas that keeps nothing: every line, label and clear is handed to a set
+ * of {@link StreamSink}s as it is drawn. Only the turtle is tracked, so memory
+ * use does not depend on how long the script runs.
+ *
+ * <p>
+ * Primitives are packed into fixed-size batches that a writer thread passes
+ * to the sinks. There is a fixed number of batches; when the sinks fall
+ * behind and all of them are in flight, drawing blocks until one is written.
+ * A sink that fails stops the stream, and the next drawing call throws.</p>
+ *
+ * @author matta
+ */
+public final class StreamingCanvas implements LogoCanvas, Closeable {
+
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+    public static final int DEFAULT_BATCHES = 8;
+
+    private static final byte LINE = 0;
+    private static final byte TEXT = 1;
+    private static final byte CLEAR = 2;
+    private static final byte CANVAS_COLOR = 3;
+
+    private static final org.tros.utils.logging.Logger LOGGER
+            = org.tros.utils.logging.Logging.getLogFactory().getLogger(StreamingCanvas.class);
+
+    /**
+     * A block of primitives, stored column-wise so batches are reused without
+     * allocating.
+     */
+    private static final class Batch {
+
+        private final byte[] ops;
+        private final double[] args;
+        private final int[] colors;
+        private final Object[] values;
+        private int count;
+
+        Batch(int size) {
+            ops = new byte[size];
+            args = new double[size * 4];
+            colors = new int[size];
+            values = new Object[size * 2];
+        }
+    }
+
+    private static final Batch END = new Batch(0);
+
+    private final List<StreamSink> sinks;
+    private final int width;
+    private final int height;
+    private final int batchSize;
+    private final int batches;
+    private final ArrayBlockingQueue<Batch> full;
+    private final ArrayBlockingQueue<Batch> free;
+    private final Thread writer;
+    private final InstanceCache instances = new InstanceCache();
+    private final VirtualClock clock = new VirtualClock();
+    private final AtomicLong primitives = new AtomicLong();
+    private final AtomicLong stalls = new AtomicLong();
+    private volatile Exception failure;
+    private Batch current;
+    private boolean closed;
+
+    private double penX;
+    private double penY;
+    private double angle;
+    private boolean penup;
+    private Color penColor = Color.black;
+    private Font font = new Font(null, 0, 12);
+
+    /**
+     * Constructor.
+     *
+     * @param width canvas width, the turtle starts in the middle.
+     * @param height canvas height.
+     * @param sinks started sinks to write to.
+     */
+    public StreamingCanvas(int width, int height, List<StreamSink> sinks) {
+        this(width, height, DEFAULT_BATCH_SIZE, DEFAULT_BATCHES, sinks);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param width canvas width, the turtle starts in the middle.
+     * @param height canvas height.
+     * @param batchSize primitives per batch.
+     * @param batches the number of batches; at most this many are buffered.
+     * @param sinks started sinks to write to.
+     */
+    public StreamingCanvas(int width, int height, int batchSize, int batches, List<StreamSink> sinks) {
+        if (batchSize <= 0 || batches <= 0) {
+            throw new IllegalArgumentException("Buffer sizes must be positive.");
+        }
+        this.width = width;
+        this.height = height;
+        this.batchSize = batchSize;
+        this.batches = batches;
+        this.sinks = new ArrayList<>(sinks);
+        this.full = new ArrayBlockingQueue<>(batches + 1);
+        this.free = new ArrayBlockingQueue<>(batches);
+        for (int ii = 1; ii < batches; ii++) {
+            free.add(new Batch(batchSize));
+        }
+        current = new Batch(batchSize);
+        home();
+        writer = new Thread(this::write, StreamingCanvas.class.getSimpleName());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Get the number of primitives drawn so far.
+     *
+     * @return
+     */
+    public long getPrimitiveCount() {
+        return primitives.get();
+    }
+
+    /**
+     * Get the number of times drawing had to wait for the sinks.
+     *
+     * @return
+     */
+    public long getStallCount() {
+        return stalls.get();
+    }
+
+    /**
+     * Get the most primitives that are buffered at once.
+     *
+     * @return
+     */
+    public int getBufferCapacity() {
+        return batchSize * batches;
+    }
+
+    /**
+     * Hand the current batch to the writer without waiting for it to fill.
+     */
+    public void flush() {
+        if (current.count > 0) {
+            handOff();
+        }
+    }
+
+    /**
+     * Write out everything that is buffered, finish the sinks and stop the
+     * writer thread. The sinks' streams are left open.
+     *
+     * @throws IOException if a sink failed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        flush();
+        closed = true;
+        try {
+            full.put(END);
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        for (StreamSink sink : sinks) {
+            try {
+                sink.finish();
+            } catch (IOException ex) {
+                if (failure == null) {
+                    failure = ex;
+                }
+            }
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure != null) {
+            throw new IOException(failure);
+        }
+    }
+
+    private void write() {
+        try {
+            for (Batch batch = full.take(); batch != END; batch = full.take()) {
+                if (failure == null) {
+                    try {
+                        write(batch);
+                    } catch (IOException | RuntimeException ex) {
+                        LOGGER.warn(null, ex);
+                        failure = ex;
+                    }
+                }
+                batch.count = 0;
+                Arrays.fill(batch.values, null);
+                free.add(batch);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(Batch batch) throws IOException {
+        for (int ii = 0; ii < batch.count; ii++) {
+            double[] a = batch.args;
+            int at = ii * 4;
+            for (StreamSink sink : sinks) {
+                switch (batch.ops[ii]) {
+                    case LINE:
+                        sink.line(a[at], a[at + 1], a[at + 2], a[at + 3], batch.colors[ii]);
+                        break;
+                    case TEXT:
+                        sink.text((String) batch.values[ii * 2], a[at], a[at + 1], a[at + 2], (Font) batch.values[ii * 2 + 1], batch.colors[ii]);
+                        break;
+                    case CLEAR:
+                        sink.clear();
+                        break;
+                    case CANVAS_COLOR:
+                        sink.canvasColor(batch.colors[ii]);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the slot for the next primitive, passing on the batch if it is
+     * full.
+     *
+     * @param op
+     * @param color
+     * @return the index in the current batch.
+     */
+    private int next(byte op, int color) {
+        if (closed) {
+            throw new IllegalStateException("The stream has been closed.");
+        }
+        if (failure != null) {
+            throw new UncheckedIOException(new IOException("Writing the stream failed.", failure));
+        }
+        if (current.count == batchSize) {
+            handOff();
+        }
+        int index = current.count++;
+        current.ops[index] = op;
+        current.colors[index] = color;
+        primitives.incrementAndGet();
+        return index;
+    }
+
+    private void handOff() {
+        try {
+            full.put(current);
+            Batch batch = free.poll();
+            if (batch == null) {
+                //every batch is waiting on the sinks.
+                stalls.incrementAndGet();
+                batch = free.take();
+            }
+            current = batch;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException());
+        }
+    }
+
+    private void moveTo(double newx, double newy) {
+        if (!penup) {
+            line(penX, penY, newx, newy);
+        }
+        penX = newx;
+        penY = newy;
+    }
+
+    private void line(double x1, double y1, double x2, double y2) {
+        int index = next(LINE, penColor.getRGB());
+        double[] a = current.args;
+        a[index * 4] = x1;
+        a[index * 4 + 1] = y1;
+        a[index * 4 + 2] = x2;
+        a[index * 4 + 3] = y2;
+    }
+
+    @Override
+    public void forward(double distance) {
+        moveTo(penX + (distance * Math.cos(angle)), penY + (distance * Math.sin(angle)));
+    }
+
+    @Override
+    public void backward(double distance) {
+        moveTo(penX - (distance * Math.cos(angle)), penY - (distance * Math.sin(angle)));
+    }
+
+    @Override
+    public void left(double angle) {
+        this.angle -= Math.PI * angle / 180.0;
+    }
+
+    @Override
+    public void right(double angle) {
+        this.angle += Math.PI * angle / 180.0;
+    }
+
+    @Override
+    public void setXY(double x, double y) {
+        moveTo(width / 2.0 + x, height / 2.0 + y);
+    }
+
+    @Override
+    public void penDown() {
+        penup = false;
+    }
+
+    @Override
+    public void penUp() {
+        penup = true;
+    }
+
+    @Override
+    public void home() {
+        penX = width / 2.0;
+        penY = height / 2.0;
+        angle = -1.0 * (Math.PI / 2.0);
+    }
+
+    @Override
+    public void clear() {
+        next(CLEAR, 0);
+        penColor = Color.black;
+        font = new Font(null, 0, 12);
+    }
+
+    @Override
+    public void canvascolor(int red, int green, int blue) {
+        red = Math.min(255, Math.max(0, red));
+        green = Math.min(255, Math.max(0, green));
+        blue = Math.min(255, Math.max(0, blue));
+        next(CANVAS_COLOR, new Color(red, green, blue).getRGB());
+    }
+
+    @Override
+    public void canvascolor(String color) {
+        next(CANVAS_COLOR, ColorConverter.getColorByName(color).getRGB());
+    }
+
+    @Override
+    public void pencolor(int red, int green, int blue, int alpha) {
+        red = Math.min(255, Math.max(0, red));
+        green = Math.min(255, Math.max(0, green));
+        blue = Math.min(255, Math.max(0, blue));
+        penColor = new Color(red, green, blue, alpha);
+    }
+
+    @Override
+    public void pencolor(String color) {
+        penColor = ColorConverter.getColorByName(color);
+    }
+
+    @Override
+    public void drawString(String message) {
+        if (!penup) {
+            int index = next(TEXT, penColor.getRGB());
+            current.args[index * 4] = penX;
+            current.args[index * 4 + 1] = penY;
+            current.args[index * 4 + 2] = angle;
+            current.values[index * 2] = message;
+            current.values[index * 2 + 1] = font;
+        }
+    }
+
+    @Override
+    public void fontName(String fontFace) {
+        font = new Font(fontFace, font.getStyle(), font.getSize());
+    }
+
+    @Override
+    public void fontSize(int size) {
+        font = new Font(font.getFontName(), font.getStyle(), size);
+    }
+
+    @Override
+    public void fontStyle(int style) {
+        font = new Font(font.getFontName(), style, font.getSize());
+    }
+
+    /**
+     * Nothing is shown, so there is nothing to wait for; the pause only moves
+     * the virtual clock forward.
+     *
+     * @param time
+     */
+    @Override
+    public void pause(int time) {
+        try {
+            clock.sleep(time);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Get the clock pauses are counted on, which gives how long the drawing
+     * would have taken to show.
+     *
+     * @return
+     */
+    public VirtualClock getClock() {
+        return clock;
+    }
+
+    @Override
+    public void hideTurtle() {
+    }
+
+    @Override
+    public void showTurtle() {
+    }
+
+    @Override
+    public void repaint() {
+    }
+
+    @Override
+    public void message(String message) {
+        LOGGER.info(message.trim());
+    }
+
+    @Override
+    public void warning(String message) {
+        LOGGER.warn(message.trim());
+    }
+
+    @Override
+    public double getTurtleX() {
+        return penX;
+    }
+
+    @Override
+    public double getTurtleY() {
+        return penY;
+    }
+
+    @Override
+    public double getTurtleAngle() {
+        return angle;
+    }
+
+    @Override
+    public InstanceCache getInstanceCache() {
+        return instances;
+    }
+}
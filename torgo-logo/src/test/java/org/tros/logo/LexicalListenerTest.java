@@ -0,0 +1,288 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.tros.logo.antlr.LogoLexer;
+import org.tros.logo.antlr.LogoParser;
+import org.tros.logo.stream.StreamingCanvas;
+import org.tros.torgo.TorgoInfo;
+import org.tros.torgo.interpreter.CodeBlock;
+import org.tros.torgo.interpreter.DynamicScope;
+import org.tros.torgo.interpreter.InterpreterListener;
+import org.tros.torgo.interpreter.LexicalAnalyzer;
+import org.tros.torgo.interpreter.Scope;
+import org.tros.utils.logging.Logging;
+
+/**
+ *
+ * @author matta
+ */
+public class LexicalListenerTest {
+
+    private final static Logger LOGGER;
+
+    static {
+        Logging.initLogging(TorgoInfo.INSTANCE);
+        LOGGER = Logger.getLogger(LexicalListenerTest.class.getName());
+    }
+
+    public LexicalListenerTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private static LogoParser.ProgContext parse(String source) {
+        return new LogoParser(new CommonTokenStream(new LogoLexer(new ANTLRInputStream(source)))).prog();
+    }
+
+    private static String example(String name) throws IOException {
+        try (InputStream in = ClassLoader.getSystemClassLoader().getResourceAsStream(name)) {
+            return IOUtils.toString(in, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Run a script, collecting what it prints.
+     */
+    private static ArrayList<String> print(String source) throws IOException {
+        final ArrayList<String> messages = new ArrayList<>();
+        InterpreterListener listener = new InterpreterListener() {
+            @Override
+            public void started() {
+            }
+
+            @Override
+            public void finished() {
+            }
+
+            @Override
+            public void error(Exception e) {
+                fail(e.getMessage());
+            }
+
+            @Override
+            public void message(String msg) {
+                messages.add(msg);
+            }
+
+            @Override
+            public void currStatement(CodeBlock block, Scope scope) {
+            }
+        };
+        StreamingCanvas canvas = new StreamingCanvas(100, 100, Collections.emptyList());
+        LexicalAnalyzer analyzer = LexicalListener.lexicalAnalysis(parse(source), canvas);
+        analyzer.getCodeBlocks().forEach((block) -> {
+            block.addInterpreterListener(listener);
+        });
+        analyzer.getEntryPoint().process(new DynamicScope());
+        canvas.close();
+        return messages;
+    }
+
+    /**
+     * Counts the objects reachable from a root, and roughly how much memory
+     * they use, without a heap dump. JDK internals that cannot be opened are
+     * walked through their public collection interfaces.
+     */
+    private static final class Reachable {
+
+        private final IdentityHashMap<Object, Boolean> seen = new IdentityHashMap<>();
+        private long objects;
+        private long bytes;
+        private long antlr;
+
+        Reachable(Object root) {
+            ArrayDeque<Object> pending = new ArrayDeque<>();
+            pending.add(root);
+            while (!pending.isEmpty()) {
+                Object o = pending.poll();
+                if (seen.put(o, Boolean.TRUE) != null || o instanceof Class) {
+                    continue;
+                }
+                objects++;
+                Class<?> c = o.getClass();
+                if (c.getName().startsWith("org.antlr.") || c.getName().startsWith(LogoParser.class.getName())) {
+                    antlr++;
+                }
+                if (c.isArray()) {
+                    int length = Array.getLength(o);
+                    bytes += 16 + length * (c.getComponentType().isPrimitive() ? 4 : 8);
+                    if (!c.getComponentType().isPrimitive()) {
+                        for (int ii = 0; ii < length; ii++) {
+                            add(pending, Array.get(o, ii));
+                        }
+                    }
+                } else if (o instanceof String) {
+                    bytes += 40 + ((String) o).length();
+                } else if (c.getName().startsWith("java.")) {
+                    bytes += 16;
+                    if (o instanceof Collection) {
+                        bytes += 8 * ((Collection<?>) o).size();
+                        ((Collection<?>) o).forEach((item) -> add(pending, item));
+                    } else if (o instanceof Map) {
+                        bytes += 32 * ((Map<?, ?>) o).size();
+                        ((Map<?, ?>) o).forEach((k, v) -> {
+                            add(pending, k);
+                            add(pending, v);
+                        });
+                    }
+                } else {
+                    bytes += 16;
+                    for (Class<?> k = c; k != null; k = k.getSuperclass()) {
+                        for (Field f : k.getDeclaredFields()) {
+                            if (Modifier.isStatic(f.getModifiers())) {
+                                continue;
+                            }
+                            bytes += f.getType().isPrimitive() && f.getType() != long.class && f.getType() != double.class ? 4 : 8;
+                            if (!f.getType().isPrimitive()) {
+                                try {
+                                    f.setAccessible(true);
+                                    add(pending, f.get(o));
+                                } catch (ReflectiveOperationException | RuntimeException ex) {
+                                    //not open to reflection, count it as a leaf.
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        private static void add(ArrayDeque<Object> pending, Object o) {
+            if (o != null) {
+                pending.add(o);
+            }
+        }
+    }
+
+    /**
+     * Expressions evaluate the same once lowered: operators fold left to
+     * right, signs apply to the whole operand and numbers read from variables
+     * are doubles.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testExpressions() throws IOException {
+        LOGGER.info("expressions");
+        ArrayList<String> printed = print("print 2 + 3 * 4\n"
+                + "print 10 - 4 - 3\n"
+                + "print 2 ^ 3 * 2\n"
+                + "print -(1 + 2)\n"
+                + "print 17 \\ 5\n"
+                + "print 17 % 5\n"
+                + "make \"x 6\n"
+                + "print :x / 4\n"
+                + "print \"word\n"
+                + "repeat 2 [print repcount]\n"
+                + "to add :a :b\n"
+                + "localmake \"c :a + :b\n"
+                + "print :c\n"
+                + "end\n"
+                + "add 1 2\n"
+                + "for [i 1 3] [print :i]\n"
+                + "if :x > 5 [print 1]\n"
+                + "if :x < 5 [print 0]\n");
+        assertEquals(java.util.Arrays.asList("14.0", "3.0", "16.0", "-3.0", "3.0", "2.0", "1.5", "word",
+                "1.0", "2.0", "3.0", "1.0", "2.0", "1.0"), printed);
+    }
+
+    /**
+     * Blocks know where they start without the parse tree.
+     */
+    @Test
+    public void testPositions() {
+        LOGGER.info("positions");
+        LexicalAnalyzer analyzer = LexicalListener.lexicalAnalysis(parse("fd 10\n  repeat 2 [rt 90]\n"), null);
+        CodeBlock[] commands = analyzer.getEntryPoint().getCommands();
+        assertEquals(2, commands.length);
+        assertEquals(1, commands[0].getLine());
+        assertEquals(0, commands[0].getColumn());
+        assertEquals(0, commands[0].getStartIndex());
+        assertEquals(1, commands[0].getStopIndex());
+        assertEquals(2, commands[1].getLine());
+        assertEquals(2, commands[1].getColumn());
+        assertEquals(8, commands[1].getStartIndex());
+        assertEquals(13, commands[1].getStopIndex());
+        CodeBlock rt = commands[1].getCommands()[0];
+        assertEquals(2, rt.getLine());
+        assertEquals(12, rt.getColumn());
+    }
+
+    /**
+     * Nothing from ANTLR is reachable from the lowered program, so the parse
+     * tree is garbage once lexical analysis is done. Logs how much the tree
+     * and the lowered program hold for the larger examples.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testRetention() throws IOException {
+        LOGGER.info("retention");
+        String[] names = {
+            "logo/examples/tortue/test.logo",
+            "logo/examples/tortue/MetallRahmen.logo",
+            "logo/examples/antlr/flower.txt",
+            "logo/examples/antlr/fractal.txt"
+        };
+        for (String name : names) {
+            LogoParser.ProgContext tree = parse(example(name));
+            Reachable before = new Reachable(tree);
+            CodeBlock entry = LexicalListener.lexicalAnalysis(tree, null).getEntryPoint();
+            Reachable after = new Reachable(entry);
+            LOGGER.info(String.format("%s: parse tree %d objects (~%d bytes), lowered %d objects (~%d bytes)",
+                    name, before.objects, before.bytes, after.objects, after.bytes));
+            assertTrue(before.antlr > 0);
+            assertEquals(name, 0, after.antlr);
+        }
+    }
+}
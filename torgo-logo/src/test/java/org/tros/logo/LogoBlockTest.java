@@ -25,10 +25,11 @@ import org.junit.Test;
 import static org.junit.Assert.*;
 import org.tros.torgo.TorgoInfo;
 import org.tros.utils.logging.Logging;
-import org.antlr.v4.runtime.ParserRuleContext;
+import org.tros.logo.antlr.LogoParser;
 import org.tros.torgo.interpreter.CodeBlock;
 import org.tros.torgo.interpreter.InterpreterListener;
 import org.tros.torgo.interpreter.Scope;
+import org.tros.torgo.interpreter.SourceTable;
 import java.util.Collection;
 import java.util.ArrayList;
 
@@ -66,7 +67,7 @@ public class LogoBlockTest {
     
     @Test
     public void testRemoveInterpreterListener() {
-        LogoFunction block = new LogoFunction("test", new ParserRuleContext());
+        LogoFunction block = new LogoFunction("test", new SourceTable(), new LogoParser.ProcedureDeclarationContext(null, 0));
         
         final AtomicBoolean started = new AtomicBoolean(false);
         final AtomicBoolean finished = new AtomicBoolean(false);
@@ -99,9 +100,9 @@ public class LogoBlockTest {
     
     @Test
     public void testAddCommand() {
-        LogoFunction block1 = new LogoFunction("test1", new ParserRuleContext());
-        LogoFunction block2 = new LogoFunction("test2", new ParserRuleContext());
-        LogoFunction block3 = new LogoFunction("test3", new ParserRuleContext());
+        LogoFunction block1 = new LogoFunction("test1", new SourceTable(), new LogoParser.ProcedureDeclarationContext(null, 0));
+        LogoFunction block2 = new LogoFunction("test2", new SourceTable(), new LogoParser.ProcedureDeclarationContext(null, 0));
+        LogoFunction block3 = new LogoFunction("test3", new SourceTable(), new LogoParser.ProcedureDeclarationContext(null, 0));
         assertFalse(block1.getCommandsList().contains(block2));
         block1.addCommand(block2);
         assertTrue(block1.getCommandsList().contains(block2));
@@ -115,8 +116,8 @@ public class LogoBlockTest {
     
     @Test
     public void testGetCommands() {
-        LogoFunction block1 = new LogoFunction("test1", new ParserRuleContext());
-        LogoFunction block2 = new LogoFunction("test2", new ParserRuleContext());
+        LogoFunction block1 = new LogoFunction("test1", new SourceTable(), new LogoParser.ProcedureDeclarationContext(null, 0));
+        LogoFunction block2 = new LogoFunction("test2", new SourceTable(), new LogoParser.ProcedureDeclarationContext(null, 0));
         
         ArrayList<CodeBlock> commands = new ArrayList<CodeBlock>();
         commands.add(block2);
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.logging.Logger;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.tros.logo.antlr.LogoLexer;
+import org.tros.logo.antlr.LogoParser;
+import org.tros.logo.stream.StreamSink;
+import org.tros.logo.stream.StreamSinks;
+import org.tros.logo.stream.StreamingCanvas;
+import org.tros.torgo.TorgoInfo;
+import org.tros.torgo.interpreter.DynamicScope;
+import org.tros.utils.logging.Logging;
+
+/**
+ *
+ * @author matta
+ */
+public class ProgramCacheTest {
+
+    private final static Logger LOGGER;
+    private static final String SCRIPT = "to square :n\n"
+            + "repeat 4 [fd :n rt 90]\n"
+            + "end\n"
+            + "repeat 36 [square 20 + repcount rt 10]\n";
+
+    static {
+        Logging.initLogging(TorgoInfo.INSTANCE);
+        LOGGER = Logger.getLogger(ProgramCacheTest.class.getName());
+    }
+
+    private File directory;
+
+    public ProgramCacheTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("torgo-parse-cache").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    private static LogoParser.ProgContext parse(String source) {
+        return new LogoParser(new CommonTokenStream(new LogoLexer(new ANTLRInputStream(source)))).prog();
+    }
+
+    private static String example(String name) throws IOException {
+        try (InputStream in = ClassLoader.getSystemClassLoader().getResourceAsStream(name)) {
+            return IOUtils.toString(in, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * List each node of a tree with where it is in the source.
+     */
+    private static void describe(ParseTree node, ArrayList<String> out) {
+        if (node instanceof TerminalNode) {
+            Token t = ((TerminalNode) node).getSymbol();
+            out.add(node.getClass().getSimpleName() + " " + t.getType() + " " + t.getText() + " " + t.getLine()
+                    + ":" + t.getCharPositionInLine() + " " + t.getStartIndex() + "-" + t.getStopIndex());
+            return;
+        }
+        ParserRuleContext ctx = (ParserRuleContext) node;
+        out.add(ctx.getClass().getSimpleName() + " " + ctx.getStart().getStartIndex() + " "
+                + (ctx.getStop() == null ? -1 : ctx.getStop().getStopIndex()) + " " + ctx.getChildCount());
+        for (int ii = 0; ii < ctx.getChildCount(); ii++) {
+            assertSame(ctx, ctx.getChild(ii).getParent());
+            describe(ctx.getChild(ii), out);
+        }
+    }
+
+    private static String draw(LogoParser.ProgContext tree) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamSink sink = StreamSinks.getSink("csv");
+        sink.start(out, 400, 300);
+        StreamingCanvas canvas = new StreamingCanvas(400, 300, Collections.singletonList(sink));
+        LexicalListener.lexicalAnalysis(tree, canvas).getEntryPoint().process(new DynamicScope());
+        canvas.close();
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Every example decodes to the same tree, positions included, and a
+     * decoded tree runs the same as a parsed one.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        LOGGER.info("roundTrip");
+        ArrayList<String> names = new ArrayList<>();
+        for (String name : example("logo/examples/tortue/resource.manifest").split("\\s+")) {
+            if (!name.isEmpty()) {
+                names.add("logo/examples/tortue/" + name);
+            }
+        }
+        names.add("logo/examples/antlr/flower.txt");
+        names.add("logo/examples/antlr/fractal.txt");
+        for (String name : names) {
+            LogoParser.ProgContext tree = parse(example(name));
+            LogoParser.ProgContext decoded = ParseTreeCodec.read(ByteBuffer.wrap(ParseTreeCodec.encode(tree)));
+            ArrayList<String> expected = new ArrayList<>();
+            ArrayList<String> actual = new ArrayList<>();
+            describe(tree, expected);
+            describe(decoded, actual);
+            assertEquals(name, expected, actual);
+        }
+        LogoParser.ProgContext tree = parse(SCRIPT);
+        assertEquals(draw(tree), draw(ParseTreeCodec.read(ByteBuffer.wrap(ParseTreeCodec.encode(tree)))));
+    }
+
+    /**
+     * Lookups are served from memory, then from disk in a later session, and
+     * only parsed when the source changes.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testCache() throws IOException {
+        LOGGER.info("cache");
+        ProgramCache cache = new ProgramCache(2, directory, 10);
+        LogoParser.ProgContext tree = cache.parse(SCRIPT);
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getDiskWrites());
+        //the tree is held encoded, so a hit decodes a tree of its own.
+        LogoParser.ProgContext hit = cache.parse(SCRIPT);
+        assertNotSame(tree, hit);
+        assertEquals(draw(tree), draw(hit));
+        assertEquals(1, cache.getMemoryHits());
+
+        ProgramCache later = new ProgramCache(2, directory, 10);
+        LogoParser.ProgContext loaded = later.parse(SCRIPT);
+        assertNotSame(tree, loaded);
+        assertEquals(1, later.getDiskHits());
+        assertEquals(0, later.getMisses());
+        assertEquals(draw(tree), draw(loaded));
+
+        later.parse(SCRIPT + "fd 10\n");
+        assertEquals(1, later.getMisses());
+        assertNotEquals(ProgramCache.key(SCRIPT), ProgramCache.key(SCRIPT + "fd 10\n"));
+        assertTrue(ProgramCache.key(SCRIPT).endsWith(ParseTreeCodec.GRAMMAR_VERSION));
+
+        //the LRU only keeps two trees.
+        later.parse("fd 1");
+        later.parse("fd 2");
+        assertEquals(2, later.size());
+
+        //scripts that do not parse are not cached.
+        later.clear();
+        later.parse("repeat 4 [fd");
+        later.parse("repeat 4 [fd");
+        assertEquals(2, later.getMisses());
+    }
+
+    /**
+     * Bad files are discarded and the source is parsed again.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testCorruptFile() throws IOException {
+        LOGGER.info("corruptFile");
+        new ProgramCache(2, directory, 10).parse(SCRIPT);
+        File file = new File(directory, ProgramCache.key(SCRIPT) + ".tree");
+        assertTrue(file.isFile());
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), java.util.Arrays.copyOf(bytes, bytes.length / 2));
+
+        ProgramCache cache = new ProgramCache(2, directory, 10);
+        LogoParser.ProgContext tree = cache.parse(SCRIPT);
+        assertNotNull(tree);
+        assertEquals(1, cache.getDiskErrors());
+        assertEquals(1, cache.getMisses());
+        assertEquals(draw(parse(SCRIPT)), draw(tree));
+    }
+}
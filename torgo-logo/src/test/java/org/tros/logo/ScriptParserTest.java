@@ -0,0 +1,145 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo;
+
+import java.util.List;
+import java.util.logging.Logger;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.tros.logo.antlr.LogoLexer;
+import org.tros.logo.antlr.LogoParser;
+import org.tros.torgo.TorgoInfo;
+import org.tros.torgo.TorgoToolkit;
+import org.tros.utils.logging.Logging;
+
+/**
+ *
+ * @author matta
+ */
+public class ScriptParserTest {
+
+    private final static Logger LOGGER;
+
+    static {
+        Logging.initLogging(TorgoInfo.INSTANCE);
+        LOGGER = Logger.getLogger(ScriptParserTest.class.getName());
+    }
+
+    public ScriptParserTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private static List<String> examples() {
+        List<String> examples = ScriptParser.readExamples(TorgoToolkit.getDefaultResourceAccessor(), ScriptParser.EXAMPLES);
+        assertFalse(examples.isEmpty());
+        return examples;
+    }
+
+    /**
+     * Test that the two stage parse makes the same trees as a plain LL parse
+     * of the bundled examples.
+     */
+    @Test
+    public void testSameTrees() {
+        LOGGER.info("sameTrees");
+        ScriptParser parser = ScriptParser.get();
+        int fallbacks = 0;
+        for (String source : examples()) {
+            LogoParser expected = new LogoParser(new CommonTokenStream(new LogoLexer(new ANTLRInputStream(source))));
+            expected.removeErrorListeners();
+            String tree = expected.prog().toStringTree(expected);
+
+            assertEquals(tree, parser.parse(source).toStringTree(expected));
+            assertEquals(expected.getNumberOfSyntaxErrors(), parser.getNumberOfSyntaxErrors());
+            fallbacks += parser.isFallback() ? 1 : 0;
+        }
+        LOGGER.info(String.format("%d of %d examples fell back to LL", fallbacks, examples().size()));
+    }
+
+    /**
+     * Test that a script with a syntax error falls back to LL and has its
+     * errors counted, and that the reused parser recovers on the next script.
+     */
+    @Test
+    public void testFallback() {
+        LOGGER.info("fallback");
+        ScriptParser parser = ScriptParser.get();
+        parser.parse("repeat 4 [fd 10 rt 90\nfd 10\n");
+        assertTrue(parser.isFallback());
+        assertTrue(parser.getNumberOfSyntaxErrors() > 0);
+
+        parser.parse("fd 10\nrt 90\n");
+        assertFalse(parser.isFallback());
+        assertEquals(0, parser.getNumberOfSyntaxErrors());
+    }
+
+    /**
+     * Test that each thread gets a parser of its own.
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void testPerThread() throws InterruptedException {
+        LOGGER.info("perThread");
+        final ScriptParser[] other = new ScriptParser[1];
+        Thread t = new Thread(() -> {
+            other[0] = ScriptParser.get();
+        });
+        t.start();
+        t.join();
+        assertSame(ScriptParser.get(), ScriptParser.get());
+        assertNotNull(other[0]);
+        assertNotSame(ScriptParser.get(), other[0]);
+    }
+
+    /**
+     * Test pre-warming and log the profile of the bundled examples.
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void testPrewarmAndProfile() throws InterruptedException {
+        LOGGER.info("prewarmAndProfile");
+        Thread t = ScriptParser.prewarm();
+        assertNotNull(t);
+        t.join();
+
+        String report = ScriptParser.profile(examples());
+        assertTrue(report.startsWith("decision"));
+        LOGGER.info(System.lineSeparator() + report);
+    }
+}
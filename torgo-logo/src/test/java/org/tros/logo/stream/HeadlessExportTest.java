@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.stream;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.logging.Logger;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.tros.logo.LogoInterpreter;
+import org.tros.torgo.StartupTimer;
+import org.tros.torgo.TorgoInfo;
+import org.tros.utils.logging.Logging;
+
+/**
+ *
+ * @author matta
+ */
+public class HeadlessExportTest {
+
+    private final static Logger LOGGER;
+
+    static {
+        Logging.initLogging(TorgoInfo.INSTANCE);
+        LOGGER = Logger.getLogger(HeadlessExportTest.class.getName());
+    }
+
+    private File script;
+
+    public HeadlessExportTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        script = File.createTempFile("headless", ".logo");
+        Files.write(script.toPath(), "repeat 4 [fd 100 rt 90]\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() {
+        script.delete();
+    }
+
+    /**
+     * Test exporting a script next to itself.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testExport() throws IOException {
+        LOGGER.info("export");
+        assertTrue(HeadlessExport.export(LogoInterpreter.forLanguage("dynamic-logo"), script, "csv", null));
+
+        File output = new File(script.getPath().replaceAll("\\.logo$", ".csv"));
+        try {
+            List<String> lines = Files.readAllLines(output.toPath(), StandardCharsets.UTF_8);
+            //the header and four sides.
+            assertEquals(5, lines.size());
+            assertTrue(StartupTimer.getMillis("first render") >= 0);
+        } finally {
+            output.delete();
+        }
+    }
+
+    /**
+     * Test that an unknown format is rejected before anything is written.
+     *
+     * @throws IOException
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownFormat() throws IOException {
+        LOGGER.info("unknownFormat");
+        HeadlessExport.export(LogoInterpreter.forLanguage("dynamic-logo"), script, "no-such-format", null);
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.text.MessageFormat;
+import javax.swing.JMenuBar;
+import javax.swing.JOptionPane;
+import javax.swing.JToolBar;
+import javax.swing.filechooser.FileFilter;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import org.tros.logo.swing.LogoPanel;
+import org.tros.logo.swing.LogoMenuBar;
+import org.tros.torgo.Controller;
+import org.tros.torgo.ControllerBase;
+import org.tros.torgo.interpreter.InterpreterThread;
+import org.tros.torgo.TorgoScreen;
+import org.tros.torgo.TorgoTextConsole;
+import org.tros.torgo.interpreter.Scope;
+import org.tros.torgo.swing.Localization;
+import org.tros.torgo.swing.TorgoToolBar;
+import org.tros.torgo.swing.TorgoUserInputPanel;
+
+/**
+ * The Logo factory/controller.
+ *
+ * @author matta
+ */
+public abstract class LogoController extends ControllerBase {
+
+    private LogoPanel canvas;
+    private TorgoUserInputPanel panel;
+
+    /**
+     * Constructor, must be public for the ServiceLoader. Only initializes basic
+     * object needs.
+     */
+    public LogoController() {
+    }
+
+    @Override
+    protected String getWindowName() {
+        return LogoController.class.getName();
+    }
+
+    @Override
+    protected TorgoTextConsole createConsole(Controller app) {
+        if (panel == null) {
+            panel = new TorgoUserInputPanel(app, "Logo", false, "text/logo");
+        }
+
+        return panel;
+    }
+
+    @Override
+    protected TorgoScreen createCanvas(TorgoTextConsole console) {
+        if (canvas == null) {
+            canvas = new LogoPanel(console);
+            addInterpreterListener(canvas.getRenderQualityListener());
+        }
+
+        return canvas;
+    }
+
+    @Override
+    protected JToolBar createToolBar() {
+        return new TorgoToolBar(super.getWindow(), (Controller) this);
+    }
+
+    @Override
+    protected JMenuBar createMenuBar() {
+        return new LogoMenuBar(super.getWindow(), (Controller) this, canvas);
+    }
+
+    /**
+     * Run, this is the main entry point. Starts building the parser's DFA in
+     * the background so the first script run does not have to.
+     */
+    @Override
+    public void runHelper() {
+        ScriptParser.prewarm();
+    }
+
+    protected abstract Scope createScope();
+
+    @Override
+    public void startInterpreter() {
+        if (canvas != null) {
+            canvas.setInstancing(true);
+        }
+        super.startInterpreter();
+    }
+
+    /**
+     * Debug the script. Stamped procedure calls would skip over the
+     * statements being stepped through, so every call is interpreted.
+     */
+    @Override
+    public void debugInterpreter() {
+        if (canvas != null) {
+            canvas.setInstancing(false);
+        }
+        super.debugInterpreter();
+    }
+
+    /**
+     * Scripts can also be opened from their compiled form.
+     *
+     * @return
+     */
+    @Override
+    protected FileFilter getFilter() {
+        return new FileNameExtensionFilter(getLang(), getLang(), CompiledProgram.EXTENSION);
+    }
+
+    @Override
+    protected String readSource(File file) throws IOException {
+        if (CompiledProgram.isCompiled(file.getName())) {
+            return loaded(CompiledProgram.load(file));
+        }
+        return super.readSource(file);
+    }
+
+    @Override
+    protected String readSource(URL file) throws IOException {
+        if (CompiledProgram.isCompiled(file.getPath())) {
+            return loaded(CompiledProgram.load(file));
+        }
+        return super.readSource(file);
+    }
+
+    /**
+     * Hand the parse tree of a compiled program to the parse cache, so that
+     * running it does not parse the source.
+     *
+     * @param program
+     * @return the source of the program.
+     */
+    private static String loaded(CompiledProgram program) {
+        ProgramCache.getDefault().put(program.getSource(), program.getTree());
+        return program.getSource();
+    }
+
+    /**
+     * Save the script. A script opened from a compiled program is compiled
+     * again rather than written as text over it. If it no longer compiles,
+     * the user is told and can save it as source instead.
+     */
+    @Override
+    public void saveFile() {
+        File file = getFile();
+        if (file == null || !CompiledProgram.isCompiled(file.getName())) {
+            super.saveFile();
+            return;
+        }
+        try {
+            CompiledProgram program = CompiledProgram.compile(getLang(), getSource());
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+                program.write(out);
+            }
+        } catch (IOException | IllegalArgumentException ex) {
+            org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoController.class).warn("Could not compile {0}: {1}", file, ex.getMessage());
+            //the edits are not saved yet, so offer to keep them as source.
+            int choice = JOptionPane.showConfirmDialog(
+                    getWindow(),
+                    MessageFormat.format(Localization.getLocalizedString("ExportCompiledFailed"), file.getName(), ex.getMessage()),
+                    Localization.getLocalizedString("FileSave"),
+                    JOptionPane.YES_NO_OPTION,
+                    JOptionPane.ERROR_MESSAGE);
+            if (choice == JOptionPane.YES_OPTION) {
+                saveFileAs();
+            }
+        }
+    }
+
+    /**
+     * Get the part of this controller that runs scripts, which can also be
+     * used without a window.
+     *
+     * @return
+     */
+    public LogoInterpreter getInterpreter() {
+        return new LogoInterpreter(getLang(), this::createScope);
+    }
+
+    /**
+     * Scripts that are too large to edit are run as they are read, except for
+     * compiled programs which hold their parse tree already.
+     *
+     * @param file
+     * @return
+     */
+    @Override
+    protected String getStreamingPlaceholder(File file) {
+        if (CompiledProgram.isCompiled(file.getName())) {
+            return null;
+        }
+        return MessageFormat.format("; {0} ({1} MB) is too large to edit and is run as it is read.\n",
+                file.getName(), file.length() >> 20);
+    }
+
+    /**
+     * Get an interpreter thread that runs a compiled program, without
+     * parsing, on any canvas.
+     *
+     * @param program
+     * @param target
+     * @return
+     */
+    public InterpreterThread createInterpreterThread(CompiledProgram program, LogoCanvas target) {
+        return getInterpreter().createInterpreterThread(program, target);
+    }
+
+    @Override
+    protected InterpreterThread createInterpreterThread(File file) {
+        return createInterpreterThread(file, canvas);
+    }
+
+    /**
+     * Get an interpreter thread that runs a script while it is read from a
+     * file. See {@link LogoInterpreter#createStreamingThread(File, LogoCanvas)}.
+     *
+     * @param file
+     * @param target
+     * @return
+     */
+    public InterpreterThread createInterpreterThread(File file, LogoCanvas target) {
+        return getInterpreter().createStreamingThread(file, target);
+    }
+
+    /**
+     * Get an interpreter thread.
+     *
+     * @param source
+     * @return
+     */
+    @Override
+    protected InterpreterThread createInterpreterThread(String source) {
+        return createInterpreterThread(source, canvas);
+    }
+
+    /**
+     * Get an interpreter thread that draws on another canvas than the one on
+     * screen, such as a {@link org.tros.logo.stream.StreamingCanvas}.
+     *
+     * @param source
+     * @param target
+     * @return
+     */
+    public InterpreterThread createInterpreterThread(String source, LogoCanvas target) {
+        return getInterpreter().createInterpreterThread(source, target);
+    }
+}
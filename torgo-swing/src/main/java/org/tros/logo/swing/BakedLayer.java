@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Commands that have been flattened into an image so that the command objects
+ * can be released. Along with the image, the turtle state after the last
+ * flattened command is kept so the remaining commands can be replayed on top.
+ * A layer is never modified; flattening more commands makes a new layer, so
+ * snapshots can share it.
+ *
+ * @author matta
+ */
+final class BakedLayer {
+
+    private final BufferedImage image;
+    private final TurtleState state;
+    private final long commandCount;
+
+    private BakedLayer(BufferedImage image, TurtleState state, long commandCount) {
+        this.image = image;
+        this.state = state;
+        this.commandCount = commandCount;
+    }
+
+    /**
+     * Get the number of commands flattened into this layer.
+     *
+     * @return
+     */
+    long getCommandCount() {
+        return commandCount;
+    }
+
+    /**
+     * Draw the layer centered on the canvas and move the turtle to where the
+     * flattened commands left it. The layer keeps the size the canvas had
+     * when it was made, so it is offset the same way the drawing is when the
+     * canvas size changes.
+     *
+     * @param sink
+     * @param turtleState
+     */
+    void render(DrawingSink sink, TurtleState turtleState) {
+        double dx = (turtleState.width - image.getWidth()) / 2.0;
+        double dy = (turtleState.height - image.getHeight()) / 2.0;
+        sink.image(image, dx, dy);
+        double width = turtleState.width;
+        double height = turtleState.height;
+        turtleState.set(state);
+        turtleState.width = width;
+        turtleState.height = height;
+        turtleState.penX += dx;
+        turtleState.penY += dy;
+    }
+
+    /**
+     * Flatten commands on top of an existing layer.
+     *
+     * @param previous the layer to draw first, may be null.
+     * @param commands a cursor over the commands that follow the previous
+     * layer.
+     * @param count the number of commands to read from the cursor.
+     * @param width the canvas width.
+     * @param height the canvas height.
+     * @param antialiasing
+     * @return
+     */
+    static BakedLayer bake(BakedLayer previous, CommandStore.Cursor commands, long count, int width, int height, boolean antialiasing) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2 = image.createGraphics();
+        g2.setColor(Color.white);
+        g2.fillRect(0, 0, width, height);
+        Graphics2DSink sink = new Graphics2DSink(g2);
+        sink.setAntialiasing(antialiasing);
+        TurtleState ts = new TurtleState();
+        ts.width = width;
+        ts.height = height;
+        long total = 0;
+        if (previous != null) {
+            previous.render(sink, ts);
+            total = previous.commandCount;
+        }
+        for (long ii = 0; ii < count && commands.next(); ii++) {
+            commands.render(sink, ts);
+            total++;
+        }
+        g2.dispose();
+        return new BakedLayer(image, ts, total);
+    }
+}
@@ -0,0 +1,557 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import java.awt.Color;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.IdentityHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.tros.utils.PathUtils;
+
+/**
+ * An append-only display list kept off of the Java heap. Commands are encoded
+ * as byte records in direct buffer segments; once the direct segments reach
+ * the memory budget, further segments are memory-mapped from a temporary file
+ * under {@link PathUtils#getTempDir()}. Heap use stays the same however large
+ * the drawing gets.
+ *
+ * <p>
+ * A record is one header byte holding the operation, followed by its
+ * arguments. Whole-number arguments, which is what most scripts use, are
+ * written as zig-zag varints, and {@code setxy} coordinates as the difference
+ * from the previous {@code setxy}; anything else is written as a raw double.
+ * Colors are four ARGB bytes and strings are a varint length followed by
+ * UTF-8. A stamped procedure call is an index into a table of recorded
+ * drawings; the table is on the heap but each drawing is only held once
+ * however often it is stamped.</p>
+ *
+ * <p>
+ * One thread appends while any number of threads replay through
+ * {@link Cursor}s. A cursor only sees the records that were in the store when
+ * it was made, so it doubles as a snapshot.</p>
+ *
+ * @author matta
+ */
+final class CommandStore implements Closeable {
+
+    public static final long DEFAULT_MEMORY_BUDGET = Long.getLong("torgo.display.memory", 64L << 20);
+    static final int SEGMENT_SIZE = 1 << 20;
+    static final int MAPPED_SEGMENT_SIZE = 16 << 20;
+
+    private static final int END_OF_SEGMENT = 0xff;
+    private static final int VARINT = 0x80;
+    private static final int OP_MASK = 0x7f;
+    private static final long MAX_EXACT = 1L << 53;
+    private static final DrawCommand.Op[] OPS = DrawCommand.Op.values();
+
+    private final long memoryBudget;
+    private final int segmentSize;
+    private final int mappedSegmentSize;
+    private final CopyOnWriteArrayList<ByteBuffer> segments = new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<Object> objects = new CopyOnWriteArrayList<>();
+    private final IdentityHashMap<Object, Integer> objectIds = new IdentityHashMap<>();
+    private ByteBuffer current;
+    private ByteBuffer record = ByteBuffer.allocate(64);
+    private double lastX;
+    private double lastY;
+    private long directBytes;
+    private long mappedBytes;
+    private long byteCount;
+    private volatile long size;
+    private FileChannel spill;
+    private boolean closed;
+
+    /**
+     * A position in the store just after a record, which a cursor can jump
+     * to without reading the records before it.
+     */
+    static final class Mark {
+
+        private final CommandStore store;
+        private final int segment;
+        private final int position;
+        private final long index;
+        private final double x;
+        private final double y;
+
+        private Mark(CommandStore store, int segment, int position, long index, double x, double y) {
+            this.store = store;
+            this.segment = segment;
+            this.position = position;
+            this.index = index;
+            this.x = x;
+            this.y = y;
+        }
+
+        /**
+         * Get the number of records before the mark.
+         *
+         * @return
+         */
+        long getIndex() {
+            return index;
+        }
+
+        /**
+         * Check to see if the mark was made by a store.
+         *
+         * @param other
+         * @return
+         */
+        boolean belongsTo(CommandStore other) {
+            return store == other;
+        }
+    }
+
+    /**
+     * Replays records from a store.
+     */
+    final class Cursor {
+
+        private long limit;
+        private long index;
+        private int segment = -1;
+        private ByteBuffer buffer;
+        private double cursorX;
+        private double cursorY;
+        private DrawCommand.Op op;
+        private double x;
+        private double y;
+        private Object value;
+
+        private Cursor(long limit) {
+            this.limit = limit;
+        }
+
+        /**
+         * Let the cursor see records appended since it was made.
+         *
+         * @param limit the number of records, at most the size of the store.
+         */
+        void setLimit(long limit) {
+            this.limit = Math.min(limit, size);
+        }
+
+        /**
+         * Get the number of records read so far.
+         *
+         * @return
+         */
+        long getIndex() {
+            return index;
+        }
+
+        /**
+         * Move to a mark made by this store, so the next record read is the
+         * one appended after the mark.
+         *
+         * @param mark
+         */
+        void seek(Mark mark) {
+            if (mark.store != CommandStore.this) {
+                throw new IllegalArgumentException("The mark is from another store.");
+            }
+            segment = mark.segment;
+            if (segment >= 0) {
+                buffer = segments.get(segment).duplicate();
+                buffer.clear();
+                buffer.position(mark.position);
+            } else {
+                buffer = null;
+            }
+            index = mark.index;
+            cursorX = mark.x;
+            cursorY = mark.y;
+        }
+
+        /**
+         * Read past records without replaying them.
+         *
+         * @param count
+         */
+        void skip(long count) {
+            long skipped = 0;
+            while (skipped < count && next()) {
+                skipped++;
+            }
+        }
+
+        /**
+         * Read the next record.
+         *
+         * @return false if there are no more records.
+         */
+        boolean next() {
+            if (index >= limit) {
+                return false;
+            }
+            while (buffer == null || !buffer.hasRemaining() || (buffer.get(buffer.position()) & 0xff) == END_OF_SEGMENT) {
+                segment++;
+                buffer = segments.get(segment).duplicate();
+                buffer.clear();
+            }
+            int header = buffer.get() & 0xff;
+            boolean varint = (header & VARINT) != 0;
+            op = OPS[header & OP_MASK];
+            x = 0;
+            y = 0;
+            value = null;
+            switch (op) {
+                case FORWARD:
+                case BACKWARD:
+                case LEFT:
+                case RIGHT:
+                case FONT_SIZE:
+                case FONT_STYLE:
+                case PAUSE:
+                    x = varint ? readVarLong(buffer) : buffer.getDouble();
+                    break;
+                case SET_XY:
+                    if (varint) {
+                        x = (long) cursorX + readVarLong(buffer);
+                        y = (long) cursorY + readVarLong(buffer);
+                    } else {
+                        x = buffer.getDouble();
+                        y = buffer.getDouble();
+                    }
+                    cursorX = x;
+                    cursorY = y;
+                    break;
+                case CANVAS_COLOR:
+                case PEN_COLOR:
+                    value = new Color(buffer.getInt(), true);
+                    break;
+                case DRAW_STRING:
+                case FONT_NAME:
+                    byte[] bytes = new byte[(int) readVarLong(buffer)];
+                    buffer.get(bytes);
+                    value = new String(bytes, StandardCharsets.UTF_8);
+                    break;
+                case INSTANCE:
+                    value = objects.get((int) readVarLong(buffer));
+                    break;
+                default:
+                    break;
+            }
+            index++;
+            return true;
+        }
+
+        DrawCommand.Op getOp() {
+            return op;
+        }
+
+        double getX() {
+            return x;
+        }
+
+        double getY() {
+            return y;
+        }
+
+        Object getValue() {
+            return value;
+        }
+
+        /**
+         * Replay the current record.
+         *
+         * @param sink
+         * @param turtleState
+         */
+        void render(DrawingSink sink, TurtleState turtleState) {
+            DrawCommand.render(op, x, y, value, sink, turtleState);
+        }
+
+        /**
+         * Make a command object for the current record.
+         *
+         * @return
+         */
+        DrawCommand toCommand() {
+            return new DrawCommand(op, x, y, value);
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param memoryBudget the number of bytes of direct memory to use before
+     * spilling to disk.
+     */
+    CommandStore(long memoryBudget) {
+        this(memoryBudget, SEGMENT_SIZE, MAPPED_SEGMENT_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param memoryBudget
+     * @param segmentSize the size of direct segments.
+     * @param mappedSegmentSize the size of memory-mapped segments.
+     */
+    CommandStore(long memoryBudget, int segmentSize, int mappedSegmentSize) {
+        this.memoryBudget = memoryBudget;
+        this.segmentSize = segmentSize;
+        this.mappedSegmentSize = mappedSegmentSize;
+    }
+
+    /**
+     * Get the number of records.
+     *
+     * @return
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Get the number of bytes used by records.
+     *
+     * @return
+     */
+    long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * Get the number of bytes of direct memory allocated.
+     *
+     * @return
+     */
+    long getDirectBytes() {
+        return directBytes;
+    }
+
+    /**
+     * Get the number of bytes mapped from the spill file.
+     *
+     * @return
+     */
+    long getMappedBytes() {
+        return mappedBytes;
+    }
+
+    /**
+     * Get a cursor over the records currently in the store.
+     *
+     * @return
+     */
+    Cursor cursor() {
+        return new Cursor(size);
+    }
+
+    /**
+     * Get a cursor over the first records in the store.
+     *
+     * @param limit
+     * @return
+     */
+    Cursor cursor(long limit) {
+        return new Cursor(Math.min(limit, size));
+    }
+
+    /**
+     * Mark the position after the last record appended. Must be called from
+     * the appending thread.
+     *
+     * @return
+     */
+    Mark mark() {
+        if (closed) {
+            throw new IllegalStateException("The display list has been closed.");
+        }
+        return current == null
+                ? new Mark(this, -1, 0, size, lastX, lastY)
+                : new Mark(this, segments.size() - 1, current.position(), size, lastX, lastY);
+    }
+
+    /**
+     * Append a command.
+     *
+     * @param command
+     */
+    void append(DrawCommand command) {
+        append(command.getOp(), command.getX(), command.getY(), command.getValue());
+    }
+
+    /**
+     * Append a command given as its parts.
+     *
+     * @param op
+     * @param x
+     * @param y
+     * @param value a Color, String or TurtleGeometry argument.
+     */
+    void append(DrawCommand.Op op, double x, double y, Object value) {
+        if (closed) {
+            throw new IllegalStateException("The display list has been closed.");
+        }
+        record.clear();
+        int header = op.ordinal();
+        switch (op) {
+            case FORWARD:
+            case BACKWARD:
+            case LEFT:
+            case RIGHT:
+            case FONT_SIZE:
+            case FONT_STYLE:
+            case PAUSE:
+                if (isWhole(x)) {
+                    record.put((byte) (header | VARINT));
+                    writeVarLong((long) x);
+                } else {
+                    record.put((byte) header);
+                    record.putDouble(x);
+                }
+                break;
+            case SET_XY:
+                if (isWhole(x) && isWhole(y) && isWhole(lastX) && isWhole(lastY)) {
+                    record.put((byte) (header | VARINT));
+                    writeVarLong((long) x - (long) lastX);
+                    writeVarLong((long) y - (long) lastY);
+                } else {
+                    record.put((byte) header);
+                    record.putDouble(x);
+                    record.putDouble(y);
+                }
+                lastX = x;
+                lastY = y;
+                break;
+            case CANVAS_COLOR:
+            case PEN_COLOR:
+                record.put((byte) header);
+                record.putInt(((Color) value).getRGB());
+                break;
+            case DRAW_STRING:
+            case FONT_NAME:
+                byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+                record.put((byte) header);
+                writeVarLong(bytes.length);
+                ensureRecordCapacity(bytes.length);
+                record.put(bytes);
+                break;
+            case INSTANCE:
+                Integer id = objectIds.get(value);
+                if (id == null) {
+                    id = objects.size();
+                    objects.add(value);
+                    objectIds.put(value, id);
+                }
+                record.put((byte) header);
+                writeVarLong(id);
+                break;
+            default:
+                record.put((byte) header);
+                break;
+        }
+        record.flip();
+        try {
+            if (current == null || current.remaining() < record.remaining()) {
+                if (current != null && current.hasRemaining()) {
+                    current.put((byte) END_OF_SEGMENT);
+                }
+                current = allocate(record.remaining());
+                segments.add(current);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        byteCount += record.remaining();
+        current.put(record);
+        //publishes the record to cursors made after this.
+        size++;
+    }
+
+    /**
+     * Stop appending and release the spill file. Cursors that are still in
+     * use remain valid; the memory is released once they are gone.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        current = null;
+        objectIds.clear();
+        if (spill != null) {
+            spill.close();
+            spill = null;
+        }
+    }
+
+    private ByteBuffer allocate(int minimum) throws IOException {
+        if (directBytes + segmentSize <= memoryBudget) {
+            int capacity = Math.max(segmentSize, minimum);
+            directBytes += capacity;
+            return ByteBuffer.allocateDirect(capacity);
+        }
+        if (spill == null) {
+            File file = File.createTempFile("torgo-display", ".bin", new File(PathUtils.getTempDir()));
+            spill = new RandomAccessFile(file, "rw").getChannel();
+            //the mapping outlives the name; on systems where an open file
+            //cannot be removed, it goes when the VM exits.
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+        int capacity = Math.max(mappedSegmentSize, minimum);
+        ByteBuffer mapped = spill.map(FileChannel.MapMode.READ_WRITE, mappedBytes, capacity);
+        mappedBytes += capacity;
+        return mapped;
+    }
+
+    private static boolean isWhole(double value) {
+        return value == Math.rint(value) && Math.abs(value) < MAX_EXACT;
+    }
+
+    private void ensureRecordCapacity(int extra) {
+        if (record.remaining() < extra) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(record.capacity() * 2, record.position() + extra));
+            record.flip();
+            larger.put(record);
+            record = larger;
+        }
+    }
+
+    private void writeVarLong(long value) {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7fL) != 0) {
+            record.put((byte) ((v & 0x7f) | 0x80));
+            v >>>= 7;
+        }
+        record.put((byte) v);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long v = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = buffer.get();
+            v |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import java.awt.Graphics2D;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import org.apache.commons.lang3.event.EventListenerSupport;
+
+/**
+ * An immutable copy of the commands drawn on a canvas. This is what exports
+ * work from so that state between the app and the export is not shared. If the
+ * canvas has flattened its oldest commands into a raster layer, the layer is
+ * replayed first and only the remaining commands are kept as vectors.
+ * <p>
+ * The commands live in a {@link CommandStore}. Since the store is only ever
+ * appended to, a copy is just the store and the number of commands in it at
+ * the time, and does not take any memory of its own.
+ *
+ * @author matta
+ */
+public final class DisplayList implements Drawable {
+
+    private final EventListenerSupport<DrawListener> listeners
+            = EventListenerSupport.create(DrawListener.class);
+    private final BakedLayer baked;
+    private final CommandStore store;
+    private final long size;
+
+    /**
+     * Constructor.
+     *
+     * @param source the commands to copy.
+     */
+    DisplayList(List<DrawCommand> source) {
+        this.baked = null;
+        this.store = new CommandStore(CommandStore.DEFAULT_MEMORY_BUDGET);
+        source.forEach((command) -> {
+            store.append(command);
+        });
+        try {
+            store.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        this.size = store.size();
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param baked the raster layer drawn before the commands, may be null.
+     * @param store the commands.
+     * @param size the number of commands in the store that belong to this
+     * copy.
+     */
+    DisplayList(BakedLayer baked, CommandStore store, long size) {
+        this.baked = baked;
+        this.store = store;
+        this.size = size;
+    }
+
+    /**
+     * Get the number of commands kept as vectors.
+     *
+     * @return
+     */
+    public long size() {
+        return size;
+    }
+    /**
+     * Get the number of commands that were flattened into the raster layer.
+     *
+     * @return
+     */
+    public long getBakedCount() {
+        return baked == null ? 0 : baked.getCommandCount();
+    }
+
+    /**
+     * Draw the raster layer, if any, and move the turtle to where it leaves
+     * off. Callers that replay the commands one at a time with
+     * {@link #cursor()} call this first.
+     *
+     * @param sink
+     * @param turtleState
+     */
+    public void renderBaked(DrawingSink sink, TurtleState turtleState) {
+        if (baked != null) {
+            baked.render(sink, turtleState);
+        }
+    }
+
+    /**
+     * Get a cursor over the commands, for callers that look at commands as
+     * they replay them. Call {@link #renderBaked(DrawingSink, TurtleState)}
+     * first.
+     *
+     * @return
+     */
+    CommandStore.Cursor cursor() {
+        return store.cursor(size);
+    }
+
+    /**
+     * Get a cursor that starts after a mark, for callers that resume replay
+     * part way through the commands.
+     *
+     * @param mark
+     * @return null if the mark is not from the commands in this copy.
+     */
+    CommandStore.Cursor cursor(CommandStore.Mark mark) {
+        if (!mark.belongsTo(store) || mark.getIndex() > size) {
+            return null;
+        }
+        CommandStore.Cursor cursor = store.cursor(size);
+        cursor.seek(mark);
+        return cursor;
+    }
+
+    @Override
+    public void draw(Graphics2D g2d, TurtleState turtleState) {
+        render(new Graphics2DSink(g2d), turtleState);
+    }
+
+    @Override
+    public void render(DrawingSink sink, TurtleState turtleState) {
+        renderBaked(sink, turtleState);
+        CommandStore.Cursor cursor = cursor();
+        while (cursor.next()) {
+            cursor.render(sink, turtleState);
+            listeners.fire().drawn(this);
+        }
+    }
+
+    @Override
+    public void addListener(DrawListener listener) {
+        listeners.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(DrawListener listener) {
+        listeners.removeListener(listener);
+    }
+
+    @Override
+    public Drawable cloneDrawable() {
+        return this;
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import org.tros.logo.TurtleGeometry;
+
+/**
+ * A single entry in the display list. Commands are plain data: an operation
+ * and its arguments. Replaying a command updates the turtle state and hands
+ * any resulting primitives to a {@link DrawingSink}, which lets the same list
+ * be painted, exported as vectors, or streamed elsewhere.
+ *
+ * @author matta
+ */
+final class DrawCommand implements Drawable {
+
+    /**
+     * Operations.
+     */
+    enum Op {
+        FORWARD,
+        BACKWARD,
+        LEFT,
+        RIGHT,
+        SET_XY,
+        PEN_UP,
+        PEN_DOWN,
+        CLEAR,
+        HOME,
+        CANVAS_COLOR,
+        PEN_COLOR,
+        DRAW_STRING,
+        FONT_SIZE,
+        FONT_NAME,
+        FONT_STYLE,
+        HIDE_TURTLE,
+        SHOW_TURTLE,
+        PAUSE,
+        INSTANCE
+    }
+
+    private final Op op;
+    private final double x;
+    private final double y;
+    private final Object value;
+
+    /**
+     * Constructor.
+     *
+     * @param op
+     * @param x
+     * @param y
+     * @param value a Color or String argument.
+     */
+    DrawCommand(Op op, double x, double y, Object value) {
+        this.op = op;
+        this.x = x;
+        this.y = y;
+        this.value = value;
+    }
+
+    DrawCommand(Op op) {
+        this(op, 0, 0, null);
+    }
+
+    DrawCommand(Op op, double x) {
+        this(op, x, 0, null);
+    }
+
+    DrawCommand(Op op, double x, double y) {
+        this(op, x, y, null);
+    }
+
+    DrawCommand(Op op, Object value) {
+        this(op, 0, 0, value);
+    }
+
+    Op getOp() {
+        return op;
+    }
+
+    double getX() {
+        return x;
+    }
+
+    double getY() {
+        return y;
+    }
+
+    Object getValue() {
+        return value;
+    }
+
+    @Override
+    public void draw(Graphics2D g2, TurtleState turtleState) {
+        render(new Graphics2DSink(g2), turtleState);
+    }
+
+    @Override
+    public void render(DrawingSink sink, TurtleState turtleState) {
+        render(op, x, y, value, sink, turtleState);
+    }
+
+    /**
+     * Replay a command given as its parts, so that stores which do not keep
+     * command objects around (see {@link CommandStore}) can replay without
+     * allocating.
+     *
+     * @param op
+     * @param x
+     * @param y
+     * @param value
+     * @param sink
+     * @param turtleState
+     */
+    static void render(Op op, double x, double y, Object value, DrawingSink sink, TurtleState turtleState) {
+        switch (op) {
+            case FORWARD:
+                moveTo(sink, turtleState,
+                        turtleState.penX + (x * Math.cos(turtleState.angle)),
+                        turtleState.penY + (x * Math.sin(turtleState.angle)));
+                break;
+            case BACKWARD:
+                moveTo(sink, turtleState,
+                        turtleState.penX - (x * Math.cos(turtleState.angle)),
+                        turtleState.penY - (x * Math.sin(turtleState.angle)));
+                break;
+            case LEFT:
+                turtleState.angle -= Math.PI * x / 180.0;
+                break;
+            case RIGHT:
+                turtleState.angle += Math.PI * x / 180.0;
+                break;
+            case SET_XY:
+                moveTo(sink, turtleState, turtleState.width / 2.0 + x, turtleState.height / 2.0 + y);
+                break;
+            case PEN_UP:
+                turtleState.penup = true;
+                break;
+            case PEN_DOWN:
+                turtleState.penup = false;
+                break;
+            case CLEAR:
+                sink.clear(turtleState.width, turtleState.height);
+                turtleState.penColor = Color.black;
+                turtleState.font = new Font(null, 0, 12);
+                break;
+            case HOME:
+                turtleState.penX = turtleState.width / 2.0;
+                turtleState.penY = turtleState.height / 2.0;
+                turtleState.angle = -1.0 * (Math.PI / 2.0);
+                break;
+            case CANVAS_COLOR:
+                sink.canvasColor((Color) value);
+                break;
+            case PEN_COLOR:
+                turtleState.penColor = (Color) value;
+                break;
+            case DRAW_STRING:
+                if (!turtleState.penup) {
+                    sink.text((String) value, turtleState.penX, turtleState.penY, turtleState.angle, turtleState.font, turtleState.penColor);
+                }
+                break;
+            case FONT_SIZE:
+                turtleState.font = new Font(turtleState.font.getFontName(), turtleState.font.getStyle(), (int) x);
+                break;
+            case FONT_NAME:
+                turtleState.font = new Font((String) value, turtleState.font.getStyle(), turtleState.font.getSize());
+                break;
+            case FONT_STYLE:
+                turtleState.font = new Font(turtleState.font.getFontName(), (int) x, turtleState.font.getSize());
+                break;
+            case HIDE_TURTLE:
+                turtleState.showTurtle = false;
+                break;
+            case SHOW_TURTLE:
+                turtleState.showTurtle = true;
+                break;
+            case PAUSE:
+                //only marks time for animated exports; nothing is drawn.
+                break;
+            case INSTANCE:
+                stamp((TurtleGeometry) value, sink, turtleState);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Draw a recorded procedure call by replaying its moves as commands, so
+     * the lines and the turtle end up exactly as if each move had been added
+     * to the display list.
+     *
+     * @param geometry
+     * @param sink
+     * @param turtleState
+     */
+    private static void stamp(TurtleGeometry geometry, final DrawingSink sink, final TurtleState turtleState) {
+        geometry.replay(new TurtleGeometry.Moves() {
+            @Override
+            public void forward(double distance) {
+                render(Op.FORWARD, distance, 0, null, sink, turtleState);
+            }
+
+            @Override
+            public void backward(double distance) {
+                render(Op.BACKWARD, distance, 0, null, sink, turtleState);
+            }
+
+            @Override
+            public void left(double angle) {
+                render(Op.LEFT, angle, 0, null, sink, turtleState);
+            }
+
+            @Override
+            public void right(double angle) {
+                render(Op.RIGHT, angle, 0, null, sink, turtleState);
+            }
+
+            @Override
+            public void penUp() {
+                turtleState.penup = true;
+            }
+
+            @Override
+            public void penDown() {
+                turtleState.penup = false;
+            }
+        });
+    }
+
+    private static void moveTo(DrawingSink sink, TurtleState turtleState, double newx, double newy) {
+        if (!turtleState.penup) {
+            sink.line(turtleState.penX, turtleState.penY, newx, newy, turtleState.penColor);
+        }
+        turtleState.penX = newx;
+        turtleState.penY = newy;
+    }
+
+    @Override
+    public void addListener(DrawListener listener) {
+    }
+
+    @Override
+    public void removeListener(DrawListener listener) {
+    }
+
+    /**
+     * Commands are immutable, so they can be shared between copies of a
+     * display list.
+     *
+     * @return
+     */
+    @Override
+    public Drawable cloneDrawable() {
+        return this;
+    }
+}
@@ -25,6 +25,14 @@ public interface Drawable {
 
     void draw(Graphics2D g, TurtleState turtleState);
 
+    /**
+     * Replay into a sink of drawing primitives instead of a graphics context.
+     *
+     * @param sink
+     * @param turtleState
+     */
+    void render(DrawingSink sink, TurtleState turtleState);
+
     void addListener(DrawListener listener);
 
     void removeListener(DrawListener listener);
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.image.BufferedImage;
+
+/**
+ * Receives the primitives produced when a display list is replayed. All
+ * coordinates are in canvas space; turtle movement and state are already
+ * resolved.
+ *
+ * @author matta
+ */
+public interface DrawingSink {
+
+    /**
+     * A line segment drawn with the pen down.
+     *
+     * @param x1
+     * @param y1
+     * @param x2
+     * @param y2
+     * @param color the pen color.
+     */
+    void line(double x1, double y1, double x2, double y2, Color color);
+
+    /**
+     * Text drawn at the turtle position.
+     *
+     * @param text
+     * @param x
+     * @param y
+     * @param angle the turtle heading in radians.
+     * @param font the font, may be null if no font has been set.
+     * @param color the pen color.
+     */
+    void text(String text, double x, double y, double angle, Font font, Color color);
+
+    /**
+     * Erase everything drawn so far.
+     *
+     * @param width the canvas width.
+     * @param height the canvas height.
+     */
+    void clear(double width, double height);
+
+    /**
+     * The canvas (background) color changed.
+     *
+     * @param color
+     */
+    void canvasColor(Color color);
+
+    /**
+     * An opaque image drawn at its natural size, one pixel per canvas unit.
+     * This is how commands that have been flattened into a raster layer are
+     * replayed.
+     *
+     * @param image
+     * @param x the left edge in canvas space.
+     * @param y the top edge in canvas space.
+     */
+    void image(BufferedImage image, double x, double y);
+}
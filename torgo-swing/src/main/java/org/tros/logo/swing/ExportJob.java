@@ -0,0 +1,143 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.commons.lang3.event.EventListenerSupport;
+import org.tros.torgo.metrics.Metrics;
+
+/**
+ * Base class for exports that can run in the background. The export work is
+ * done in {@link #export(OutputStream)}, which should check
+ * {@link #isCancelled()} periodically and report progress through
+ * {@link #fireProgress(int, int)}.
+ *
+ * @author matta
+ */
+public abstract class ExportJob {
+
+    protected final EventListenerSupport<ExportListener> listeners
+            = EventListenerSupport.create(ExportListener.class);
+
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+    /**
+     * Add a listener.
+     *
+     * @param listener
+     */
+    public final void addExportListener(ExportListener listener) {
+        listeners.addListener(listener);
+    }
+
+    /**
+     * Remove a listener.
+     *
+     * @param listener
+     */
+    public final void removeExportListener(ExportListener listener) {
+        listeners.removeListener(listener);
+    }
+
+    /**
+     * Request that the export stop as soon as possible.
+     */
+    public final void cancel() {
+        cancelled.set(true);
+    }
+
+    /**
+     * Check to see if the export has been cancelled.
+     *
+     * @return
+     */
+    public final boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * Do the export.
+     *
+     * @param out
+     * @throws IOException
+     */
+    public abstract void export(OutputStream out) throws IOException;
+
+    /**
+     * Notify listeners of progress.
+     *
+     * @param completed
+     * @param total
+     */
+    protected final void fireProgress(int completed, int total) {
+        listeners.fire().progress(completed, total);
+    }
+
+    /**
+     * Notify listeners of progress, scaled down to fit in an int for very
+     * long display lists.
+     *
+     * @param completed
+     * @param total
+     */
+    protected final void fireProgress(long completed, long total) {
+        int shift = 0;
+        while ((total >> shift) > Integer.MAX_VALUE) {
+            shift++;
+        }
+        fireProgress((int) (completed >> shift), (int) (total >> shift));
+    }
+
+    /**
+     * Export to a file on a background thread. A cancelled export removes the
+     * partially written file. The time taken by finished exports is reported
+     * as the {@code export.millis} metric.
+     *
+     * @param file
+     * @return the started thread.
+     */
+    public final Thread start(final File file) {
+        Thread t = new Thread(() -> {
+            listeners.fire().started();
+            long start = System.nanoTime();
+            try {
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+                    export(out);
+                }
+                if (isCancelled()) {
+                    if (!file.delete()) {
+                        org.tros.utils.logging.Logging.getLogFactory().getLogger(ExportJob.class).warn("Could not remove: {0}", file);
+                    }
+                    listeners.fire().cancelled();
+                } else {
+                    Metrics.histogram("export.millis").record((System.nanoTime() - start) / 1000000L);
+                    listeners.fire().finished();
+                }
+            } catch (IOException | RuntimeException ex) {
+                org.tros.utils.logging.Logging.getLogFactory().getLogger(ExportJob.class).warn(null, ex);
+                listeners.fire().error(ex);
+            }
+        }, getClass().getSimpleName());
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+}
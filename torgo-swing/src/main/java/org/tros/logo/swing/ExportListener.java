@@ -0,0 +1,54 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+/**
+ * Events fired by an export job.
+ *
+ * @author matta
+ */
+public interface ExportListener {
+
+    /**
+     * Signal that the export has started.
+     */
+    void started();
+
+    /**
+     * Signal progress of the export.
+     *
+     * @param completed units of work completed.
+     * @param total total units of work.
+     */
+    void progress(int completed, int total);
+
+    /**
+     * Signal that the export has finished successfully.
+     */
+    void finished();
+
+    /**
+     * Signal that the export was cancelled before finishing.
+     */
+    void cancelled();
+
+    /**
+     * Signal that there was an error during export.
+     *
+     * @param e
+     */
+    void error(Exception e);
+}
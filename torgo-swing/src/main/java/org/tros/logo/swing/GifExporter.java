@@ -0,0 +1,495 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import org.tros.utils.GifSequenceWriter;
+
+/**
+ * Exports a display list as an animated GIF.
+ *
+ * <p>
+ * Rather than a frame per command, frames are sampled every N commands and/or
+ * every T milliseconds of virtual time, where virtual time is the time spent
+ * in pauses. Each frame only holds the area that changed since the previous
+ * frame and is layered on top of it. All frames share one palette, computed
+ * up front from the pen colors in the display list, so no per-frame color
+ * quantization is needed. Encoding runs on its own thread, fed through a
+ * bounded queue so that memory use stays flat when drawing outpaces the
+ * encoder.</p>
+ *
+ * @author matta
+ */
+public class GifExporter extends ExportJob {
+
+    public static final int DEFAULT_FRAME_DELAY = 40;
+
+    private static final int QUEUE_CAPACITY = 8;
+    private static final int PROGRESS_INTERVAL = 1024;
+    private static final int AA_LEVELS = 8;
+    private static final int CUBE_LEVELS = 6;
+    private static final int SMALL_CUBE_LEVELS = 5;
+    private static final int PALETTE_SIZE = 256;
+    private static final String DISPOSAL = "doNotDispose";
+    private static final Frame END_OF_FRAMES = new Frame(0, 0, 0, 0, null);
+
+    private final DisplayList displayList;
+    private final int width;
+    private final int height;
+    private int commandsPerFrame = 1;
+    private long frameInterval;
+    private int frameDelay = DEFAULT_FRAME_DELAY;
+    private long start;
+    private Timeline timeline;
+    private int frameCount;
+
+    /**
+     * A region of the canvas waiting to be encoded.
+     */
+    private static final class Frame {
+
+        private final int x;
+        private final int y;
+        private final int width;
+        private final int height;
+        private final int[] rgb;
+        private int delay;
+
+        Frame(int x, int y, int width, int height, int[] rgb) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.rgb = rgb;
+        }
+    }
+
+    /**
+     * Paints the canvas and keeps track of the area touched since the last
+     * frame.
+     */
+    private static final class DirtySink extends Graphics2DSink {
+
+        private final Rectangle bounds;
+        private final Rectangle dirty = new Rectangle();
+
+        DirtySink(Graphics2D g2, int width, int height) {
+            super(g2);
+            bounds = new Rectangle(0, 0, width, height);
+        }
+
+        @Override
+        public void line(double x1, double y1, double x2, double y2, Color color) {
+            super.line(x1, y1, x2, y2, color);
+            //pad for the stroke width and antialiasing.
+            final int pad = 2;
+            int x = (int) Math.floor(Math.min(x1, x2)) - pad;
+            int y = (int) Math.floor(Math.min(y1, y2)) - pad;
+            mark(new Rectangle(x, y,
+                    (int) Math.ceil(Math.abs(x2 - x1)) + 2 * pad + 1,
+                    (int) Math.ceil(Math.abs(y2 - y1)) + 2 * pad + 1));
+        }
+
+        @Override
+        public void text(String text, double x, double y, double angle, Font font, Color color) {
+            super.text(text, x, y, angle, font, color);
+            Rectangle2D r = (font != null ? font : g2.getFont()).getStringBounds(text, g2.getFontRenderContext());
+            r.setRect((int) x + r.getX(), (int) y + r.getY(), r.getWidth(), r.getHeight());
+            Rectangle b = AffineTransform.getRotateInstance(angle, x, y).createTransformedShape(r).getBounds();
+            b.grow(2, 2);
+            mark(b);
+        }
+
+        @Override
+        public void clear(double width, double height) {
+            super.clear(width, height);
+            mark(bounds);
+        }
+
+        @Override
+        public void image(BufferedImage image, double x, double y) {
+            super.image(image, x, y);
+            mark(new Rectangle((int) Math.floor(x), (int) Math.floor(y), image.getWidth() + 1, image.getHeight() + 1));
+        }
+
+        private void mark(Rectangle r) {
+            Rectangle clipped = r.intersection(bounds);
+            if (clipped.isEmpty()) {
+                return;
+            }
+            if (dirty.isEmpty()) {
+                dirty.setBounds(clipped);
+            } else {
+                dirty.add(clipped);
+            }
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param displayList
+     * @param width the canvas width.
+     * @param height the canvas height.
+     */
+    public GifExporter(DisplayList displayList, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Export dimensions must be positive.");
+        }
+        this.displayList = displayList;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Sample a frame every so many commands. Zero disables command sampling.
+     *
+     * @param commandsPerFrame
+     */
+    public void setCommandsPerFrame(int commandsPerFrame) {
+        this.commandsPerFrame = Math.max(0, commandsPerFrame);
+    }
+
+    /**
+     * Sample a frame every so many milliseconds of virtual time. Zero
+     * disables time sampling.
+     *
+     * @param frameInterval
+     */
+    public void setFrameInterval(long frameInterval) {
+        this.frameInterval = Math.max(0, frameInterval);
+    }
+
+    /**
+     * Set the minimum time a frame is shown for. Pauses in the drawing make
+     * frames show for longer.
+     *
+     * @param frameDelay in milliseconds.
+     */
+    public void setFrameDelay(int frameDelay) {
+        this.frameDelay = Math.max(0, frameDelay);
+    }
+
+    /**
+     * Start the animation part way through the drawing. Everything drawn
+     * before the start is shown in the first frame, which is drawn from the
+     * nearest keyframe of the timeline rather than by replaying the whole
+     * display list. Without a timeline the commands before the start are
+     * replayed.
+     *
+     * @param start the number of commands drawn in the first frame.
+     * @param timeline the timeline recorded with the display list, or null.
+     */
+    public void setStart(long start, Timeline timeline) {
+        this.start = Math.max(0, start);
+        this.timeline = timeline;
+    }
+
+    /**
+     * Get the number of frames written by the last export.
+     *
+     * @return
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Export the animation. Returns early, leaving an incomplete stream, if
+     * the job is cancelled.
+     *
+     * @param out
+     * @throws IOException
+     */
+    @Override
+    public void export(OutputStream out) throws IOException {
+        final IndexColorModel palette = createPalette();
+        final byte[] inverse = createInverseTable(palette);
+        final ImageOutputStream ios = new MemoryCacheImageOutputStream(out);
+        final GifSequenceWriter writer = new GifSequenceWriter(ios, BufferedImage.TYPE_BYTE_INDEXED, frameDelay, true);
+        final BlockingQueue<Frame> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        final AtomicReference<IOException> failure = new AtomicReference<>();
+
+        Thread encoder = new Thread(() -> {
+            try {
+                for (Frame frame = queue.take(); frame != END_OF_FRAMES; frame = queue.take()) {
+                    writer.writeToSequence(toIndexed(frame, palette, inverse), frame.x, frame.y, frame.delay, DISPOSAL);
+                    ios.flush();
+                }
+            } catch (IOException ex) {
+                failure.set(ex);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }, getClass().getSimpleName() + "-encoder");
+        encoder.setDaemon(true);
+        encoder.start();
+
+        frameCount = 0;
+        try {
+            draw(queue, encoder, failure);
+        } finally {
+            enqueue(queue, encoder, failure, END_OF_FRAMES);
+            join(encoder);
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        if (!isCancelled()) {
+            writer.close();
+            ios.flush();
+        }
+    }
+
+    /**
+     * Replay the display list, sampling frames as we go.
+     */
+    private void draw(BlockingQueue<Frame> queue, Thread encoder, AtomicReference<IOException> failure) throws IOException {
+        BufferedImage canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = canvas.createGraphics();
+        g2d.setColor(Color.white);
+        g2d.fillRect(0, 0, width, height);
+        int[] pixels = ((DataBufferInt) canvas.getRaster().getDataBuffer()).getData();
+
+        DirtySink sink = new DirtySink(g2d, width, height);
+        //the first frame sets the size of the animation.
+        sink.dirty.setBounds(sink.bounds);
+        TurtleState ts = new TurtleState();
+        ts.width = width;
+        ts.height = height;
+
+        Frame pending = null;
+        long time = 0;
+        long pendingTime = 0;
+        int sinceFrame = 0;
+        final long total = displayList.size();
+        CommandStore.Cursor cursor = null;
+        if (timeline != null && start > 0) {
+            cursor = timeline.seek(start, displayList, sink, ts).getCursor();
+        }
+        if (cursor == null) {
+            //no start, or it is among flattened commands; carry on after them.
+            displayList.renderBaked(sink, ts);
+            cursor = displayList.cursor();
+            //without a timeline, replay up to the start into the first frame.
+            final long baked = displayList.getBakedCount();
+            while (baked + cursor.getIndex() < start && cursor.next()) {
+                cursor.render(sink, ts);
+            }
+        }
+        while (cursor.next()) {
+            final long ii = cursor.getIndex() - 1;
+            cursor.render(sink, ts);
+            //a pause holds what was drawn before it, so a frame sampled here
+            //is taken at the start of the pause.
+            long frameTime = time;
+            if (cursor.getOp() == DrawCommand.Op.PAUSE) {
+                time += (long) cursor.getX();
+            }
+            sinceFrame++;
+            boolean sample = (commandsPerFrame > 0 && sinceFrame >= commandsPerFrame)
+                    || (frameInterval > 0 && time - pendingTime >= frameInterval);
+            if (sample && !sink.dirty.isEmpty()) {
+                //a frame is shown until the next one, so its delay is only
+                //known once the next frame is sampled.
+                if (pending != null) {
+                    pending.delay = Math.max(frameDelay, (int) (frameTime - pendingTime));
+                    enqueue(queue, encoder, failure, pending);
+                }
+                pending = copy(pixels, sink.dirty);
+                pendingTime = frameTime;
+                sink.dirty.setBounds(0, 0, 0, 0);
+                sinceFrame = 0;
+            }
+            if (ii % PROGRESS_INTERVAL == 0) {
+                if (isCancelled()) {
+                    g2d.dispose();
+                    return;
+                }
+                fireProgress(ii, total);
+            }
+        }
+        g2d.dispose();
+        if (!sink.dirty.isEmpty()) {
+            if (pending != null) {
+                pending.delay = Math.max(frameDelay, (int) (time - pendingTime));
+                enqueue(queue, encoder, failure, pending);
+            }
+            pending = copy(pixels, sink.dirty);
+        }
+        if (pending != null) {
+            pending.delay = frameDelay;
+            enqueue(queue, encoder, failure, pending);
+        }
+        fireProgress(total, total);
+    }
+
+    private Frame copy(int[] pixels, Rectangle r) {
+        int[] rgb = new int[r.width * r.height];
+        for (int y = 0; y < r.height; y++) {
+            System.arraycopy(pixels, (r.y + y) * width + r.x, rgb, y * r.width, r.width);
+        }
+        frameCount++;
+        return new Frame(r.x, r.y, r.width, r.height, rgb);
+    }
+
+    /**
+     * Hand a frame to the encoder, waiting while the queue is full.
+     */
+    private static void enqueue(BlockingQueue<Frame> queue, Thread encoder, AtomicReference<IOException> failure, Frame frame) throws IOException {
+        try {
+            while (!queue.offer(frame, 100, TimeUnit.MILLISECONDS)) {
+                if (!encoder.isAlive()) {
+                    if (failure.get() != null) {
+                        throw failure.get();
+                    }
+                    return;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        }
+    }
+
+    private static void join(Thread encoder) {
+        try {
+            encoder.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static BufferedImage toIndexed(Frame frame, IndexColorModel palette, byte[] inverse) {
+        byte[] indices = new byte[frame.rgb.length];
+        for (int ii = 0; ii < indices.length; ii++) {
+            int c = frame.rgb[ii];
+            indices[ii] = inverse[((c >> 9) & 0x7c00) | ((c >> 6) & 0x03e0) | ((c >> 3) & 0x001f)];
+        }
+        WritableRaster raster = Raster.createInterleavedRaster(new DataBufferByte(indices, indices.length),
+                frame.width, frame.height, frame.width, 1, new int[]{0}, null);
+        return new BufferedImage(palette, raster, false, null);
+    }
+
+    /**
+     * Build the palette shared by all frames. Each pen color used in the
+     * drawing is blended with the white background at a few levels to cover
+     * antialiased edges, and the rest of the palette is filled with a color
+     * cube and grays. Drawings with too many colors only get the cube.
+     *
+     * @return
+     */
+    private IndexColorModel createPalette() {
+        LinkedHashSet<Integer> colors = new LinkedHashSet<>();
+        colors.add(Color.black.getRGB() & 0xffffff);
+        CommandStore.Cursor cursor = displayList.cursor();
+        while (cursor.next()) {
+            if (cursor.getOp() == DrawCommand.Op.PEN_COLOR) {
+                colors.add(((Color) cursor.getValue()).getRGB() & 0xffffff);
+            }
+        }
+
+        int[] entries = new int[PALETTE_SIZE];
+        int count = 0;
+        entries[count++] = 0xffffff;
+        int cube;
+        if (1 + colors.size() * AA_LEVELS + SMALL_CUBE_LEVELS * SMALL_CUBE_LEVELS * SMALL_CUBE_LEVELS <= PALETTE_SIZE) {
+            for (int color : colors) {
+                for (int level = 1; level <= AA_LEVELS; level++) {
+                    entries[count++] = blend(color, level);
+                }
+            }
+            //a coarse cube for where lines of different colors cross.
+            cube = SMALL_CUBE_LEVELS;
+        } else {
+            cube = CUBE_LEVELS;
+        }
+        for (int r = 0; r < cube; r++) {
+            for (int g = 0; g < cube; g++) {
+                for (int b = 0; b < cube; b++) {
+                    entries[count++] = (r * 255 / (cube - 1)) << 16 | (g * 255 / (cube - 1)) << 8 | (b * 255 / (cube - 1));
+                }
+            }
+        }
+        //fill the rest with grays for text and antialiasing.
+        int grays = PALETTE_SIZE - count;
+        for (int ii = 0; ii < grays; ii++) {
+            int v = (ii + 1) * 255 / (grays + 1);
+            entries[count++] = v << 16 | v << 8 | v;
+        }
+        return new IndexColorModel(8, count, entries, 0, false, -1, DataBufferByte.TYPE_BYTE);
+    }
+
+    private static int blend(int color, int level) {
+        int r = 255 - (255 - ((color >> 16) & 0xff)) * level / AA_LEVELS;
+        int g = 255 - (255 - ((color >> 8) & 0xff)) * level / AA_LEVELS;
+        int b = 255 - (255 - (color & 0xff)) * level / AA_LEVELS;
+        return r << 16 | g << 8 | b;
+    }
+
+    /**
+     * Map every 15-bit RGB value to the nearest palette entry, so frames can
+     * be converted with a table lookup per pixel.
+     *
+     * @param palette
+     * @return
+     */
+    private static byte[] createInverseTable(IndexColorModel palette) {
+        int size = palette.getMapSize();
+        int[] rgbs = new int[size];
+        palette.getRGBs(rgbs);
+        byte[] table = new byte[1 << 15];
+        for (int ii = 0; ii < table.length; ii++) {
+            int r = ((ii >> 10) & 0x1f) << 3 | 0x4;
+            int g = ((ii >> 5) & 0x1f) << 3 | 0x4;
+            int b = (ii & 0x1f) << 3 | 0x4;
+            int best = 0;
+            int bestDistance = Integer.MAX_VALUE;
+            for (int jj = 0; jj < size; jj++) {
+                int dr = r - ((rgbs[jj] >> 16) & 0xff);
+                int dg = g - ((rgbs[jj] >> 8) & 0xff);
+                int db = b - (rgbs[jj] & 0xff);
+                int distance = dr * dr + dg * dg + db * db;
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = jj;
+                }
+            }
+            table[ii] = (byte) best;
+        }
+        return table;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws primitives to a Graphics2D. Segments outside of the current clip are
+ * skipped so that tiled exports and partial repaints only pay for what they
+ * touch.
+ *
+ * @author matta
+ */
+public class Graphics2DSink implements DrawingSink {
+
+    protected final Graphics2D g2;
+    private final Line2D.Double segment = new Line2D.Double();
+    private Object antialiasing = RenderingHints.VALUE_ANTIALIAS_ON;
+
+    /**
+     * Constructor.
+     *
+     * @param g2
+     */
+    public Graphics2DSink(Graphics2D g2) {
+        this.g2 = g2;
+    }
+
+    /**
+     * Turn antialiasing of lines on or off, it is on by default.
+     *
+     * @param antialias
+     */
+    public void setAntialiasing(boolean antialias) {
+        antialiasing = antialias ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF;
+    }
+
+    @Override
+    public void line(double x1, double y1, double x2, double y2, Color color) {
+        if (hitClip(x1, y1, x2, y2)) {
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antialiasing);
+            g2.setColor(color);
+            segment.setLine(x1, y1, x2, y2);
+            g2.draw(segment);
+        }
+    }
+
+    @Override
+    public void text(String text, double x, double y, double angle, Font font, Color color) {
+        //rotate within the current transform so that the zoom
+        //(on screen) or the export scale/tile offset is kept.
+        final AffineTransform saveXform = g2.getTransform();
+        g2.rotate(angle, x, y);
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_LCD_HRGB);
+        if (font != null) {
+            g2.setFont(font);
+        }
+        g2.setColor(color);
+        g2.drawString(text, (int) x, (int) y);
+        g2.setTransform(saveXform);
+    }
+
+    @Override
+    public void clear(double width, double height) {
+        AffineTransform saveXform = g2.getTransform();
+        g2.setTransform(new AffineTransform());
+        g2.setColor(Color.white);
+        //when clipped (repaint regions, export tiles) the clip is
+        //exactly the device area that needs clearing.
+        Rectangle clip = g2.getClipBounds();
+        if (clip != null) {
+            g2.fill(clip);
+        } else {
+            g2.fillRect(0, 0, (int) width, (int) height);
+        }
+        g2.setTransform(saveXform);
+    }
+
+    /**
+     * The canvas color is not part of the drawing, so it is ignored here.
+     *
+     * @param color
+     */
+    @Override
+    public void canvasColor(Color color) {
+    }
+
+    @Override
+    public void image(BufferedImage image, double x, double y) {
+        if (g2.hitClip((int) Math.floor(x), (int) Math.floor(y), image.getWidth() + 1, image.getHeight() + 1)) {
+            g2.drawImage(image, AffineTransform.getTranslateInstance(x, y), null);
+        }
+    }
+
+    /**
+     * Check if a line segment might be visible through the current clip.
+     *
+     * @param x1
+     * @param y1
+     * @param x2
+     * @param y2
+     * @return
+     */
+    private boolean hitClip(double x1, double y1, double x2, double y2) {
+        //pad by a couple of units for the stroke width and antialiasing.
+        final int pad = 2;
+        int x = (int) Math.floor(Math.min(x1, x2)) - pad;
+        int y = (int) Math.floor(Math.min(y1, y2)) - pad;
+        int w = (int) Math.ceil(Math.abs(x2 - x1)) + 2 * pad + 1;
+        int h = (int) Math.ceil(Math.abs(y2 - y1)) + 2 * pad + 1;
+        return g2.hitClip(x, y, w, h);
+    }
+}
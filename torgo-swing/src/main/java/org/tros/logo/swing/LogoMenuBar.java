@@ -0,0 +1,725 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import org.tros.logo.CompiledProgram;
+import org.tros.logo.LogoCanvas;
+import org.tros.logo.LogoController;
+import org.tros.logo.stream.StreamSink;
+import org.tros.logo.stream.StreamSinks;
+import org.tros.logo.stream.StreamingCanvas;
+import org.tros.torgo.swing.BufferedImageProvider;
+import org.tros.torgo.swing.Localization;
+import org.tros.torgo.Controller;
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.Window;
+import java.awt.image.BufferedImage;
+import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import javax.imageio.ImageIO;
+import javax.imageio.stream.FileImageOutputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.swing.JColorChooser;
+import javax.swing.JMenu;
+import javax.swing.JMenuItem;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import javax.swing.JCheckBoxMenuItem;
+import javax.swing.JDialog;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JSlider;
+import javax.swing.KeyStroke;
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import org.apache.commons.io.IOUtils;
+import org.tros.torgo.TorgoToolkit;
+import org.tros.torgo.interpreter.CodeBlock;
+import org.tros.torgo.interpreter.InterpreterListener;
+import org.tros.torgo.interpreter.InterpreterThread;
+import org.tros.torgo.interpreter.Scope;
+import org.tros.torgo.swing.TorgoMenuBar;
+import org.tros.utils.GifSequenceWriter;
+
+/**
+ * Sets up a menu bar for the Logo application.
+ *
+ * @author matta
+ */
+public final class LogoMenuBar extends TorgoMenuBar {
+
+    protected static final String WAIT_FOR_REPAINT = "wait-for-repaint";
+    protected static final String SVG_USE_BATIK = "svg-use-batik";
+    protected static final String DRAFT_WHILE_RUNNING = "draft-while-running";
+    protected static final String QUALITY_WHEN_FINISHED = "quality-when-finished";
+    protected static final String MAX_LIVE_COMMANDS = "max-live-commands";
+    protected static final String INSTANCE_PROCEDURES = "instance-procedures";
+    protected static final String RECORD_TIMELINE = "record-timeline";
+
+    private static final int HIGH_RES_DEFAULT_SCALE = 4;
+    private static final int GIF_MAX_FRAMES = 500;
+    private static final int STREAM_DEFAULT_SIZE = 1000;
+
+    private final LogoCanvas canvas;
+    private final SvgExport svg;
+
+    private JMenuItem toolsPenColorChooser;
+    private JMenuItem toolsCanvasColorChooser;
+
+    /**
+     * Constructor.
+     *
+     * @param parent
+     * @param controller
+     * @param canvas
+     */
+    @SuppressWarnings("OverridableMethodCallInConstructor")
+    public LogoMenuBar(Component parent, Controller controller, LogoCanvas canvas) {
+        super(parent, controller);
+        this.canvas = canvas;
+        this.svg = getSvgExport();
+
+        add(setupExportMenu());
+        add(setupToolsMenu());
+        JMenu menu = new JMenu("Logo Options");
+        menu.add(setupMenu("Examples From Tortue", "logo/examples/tortue"));
+        menu.add(setupMenu("Examples From ANTLR", "logo/examples/antlr"));
+
+        final java.util.prefs.Preferences prefs = java.util.prefs.Preferences.userNodeForPackage(LogoMenuBar.class);
+        final JCheckBoxMenuItem speedMenu = new JCheckBoxMenuItem("Wait for Repaint");
+        boolean checked = prefs.getBoolean(WAIT_FOR_REPAINT, true);
+        speedMenu.setSelected(checked);
+        speedMenu.addActionListener((ActionEvent e) -> {
+            prefs.putBoolean(WAIT_FOR_REPAINT, speedMenu.isSelected());
+        });
+        menu.add(speedMenu);
+        final JCheckBoxMenuItem batikMenu = new JCheckBoxMenuItem("Use Batik for SVG Export");
+        batikMenu.setSelected(prefs.getBoolean(SVG_USE_BATIK, false));
+        batikMenu.addActionListener((ActionEvent e) -> {
+            prefs.putBoolean(SVG_USE_BATIK, batikMenu.isSelected());
+        });
+        if (svg != null) {
+            menu.add(batikMenu);
+        }
+        final JCheckBoxMenuItem draftMenu = new JCheckBoxMenuItem("Draft Rendering While Running");
+        draftMenu.setSelected(prefs.getBoolean(DRAFT_WHILE_RUNNING, true));
+        draftMenu.addActionListener((ActionEvent e) -> {
+            prefs.putBoolean(DRAFT_WHILE_RUNNING, draftMenu.isSelected());
+        });
+        menu.add(draftMenu);
+        final JCheckBoxMenuItem qualityMenu = new JCheckBoxMenuItem("Background Quality Render When Finished");
+        qualityMenu.setSelected(prefs.getBoolean(QUALITY_WHEN_FINISHED, true));
+        qualityMenu.addActionListener((ActionEvent e) -> {
+            prefs.putBoolean(QUALITY_WHEN_FINISHED, qualityMenu.isSelected());
+        });
+        menu.add(qualityMenu);
+        final JCheckBoxMenuItem instanceMenu = new JCheckBoxMenuItem("Reuse Drawings of Repeated Procedure Calls");
+        instanceMenu.setSelected(prefs.getBoolean(INSTANCE_PROCEDURES, true));
+        instanceMenu.addActionListener((ActionEvent e) -> {
+            prefs.putBoolean(INSTANCE_PROCEDURES, instanceMenu.isSelected());
+        });
+        menu.add(instanceMenu);
+        final JCheckBoxMenuItem timelineMenu = new JCheckBoxMenuItem("Record Timeline for Scrubbing");
+        timelineMenu.setSelected(prefs.getBoolean(RECORD_TIMELINE, true));
+        timelineMenu.addActionListener((ActionEvent e) -> {
+            prefs.putBoolean(RECORD_TIMELINE, timelineMenu.isSelected());
+        });
+        menu.add(timelineMenu);
+        if (canvas instanceof LogoPanel) {
+            final JCheckBoxMenuItem rasterMenu = new JCheckBoxMenuItem("Fast Rendering (No Antialiasing)");
+            rasterMenu.setSelected(((LogoPanel) canvas).isRasterRendering());
+            rasterMenu.addActionListener((ActionEvent e) -> {
+                ((LogoPanel) canvas).setRasterRendering(rasterMenu.isSelected());
+                ((LogoPanel) canvas).repaint();
+            });
+            menu.add(rasterMenu);
+            final JMenuItem memoryMenu = new JMenuItem("Canvas Memory Limit...");
+            memoryMenu.addActionListener((ActionEvent e) -> {
+                String value = JOptionPane.showInputDialog(parent,
+                        "Commands kept as vectors before older ones are flattened (0 for no limit):",
+                        Integer.toString(((LogoPanel) canvas).getMaxLiveCommands()));
+                if (value == null) {
+                    return;
+                }
+                try {
+                    int max = Integer.parseInt(value.trim());
+                    prefs.putInt(MAX_LIVE_COMMANDS, max);
+                    ((LogoPanel) canvas).setMaxLiveCommands(max);
+                } catch (NumberFormatException ex) {
+                    org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoMenuBar.class).warn(null, ex);
+                }
+            });
+            menu.add(memoryMenu);
+        }
+        add(menu);
+    }
+
+    /**
+     * Export the canvas to SVG. The display list is streamed straight to the
+     * file in the background unless Batik has been selected in the options.
+     *
+     * @param filename
+     */
+    private void generateSVG(String filename) {
+        Component c = (Component) canvas;
+        Drawable snapshot = ((Drawable) canvas).cloneDrawable();
+        java.util.prefs.Preferences prefs = java.util.prefs.Preferences.userNodeForPackage(LogoMenuBar.class);
+        if (snapshot instanceof DisplayList && !prefs.getBoolean(SVG_USE_BATIK, false)) {
+            startExport(svg.stream((DisplayList) snapshot, c.getWidth(), c.getHeight()), filename);
+        } else {
+            try (FileOutputStream fos = new FileOutputStream(new File(filename))) {
+                svg.write((Drawable) canvas, fos);
+                fos.flush();
+            } catch (IOException ex) {
+                org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoMenuBar.class).warn(null, ex);
+            }
+        }
+    }
+
+    /**
+     * Find the SVG export, which is only there when the torgo-export-svg
+     * module is on the class path.
+     *
+     * @return null if there is no SVG export.
+     */
+    private static SvgExport getSvgExport() {
+        try {
+            for (SvgExport svg : ServiceLoader.load(SvgExport.class)) {
+                return svg;
+            }
+        } catch (ServiceConfigurationError serviceError) {
+            org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoMenuBar.class).warn(null, serviceError);
+        }
+        return null;
+    }
+
+    /**
+     * Export the canvas as an animated GIF in the background. Frames are
+     * sampled so that long drawings do not produce a frame per command. The
+     * animation starts from the position of the timeline slider.
+     *
+     * @param filename
+     */
+    private void generateGIF(String filename) {
+        Component c = (Component) canvas;
+        Drawable snapshot = ((Drawable) canvas).cloneDrawable();
+        if (snapshot instanceof DisplayList) {
+            DisplayList displayList = (DisplayList) snapshot;
+            GifExporter exporter = new GifExporter(displayList, c.getWidth(), c.getHeight());
+            long start = 0;
+            if (canvas instanceof LogoPanel && ((LogoPanel) canvas).getScrubIndex() >= 0) {
+                //start from where the timeline slider is.
+                LogoPanel panel = (LogoPanel) canvas;
+                start = panel.getScrubIndex();
+                exporter.setStart(start, panel.getTimeline());
+            }
+            long commands = Math.max(0, displayList.getBakedCount() + displayList.size() - start);
+            exporter.setCommandsPerFrame((int) Math.min(Integer.MAX_VALUE, (commands + GIF_MAX_FRAMES - 1) / GIF_MAX_FRAMES));
+            startExport(exporter, filename);
+        } else if (canvas instanceof BufferedImageProvider) {
+            Thread t = new Thread(() -> {
+                try {
+                    generateGIF(snapshot, (BufferedImageProvider) canvas, filename);
+                } catch (IOException ex) {
+                    org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoMenuBar.class).warn(null, ex);
+                }
+            });
+            t.setDaemon(true);
+            t.start();
+        } else {
+            org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoMenuBar.class).warn("Animated GIF export is not supported by {0}", canvas.getClass().getName());
+        }
+    }
+
+    /**
+     * Export the canvas as an animated GIF by writing a frame for every
+     * command. Used when the canvas does not keep a display list.
+     *
+     * @param p
+     * @param canvas
+     * @param filename
+     * @throws IOException
+     */
+    private void generateGIF(final Drawable p, final BufferedImageProvider canvas, String filename) throws IOException {
+        final BufferedImage image = canvas.getBufferedImage();
+        final Graphics2D g2d = image.createGraphics();
+        try (ImageOutputStream output = new FileImageOutputStream(new File(filename))) {
+            final GifSequenceWriter writer = new GifSequenceWriter(output, image.getType(), 1, true);
+            DrawListener dl = (Drawable sender) -> {
+                try {
+                    writer.writeToSequence(image);
+                } catch (IOException ex) {
+                    org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoMenuBar.class).warn(null, ex);
+                }
+            };
+            p.addListener(dl);
+
+            TurtleState ts = new TurtleState();
+            ts.width = image.getWidth();
+            ts.height = image.getHeight();
+
+            try {
+                p.draw(g2d, ts);
+            } finally {
+                p.removeListener(dl);
+                g2d.dispose();
+                writer.close();
+            }
+        }
+        org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoMenuBar.class).info("{0} animation is complete!", filename);
+    }
+
+    /**
+     * Set up the menus for examples.
+     *
+     * @param name
+     * @param base
+     * @return
+     */
+    private JMenu setupMenu(String name, String base) {
+        JMenu samplesMenu = new JMenu(name);
+        try {
+            InputStream resourceAsStream = TorgoToolkit.getDefaultResourceAccessor().open(base + "/resource.manifest");
+            List<String> readLines = IOUtils.readLines(resourceAsStream, "utf-8");
+            Collections.sort(readLines);
+            readLines.stream().map((line) -> new JMenuItem(base + "/" + line)).filter((jmi) -> (!jmi.getText().endsWith("manifest"))).map((JMenuItem jmi) -> {
+                samplesMenu.add(jmi);
+                return jmi;
+            }).forEachOrdered((JMenuItem jmi) -> {
+                jmi.addActionListener((ActionEvent e) -> {
+                    String val = e.getActionCommand();
+                    URL resource = ClassLoader.getSystemClassLoader().getResource(val);
+                    LogoMenuBar.this.controller.openFile(resource);
+                });
+            });
+        } catch (IOException ex) {
+            org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoMenuBar.class).fatal(null, ex);
+        }
+        return samplesMenu;
+    }
+
+    /**
+     * Export the canvas to a PNG in the background. The output is rendered in
+     * tiles so that large scale factors do not need a full size image in
+     * memory.
+     *
+     * @param scale the size of the output relative to the canvas.
+     * @param filename
+     */
+    private void generatePNG(double scale, String filename) {
+        Component c = (Component) canvas;
+        TiledImageExporter exporter = new TiledImageExporter(((Drawable) canvas).cloneDrawable(), c.getWidth(), c.getHeight(), scale);
+        exporter.setBackground(c.getBackground());
+        if (canvas instanceof LogoPanel) {
+            exporter.setRasterRendering(((LogoPanel) canvas).isRasterRendering());
+        }
+        startExport(exporter, filename);
+    }
+
+    /**
+     * Export the canvas to a PNG from its buffered image. Used when the
+     * canvas cannot be rendered by the tiled exporter.
+     *
+     * @param bip
+     * @param filename
+     */
+    private void generatePNG(BufferedImageProvider bip, String filename) {
+        BufferedImage bi = bip.getBufferedImage();
+        File outputfile = new File(filename);
+        try {
+            ImageIO.write(bi, "png", outputfile);
+        } catch (IOException ex) {
+            org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoMenuBar.class).warn(null, ex);
+        }
+    }
+
+    /**
+     * Run an export job in the background showing a cancellable progress
+     * monitor.
+     *
+     * @param job
+     * @param filename
+     */
+    private void startExport(final ExportJob job, final String filename) {
+        final ProgressMonitor monitor = new ProgressMonitor(parent, Localization.getLocalizedString("ExportProgress"), filename, 0, 100);
+        job.addExportListener(new ExportListener() {
+
+            @Override
+            public void started() {
+            }
+
+            @Override
+            public void progress(int completed, int total) {
+                SwingUtilities.invokeLater(() -> {
+                    if (monitor.isCanceled()) {
+                        job.cancel();
+                    } else {
+                        monitor.setProgress(completed * 100 / Math.max(1, total));
+                    }
+                });
+            }
+
+            @Override
+            public void finished() {
+                org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoMenuBar.class).info("{0} export is complete!", filename);
+                SwingUtilities.invokeLater(monitor::close);
+            }
+
+            @Override
+            public void cancelled() {
+                org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoMenuBar.class).info("{0} export was cancelled.", filename);
+                SwingUtilities.invokeLater(monitor::close);
+            }
+
+            @Override
+            public void error(Exception e) {
+                SwingUtilities.invokeLater(monitor::close);
+            }
+        });
+        job.start(new File(filename));
+    }
+
+    /**
+     * Prompt the user for a file to export to.
+     *
+     * @param description
+     * @param extension the extension, without the '.'.
+     * @return the selected file name with the extension added, or null if
+     * nothing was selected.
+     */
+    private String chooseExportFile(String description, String extension) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter(description, extension));
+        chooser.setMultiSelectionEnabled(false);
+        java.util.prefs.Preferences prefs = java.util.prefs.Preferences.userNodeForPackage(LogoMenuBar.class);
+        chooser.setCurrentDirectory(new File(prefs.get("export-directory", ".")));
+
+        chooser.setVisible(true);
+        int result = chooser.showSaveDialog(parent);
+
+        if (result != JFileChooser.APPROVE_OPTION) {
+            return null;
+        }
+        String filename = chooser.getSelectedFile().getPath();
+        if (!filename.endsWith("." + extension)) {
+            filename = filename + "." + extension;
+        }
+        prefs.put("export-directory", chooser.getSelectedFile().getParent());
+        return filename;
+    }
+
+    /**
+     * Run the script again in the background, writing what it draws straight
+     * to a file instead of keeping it on the canvas.
+     *
+     * @param sink
+     * @param filename
+     */
+    private void streamDrawing(final StreamSink sink, final String filename) {
+        Component c = (Component) canvas;
+        int width = c.getWidth() > 0 ? c.getWidth() : STREAM_DEFAULT_SIZE;
+        int height = c.getHeight() > 0 ? c.getHeight() : STREAM_DEFAULT_SIZE;
+        try {
+            final OutputStream out = new BufferedOutputStream(new FileOutputStream(filename));
+            sink.start(out, width, height);
+            final StreamingCanvas stream = new StreamingCanvas(width, height, Collections.singletonList(sink));
+            InterpreterThread thread = ((LogoController) controller).createInterpreterThread(controller.getSource(), stream);
+            thread.addInterpreterListener(new InterpreterListener() {
+
+                @Override
+                public void started() {
+                }
+
+                @Override
+                public void finished() {
+                    try {
+                        stream.close();
+                        org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoMenuBar.class).info("{0} primitives streamed to {1}", stream.getPrimitiveCount(), filename);
+                    } catch (IOException ex) {
+                        org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoMenuBar.class).warn(null, ex);
+                    } finally {
+                        try {
+                            out.close();
+                        } catch (IOException ex) {
+                            org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoMenuBar.class).warn(null, ex);
+                        }
+                    }
+                }
+
+                @Override
+                public void error(Exception e) {
+                    org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoMenuBar.class).warn(null, e);
+                }
+
+                @Override
+                public void message(String msg) {
+                }
+
+                @Override
+                public void currStatement(CodeBlock block, Scope scope) {
+                }
+            });
+            thread.start();
+        } catch (IOException ex) {
+            org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoMenuBar.class).warn(null, ex);
+        }
+    }
+
+    /**
+     * Parse the script and save it in compiled form, which can be opened and
+     * run without parsing it again.
+     *
+     * @param filename
+     */
+    private void exportCompiled(String filename) {
+        try {
+            CompiledProgram program = CompiledProgram.compile(controller.getLang(), controller.getSource());
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(filename))) {
+                program.write(out);
+            }
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(parent, ex.getMessage(), Localization.getLocalizedString("ExportCompiled"), JOptionPane.ERROR_MESSAGE);
+        } catch (IOException ex) {
+            org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoMenuBar.class).warn(null, ex);
+        }
+    }
+
+    /**
+     * Check to see if the canvas can be exported by the tiled exporter.
+     *
+     * @return
+     */
+    private boolean canExportTiled() {
+        return Drawable.class.isAssignableFrom(canvas.getClass())
+                && Component.class.isAssignableFrom(canvas.getClass())
+                && ((Component) canvas).getWidth() > 0
+                && ((Component) canvas).getHeight() > 0;
+    }
+
+    /**
+     * Set up the export menu.
+     *
+     * @return
+     */
+    private JMenu setupExportMenu() {
+        JMenu exportMenu = new JMenu(Localization.getLocalizedString("ExportMenu"));
+
+        JMenuItem exportGif = new JMenuItem(Localization.getLocalizedString("ExportGIF"));
+        JMenuItem exportPng = new JMenuItem(Localization.getLocalizedString("ExportPNG"));
+        JMenuItem exportPngHighRes = new JMenuItem(Localization.getLocalizedString("ExportPNGHighRes"));
+        JMenuItem exportSvg = new JMenuItem(Localization.getLocalizedString("ExportSVG"));
+
+        exportSvg.addActionListener((ActionEvent ae) -> {
+            String filename = chooseExportFile("Scalable Vector Graphic", "svg");
+            if (filename != null && canExportTiled()) {
+                generateSVG(filename);
+            }
+        });
+
+        exportGif.addActionListener((ActionEvent ae) -> {
+            String filename = chooseExportFile("Animated GIF Image", "gif");
+            if (filename != null && canExportTiled()) {
+                generateGIF(filename);
+            }
+        });
+        exportPng.addActionListener((ActionEvent ae) -> {
+            String filename = chooseExportFile("PNG Image", "png");
+            if (filename != null && canExportTiled()) {
+                generatePNG(1.0, filename);
+            } else if (filename != null && canvas instanceof BufferedImageProvider) {
+                generatePNG((BufferedImageProvider) canvas, filename);
+            }
+        });
+        exportPngHighRes.addActionListener((ActionEvent ae) -> {
+            if (!canExportTiled()) {
+                return;
+            }
+            int canvasWidth = ((Component) canvas).getWidth();
+            String value = JOptionPane.showInputDialog(parent, Localization.getLocalizedString("ExportWidth"), Integer.toString(canvasWidth * HIGH_RES_DEFAULT_SCALE));
+            if (value == null) {
+                return;
+            }
+            try {
+                int exportWidth = Integer.parseInt(value.trim());
+                String filename = exportWidth > 0 ? chooseExportFile("PNG Image", "png") : null;
+                if (filename != null) {
+                    generatePNG((double) exportWidth / canvasWidth, filename);
+                }
+            } catch (NumberFormatException ex) {
+                org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoMenuBar.class).warn(null, ex);
+            }
+        });
+
+        if (svg != null) {
+            exportMenu.add(exportSvg);
+        }
+        exportMenu.add(exportGif);
+        exportMenu.add(exportPng);
+        exportMenu.add(exportPngHighRes);
+        if (controller instanceof LogoController && !StreamSinks.getSinks().isEmpty()) {
+            JMenuItem exportStream = new JMenuItem(Localization.getLocalizedString("ExportStream"));
+            exportStream.addActionListener((ActionEvent ae) -> {
+                String[] names = StreamSinks.getSinks().toArray(new String[0]);
+                Object name = JOptionPane.showInputDialog(parent, Localization.getLocalizedString("ExportStreamFormat"),
+                        Localization.getLocalizedString("ExportStream"), JOptionPane.QUESTION_MESSAGE, null, names, names[0]);
+                if (name == null) {
+                    return;
+                }
+                StreamSink sink = StreamSinks.getSink(name.toString());
+                String filename = chooseExportFile(name.toString(), sink.getExtension());
+                if (filename != null) {
+                    streamDrawing(sink, filename);
+                }
+            });
+            exportMenu.add(exportStream);
+        }
+        if (controller instanceof LogoController) {
+            JMenuItem exportCompiled = new JMenuItem(Localization.getLocalizedString("ExportCompiled"));
+            exportCompiled.addActionListener((ActionEvent ae) -> {
+                String filename = chooseExportFile(Localization.getLocalizedString("ExportCompiledFormat"), CompiledProgram.EXTENSION);
+                if (filename != null) {
+                    exportCompiled(filename);
+                }
+            });
+            exportMenu.add(exportCompiled);
+        }
+        exportMenu.setMnemonic('X');
+        exportSvg.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_V, InputEvent.ALT_MASK));
+        exportGif.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_G, InputEvent.ALT_MASK));
+        exportPng.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_P, InputEvent.ALT_MASK));
+        exportPngHighRes.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_P, InputEvent.ALT_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK));
+        return (exportMenu);
+    }
+
+    /**
+     * Show a slider for scrubbing back through the drawing. The panel shows
+     * the whole drawing again when the slider is at the end or the window is
+     * closed.
+     *
+     * @param panel
+     */
+    private void showTimeline(final LogoPanel panel) {
+        Window owner = parent instanceof Window ? (Window) parent : SwingUtilities.getWindowAncestor(parent);
+        final JDialog dialog = new JDialog(owner, Localization.getLocalizedString("TimelineTitle"));
+        final JSlider slider = new JSlider(0, 0, 0);
+        final JLabel label = new JLabel();
+        final Runnable update = () -> {
+            long total = panel.getBakedCommandCount() + panel.getLiveCommandCount();
+            int max = (int) Math.min(total, Integer.MAX_VALUE);
+            boolean live = panel.getScrubIndex() < 0 || slider.getValue() == slider.getMaximum();
+            slider.setMaximum(max);
+            if (live) {
+                slider.setValue(max);
+            }
+        };
+        slider.addChangeListener((ChangeEvent e) -> {
+            int value = slider.getValue();
+            label.setText(MessageFormat.format(Localization.getLocalizedString("TimelinePosition"), value, slider.getMaximum()));
+            panel.setScrubIndex(value == slider.getMaximum() ? -1 : value);
+        });
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowActivated(WindowEvent e) {
+                update.run();
+            }
+
+            @Override
+            public void windowClosed(WindowEvent e) {
+                panel.setScrubIndex(-1);
+            }
+        });
+        if (panel.getTimeline() == null) {
+            slider.setEnabled(false);
+            label.setText(Localization.getLocalizedString("TimelineUnavailable"));
+        }
+        dialog.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        dialog.getContentPane().add(slider, BorderLayout.CENTER);
+        dialog.getContentPane().add(label, BorderLayout.SOUTH);
+        update.run();
+        dialog.pack();
+        dialog.setLocationRelativeTo(parent);
+        dialog.setVisible(true);
+    }
+
+    /**
+     * Set up the tools menu.
+     *
+     * @return
+     */
+    private JMenu setupToolsMenu() {
+        toolsPenColorChooser = new JMenuItem(Localization.getLocalizedString("ToolsPenColorChooser"));
+        toolsCanvasColorChooser = new JMenuItem(Localization.getLocalizedString("ToolsCanvasColorChooser"));
+
+        toolsPenColorChooser.setMnemonic('P');
+        toolsCanvasColorChooser.setMnemonic('C');
+
+        toolsPenColorChooser.addActionListener((ActionEvent ae) -> {
+            Color selected = JColorChooser.showDialog(parent, Localization.getLocalizedString("ColorChooser"), null);
+            if (selected != null) {
+                int red = selected.getRed();
+                int green = selected.getGreen();
+                int blue = selected.getBlue();
+                String hex = String.format("#%02x%02x%02x", red, green, blue);
+                controller.insertCommand("pencolor" + " " + hex);
+            }
+        });
+        toolsCanvasColorChooser.addActionListener((ActionEvent ae) -> {
+            Color selected = JColorChooser.showDialog(parent, Localization.getLocalizedString("ColorChooser"), null);
+            if (selected != null) {
+                int red = selected.getRed();
+                int green = selected.getGreen();
+                int blue = selected.getBlue();
+                String hex = String.format("#%02x%02x%02x", red, green, blue);
+                controller.insertCommand("canvascolor" + " " + hex);
+            }
+        });
+
+        JMenu toolsMenu = new JMenu(Localization.getLocalizedString("ToolsMenu"));
+        toolsMenu.add(toolsPenColorChooser);
+        toolsMenu.add(toolsCanvasColorChooser);
+        if (canvas instanceof LogoPanel) {
+            JMenuItem toolsTimeline = new JMenuItem(Localization.getLocalizedString("ToolsTimeline"));
+            toolsTimeline.setMnemonic('T');
+            toolsTimeline.addActionListener((ActionEvent ae) -> {
+                showTimeline((LogoPanel) canvas);
+            });
+            toolsMenu.add(toolsTimeline);
+        }
+
+        toolsMenu.setMnemonic('T');
+
+        return (toolsMenu);
+    }
+}
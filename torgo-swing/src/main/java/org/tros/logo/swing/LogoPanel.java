@@ -0,0 +1,1164 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import org.tros.torgo.swing.BufferedImageProvider;
+import org.tros.logo.InstanceCache;
+import org.tros.logo.LogoCanvas;
+import org.tros.logo.TurtleGeometry;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.DataBufferInt;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.prefs.PreferenceChangeEvent;
+import java.util.prefs.PreferenceChangeListener;
+import javax.imageio.ImageIO;
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import org.apache.commons.lang3.event.EventListenerSupport;
+import org.tros.torgo.Clock;
+import org.tros.torgo.TorgoScreen;
+import org.tros.torgo.VirtualClock;
+
+import org.tros.torgo.TorgoTextConsole;
+import org.tros.torgo.interpreter.CodeBlock;
+import org.tros.torgo.interpreter.InterpreterListener;
+import org.tros.torgo.interpreter.Scope;
+import org.tros.torgo.metrics.Gauge;
+import org.tros.torgo.metrics.Metrics;
+import org.tros.torgo.swing.ZoomableComponent;
+import org.tros.utils.converters.ColorConverter;
+
+/**
+ * The Logo drawing surface. Commands are appended to a display list kept off
+ * of the heap (see {@link CommandStore}) and replayed on each paint; exports
+ * work from a copy of the list (see {@link #cloneDrawable()}) so that state
+ * between the app and export is not shared.
+ * <p>
+ * While a script runs the panel can paint in {@link RenderQuality#DRAFT},
+ * rasterizing only the commands added since the last paint. When the script
+ * finishes, the whole list is rendered once at full quality in the background
+ * and swapped in (see {@link #getRenderQualityListener()}).
+ * <p>
+ * To keep memory bounded for scripts that never stop drawing, once the display
+ * list grows past {@link #getMaxLiveCommands()} the oldest commands are
+ * flattened into a raster layer and released. Only the recent commands stay
+ * available as vectors; exports draw the raster layer for the rest.
+ * <p>
+ * Each run also records a {@link Timeline} of keyframes, so the panel can show
+ * the drawing as it was after any command (see {@link #setScrubIndex(long)}).
+ *
+ * @author matta
+ */
+public class LogoPanel extends JPanel implements TorgoScreen, LogoCanvas, BufferedImageProvider, Drawable {
+
+    public static final int DEFAULT_MAX_LIVE_COMMANDS = 1000000;
+
+    protected final EventListenerSupport<DrawListener> listeners
+            = EventListenerSupport.create(DrawListener.class);
+
+    private final TorgoTextConsole console;
+    private BufferedImage turtle;
+
+    private final Object displayLock = new Object();
+    private CommandStore store = new CommandStore(CommandStore.DEFAULT_MEMORY_BUDGET);
+    private BakedLayer baked;
+    private int maxLiveCommands;
+    private final ArrayList<Drawable> commands = new ArrayList<>();
+    private final ZoomableMixin zoom;
+    private final double scaleIncrement = 0.1;
+
+    private double scale = 1.0;
+    private TurtleState turtleState;
+    private boolean antialiasing = true;
+    private boolean rasterRendering = false;
+    private BufferedImage raster;
+    private final TurtleState rasterState = new TurtleState();
+    private long rasterCommands;
+    private CommandStore rasterStore;
+    private CommandStore.Cursor rasterCursor;
+    private int rasterGeneration = -1;
+
+    private volatile RenderQuality renderQuality = RenderQuality.FULL;
+    private volatile int generation;
+    private final RenderMetrics metrics = new RenderMetrics();
+    private final Gauge commandsGauge;
+    private final Gauge bytesGauge;
+    private final RenderQualityListener qualityListener = new RenderQualityListener();
+    private BufferedImage qualityImage;
+    private long qualityCommands;
+    private int qualityGeneration;
+    private double qualityScale;
+
+    private final java.util.prefs.Preferences prefs;
+    private final PreferenceChangeListener prefsListener;
+    private volatile boolean waitForRepaint;
+    private volatile boolean draftWhileRunning;
+    private volatile boolean qualityWhenFinished;
+    private volatile boolean recordTimeline;
+    private volatile boolean instanceProcedures;
+
+    private final InstanceCache instances = new InstanceCache();
+    private volatile boolean instancingAllowed = true;
+    private volatile boolean instancing;
+    private Timeline timeline;
+    private volatile Clock clock = Clock.getDefault();
+    private volatile long scrubIndex = -1;
+    private BufferedImage scrubImage;
+    private final TurtleState scrubState = new TurtleState();
+    private long scrubRendered = -1;
+    private int scrubGeneration;
+
+    private boolean testing = false;
+    private boolean checkTesting = false;
+    private boolean testingEx = false;
+
+    private class ZoomableMixin extends ZoomableComponent {
+
+        ZoomableMixin(JComponent component) {
+            super(component);
+        }
+
+        @Override
+        protected void zoomIn() {
+            scale += scaleIncrement;
+            repaint();
+        }
+
+        @Override
+        protected void zoomOut() {
+            if (scale - scaleIncrement > 0) {
+                scale -= scaleIncrement;
+                repaint();
+            }
+        }
+
+        @Override
+        protected void zoomReset() {
+            scale = 1.0;
+            repaint();
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param textOutput
+     */
+    public LogoPanel(TorgoTextConsole textOutput) {
+        console = textOutput;
+        turtleState = new TurtleState();
+        turtleState.penup = false;
+        turtleState.showTurtle = true;
+        URL resource = ClassLoader.getSystemClassLoader().getResource("turtle.png");
+        try {
+            turtle = ImageIO.read(resource);
+        } catch (IOException ex) {
+            org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoPanel.class).fatal(null, ex);
+        }
+        zoom = new ZoomableMixin((JComponent) this);
+        prefs = java.util.prefs.Preferences.userNodeForPackage(LogoMenuBar.class);
+        prefsListener = (PreferenceChangeEvent evt) -> {
+            if (LogoMenuBar.MAX_LIVE_COMMANDS.equals(evt.getKey())) {
+                setMaxLiveCommands(prefs.getInt(LogoMenuBar.MAX_LIVE_COMMANDS, DEFAULT_MAX_LIVE_COMMANDS));
+            } else {
+                readPreferences();
+            }
+        };
+        maxLiveCommands = prefs.getInt(LogoMenuBar.MAX_LIVE_COMMANDS, DEFAULT_MAX_LIVE_COMMANDS);
+        readPreferences();
+
+        commandsGauge = new Gauge(() -> getBakedCommandCount() + getLiveCommandCount());
+        bytesGauge = new Gauge(this::getLiveCommandBytes);
+    }
+
+    public void testZoom() {
+        double tempScale = scale;
+        zoom.zoomIn();
+        zoom.zoomOut();
+        zoom.zoomReset();
+        scale = 0.1;
+        zoom.zoomOut();
+    }
+
+    @Override
+    public void addListener(DrawListener listener) {
+        listeners.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(DrawListener listener) {
+        listeners.removeListener(listener);
+    }
+
+    /**
+     * Paint.
+     *
+     * @param g
+     */
+    @Override
+    public void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        metrics.painted();
+
+        Graphics2D g2d = (Graphics2D) g;
+
+        turtleState.width = getWidth();
+        turtleState.height = getHeight();
+        double x2 = (getWidth() / 2.0 - (getWidth() * scale / 2.0));
+        double y2 = (getHeight() / 2.0 - (getHeight() * scale / 2.0));
+        AffineTransform saveXform2 = g2d.getTransform();
+
+        AffineTransform translateInstance2 = AffineTransform.getTranslateInstance(x2, y2);
+        translateInstance2.scale(scale, scale);
+        g2d.setTransform(translateInstance2);
+
+//        g2d.translate(x2, y2);
+//        g2d.scale(scale, scale);
+        TurtleState shown = turtleState;
+        BufferedImage scrub = scrubIndex >= 0 ? renderScrub() : null;
+        if (scrub != null) {
+            g2d.drawImage(scrub, 0, 0, null);
+            shown = scrubState;
+        } else if (isQualityImageCurrent()) {
+            metrics.cachedFrame();
+            g2d.setTransform(new AffineTransform());
+            g2d.drawImage(qualityImage, 0, 0, null);
+            g2d.setTransform(translateInstance2);
+        } else if (renderQuality == RenderQuality.DRAFT) {
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+            metrics.draftFrame();
+            g2d.drawImage(renderRaster(), 0, 0, null);
+        } else if (isRasterRendering()) {
+            metrics.fullFrame();
+            g2d.drawImage(renderRaster(), 0, 0, null);
+        } else {
+            metrics.fullFrame();
+            draw(g2d, turtleState);
+        }
+
+        if (shown.showTurtle) {
+            double x = shown.penX - (turtle.getWidth() / 2.0);
+            double y = shown.penY - (turtle.getHeight() / 2.0);
+            AffineTransform translateInstance = AffineTransform.getRotateInstance(shown.angle + (Math.PI / 2.0), shown.penX, shown.penY);
+            AffineTransform saveXform = g2d.getTransform();
+            g2d.transform(translateInstance);
+            g2d.drawImage(turtle, (int) x, (int) y, null);
+            g2d.setTransform(saveXform);
+        }
+        g2d.setTransform(saveXform2);
+    }
+
+    /**
+     * Bring the raster buffer up to date with the display list. The buffer is
+     * kept between paints, so only commands added since the last paint are
+     * rasterized; it is redrawn from the start when the panel is resized or
+     * reset.
+     *
+     * @return
+     */
+    private BufferedImage renderRaster() {
+        int w = Math.max(1, getWidth());
+        int h = Math.max(1, getHeight());
+        BakedLayer layer;
+        CommandStore live;
+        int gen;
+        synchronized (displayLock) {
+            layer = baked;
+            live = store;
+            gen = generation;
+        }
+        long bakedCount = layer == null ? 0 : layer.getCommandCount();
+        long liveCount = live.size();
+        long count = bakedCount + liveCount;
+        boolean redraw = rasterGeneration != gen || rasterCommands < bakedCount || rasterCommands > count;
+        if (raster == null || raster.getWidth() != w || raster.getHeight() != h) {
+            raster = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            redraw = true;
+        }
+        PanelRasterSink sink = new PanelRasterSink(raster);
+        if (redraw) {
+            Arrays.fill(((DataBufferInt) raster.getRaster().getDataBuffer()).getData(), getBackground().getRGB());
+            rasterState.set(new TurtleState());
+            rasterState.width = getWidth();
+            rasterState.height = getHeight();
+            if (layer != null) {
+                layer.render(sink, rasterState);
+            }
+            rasterCommands = bakedCount;
+            rasterGeneration = gen;
+            rasterStore = live;
+            rasterCursor = live.cursor(0);
+        } else if (rasterStore != live) {
+            //commands were flattened; pick up at the same command in the new
+            //store.
+            rasterStore = live;
+            rasterCursor = live.cursor();
+            rasterCursor.skip(rasterCommands - bakedCount);
+        }
+        rasterCursor.setLimit(liveCount);
+        while (rasterCursor.next()) {
+            rasterCursor.render(sink, rasterState);
+            listeners.fire().drawn(this);
+        }
+        metrics.rasterized(count - rasterCommands);
+        rasterCommands = count;
+        turtleState.set(rasterState);
+        return raster;
+    }
+
+    /**
+     * Draw the drawing as it was at the scrub position. The image is kept
+     * until the position, size or display list changes.
+     *
+     * @return null if there is no timeline to seek in.
+     */
+    private BufferedImage renderScrub() {
+        Timeline t;
+        DisplayList list;
+        int gen;
+        synchronized (displayLock) {
+            t = timeline;
+            list = new DisplayList(baked, store, store.size());
+            gen = generation;
+        }
+        if (t == null) {
+            return null;
+        }
+        int w = Math.max(1, getWidth());
+        int h = Math.max(1, getHeight());
+        long index = scrubIndex;
+        boolean redraw = scrubRendered != index || scrubGeneration != gen;
+        if (scrubImage == null || scrubImage.getWidth() != w || scrubImage.getHeight() != h) {
+            scrubImage = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            redraw = true;
+        }
+        if (redraw) {
+            t.seek(index, list, scrubImage, scrubState);
+            scrubRendered = index;
+            scrubGeneration = gen;
+        }
+        return scrubImage;
+    }
+
+    /**
+     * Check if the last background quality render still matches what would
+     * be painted.
+     *
+     * @return
+     */
+    private boolean isQualityImageCurrent() {
+        return qualityImage != null
+                && qualityGeneration == generation
+                && qualityCommands == getBakedCommandCount() + getLiveCommandCount()
+                && qualityScale == scale
+                && qualityImage.getWidth() == Math.max(1, getWidth())
+                && qualityImage.getHeight() == Math.max(1, getHeight());
+    }
+
+    /**
+     * Render the display list at full quality on a background thread, then
+     * swap the result in on the event thread and leave draft mode. The result
+     * is painted until the display list, size or zoom of the panel changes.
+     *
+     * @return the started thread.
+     */
+    public Thread renderFullQuality() {
+        final DisplayList snapshot = cloneDrawable();
+        final int gen = generation;
+        final int w = Math.max(1, getWidth());
+        final int h = Math.max(1, getHeight());
+        final double s = scale;
+        final Color background = getBackground();
+        final boolean useRaster = isRasterRendering();
+        final boolean aa = antialiasing;
+        Thread t = new Thread(() -> {
+            long start = System.nanoTime();
+            BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            TurtleState ts = new TurtleState();
+            ts.width = w;
+            ts.height = h;
+            double tx = w / 2.0 - (w * s / 2.0);
+            double ty = h / 2.0 - (h * s / 2.0);
+            if (useRaster) {
+                Arrays.fill(((DataBufferInt) image.getRaster().getDataBuffer()).getData(), background.getRGB());
+                RasterSink sink = new RasterSink(image);
+                sink.setTransform(s, tx, ty);
+                snapshot.render(sink, ts);
+            } else {
+                Graphics2D g2 = image.createGraphics();
+                g2.setColor(background);
+                g2.fillRect(0, 0, w, h);
+                g2.translate(tx, ty);
+                g2.scale(s, s);
+                g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                Graphics2DSink sink = new Graphics2DSink(g2);
+                sink.setAntialiasing(aa);
+                snapshot.render(sink, ts);
+                g2.dispose();
+            }
+            final long nanos = System.nanoTime() - start;
+            SwingUtilities.invokeLater(() -> {
+                metrics.qualityRender(nanos);
+                if (gen == generation) {
+                    qualityImage = image;
+                    qualityCommands = snapshot.getBakedCount() + snapshot.size();
+                    qualityGeneration = gen;
+                    qualityScale = s;
+                    turtleState.set(ts);
+                    renderQuality = RenderQuality.FULL;
+                    LogoPanel.super.repaint();
+                }
+                org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoPanel.class).debug("Quality render of {0} commands: {1} ms ({2})", snapshot.size(), nanos / 1000000L, metrics);
+            });
+        }, "LogoPanel-quality");
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    /**
+     *
+     * @param g2d
+     * @param turtleState
+     */
+    @Override
+    public void draw(Graphics2D g2d, TurtleState turtleState) {
+        PanelSink sink = new PanelSink(g2d);
+        sink.setAntialiasing(antialiasing);
+        render(sink, turtleState);
+    }
+
+    @Override
+    public void render(DrawingSink sink, TurtleState turtleState) {
+        if (turtleState.width <= 0) {
+            turtleState.width = getWidth();
+        }
+        if (turtleState.height <= 0) {
+            turtleState.height = getHeight();
+        }
+        BakedLayer layer;
+        CommandStore.Cursor cursor;
+        synchronized (displayLock) {
+            layer = baked;
+            cursor = store.cursor();
+        }
+        if (layer != null) {
+            layer.render(sink, turtleState);
+        }
+        while (cursor.next()) {
+            cursor.render(sink, turtleState);
+            listeners.fire().drawn(this);
+        }
+    }
+
+    /**
+     * Paints to the screen and keeps the panel background in sync with the
+     * drawing.
+     */
+    private final class PanelSink extends Graphics2DSink {
+
+        PanelSink(Graphics2D g2) {
+            super(g2);
+        }
+
+        @Override
+        public void clear(double width, double height) {
+            LogoPanel.this.setBackground(Color.white);
+            super.clear(width, height);
+        }
+
+        @Override
+        public void canvasColor(Color color) {
+            LogoPanel.this.setBackground(color);
+        }
+    }
+
+    /**
+     * Same as {@link PanelSink} for the raster renderer.
+     */
+    private final class PanelRasterSink extends RasterSink {
+
+        PanelRasterSink(BufferedImage image) {
+            super(image);
+        }
+
+        @Override
+        public void clear(double width, double height) {
+            LogoPanel.this.setBackground(Color.white);
+            super.clear(width, height);
+        }
+
+        @Override
+        public void canvasColor(Color color) {
+            LogoPanel.this.setBackground(color);
+        }
+    }
+
+    /**
+     * Set how many commands are kept as vectors before the oldest are
+     * flattened into the raster layer. When the limit is passed, the oldest
+     * commands are flattened until half of the limit remains, so this does not
+     * happen on every command.
+     *
+     * @param maxLiveCommands the limit, zero or less for no limit.
+     */
+    public void setMaxLiveCommands(int maxLiveCommands) {
+        this.maxLiveCommands = maxLiveCommands;
+    }
+
+    /**
+     * Get how many commands are kept as vectors.
+     *
+     * @return
+     */
+    public int getMaxLiveCommands() {
+        return maxLiveCommands;
+    }
+
+    /**
+     * Get the number of commands that have been flattened into the raster
+     * layer.
+     *
+     * @return
+     */
+    public long getBakedCommandCount() {
+        synchronized (displayLock) {
+            return baked == null ? 0 : baked.getCommandCount();
+        }
+    }
+
+    /**
+     * Get the number of commands kept as vectors.
+     *
+     * @return
+     */
+    public long getLiveCommandCount() {
+        synchronized (displayLock) {
+            return store.size();
+        }
+    }
+
+    /**
+     * Get the number of bytes used by the commands kept as vectors.
+     *
+     * @return
+     */
+    public long getLiveCommandBytes() {
+        synchronized (displayLock) {
+            return store.getByteCount();
+        }
+    }
+
+    /**
+     * Set the clock that pauses wait on. With a {@link VirtualClock}, pauses
+     * return immediately; they are still in the display list, so animated
+     * exports show them.
+     *
+     * @param clock
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Get the clock that pauses wait on.
+     *
+     * @return
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Get the timeline recorded for the current run.
+     *
+     * @return null if the panel had no size when the run started or the
+     * timeline is turned off.
+     */
+    public Timeline getTimeline() {
+        synchronized (displayLock) {
+            return timeline;
+        }
+    }
+
+    /**
+     * Show the drawing as it was after a number of commands instead of as it
+     * is now. Seeking is done from the nearest keyframe of the timeline, so
+     * this is quick however large the drawing is.
+     *
+     * @param index the number of commands to show, less than zero to show
+     * the whole drawing again.
+     */
+    public void setScrubIndex(long index) {
+        scrubIndex = index < 0 ? -1 : index;
+        repaint();
+    }
+
+    /**
+     * Get the number of commands being shown.
+     *
+     * @return -1 if the whole drawing is shown.
+     */
+    public long getScrubIndex() {
+        return scrubIndex;
+    }
+
+    /**
+     * Set how the panel is painted.
+     *
+     * @param renderQuality
+     */
+    public void setRenderQuality(RenderQuality renderQuality) {
+        this.renderQuality = renderQuality;
+    }
+
+    /**
+     * Get how the panel is painted.
+     *
+     * @return
+     */
+    public RenderQuality getRenderQuality() {
+        return renderQuality;
+    }
+
+    /**
+     * Get the paint counters for this panel.
+     *
+     * @return
+     */
+    public RenderMetrics getRenderMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Get the listener that switches this panel to draft quality while a
+     * script runs and back to full quality when it finishes. Both are
+     * controlled by the Logo preferences.
+     *
+     * @return
+     */
+    public InterpreterListener getRenderQualityListener() {
+        return qualityListener;
+    }
+
+    /**
+     * Turn antialiasing on or off for this canvas.
+     *
+     * @param antialiasing
+     */
+    public void setAntialiasing(boolean antialiasing) {
+        this.antialiasing = antialiasing;
+    }
+
+    /**
+     * Check if antialiasing is on.
+     *
+     * @return
+     */
+    public boolean isAntialiasing() {
+        return antialiasing;
+    }
+
+    /**
+     * Draw this canvas with the direct raster renderer ({@link RasterSink})
+     * instead of Java2D. The raster renderer does not antialias but is much
+     * faster.
+     *
+     * @param rasterRendering
+     */
+    public void setRasterRendering(boolean rasterRendering) {
+        this.rasterRendering = rasterRendering;
+    }
+
+    /**
+     * Check if the raster renderer is used. It is used if it was selected,
+     * and always when running headless with antialiasing off.
+     *
+     * @return
+     */
+    public boolean isRasterRendering() {
+        return rasterRendering || (GraphicsEnvironment.isHeadless() && !antialiasing);
+    }
+
+    /**
+     * Get a copy of the display list.
+     *
+     * @return
+     */
+    @Override
+    public DisplayList cloneDrawable() {
+        synchronized (displayLock) {
+            return new DisplayList(baked, store, store.size());
+        }
+    }
+
+    @Override
+    public void pause(final int time) {
+        submitCommand(new DrawCommand(DrawCommand.Op.PAUSE, time));
+        try {
+            clock.sleep(time);
+        } catch (InterruptedException ex) {
+            org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoPanel.class).fatal(null, ex);
+        }
+    }
+
+    @Override
+    public void forward(final double distance) {
+        submitCommand(new DrawCommand(DrawCommand.Op.FORWARD, distance));
+    }
+
+    private void submitCommand(DrawCommand command) {
+        if (testing) {
+            DrawListener listener = new DrawListenerImpl();
+            command.addListener(listener);
+            command.removeListener(listener);
+            Drawable clone = command.cloneDrawable();
+            testing = false;
+            checkTesting = true;
+        }
+        synchronized (displayLock) {
+            store.append(command);
+            if (timeline != null) {
+                timeline.record(command, store);
+            }
+            if (maxLiveCommands > 0 && store.size() > maxLiveCommands) {
+                bake(store.size() - maxLiveCommands / 2);
+            }
+        }
+    }
+
+    /**
+     * Flatten the oldest commands into the raster layer and move the rest
+     * to a new store, releasing the old one. Nothing is flattened until the
+     * panel has a size.
+     *
+     * @param count
+     */
+    private void bake(long count) {
+        int w = getWidth();
+        int h = getHeight();
+        if (w <= 0 || h <= 0) {
+            return;
+        }
+        CommandStore.Cursor cursor = store.cursor();
+        baked = BakedLayer.bake(baked, cursor, count, w, h, antialiasing);
+        CommandStore tail = new CommandStore(CommandStore.DEFAULT_MEMORY_BUDGET);
+        while (cursor.next()) {
+            tail.append(cursor.getOp(), cursor.getX(), cursor.getY(), cursor.getValue());
+        }
+        closeStore();
+        store = tail;
+        org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoPanel.class).debug("{0} commands flattened, {1} live", baked.getCommandCount(), store.size());
+    }
+
+    /**
+     * Close the current store. Copies of the display list that still use it
+     * keep working.
+     */
+    private void closeStore() {
+        try {
+            store.close();
+        } catch (IOException ex) {
+            org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoPanel.class).warn(null, ex);
+        }
+    }
+
+    @Override
+    public void backward(final double distance) {
+        submitCommand(new DrawCommand(DrawCommand.Op.BACKWARD, distance));
+    }
+
+    @Override
+    public void left(final double angle) {
+        submitCommand(new DrawCommand(DrawCommand.Op.LEFT, angle));
+    }
+
+    @Override
+    public void right(final double angle) {
+        submitCommand(new DrawCommand(DrawCommand.Op.RIGHT, angle));
+    }
+
+    @Override
+    public void setXY(final double x, final double y) {
+        submitCommand(new DrawCommand(DrawCommand.Op.SET_XY, x, y));
+    }
+
+    @Override
+    public void penUp() {
+        submitCommand(new DrawCommand(DrawCommand.Op.PEN_UP));
+    }
+
+    @Override
+    public void penDown() {
+        submitCommand(new DrawCommand(DrawCommand.Op.PEN_DOWN));
+    }
+
+    @Override
+    public void clear() {
+        DrawCommand command = new DrawCommand(DrawCommand.Op.CLEAR);
+        if (testingEx) {
+            try {
+                command.render(new Graphics2DSink(null), turtleState);
+            } catch (NullPointerException ex) {
+                testingEx = false;
+                checkTesting = true;
+            }
+        }
+        submitCommand(command);
+    }
+
+    @Override
+    public void home() {
+        submitCommand(new DrawCommand(DrawCommand.Op.HOME));
+    }
+
+    @Override
+    public void canvascolor(int red, int green, int blue) {
+        red = Math.min(255, Math.max(0, red));
+        green = Math.min(255, Math.max(0, green));
+        blue = Math.min(255, Math.max(0, blue));
+
+        Color canvasColor = new Color(red, green, blue);
+        canvascolor(canvasColor);
+    }
+
+    @Override
+    public void canvascolor(final String color) {
+        canvascolor(getColorByName(color));
+    }
+
+    private void canvascolor(final Color color) {
+        submitCommand(new DrawCommand(DrawCommand.Op.CANVAS_COLOR, color));
+    }
+
+    public void testCanvasColor() {
+        canvascolor(Color.yellow);
+    }
+
+    @Override
+    public void pencolor(int red, int green, int blue, int alpha) {
+        red = Math.min(255, Math.max(0, red));
+        green = Math.min(255, Math.max(0, green));
+        blue = Math.min(255, Math.max(0, blue));
+
+        Color pencolor = new Color(red, green, blue, alpha);
+        pencolor(pencolor);
+    }
+
+    private void pencolor(final Color color) {
+        submitCommand(new DrawCommand(DrawCommand.Op.PEN_COLOR, color));
+    }
+
+    @Override
+    public void pencolor(final String color) {
+        pencolor(getColorByName(color));
+    }
+
+    public void testPenColor() {
+        pencolor(Color.yellow);
+    }
+
+    private Color getColorByName(String color) {
+        return ColorConverter.getColorByName(color);
+    }
+
+    @Override
+    public void drawString(final String message) {
+        submitCommand(new DrawCommand(DrawCommand.Op.DRAW_STRING, message));
+    }
+
+    @Override
+    public void fontSize(final int size) {
+        submitCommand(new DrawCommand(DrawCommand.Op.FONT_SIZE, size));
+    }
+
+    @Override
+    public void fontName(final String fontFace) {
+        submitCommand(new DrawCommand(DrawCommand.Op.FONT_NAME, fontFace));
+    }
+
+    @Override
+    public void fontStyle(final int style) {
+        submitCommand(new DrawCommand(DrawCommand.Op.FONT_STYLE, style));
+    }
+
+    @Override
+    public BufferedImage getBufferedImage() {
+        BufferedImage buffer = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
+        if (isRasterRendering()) {
+            render(new RasterSink(buffer), turtleState);
+        } else {
+            Graphics2D g2d = (Graphics2D) buffer.createGraphics();
+            draw(g2d, turtleState);
+        }
+        return buffer;
+    }
+
+    @Override
+    public void hideTurtle() {
+        submitCommand(new DrawCommand(DrawCommand.Op.HIDE_TURTLE));
+    }
+
+    @Override
+    public void showTurtle() {
+        submitCommand(new DrawCommand(DrawCommand.Op.SHOW_TURTLE));
+    }
+
+    @Override
+    public void message(String message) {
+        message = message.trim();
+        console.appendToOutputTextArea(message + System.getProperty("line.separator"));
+    }
+
+    @Override
+    public void warning(String message) {
+        message = message.trim();
+        console.appendToOutputTextArea(">> " + message + System.getProperty("line.separator"));
+    }
+
+    @Override
+    public double getTurtleX() {
+        return turtleState.penX;
+    }
+
+    @Override
+    public double getTurtleY() {
+        return turtleState.penY;
+    }
+
+    @Override
+    public double getTurtleAngle() {
+        return turtleState.angle;
+    }
+
+    /**
+     * Allow repeated procedure calls to be stamped from the instance cache,
+     * if that is turned on in the options. Stepping through a script needs
+     * every statement, so the debugger turns this off.
+     *
+     * @param instancing
+     */
+    public void setInstancing(boolean instancing) {
+        instancingAllowed = instancing;
+        this.instancing = instancing && instanceProcedures;
+    }
+
+    /**
+     * Check to see if repeated procedure calls are stamped.
+     *
+     * @return
+     */
+    public boolean isInstancing() {
+        return instancing;
+    }
+
+    @Override
+    public InstanceCache getInstanceCache() {
+        return instancing ? instances : null;
+    }
+
+    @Override
+    public void drawInstance(TurtleGeometry geometry) {
+        submitCommand(new DrawCommand(DrawCommand.Op.INSTANCE, geometry));
+    }
+
+    @Override
+    public final void reset() {
+        turtleState.penup = false;
+        turtleState.showTurtle = true;
+        synchronized (displayLock) {
+            generation++;
+            qualityImage = null;
+            baked = null;
+            closeStore();
+            store = new CommandStore(CommandStore.DEFAULT_MEMORY_BUDGET);
+            if (timeline != null) {
+                timeline.dispose();
+            }
+            timeline = getWidth() > 0 && getHeight() > 0 && recordTimeline
+                    ? new Timeline(getWidth(), getHeight(), antialiasing)
+                    : null;
+            scrubIndex = -1;
+        }
+        instances.clear();
+        if (clock instanceof VirtualClock) {
+            ((VirtualClock) clock).reset();
+        }
+        commands.clear();
+        clear();
+        home();
+        repaint();
+    }
+
+    @Override
+    public void repaint() {
+        //called by the Swing constructors, before the metrics are made.
+        if (metrics != null) {
+            metrics.repaintRequested();
+        }
+        if (SwingUtilities.isEventDispatchThread()) {
+            LogoPanel.super.repaint();
+        } else {
+            if (waitForRepaint) {
+                try {
+                    if (testingEx) {
+                        throw new InterruptedException();
+                    }
+                    SwingUtilities.invokeAndWait(LogoPanel.super::repaint);
+                } catch (InterruptedException | InvocationTargetException ex) {
+                    testingEx = false;
+                    checkTesting = true;
+                    org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoPanel.class).fatal(null, ex);
+                }
+            } else {
+                SwingUtilities.invokeLater(LogoPanel.super::repaint);
+            }
+        }
+    }
+
+    /**
+     * Read the options set from the menu bar. They are kept in fields since
+     * some are checked on every command.
+     */
+    private void readPreferences() {
+        waitForRepaint = prefs.getBoolean(LogoMenuBar.WAIT_FOR_REPAINT, true);
+        draftWhileRunning = prefs.getBoolean(LogoMenuBar.DRAFT_WHILE_RUNNING, true);
+        qualityWhenFinished = prefs.getBoolean(LogoMenuBar.QUALITY_WHEN_FINISHED, true);
+        recordTimeline = prefs.getBoolean(LogoMenuBar.RECORD_TIMELINE, true);
+        instanceProcedures = prefs.getBoolean(LogoMenuBar.INSTANCE_PROCEDURES, true);
+        instancing = instancingAllowed && instanceProcedures;
+    }
+
+    /**
+     * Follow changes to the options and report the metrics of this panel
+     * while it is showing.
+     */
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        readPreferences();
+        prefs.addPreferenceChangeListener(prefsListener);
+        metrics.register();
+        Metrics.register("display.commands", commandsGauge);
+        Metrics.register("display.bytes", bytesGauge);
+    }
+
+    /**
+     * Stop following the options and reporting metrics; the preference node
+     * and the metrics would otherwise keep the panel alive.
+     */
+    @Override
+    public void removeNotify() {
+        prefs.removePreferenceChangeListener(prefsListener);
+        metrics.unregister();
+        Metrics.unregister("display.commands", commandsGauge);
+        Metrics.unregister("display.bytes", bytesGauge);
+        super.removeNotify();
+    }
+
+    @Override
+    public Component getComponent() {
+        return this;
+    }
+
+    /**
+     * For testing nested drawable classes.
+     */
+    public void setTesting() {
+        testing = true;
+        checkTesting = false;
+    }
+
+    /**
+     * For testing exception handling.
+     */
+    public void setTestingEx() {
+        testingEx = true;
+        checkTesting = false;
+    }
+
+    public boolean getTestCheck() {
+        return checkTesting;
+    }
+
+    public void testDrawListener() {
+        DrawListenerImpl listener = new DrawListenerImpl();
+        listener.drawn(null);
+    }
+
+    /**
+     * Switches between draft and full quality as scripts start and finish.
+     */
+    private final class RenderQualityListener implements InterpreterListener {
+
+        @Override
+        public void started() {
+            //a quality render that is still running belongs to the last run.
+            synchronized (displayLock) {
+                generation++;
+            }
+            if (draftWhileRunning) {
+                renderQuality = RenderQuality.DRAFT;
+            }
+        }
+
+        @Override
+        public void finished() {
+            org.tros.utils.logging.Logging.getLogFactory().getLogger(LogoPanel.class).debug("Procedure instances: {0}", instances);
+            if (qualityWhenFinished) {
+                renderFullQuality();
+            } else {
+                renderQuality = RenderQuality.FULL;
+                repaint();
+            }
+        }
+
+        @Override
+        public void error(Exception e) {
+            //leave draft mode so the partial drawing is shown in full.
+            finished();
+        }
+
+        @Override
+        public void message(String msg) {
+        }
+
+        @Override
+        public void currStatement(CodeBlock block, Scope scope) {
+        }
+    }
+
+    private static class DrawListenerImpl implements DrawListener {
+
+        @Override
+        public void drawn(Drawable sender) {
+        }
+    }
+}
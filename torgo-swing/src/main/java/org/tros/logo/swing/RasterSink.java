@@ -0,0 +1,426 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Draws primitives straight into the pixels of an int packed image, skipping
+ * the Java2D pipeline. Lines are one pixel wide and not antialiased
+ * (Bresenham, after clipping to the image), pen colors with alpha are blended
+ * over what is already there, and text is drawn from a cache of glyph masks.
+ * Only scaling and translation are supported, which is all the canvas and
+ * the exporters need.
+ *
+ * @author matta
+ */
+public class RasterSink implements DrawingSink {
+
+    private static final int OPAQUE = 0xff000000;
+    private static final int GLYPH_CACHE_SIZE = 2048;
+    private static final FontRenderContext FRC = new FontRenderContext(null, false, false);
+    private static final ConcurrentHashMap<GlyphKey, Glyph> GLYPHS = new ConcurrentHashMap<>();
+
+    private final int[] pixels;
+    private final int width;
+    private final int height;
+    private final int stride;
+    private double scale = 1.0;
+    private double translateX;
+    private double translateY;
+    private Font defaultFont = new Font(null, 0, 12);
+
+    /**
+     * A rendered character.
+     */
+    private static final class Glyph {
+
+        private final int x;
+        private final int y;
+        private final int width;
+        private final int height;
+        private final byte[] mask;
+        private final double advance;
+
+        Glyph(int x, int y, int width, int height, byte[] mask, double advance) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.mask = mask;
+            this.advance = advance;
+        }
+    }
+
+    /**
+     * Glyph cache key.
+     */
+    private static final class GlyphKey {
+
+        private final Font font;
+        private final int codePoint;
+
+        GlyphKey(Font font, int codePoint) {
+            this.font = font;
+            this.codePoint = codePoint;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof GlyphKey)) {
+                return false;
+            }
+            GlyphKey other = (GlyphKey) obj;
+            return codePoint == other.codePoint && font.equals(other.font);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(font, codePoint);
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param image an image backed by a single int packed buffer, such as
+     * TYPE_INT_RGB or TYPE_INT_ARGB.
+     */
+    public RasterSink(BufferedImage image) {
+        if (!(image.getRaster().getDataBuffer() instanceof DataBufferInt)
+                || !(image.getSampleModel() instanceof SinglePixelPackedSampleModel)
+                || image.getRaster().getParent() != null) {
+            throw new IllegalArgumentException("Image must be backed by an int packed buffer.");
+        }
+        this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.stride = ((SinglePixelPackedSampleModel) image.getSampleModel()).getScanlineStride();
+    }
+
+    /**
+     * Map drawing coordinates to pixels as (x * scale + translateX, y * scale
+     * + translateY).
+     *
+     * @param scale
+     * @param translateX
+     * @param translateY
+     */
+    public void setTransform(double scale, double translateX, double translateY) {
+        this.scale = scale;
+        this.translateX = translateX;
+        this.translateY = translateY;
+    }
+
+    /**
+     * Set the font used for text before any font has been set on the turtle.
+     *
+     * @param font
+     */
+    public void setDefaultFont(Font font) {
+        this.defaultFont = font;
+    }
+
+    @Override
+    public void line(double x1, double y1, double x2, double y2, Color color) {
+        int argb = color.getRGB();
+        int alpha = argb >>> 24;
+        if (alpha == 0) {
+            return;
+        }
+        long x0 = toPixel(x1 * scale + translateX);
+        long y0 = toPixel(y1 * scale + translateY);
+        long xe = toPixel(x2 * scale + translateX);
+        long ye = toPixel(y2 * scale + translateY);
+        if (Math.abs(xe - x0) >= Math.abs(ye - y0)) {
+            if (xe < x0) {
+                xMajor(xe, ye, x0, y0, argb, alpha);
+            } else {
+                xMajor(x0, y0, xe, ye, argb, alpha);
+            }
+        } else if (ye < y0) {
+            yMajor(xe, ye, x0, y0, argb, alpha);
+        } else {
+            yMajor(x0, y0, xe, ye, argb, alpha);
+        }
+    }
+
+    /**
+     * Clamp so that the arithmetic below cannot overflow; anything this far
+     * off the image is degenerate anyway.
+     */
+    private static long toPixel(double v) {
+        final double limit = 1 << 30;
+        return (long) Math.floor(Math.max(-limit, Math.min(limit, v)));
+    }
+
+    /**
+     * Bresenham along x, with x0 &lt;= x1 and a slope of at most one. The
+     * minor coordinate of each pixel only depends on the end points, so the
+     * line is clipped by starting the error term part way along it. This
+     * keeps lines split across export tiles identical to unsplit ones.
+     */
+    private void xMajor(long x0, long y0, long x1, long y1, int argb, int alpha) {
+        long dx = x1 - x0;
+        long ady = Math.abs(y1 - y0);
+        int sy = y1 < y0 ? -1 : 1;
+        long start = Math.max(x0, 0);
+        long end = Math.min(x1, width - 1);
+        long den = 2 * dx + 1;
+        long q = (start - x0) * 2 * ady + dx;
+        long minor = q / den;
+        long rem = q % den;
+        for (long x = start; x <= end; x++) {
+            long y = y0 + sy * minor;
+            if (y >= 0 && y < height) {
+                plot((int) y * stride + (int) x, argb, alpha);
+            }
+            rem += 2 * ady;
+            if (rem >= den) {
+                rem -= den;
+                minor++;
+            }
+        }
+    }
+
+    /**
+     * Bresenham along y, see {@link #xMajor}.
+     */
+    private void yMajor(long x0, long y0, long x1, long y1, int argb, int alpha) {
+        long dy = y1 - y0;
+        long adx = Math.abs(x1 - x0);
+        int sx = x1 < x0 ? -1 : 1;
+        long start = Math.max(y0, 0);
+        long end = Math.min(y1, height - 1);
+        long den = 2 * dy + 1;
+        long q = (start - y0) * 2 * adx + dy;
+        long minor = q / den;
+        long rem = q % den;
+        for (long y = start; y <= end; y++) {
+            long x = x0 + sx * minor;
+            if (x >= 0 && x < width) {
+                plot((int) y * stride + (int) x, argb, alpha);
+            }
+            rem += 2 * adx;
+            if (rem >= den) {
+                rem -= den;
+                minor++;
+            }
+        }
+    }
+
+    /**
+     * Source-over of a color onto an opaque pixel.
+     */
+    private static int blend(int dst, int src, int alpha) {
+        int inv = 255 - alpha;
+        int r = (((src >> 16) & 0xff) * alpha + ((dst >> 16) & 0xff) * inv) / 255;
+        int g = (((src >> 8) & 0xff) * alpha + ((dst >> 8) & 0xff) * inv) / 255;
+        int b = ((src & 0xff) * alpha + (dst & 0xff) * inv) / 255;
+        return OPAQUE | r << 16 | g << 8 | b;
+    }
+
+    @Override
+    public void text(String text, double x, double y, double angle, Font font, Color color) {
+        Font f = font != null ? font : defaultFont;
+        if (scale != 1.0) {
+            f = f.deriveFont((float) (f.getSize2D() * scale));
+        }
+        int argb = color.getRGB();
+        int alpha = argb >>> 24;
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        //text is drawn from whole coordinates, the same as Graphics2D.drawString.
+        double penX = (int) x * scale + translateX;
+        double penY = (int) y * scale + translateY;
+        for (int ii = 0; ii < text.length();) {
+            int cp = text.codePointAt(ii);
+            ii += Character.charCount(cp);
+            Glyph glyph = getGlyph(f, cp);
+            if (angle == 0) {
+                blit(glyph, (int) Math.round(penX), (int) Math.round(penY), argb, alpha);
+            } else {
+                blitRotated(glyph, penX, penY, cos, sin, argb, alpha);
+            }
+            penX += glyph.advance * cos;
+            penY += glyph.advance * sin;
+        }
+    }
+
+    private void blit(Glyph glyph, int ox, int oy, int argb, int alpha) {
+        int x0 = Math.max(0, ox + glyph.x);
+        int y0 = Math.max(0, oy + glyph.y);
+        int x1 = Math.min(width, ox + glyph.x + glyph.width);
+        int y1 = Math.min(height, oy + glyph.y + glyph.height);
+        for (int py = y0; py < y1; py++) {
+            int row = (py - oy - glyph.y) * glyph.width - ox - glyph.x;
+            for (int px = x0; px < x1; px++) {
+                if (glyph.mask[row + px] != 0) {
+                    plot(py * stride + px, argb, alpha);
+                }
+            }
+        }
+    }
+
+    private void blitRotated(Glyph glyph, double ox, double oy, double cos, double sin, int argb, int alpha) {
+        //bounds of the rotated glyph box.
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (int corner = 0; corner < 4; corner++) {
+            double gx = glyph.x + ((corner & 1) == 0 ? 0 : glyph.width);
+            double gy = glyph.y + ((corner & 2) == 0 ? 0 : glyph.height);
+            double rx = ox + gx * cos - gy * sin;
+            double ry = oy + gx * sin + gy * cos;
+            minX = Math.min(minX, rx);
+            minY = Math.min(minY, ry);
+            maxX = Math.max(maxX, rx);
+            maxY = Math.max(maxY, ry);
+        }
+        int x0 = Math.max(0, (int) Math.floor(minX));
+        int y0 = Math.max(0, (int) Math.floor(minY));
+        int x1 = Math.min(width - 1, (int) Math.ceil(maxX));
+        int y1 = Math.min(height - 1, (int) Math.ceil(maxY));
+        //sample the mask at the center of each covered pixel.
+        for (int py = y0; py <= y1; py++) {
+            for (int px = x0; px <= x1; px++) {
+                double dx = px + 0.5 - ox;
+                double dy = py + 0.5 - oy;
+                int gx = (int) Math.floor(dx * cos + dy * sin) - glyph.x;
+                int gy = (int) Math.floor(-dx * sin + dy * cos) - glyph.y;
+                if (gx >= 0 && gy >= 0 && gx < glyph.width && gy < glyph.height
+                        && glyph.mask[gy * glyph.width + gx] != 0) {
+                    plot(py * stride + px, argb, alpha);
+                }
+            }
+        }
+    }
+
+    private void plot(int offset, int argb, int alpha) {
+        pixels[offset] = alpha == 0xff ? argb : blend(pixels[offset], argb, alpha);
+    }
+
+    private static Glyph getGlyph(Font font, int codePoint) {
+        GlyphKey key = new GlyphKey(font, codePoint);
+        Glyph glyph = GLYPHS.get(key);
+        if (glyph == null) {
+            if (GLYPHS.size() >= GLYPH_CACHE_SIZE) {
+                GLYPHS.clear();
+            }
+            glyph = createGlyph(font, codePoint);
+            GLYPHS.put(key, glyph);
+        }
+        return glyph;
+    }
+
+    private static Glyph createGlyph(Font font, int codePoint) {
+        String s = new String(Character.toChars(codePoint));
+        GlyphVector gv = font.createGlyphVector(FRC, s);
+        Rectangle bounds = gv.getPixelBounds(FRC, 0, 0);
+        double advance = gv.getGlyphMetrics(0).getAdvance();
+        if (bounds.isEmpty()) {
+            return new Glyph(0, 0, 0, 0, new byte[0], advance);
+        }
+        BufferedImage image = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g2 = image.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+        g2.setColor(Color.white);
+        g2.drawGlyphVector(gv, -bounds.x, -bounds.y);
+        g2.dispose();
+        byte[] mask = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        return new Glyph(bounds.x, bounds.y, bounds.width, bounds.height, mask, advance);
+    }
+
+    /**
+     * Fill the whole image with white.
+     *
+     * @param width
+     * @param height
+     */
+    @Override
+    public void clear(double width, double height) {
+        Arrays.fill(pixels, OPAQUE | 0xffffff);
+    }
+
+    /**
+     * The canvas color is not part of the drawing, so it is ignored here.
+     *
+     * @param color
+     */
+    @Override
+    public void canvasColor(Color color) {
+    }
+
+    /**
+     * Copy an image in, sampling the nearest source pixel when scaled.
+     *
+     * @param image
+     * @param x
+     * @param y
+     */
+    @Override
+    public void image(BufferedImage image, double x, double y) {
+        final int sw = image.getWidth();
+        final int sh = image.getHeight();
+        double left = x * scale + translateX;
+        double top = y * scale + translateY;
+        int x0 = (int) Math.max(0, Math.floor(left));
+        int y0 = (int) Math.max(0, Math.floor(top));
+        int x1 = (int) Math.min(width, Math.ceil(left + sw * scale));
+        int y1 = (int) Math.min(height, Math.ceil(top + sh * scale));
+        if (x0 >= x1 || y0 >= y1) {
+            return;
+        }
+        int[] columns = new int[x1 - x0];
+        for (int px = x0; px < x1; px++) {
+            columns[px - x0] = (int) Math.floor((px + 0.5 - left) / scale);
+        }
+        int[] row = new int[sw];
+        int rowY = -1;
+        for (int py = y0; py < y1; py++) {
+            int sy = (int) Math.floor((py + 0.5 - top) / scale);
+            if (sy < 0 || sy >= sh) {
+                continue;
+            }
+            if (sy != rowY) {
+                image.getRGB(0, sy, sw, 1, row, 0, sw);
+                rowY = sy;
+            }
+            int offset = py * stride;
+            for (int px = x0; px < x1; px++) {
+                int sx = columns[px - x0];
+                if (sx >= 0 && sx < sw) {
+                    int argb = row[sx];
+                    plot(offset + px, argb | OPAQUE, argb >>> 24);
+                }
+            }
+        }
+    }
+}
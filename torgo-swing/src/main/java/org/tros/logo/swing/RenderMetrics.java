@@ -0,0 +1,195 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.tros.torgo.metrics.Counter;
+import org.tros.torgo.metrics.Histogram;
+import org.tros.torgo.metrics.Metrics;
+
+/**
+ * Paint counters for a canvas, used to see how much time is spent in each
+ * {@link RenderQuality}. Repaint requests, painted frames and the time from a
+ * request to the frame that paints it are also reported in {@link Metrics}.
+ *
+ * @author matta
+ */
+public final class RenderMetrics {
+
+    private final AtomicLong draftFrames = new AtomicLong();
+    private final AtomicLong fullFrames = new AtomicLong();
+    private final AtomicLong cachedFrames = new AtomicLong();
+    private final AtomicLong rasterizedCommands = new AtomicLong();
+    private final AtomicLong qualityRenders = new AtomicLong();
+    private final AtomicLong lastQualityRenderNanos = new AtomicLong();
+    private final AtomicLong requestedNanos = new AtomicLong();
+    private final Counter repaintRequests = new Counter();
+    private final Counter frames = new Counter();
+    private final Histogram repaintLatency = new Histogram();
+
+    /**
+     * Report these counters in {@link Metrics}, in place of those of another
+     * canvas.
+     */
+    void register() {
+        Metrics.register("render.repaintRequests", repaintRequests);
+        Metrics.register("render.frames", frames);
+        Metrics.register("render.repaintLatencyMicros", repaintLatency);
+    }
+
+    /**
+     * Stop reporting these counters, unless another canvas has replaced them.
+     */
+    void unregister() {
+        Metrics.unregister("render.repaintRequests", repaintRequests);
+        Metrics.unregister("render.frames", frames);
+        Metrics.unregister("render.repaintLatencyMicros", repaintLatency);
+    }
+
+    void repaintRequested() {
+        repaintRequests.increment();
+        if (requestedNanos.get() == 0) {
+            //the latency of coalesced requests is measured from the first.
+            requestedNanos.compareAndSet(0, System.nanoTime());
+        }
+    }
+
+    void painted() {
+        frames.increment();
+        long requested = requestedNanos.getAndSet(0);
+        if (requested != 0) {
+            repaintLatency.record((System.nanoTime() - requested) / 1000L);
+        }
+    }
+
+    void draftFrame() {
+        draftFrames.incrementAndGet();
+    }
+
+    void rasterized(long commands) {
+        rasterizedCommands.addAndGet(commands);
+    }
+
+    void fullFrame() {
+        fullFrames.incrementAndGet();
+    }
+
+    void cachedFrame() {
+        cachedFrames.incrementAndGet();
+    }
+
+    void qualityRender(long nanos) {
+        qualityRenders.incrementAndGet();
+        lastQualityRenderNanos.set(nanos);
+    }
+
+    /**
+     * Get the number of times a repaint was asked for.
+     *
+     * @return
+     */
+    public long getRepaintRequests() {
+        return repaintRequests.getCount();
+    }
+
+    /**
+     * Get the number of frames painted. Swing merges repaint requests that
+     * arrive before the next paint, so this is usually far fewer.
+     *
+     * @return
+     */
+    public long getFrames() {
+        return frames.getCount();
+    }
+
+    /**
+     * Get the time from a repaint request to the frame that painted it, in
+     * microseconds.
+     *
+     * @return
+     */
+    public Histogram getRepaintLatency() {
+        return repaintLatency;
+    }
+
+    /**
+     * Get the number of paints done in draft mode.
+     *
+     * @return
+     */
+    public long getDraftFrames() {
+        return draftFrames.get();
+    }
+
+    /**
+     * Get the number of commands drawn into the panel's raster buffer. Since
+     * the buffer is only brought up to date, this stays close to the size of
+     * the display list rather than a multiple of it.
+     *
+     * @return
+     */
+    public long getRasterizedCommands() {
+        return rasterizedCommands.get();
+    }
+
+    /**
+     * Get the number of paints that replayed the whole display list.
+     *
+     * @return
+     */
+    public long getFullFrames() {
+        return fullFrames.get();
+    }
+
+    /**
+     * Get the number of paints that reused the background quality render.
+     *
+     * @return
+     */
+    public long getCachedFrames() {
+        return cachedFrames.get();
+    }
+
+    /**
+     * Get the number of background quality renders.
+     *
+     * @return
+     */
+    public long getQualityRenders() {
+        return qualityRenders.get();
+    }
+
+    /**
+     * Get the time taken by the last background quality render.
+     *
+     * @return
+     */
+    public long getLastQualityRenderMillis() {
+        return lastQualityRenderNanos.get() / 1000000L;
+    }
+
+    @Override
+    public String toString() {
+        return "requests=" + getRepaintRequests()
+                + ", frames=" + getFrames()
+                + ", draft=" + getDraftFrames()
+                + ", rasterized=" + getRasterizedCommands()
+                + ", full=" + getFullFrames()
+                + ", cached=" + getCachedFrames()
+                + ", qualityRenders=" + getQualityRenders()
+                + ", lastQualityRenderMs=" + getLastQualityRenderMillis();
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+/**
+ * How the canvas is painted.
+ *
+ * @author matta
+ */
+public enum RenderQuality {
+
+    /**
+     * Used while a script is running: no antialiasing, speed rendering hints,
+     * and only the commands added since the last paint are rasterized.
+     */
+    DRAFT,
+    /**
+     * The whole display list is drawn with the canvas settings.
+     */
+    FULL
+}
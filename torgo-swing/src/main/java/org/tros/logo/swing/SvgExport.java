@@ -0,0 +1,49 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Exports a canvas to SVG. The implementation is in the torgo-export-svg
+ * module and is found with a {@link java.util.ServiceLoader}, so the user
+ * interface does not depend on Batik; the SVG export is only offered when an
+ * implementation is on the class path.
+ *
+ * @author matta
+ */
+public interface SvgExport {
+
+    /**
+     * Make a job that streams a display list to SVG in the background.
+     *
+     * @param displayList
+     * @param width the canvas width.
+     * @param height the canvas height.
+     * @return
+     */
+    ExportJob stream(DisplayList displayList, int width, int height);
+
+    /**
+     * Draw a canvas into an SVG document built in memory, and write it.
+     *
+     * @param drawable
+     * @param out
+     * @throws IOException
+     */
+    void write(Drawable drawable, OutputStream out) throws IOException;
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.tros.utils.PngStreamWriter;
+
+/**
+ * Renders a drawable to a PNG of arbitrary size without holding the whole
+ * image in memory. The target is split into square tiles which are rasterized
+ * in parallel on the common fork-join pool. Each tile replays the whole display
+ * list under a clip to the tile bounds, so rendering cost grows with the
+ * number of tiles times the number of commands; only the memory is bounded.
+ * Finished tiles are streamed row-band by row-band into the PNG encoder while the next
+ * band is being rasterized.
+ *
+ * @author matta
+ */
+public class TiledImageExporter extends ExportJob {
+
+    public static final int DEFAULT_TILE_SIZE = 256;
+
+    private final Drawable drawable;
+    private final int sourceWidth;
+    private final int sourceHeight;
+    private final double scale;
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private Color background = Color.WHITE;
+    private boolean rasterRendering;
+
+    /**
+     * Constructor.
+     *
+     * @param drawable the display list to render, this should be a snapshot
+     * (see {@link Drawable#cloneDrawable()}) since tiles are rendered
+     * concurrently.
+     * @param sourceWidth the width the drawing was made at.
+     * @param sourceHeight the height the drawing was made at.
+     * @param scale the scale of the output relative to the source.
+     */
+    public TiledImageExporter(Drawable drawable, int sourceWidth, int sourceHeight, double scale) {
+        this(drawable, sourceWidth, sourceHeight, scale, DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param drawable
+     * @param sourceWidth
+     * @param sourceHeight
+     * @param scale
+     * @param tileSize
+     */
+    public TiledImageExporter(Drawable drawable, int sourceWidth, int sourceHeight, double scale, int tileSize) {
+        if (sourceWidth <= 0 || sourceHeight <= 0 || scale <= 0 || tileSize <= 0) {
+            throw new IllegalArgumentException("Export dimensions must be positive.");
+        }
+        this.drawable = drawable;
+        this.sourceWidth = sourceWidth;
+        this.sourceHeight = sourceHeight;
+        this.scale = scale;
+        this.width = (int) Math.ceil(sourceWidth * scale);
+        this.height = (int) Math.ceil(sourceHeight * scale);
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * Set the color tiles are filled with before the display list is
+     * replayed.
+     *
+     * @param background
+     */
+    public void setBackground(Color background) {
+        this.background = background;
+    }
+
+    /**
+     * Rasterize tiles with {@link RasterSink} instead of Java2D. This is much
+     * faster but lines are not antialiased.
+     *
+     * @param rasterRendering
+     */
+    public void setRasterRendering(boolean rasterRendering) {
+        this.rasterRendering = rasterRendering;
+    }
+
+    /**
+     * Get the width of the exported image.
+     *
+     * @return
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the height of the exported image.
+     *
+     * @return
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Export the image as a PNG. Returns early, leaving an incomplete stream
+     * without the PNG trailer, if the job is cancelled or rendering fails.
+     *
+     * @param out
+     * @throws IOException
+     */
+    @Override
+    public void export(OutputStream out) throws IOException {
+        final int columns = (width + tileSize - 1) / tileSize;
+        final int bands = (height + tileSize - 1) / tileSize;
+        final int total = columns * bands;
+        final AtomicInteger completed = new AtomicInteger();
+        final int[] row = new int[width];
+
+        PngStreamWriter png = new PngStreamWriter(out, width, height);
+        boolean success = false;
+        try {
+            ArrayList<ForkJoinTask<BufferedImage>> current = submitBand(0, columns, total, completed);
+            for (int band = 0; band < bands && !isCancelled(); band++) {
+                //queue up the next band so it rasterizes while this one is encoded.
+                ArrayList<ForkJoinTask<BufferedImage>> next = band + 1 < bands
+                        ? submitBand(band + 1, columns, total, completed)
+                        : null;
+
+                BufferedImage[] tiles = new BufferedImage[columns];
+                try {
+                    for (int col = 0; col < columns; col++) {
+                        tiles[col] = join(current.get(col));
+                    }
+                } catch (IOException | RuntimeException ex) {
+                    cancelAll(current);
+                    cancelAll(next);
+                    throw ex;
+                }
+                if (isCancelled()) {
+                    cancelAll(next);
+                    break;
+                }
+
+                int bandHeight = tiles[0].getHeight();
+                for (int y = 0; y < bandHeight; y++) {
+                    for (int col = 0; col < columns; col++) {
+                        int[] data = ((DataBufferInt) tiles[col].getRaster().getDataBuffer()).getData();
+                        int tw = tiles[col].getWidth();
+                        System.arraycopy(data, y * tw, row, col * tileSize, tw);
+                    }
+                    png.writeRow(row, 0);
+                }
+                current = next;
+            }
+            if (!isCancelled()) {
+                png.close();
+                success = true;
+            }
+        } finally {
+            if (!success) {
+                png.abort();
+            }
+        }
+    }
+
+    private ArrayList<ForkJoinTask<BufferedImage>> submitBand(int band, int columns, int total, AtomicInteger completed) {
+        ArrayList<ForkJoinTask<BufferedImage>> tasks = new ArrayList<>(columns);
+        for (int col = 0; col < columns; col++) {
+            final int tx = col * tileSize;
+            final int ty = band * tileSize;
+            tasks.add(ForkJoinPool.commonPool().submit(() -> {
+                if (isCancelled()) {
+                    return null;
+                }
+                BufferedImage tile = renderTile(tx, ty, Math.min(tileSize, width - tx), Math.min(tileSize, height - ty));
+                fireProgress(completed.incrementAndGet(), total);
+                return tile;
+            }));
+        }
+        return tasks;
+    }
+
+    /**
+     * Rasterize a single tile by replaying the whole display list clipped to
+     * the tile.
+     *
+     * @param tx
+     * @param ty
+     * @param tw
+     * @param th
+     * @return
+     */
+    protected BufferedImage renderTile(int tx, int ty, int tw, int th) {
+        BufferedImage tile = new BufferedImage(tw, th, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = tile.createGraphics();
+        g2d.setColor(background);
+        g2d.fillRect(0, 0, tw, th);
+
+        TurtleState ts = new TurtleState();
+        ts.width = sourceWidth;
+        ts.height = sourceHeight;
+        if (rasterRendering) {
+            g2d.dispose();
+            RasterSink sink = new RasterSink(tile);
+            sink.setTransform(scale, -tx, -ty);
+            drawable.render(sink, ts);
+            return tile;
+        }
+        g2d.setClip(0, 0, tw, th);
+        g2d.translate(-tx, -ty);
+        g2d.scale(scale, scale);
+        drawable.draw(g2d, ts);
+        g2d.dispose();
+        return tile;
+    }
+
+    private BufferedImage join(ForkJoinTask<BufferedImage> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException ex) {
+            cancel();
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException ex) {
+            throw new IOException(ex.getCause());
+        }
+    }
+
+    private static void cancelAll(ArrayList<ForkJoinTask<BufferedImage>> tasks) {
+        if (tasks != null) {
+            tasks.forEach((task) -> {
+                task.cancel(false);
+            });
+        }
+    }
+}
@@ -0,0 +1,451 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * An index over the commands drawn on a canvas for scrubbing back through a
+ * drawing. While a script runs, the commands are also rasterized into an image
+ * of their own, and every {@link #getInterval()} commands the image is
+ * compressed and kept as a keyframe, together with the turtle state and where
+ * the next command is in the display list. Seeking to a command draws the
+ * nearest keyframe before it and replays the commands in between, so it costs
+ * at most one interval of commands however large the drawing is.
+ * <p>
+ * Keyframes are kept under a memory budget. When the budget is passed, every
+ * other keyframe is dropped and the interval doubles, so a drawing of any
+ * length fits in the budget at the cost of longer replays.
+ *
+ * @author matta
+ */
+public final class Timeline {
+
+    public static final int DEFAULT_INTERVAL = Integer.getInteger("torgo.timeline.interval", 4096);
+    public static final long DEFAULT_MEMORY_BUDGET = Long.getLong("torgo.timeline.memory", 32L << 20);
+
+    private static final int BYTES_PER_PIXEL = 3;
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    /**
+     * A compressed snapshot of the drawing after some number of commands.
+     */
+    private static final class Keyframe {
+
+        private final long index;
+        private final byte[] pixels;
+        private final TurtleState state;
+        private final CommandStore.Mark mark;
+
+        private Keyframe(long index, byte[] pixels, TurtleState state, CommandStore.Mark mark) {
+            this.index = index;
+            this.pixels = pixels;
+            this.state = state;
+            this.mark = mark;
+        }
+
+        private int getByteCount() {
+            return pixels == null ? 0 : pixels.length;
+        }
+    }
+
+    /**
+     * Where a seek ended up.
+     */
+    static final class Position {
+
+        private final long index;
+        private final CommandStore.Cursor cursor;
+
+        private Position(long index, CommandStore.Cursor cursor) {
+            this.index = index;
+            this.cursor = cursor;
+        }
+
+        /**
+         * Get the number of commands drawn.
+         *
+         * @return
+         */
+        long getIndex() {
+            return index;
+        }
+
+        /**
+         * Get a cursor over the commands after the position.
+         *
+         * @return null if the position is among commands that have been
+         * flattened, so replay cannot carry on from it.
+         */
+        CommandStore.Cursor getCursor() {
+            return cursor;
+        }
+    }
+
+    private final int width;
+    private final int height;
+    private final boolean antialiasing;
+    private final long memoryBudget;
+    private final ArrayList<Keyframe> keyframes = new ArrayList<>();
+    private final BufferedImage image;
+    private final Graphics2D g2;
+    private final Graphics2DSink sink;
+    private final TurtleState state = new TurtleState();
+    private final byte[] scratch;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private int interval;
+    private long keyframeBytes;
+    private volatile long size;
+
+    /**
+     * Constructor.
+     *
+     * @param width the canvas width.
+     * @param height the canvas height.
+     * @param antialiasing
+     */
+    public Timeline(int width, int height, boolean antialiasing) {
+        this(width, height, antialiasing, DEFAULT_INTERVAL, DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param width the canvas width.
+     * @param height the canvas height.
+     * @param antialiasing
+     * @param interval the number of commands between keyframes.
+     * @param memoryBudget the number of bytes keyframes may use.
+     */
+    public Timeline(int width, int height, boolean antialiasing, int interval, long memoryBudget) {
+        if (width <= 0 || height <= 0 || interval <= 0) {
+            throw new IllegalArgumentException("Timeline dimensions and interval must be positive.");
+        }
+        this.width = width;
+        this.height = height;
+        this.antialiasing = antialiasing;
+        this.interval = interval;
+        this.memoryBudget = memoryBudget;
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        g2 = image.createGraphics();
+        g2.setColor(Color.white);
+        g2.fillRect(0, 0, width, height);
+        sink = new Graphics2DSink(g2);
+        sink.setAntialiasing(antialiasing);
+        state.width = width;
+        state.height = height;
+        scratch = new byte[width * height * BYTES_PER_PIXEL];
+        //the start of the drawing is blank and at the start of the list.
+        keyframes.add(new Keyframe(0, null, copy(state), null));
+    }
+
+    /**
+     * Get the width of the canvas the timeline was recorded at.
+     *
+     * @return
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the height of the canvas the timeline was recorded at.
+     *
+     * @return
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Get the number of commands recorded.
+     *
+     * @return
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Get the number of commands between keyframes, this is the most a seek
+     * has to replay.
+     *
+     * @return
+     */
+    public synchronized int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Get the number of keyframes kept.
+     *
+     * @return
+     */
+    public synchronized int getKeyframeCount() {
+        return keyframes.size();
+    }
+
+    /**
+     * Get the number of bytes used by keyframes.
+     *
+     * @return
+     */
+    public synchronized long getKeyframeBytes() {
+        return keyframeBytes;
+    }
+
+    /**
+     * Record a command that has just been appended to a store. Must be called
+     * from the thread appending to the store.
+     *
+     * @param command
+     * @param store the store holding the command.
+     */
+    void record(DrawCommand command, CommandStore store) {
+        DrawCommand.render(command.getOp(), command.getX(), command.getY(), command.getValue(), sink, state);
+        long count = size + 1;
+        size = count;
+        if (count % getInterval() == 0) {
+            capture(count, store.mark());
+        }
+    }
+
+    /**
+     * Stop recording and release the recording image. Keyframes can still be
+     * seeked to.
+     */
+    void dispose() {
+        g2.dispose();
+        deflater.end();
+    }
+
+    /**
+     * Compress the recording image into a keyframe.
+     *
+     * @param index
+     * @param mark
+     */
+    private void capture(long index, CommandStore.Mark mark) {
+        int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        for (int ii = 0, p = 0; ii < data.length; ii++) {
+            int c = data[ii];
+            scratch[p++] = (byte) (c >> 16);
+            scratch[p++] = (byte) (c >> 8);
+            scratch[p++] = (byte) c;
+        }
+        deflater.reset();
+        deflater.setInput(scratch);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(CHUNK_SIZE);
+        byte[] chunk = new byte[CHUNK_SIZE];
+        while (!deflater.finished()) {
+            out.write(chunk, 0, deflater.deflate(chunk));
+        }
+        Keyframe keyframe = new Keyframe(index, out.toByteArray(), copy(state), mark);
+        synchronized (this) {
+            keyframes.add(keyframe);
+            keyframeBytes += keyframe.getByteCount();
+            while (keyframeBytes > memoryBudget && keyframes.size() > 1) {
+                thin();
+            }
+        }
+    }
+
+    /**
+     * Drop every other keyframe and double the interval. Keyframes are at
+     * multiples of the interval, so those that are left are at multiples of
+     * the new one.
+     */
+    private void thin() {
+        ArrayList<Keyframe> kept = new ArrayList<>(keyframes.size() / 2 + 1);
+        long bytes = 0;
+        for (int ii = 0; ii < keyframes.size(); ii += 2) {
+            Keyframe keyframe = keyframes.get(ii);
+            kept.add(keyframe);
+            bytes += keyframe.getByteCount();
+        }
+        keyframes.clear();
+        keyframes.addAll(kept);
+        keyframeBytes = bytes;
+        interval *= 2;
+        org.tros.utils.logging.Logging.getLogFactory().getLogger(Timeline.class).debug("Timeline thinned to {0} keyframes, every {1} commands", keyframes.size(), interval);
+    }
+
+    /**
+     * Draw the drawing as it was after a number of commands.
+     *
+     * @param index the number of commands to draw.
+     * @param list a copy of the display list the timeline was recorded from.
+     * @param target the image to draw into; it is filled with white first.
+     * @return the number of commands drawn. This is less than the index
+     * asked for if it is past the end of the list, or if it is among commands
+     * that have been flattened, in which case the nearest keyframe before it
+     * is drawn.
+     */
+    public long seek(long index, DisplayList list, BufferedImage target) {
+        TurtleState ts = new TurtleState();
+        ts.width = target.getWidth();
+        ts.height = target.getHeight();
+        return seek(index, list, target, ts);
+    }
+
+    /**
+     * Draw the drawing as it was after a number of commands.
+     *
+     * @param index
+     * @param list
+     * @param target
+     * @param turtleState set to the turtle state at the position drawn; the
+     * width and height are those of the target.
+     * @return
+     */
+    long seek(long index, DisplayList list, BufferedImage target, TurtleState turtleState) {
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setColor(Color.white);
+            g.fillRect(0, 0, target.getWidth(), target.getHeight());
+            Graphics2DSink targetSink = new Graphics2DSink(g);
+            targetSink.setAntialiasing(antialiasing);
+            turtleState.set(new TurtleState());
+            turtleState.width = target.getWidth();
+            turtleState.height = target.getHeight();
+            return seek(index, list, targetSink, turtleState).getIndex();
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Draw the drawing as it was after a number of commands, leaving a cursor
+     * to carry on replaying from there.
+     *
+     * @param index
+     * @param list
+     * @param target
+     * @param turtleState
+     * @return
+     */
+    Position seek(long index, DisplayList list, DrawingSink target, TurtleState turtleState) {
+        long bakedCount = list.getBakedCount();
+        index = Math.max(0, Math.min(index, bakedCount + list.size()));
+        Keyframe keyframe = keyframeAt(index);
+        CommandStore.Cursor cursor;
+        long position;
+        if (index >= bakedCount && bakedCount > keyframe.index) {
+            //the flattened layer is closer than any keyframe.
+            list.renderBaked(target, turtleState);
+            cursor = list.cursor();
+            position = bakedCount;
+        } else {
+            draw(keyframe, target, turtleState);
+            position = keyframe.index;
+            if (position < bakedCount) {
+                return new Position(position, null);
+            }
+            cursor = keyframe.mark == null ? null : list.cursor(keyframe.mark);
+            if (cursor == null) {
+                //the commands were moved to a new store when older ones were
+                //flattened, so the mark is stale.
+                cursor = list.cursor();
+                cursor.skip(position - bakedCount);
+            }
+        }
+        while (position < index && cursor.next()) {
+            cursor.render(target, turtleState);
+            position++;
+        }
+        return new Position(position, cursor);
+    }
+
+    /**
+     * Find the last keyframe at or before a command.
+     *
+     * @param index
+     * @return
+     */
+    private synchronized Keyframe keyframeAt(long index) {
+        int low = 0;
+        int high = keyframes.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (keyframes.get(mid).index <= index) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return keyframes.get(low);
+    }
+
+    /**
+     * Draw a keyframe centered on the canvas the way {@link BakedLayer} is,
+     * and move the turtle to where it was.
+     *
+     * @param keyframe
+     * @param target
+     * @param turtleState
+     */
+    private void draw(Keyframe keyframe, DrawingSink target, TurtleState turtleState) {
+        double dx = (turtleState.width - width) / 2.0;
+        double dy = (turtleState.height - height) / 2.0;
+        if (keyframe.pixels != null) {
+            target.image(inflate(keyframe), dx, dy);
+        }
+        double w = turtleState.width;
+        double h = turtleState.height;
+        turtleState.set(keyframe.state);
+        turtleState.width = w;
+        turtleState.height = h;
+        turtleState.penX += dx;
+        turtleState.penY += dy;
+    }
+
+    private BufferedImage inflate(Keyframe keyframe) {
+        byte[] bytes = new byte[width * height * BYTES_PER_PIXEL];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(keyframe.pixels);
+            int read = 0;
+            while (read < bytes.length && !inflater.finished()) {
+                read += inflater.inflate(bytes, read, bytes.length - read);
+            }
+        } catch (DataFormatException ex) {
+            throw new IllegalStateException(ex);
+        } finally {
+            inflater.end();
+        }
+        BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] data = ((DataBufferInt) frame.getRaster().getDataBuffer()).getData();
+        for (int ii = 0, p = 0; ii < data.length; ii++) {
+            data[ii] = ((bytes[p++] & 0xff) << 16) | ((bytes[p++] & 0xff) << 8) | (bytes[p++] & 0xff);
+        }
+        return frame;
+    }
+
+    private static TurtleState copy(TurtleState source) {
+        TurtleState copy = new TurtleState();
+        copy.set(source);
+        return copy;
+    }
+}
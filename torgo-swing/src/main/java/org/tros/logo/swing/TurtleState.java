@@ -43,4 +43,21 @@ public class TurtleState {
         width = -1;
         height = -1;
     }
+
+    /**
+     * Copy the values of another state into this one.
+     *
+     * @param other
+     */
+    void set(TurtleState other) {
+        penColor = other.penColor;
+        font = other.font;
+        penup = other.penup;
+        showTurtle = other.showTurtle;
+        angle = other.angle;
+        penX = other.penX;
+        penY = other.penY;
+        height = other.height;
+        width = other.width;
+    }
 }
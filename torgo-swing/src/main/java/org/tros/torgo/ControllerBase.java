@@ -32,8 +32,10 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringWriter;
 import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.text.MessageFormat;
 import java.util.ArrayList;
@@ -69,6 +71,11 @@ import org.tros.utils.PathUtils;
 public abstract class ControllerBase implements Controller {
 
     public static final String ABOUT_MENU_TORGO_ICON = "torgo-16x16.png";
+    /**
+     * Files larger than this, in bytes, are run as they are read rather than
+     * loaded into the editor, if the language supports it.
+     */
+    public static final long STREAM_THRESHOLD = InterpreterThread.STREAM_THRESHOLD;
 
     protected final EventListenerSupport<InterpreterListener> listeners
             = EventListenerSupport.create(InterpreterListener.class);
@@ -83,6 +90,8 @@ public abstract class ControllerBase implements Controller {
     private final ArrayList<JCheckBoxMenuItem> viz = new ArrayList<>();
     private InterpreterThread interp;
     private String filename;
+    private File streamed;
+    private String streamedSource;
     private CControl dockControl;
     private JFrame window;
 
@@ -159,6 +168,29 @@ public abstract class ControllerBase implements Controller {
      */
     protected abstract InterpreterThread createInterpreterThread(String source);
 
+    /**
+     * Create an interpreter thread that runs a script while it is read from a
+     * file. Only called for languages that give a placeholder in
+     * {@link #getStreamingPlaceholder(File)}.
+     *
+     * @param file
+     * @return
+     */
+    protected InterpreterThread createInterpreterThread(File file) {
+        throw new UnsupportedOperationException(getLang());
+    }
+
+    /**
+     * Get the text shown in the editor in place of a file that is too large to
+     * edit and is run as it is read instead.
+     *
+     * @param file
+     * @return null if the language cannot run scripts as they are read.
+     */
+    protected String getStreamingPlaceholder(File file) {
+        return null;
+    }
+
     /**
      * Wrapper class.
      */
@@ -229,6 +261,7 @@ public abstract class ControllerBase implements Controller {
             elem = DockingFrameFactory.createLayout(torgoCanvas != null ? torgoCanvas.getComponent() : null, torgoPanel.getTorgoComponents());
         }
         dockControl.readXML(elem);
+        StartupTimer.mark("layout");
 
         JMenuBar mb = createMenuBar();
         if (mb == null) {
@@ -375,6 +408,7 @@ public abstract class ControllerBase implements Controller {
 
         initSwing();
         this.window.setVisible(true);
+        StartupTimer.finish("first frame");
 
         SwingUtilities.invokeLater(() -> {
 //            newFile();
@@ -393,6 +427,8 @@ public abstract class ControllerBase implements Controller {
      */
     private void init() {
         stopInterpreter();
+        streamed = null;
+        streamedSource = null;
         torgoPanel.reset();
         if (torgoCanvas != null) {
             torgoCanvas.reset();
@@ -415,17 +451,19 @@ public abstract class ControllerBase implements Controller {
 
     @Override
     public void openFile(File file) {
+        if (openStreamed(file)) {
+            return;
+        }
         try {
             openFile(new URL(file.toString()));
         } catch (MalformedURLException ex) {
             init();
             if (file.exists()) {
-                StringWriter writer = new StringWriter();
-                try (FileInputStream fis = new FileInputStream(file)) {
-                    IOUtils.copy(fis, writer, "utf-8");
+                try {
+                    this.setSource(readSource(file));
                 } catch (IOException ex2) {
+                    org.tros.utils.logging.Logging.getLogFactory().getLogger(ControllerBase.class).warn(null, ex2);
                 }
-                this.setSource(writer.toString());
             }
             //handle windows, jar, and linux path.  Not sure if necessary, but should work.
             String toSplit = file.getAbsolutePath().replace("/", "|").replace("\\", "|");//.split("|");
@@ -443,16 +481,17 @@ public abstract class ControllerBase implements Controller {
     @Override
     public void openFile(URL file) {
         try {
+            if ("file".equals(file.getProtocol()) && openStreamed(new File(file.toURI()))) {
+                return;
+            }
             init();
-            StringWriter writer = new StringWriter();
-            IOUtils.copy(file.openStream(), writer, "utf-8");
-            this.setSource(writer.toString());
+            this.setSource(readSource(file));
             //handle windows, jar, and linux path.  Not sure if necessary, but should work.
             String toSplit = file.getFile().replace("/", "|").replace("\\", "|");//.split("|");
             String[] split = toSplit.split("\\|");
             this.window.setTitle("Torgo [" + getLang() + "] - " + split[split.length - 1]);
             filename = file.toString();
-        } catch (IOException ex) {
+        } catch (IOException | URISyntaxException | IllegalArgumentException ex) {
             init();
             org.tros.utils.logging.Logging.getLogFactory().getLogger(ControllerBase.class).fatal(null, ex);
         }
@@ -476,6 +515,61 @@ public abstract class ControllerBase implements Controller {
         }
     }
 
+    /**
+     * Open a file that is too large to edit so that it is run as it is read.
+     *
+     * @param file
+     * @return false if the file should be loaded into the editor.
+     */
+    private boolean openStreamed(File file) {
+        if (!file.isFile() || file.length() <= STREAM_THRESHOLD) {
+            return false;
+        }
+        String placeholder = getStreamingPlaceholder(file);
+        if (placeholder == null) {
+            return false;
+        }
+        init();
+        this.setSource(placeholder);
+        streamed = file;
+        streamedSource = placeholder;
+        //there is no source to save over the file.
+        filename = null;
+        this.window.setTitle("Torgo [" + getLang() + "] - " + file.getName());
+        return true;
+    }
+
+    /**
+     * Read the script in a file. Languages that have a binary form of their
+     * scripts override this to get the source out of it.
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    protected String readSource(File file) throws IOException {
+        StringWriter writer = new StringWriter();
+        try (FileInputStream fis = new FileInputStream(file)) {
+            IOUtils.copy(fis, writer, "utf-8");
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Read the script at a URL.
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    protected String readSource(URL file) throws IOException {
+        StringWriter writer = new StringWriter();
+        try (InputStream in = file.openStream()) {
+            IOUtils.copy(in, writer, "utf-8");
+        }
+        return writer.toString();
+    }
+
     /**
      * Save the script as a new file.
      */
@@ -559,7 +653,11 @@ public abstract class ControllerBase implements Controller {
     @Override
     public void startInterpreter() {
         String source = torgoPanel.getSource();
-        interp = createInterpreterThread(source);
+        //run an opened file that is too large to edit, unless the editor has
+        //been changed since.
+        interp = streamed != null && source.equals(streamedSource)
+                ? createInterpreterThread(streamed)
+                : createInterpreterThread(source);
 
         viz.stream().filter((item) -> (item.getState())).forEachOrdered((item) -> {
             TorgoToolkit.getVisualization(item.getText()).create().watch(this.getLang(), this, interp);
@@ -646,10 +744,7 @@ public abstract class ControllerBase implements Controller {
                 } catch (InterruptedException ex) {
                     org.tros.utils.logging.Logging.getLogFactory().getLogger(ControllerBase.class).fatal(null, ex);
                 }
-                int line = block.getParserRuleContext().getStart().getLine();
-                int start = block.getParserRuleContext().getStart().getStartIndex();
-                int end = block.getParserRuleContext().getStart().getStopIndex();
-                torgoPanel.highlight(line, start, end);
+                torgoPanel.highlight(block.getLine(), block.getStartIndex(), block.getStopIndex());
             }
         });
 
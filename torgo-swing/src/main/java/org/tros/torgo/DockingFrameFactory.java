@@ -23,12 +23,17 @@ import bibliothek.gui.dock.common.mode.ExtendedMode;
 import bibliothek.util.xml.XElement;
 import bibliothek.util.xml.XIO;
 import java.awt.Component;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.tros.utils.PathUtils;
 
@@ -38,6 +43,8 @@ import org.tros.utils.PathUtils;
  */
 public final class DockingFrameFactory {
 
+    private static final Map<String, CompletableFuture<XElement>> PREFETCHED = new ConcurrentHashMap<>();
+
     private DockingFrameFactory() {
     }
 
@@ -78,6 +85,16 @@ public final class DockingFrameFactory {
         return root;
     }
 
+    /**
+     * Start reading the layout for a language in the background, so that it
+     * is ready by the time the window is built.
+     *
+     * @param lang
+     */
+    public static void prefetch(String lang) {
+        PREFETCHED.computeIfAbsent(lang, (l) -> CompletableFuture.supplyAsync(() -> readLayout(l)));
+    }
+
     /**
      * Try to read in the layout config from various locations.
      *
@@ -85,27 +102,41 @@ public final class DockingFrameFactory {
      * @return
      */
     public static XElement read(String lang) {
+        CompletableFuture<XElement> prefetched = PREFETCHED.remove(lang);
+        if (prefetched != null) {
+            try {
+                return prefetched.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                org.tros.utils.logging.Logging.getLogFactory().getLogger(ControllerBase.class).warn(null, ex.getCause());
+            }
+        }
+        return readLayout(lang);
+    }
+
+    private static XElement readLayout(String lang) {
         //read from saved file:
         String layoutFileName = PathUtils.getApplicationConfigDirectory(TorgoInfo.INSTANCE) + java.io.File.separatorChar + lang + "-layout.xml";
         File layoutFile = new File(layoutFileName);
         if (layoutFile.exists()) {
-            try {
-                XElement elem = XIO.readUTF(new FileInputStream(layoutFile));
-                return elem;
-            } catch (FileNotFoundException ex) {
-                org.tros.utils.logging.Logging.getLogFactory().getLogger(ControllerBase.class).warn(null, ex);
+            try (InputStream in = new BufferedInputStream(new FileInputStream(layoutFile))) {
+                return XIO.readUTF(in);
             } catch (IOException ex) {
                 org.tros.utils.logging.Logging.getLogFactory().getLogger(ControllerBase.class).warn(null, ex);
             }
         }
 
         //read from class resource:
-        try {
-            java.util.Enumeration<URL> resources = ClassLoader.getSystemClassLoader().getResources("layouts/" + lang + "-layout.xml");
-            XElement elem = XIO.readUTF(resources.nextElement().openStream());
-            return elem;
-        } catch (IOException | java.util.NoSuchElementException ex) {
-            org.tros.utils.logging.Logging.getLogFactory().getLogger(ControllerBase.class).warn("Layout Error: Auto-generating: {0}", ex.getMessage());
+        URL resource = ClassLoader.getSystemClassLoader().getResource("layouts/" + lang + "-layout.xml");
+        if (resource != null) {
+            try (InputStream in = new BufferedInputStream(resource.openStream())) {
+                return XIO.readUTF(in);
+            } catch (IOException ex) {
+                org.tros.utils.logging.Logging.getLogFactory().getLogger(ControllerBase.class).warn("Layout Error: Auto-generating: {0}", ex.getMessage());
+            }
+        } else {
+            org.tros.utils.logging.Logging.getLogFactory().getLogger(ControllerBase.class).warn("Layout Error: Auto-generating: {0}", lang);
         }
 
         //no apparent layout:
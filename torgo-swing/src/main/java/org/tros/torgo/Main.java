@@ -0,0 +1,236 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.torgo;
+
+import java.awt.Window;
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import javax.swing.ImageIcon;
+import javax.swing.SwingUtilities;
+import javax.swing.UIManager;
+import javax.swing.UnsupportedLookAndFeelException;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.tros.logo.CompiledProgram;
+import org.tros.logo.LogoInterpreter;
+import org.tros.logo.stream.HeadlessExport;
+import org.tros.torgo.metrics.Metrics;
+import org.tros.utils.ImageUtils;
+
+/**
+ * Main entry point for torgo.
+ *
+ * @author matta
+ */
+public final class Main {
+
+    public static final String IMAGE_ICON_CLASS_PATH = "torgo-48x48.png";
+    private static final String DEFAULT_LANGUAGE = "dynamic-logo";
+
+    /**
+     * Hidden utility constructor.
+     */
+    private Main() {
+    }
+
+    /**
+     * Entry Point.
+     *
+     * @param args
+     */
+    public static void main(String[] args) {
+        StartupTimer.mark("main");
+        Options options = new Options();
+        options.addOption("l", "lang", true, "Open using the desired language. [default is 'logo']");
+        options.addOption("i", "list", false, "List available languages.");
+        options.addOption("x", "export", true, "Run the script without a window and write its drawing in the given format.");
+        options.addOption("o", "output", true, "The file to write the drawing to when exporting.");
+        options.addOption("s", "seed", true, "Seed the random numbers when exporting, for repeatable drawings.");
+        options.addOption("m", "metrics", true, "Write the runtime metrics to the given file as JSON after exporting.");
+
+        //the command line is read first so that exporting does not show a splash.
+        CommandLine cmd = null;
+        ParseException parseError = null;
+        try {
+            CommandLineParser parser = new org.apache.commons.cli.DefaultParser();
+            cmd = parser.parse(options, args);
+        } catch (ParseException ex) {
+            parseError = ex;
+        }
+        final boolean headless = cmd != null && cmd.hasOption("export");
+        if (headless) {
+            System.setProperty("java.awt.headless", "true");
+        } else {
+            MainSplash.splashInit();
+            StartupTimer.mark("splash");
+        }
+
+        //initialize the logging
+        org.tros.utils.logging.Logging.initLogging(TorgoInfo.INSTANCE);
+        final org.tros.utils.logging.Logger logger = org.tros.utils.logging.Logging.getLogFactory().getLogger(Main.class);
+        StartupTimer.mark("logging");
+
+        //currently commented out for working with snapd
+        if (!headless && System.getProperty("swing.defaultlaf") == null) {
+            //set on the event thread while the languages are loaded here.
+            SwingUtilities.invokeLater(() -> {
+                try {
+                    //set look and feel (laf) to that of the system.
+                    UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+                } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | UnsupportedLookAndFeelException ex) {
+                    logger.fatal(null, ex);
+                }
+                StartupTimer.mark("look and feel");
+            });
+        }
+
+        String lang = DEFAULT_LANGUAGE;
+        final String fileArgument = headless
+                ? (cmd.getArgs().length > 0 ? cmd.getArgs()[cmd.getArgs().length - 1] : null)
+                : (args.length - 1 >= 0 ? args[args.length - 1] : null);
+        String ext = null;
+        boolean quit = false;
+        if (fileArgument != null) {
+            int index = fileArgument.lastIndexOf('.');
+            if (index >= 0) {
+                ext = fileArgument.substring(index + 1);
+            }
+        }
+
+        //headless runs only need the languages that can run without a window,
+        //which avoids loading every controller and its Swing classes.
+        Set<String> languages = headless ? LogoInterpreter.getLanguages() : null;
+        boolean customLangUsed = false;
+        if (parseError != null) {
+            logger.fatal(null, parseError);
+        } else if (cmd.hasOption("lang") || cmd.hasOption("l")) {
+            lang = cmd.getOptionValue("lang");
+            customLangUsed = true;
+        } else if (cmd.hasOption("i") || cmd.hasOption("list")) {
+            Set<String> toolkits = TorgoToolkit.getToolkits();
+            toolkits.forEach((name) -> {
+                System.out.println(name);
+            });
+            //will force an exit
+            lang = null;
+            quit = true;
+        }
+
+        java.util.prefs.Preferences prefs = java.util.prefs.Preferences.userNodeForPackage(TorgoToolkit.class);
+        if (!customLangUsed && !headless) {
+            lang = prefs.get("lang", lang);
+        }
+        if (languages == null) {
+            languages = TorgoToolkit.getToolkits();
+        }
+        if (ext != null && languages.contains(ext)) {
+            lang = ext;
+        } else if (CompiledProgram.EXTENSION.equalsIgnoreCase(ext)) {
+            //compiled programs name the language they were written in.
+            try {
+                lang = CompiledProgram.getLanguage(new File(fileArgument));
+            } catch (IOException ex) {
+                logger.warn("Could not read: {0}", fileArgument);
+            }
+        }
+        if (!languages.contains(lang)) {
+            logger.warn("Could not load: {0}", lang);
+            logger.warn("Loading Default: {0}", DEFAULT_LANGUAGE);
+            lang = DEFAULT_LANGUAGE;
+        }
+        final String controlLang = lang;
+        StartupTimer.mark("languages");
+
+        //exports only load JMX when asked to, it is not needed to write a file.
+        if (Boolean.parseBoolean(System.getProperty("torgo.metrics.jmx", Boolean.toString(!headless)))) {
+            Thread jmx = new Thread(Metrics::registerMBeans, "torgo-metrics");
+            jmx.setDaemon(true);
+            jmx.start();
+        }
+
+        if (headless) {
+            LogoInterpreter interpreter = LogoInterpreter.forLanguage(controlLang);
+            if (cmd.hasOption("seed")) {
+                try {
+                    interpreter.setRandomSeed(Long.parseLong(cmd.getOptionValue("seed")));
+                } catch (NumberFormatException ex) {
+                    logger.warn("Invalid seed: {0}", cmd.getOptionValue("seed"));
+                }
+            }
+            export(interpreter, fileArgument, cmd.getOptionValue("export"), cmd.getOptionValue("output"), logger);
+            if (cmd.hasOption("metrics")) {
+                try {
+                    Metrics.dump(new File(cmd.getOptionValue("metrics")));
+                } catch (IOException ex) {
+                    logger.warn("Could not write metrics: {0}", ex);
+                }
+            }
+            return;
+        }
+
+        Controller controller = null;
+        if (!quit) {
+            prefs.put("lang", lang);
+            DockingFrameFactory.prefetch(controlLang);
+            controller = TorgoToolkit.getController(controlLang);
+            final Controller ctrl = controller;
+            SwingUtilities.invokeLater(() -> {
+                if (ctrl != null) {
+                    ctrl.run();
+                    if (fileArgument != null) {
+                        ctrl.openFile(new File(fileArgument));
+                    } else {
+                        ctrl.newFile();
+                    }
+                }
+            });
+        }
+
+        MainMac.handleFileActivation(controller);
+    }
+
+    /**
+     * Run a script without a window, writing its drawing to a file.
+     *
+     * @param interpreter
+     * @param script
+     * @param format
+     * @param output
+     * @param logger
+     */
+    private static void export(LogoInterpreter interpreter, String script, String format, String output, org.tros.utils.logging.Logger logger) {
+        if (script == null) {
+            logger.warn("Nothing to export: {0}", script);
+            return;
+        }
+        try {
+            HeadlessExport.export(interpreter, new File(script), format, output == null ? null : new File(output));
+        } catch (IOException | IllegalArgumentException ex) {
+            logger.fatal(null, ex);
+        }
+    }
+
+    public static void loadIcon(Window frame) {
+        frame.setIconImage(getIcon().getImage());
+    }
+
+    public static ImageIcon getIcon() {
+        return ImageUtils.getIcon(IMAGE_ICON_CLASS_PATH);
+    }
+}
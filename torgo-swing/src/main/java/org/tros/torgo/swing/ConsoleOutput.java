@@ -0,0 +1,262 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.torgo.swing;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * Program output for a {@link JConsole}. Lines are appended to a buffer by
+ * the interpreter without waiting on the event thread, and a timer moves
+ * everything buffered since the last update to the console in one edit, at
+ * most once per interval. The console keeps the last lines up to a limit;
+ * lines that would be scrolled off before they are shown are dropped from
+ * the buffer. Every line can also be written to a transcript file, which
+ * keeps the whole output. The transcript is closed when it is replaced, when
+ * a run finishes and when the JVM exits, and is opened again, appending, for
+ * the next line.
+ *
+ * @author matta
+ */
+public class ConsoleOutput {
+
+    public static final int DEFAULT_LIMIT = Integer.getInteger("torgo.console.limit", 10000);
+    public static final int DEFAULT_INTERVAL = Integer.getInteger("torgo.console.interval", 100);
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private final JConsole console;
+    private final int limit;
+    private final Timer timer;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private StringBuilder pending = new StringBuilder();
+    private int pendingLines;
+    private File transcriptFile;
+    private Writer transcript;
+    private Thread closer;
+
+    /**
+     * Constructor.
+     *
+     * @param console
+     */
+    public ConsoleOutput(JConsole console) {
+        this(console, DEFAULT_LIMIT, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param console
+     * @param limit the most lines kept in the console.
+     * @param interval the shortest time between updates, in milliseconds.
+     */
+    public ConsoleOutput(JConsole console, int limit, int interval) {
+        if (limit <= 0 || interval < 0) {
+            throw new IllegalArgumentException("Limit must be positive and interval must not be negative.");
+        }
+        this.console = console;
+        this.limit = limit;
+        this.timer = new Timer(interval, (e) -> {
+            update();
+        });
+        timer.setRepeats(false);
+    }
+
+    /**
+     * Append a line.
+     *
+     * @param line
+     */
+    public void println(String line) {
+        synchronized (this) {
+            pending.append(line).append('\n');
+            pendingLines++;
+            if (pendingLines > limit + limit / 8) {
+                trimPending();
+            }
+            if (transcriptFile != null) {
+                try {
+                    if (transcript == null) {
+                        openTranscript();
+                    }
+                    transcript.write(line);
+                    transcript.write(LINE_SEPARATOR);
+                } catch (IOException ex) {
+                    org.tros.utils.logging.Logging.getLogFactory().getLogger(ConsoleOutput.class).warn(null, ex);
+                    closeTranscript();
+                    transcriptFile = null;
+                }
+            }
+        }
+        if (scheduled.compareAndSet(false, true)) {
+            timer.restart();
+        }
+    }
+
+    /**
+     * Drop buffered lines that would not fit in the console anyway.
+     */
+    private void trimPending() {
+        int drop = pendingLines - limit;
+        int index = 0;
+        for (int ii = 0; ii < drop; ii++) {
+            index = pending.indexOf("\n", index) + 1;
+        }
+        pending.delete(0, index);
+        pendingLines = limit;
+    }
+
+    /**
+     * Take the buffered text.
+     *
+     * @return
+     */
+    private synchronized String take() {
+        if (pendingLines == 0) {
+            return null;
+        }
+        String ret = pending.toString();
+        pending = new StringBuilder(Math.min(ret.length(), 1 << 16));
+        pendingLines = 0;
+        return ret;
+    }
+
+    /**
+     * Move the buffered text to the console, on the event thread.
+     */
+    private void update() {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(this::update);
+            return;
+        }
+        scheduled.set(false);
+        String text = take();
+        if (text != null) {
+            console.printLines(text, limit);
+        }
+    }
+
+    /**
+     * Show the buffered lines now and write out the transcript. Off the event
+     * thread the console is updated as soon as the event thread gets to it.
+     */
+    public void flush() {
+        synchronized (this) {
+            if (transcript != null) {
+                try {
+                    transcript.flush();
+                } catch (IOException ex) {
+                    org.tros.utils.logging.Logging.getLogFactory().getLogger(ConsoleOutput.class).warn(null, ex);
+                    closeTranscript();
+                    transcriptFile = null;
+                }
+            }
+        }
+        show();
+    }
+
+    /**
+     * Show the buffered lines now and close the transcript at the end of a
+     * run. The transcript is opened again for the next line.
+     */
+    public void finish() {
+        synchronized (this) {
+            closeTranscript();
+        }
+        show();
+    }
+
+    /**
+     * Stop the timer and update the console on the event thread.
+     */
+    private void show() {
+        if (SwingUtilities.isEventDispatchThread()) {
+            timer.stop();
+            update();
+        } else {
+            SwingUtilities.invokeLater(() -> {
+                timer.stop();
+                update();
+            });
+        }
+    }
+
+    /**
+     * Drop the buffered lines. The transcript is not changed.
+     */
+    public synchronized void clear() {
+        pending.setLength(0);
+        pendingLines = 0;
+    }
+
+    /**
+     * Write every line to a file as well, appending to it, or stop writing
+     * the transcript.
+     *
+     * @param file the file to write to, or null.
+     * @throws IOException
+     */
+    public synchronized void setTranscript(File file) throws IOException {
+        closeTranscript();
+        transcriptFile = file;
+        if (file != null) {
+            try {
+                openTranscript();
+            } catch (IOException ex) {
+                transcriptFile = null;
+                throw ex;
+            }
+        }
+    }
+
+    private void openTranscript() throws IOException {
+        transcript = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(transcriptFile, true), StandardCharsets.UTF_8), 1 << 16);
+        closer = new Thread(() -> {
+            synchronized (ConsoleOutput.this) {
+                closeTranscript();
+            }
+        }, "torgo-transcript");
+        Runtime.getRuntime().addShutdownHook(closer);
+    }
+
+    private void closeTranscript() {
+        if (transcript != null) {
+            try {
+                transcript.close();
+            } catch (IOException ex) {
+                org.tros.utils.logging.Logging.getLogFactory().getLogger(ConsoleOutput.class).warn(null, ex);
+            }
+            transcript = null;
+        }
+        if (closer != null && closer != Thread.currentThread()) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(closer);
+            } catch (IllegalStateException ex) {
+                //already shutting down; the hook closes the transcript.
+            }
+        }
+        closer = null;
+    }
+}
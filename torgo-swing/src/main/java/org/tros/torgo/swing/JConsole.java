@@ -64,6 +64,7 @@ import javax.swing.UIManager;
 import javax.swing.text.AttributeSet;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.Element;
 import javax.swing.text.MutableAttributeSet;
 import javax.swing.text.SimpleAttributeSet;
 import javax.swing.text.StyleConstants;
@@ -656,6 +657,30 @@ public class JConsole extends JScrollPane
         });
     }
 
+    /**
+     * Append text in one edit, then remove lines from the top once there are
+     * more than the limit. Must be called on the event dispatch thread.
+     *
+     * @param lines
+     * @param maxLines
+     */
+    public void printLines(String lines, int maxLines) {
+        try {
+            doc.insertString(textLength(), lines, null);
+            Element root = doc.getDefaultRootElement();
+            //the text ends with a new line, which starts one more element.
+            int extra = root.getElementCount() - 1 - maxLines;
+            //remove lines in chunks rather than on every edit.
+            if (extra > maxLines / 8) {
+                doc.remove(0, root.getElement(extra).getStartOffset());
+            }
+        } catch (BadLocationException ex) {
+            org.tros.utils.logging.Logging.getLogFactory().getLogger(JConsole.class).warn(null, ex);
+        }
+        resetCommandStart();
+        text.setCaretPosition(cmdStart);
+    }
+
     private AttributeSet setStyle(Font font) {
         return setStyle(font, null);
     }
@@ -912,6 +937,15 @@ public class JConsole extends JScrollPane
         printHeader();
     }
 
+    /**
+     * For testing.
+     *
+     * @return the text of the console.
+     */
+    String getText() {
+        return text.getText();
+    }
+
     public void setEditable(boolean value) {
         text.setEditable(value);
     }
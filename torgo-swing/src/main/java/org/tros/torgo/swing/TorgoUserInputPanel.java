@@ -19,6 +19,8 @@ import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.Font;
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import javax.swing.JComponent;
@@ -59,6 +61,7 @@ public class TorgoUserInputPanel implements TorgoTextConsole {
     private final Gutter gutter;
 
     private final JConsole outputTextArea;
+    private final ConsoleOutput output;
     private final JTabbedPane tabs;
 
     private final LayeredHighlighter.LayerPainter defaultHighlighter;
@@ -138,6 +141,15 @@ public class TorgoUserInputPanel implements TorgoTextConsole {
 
         outputTextArea = new JConsole();
         outputTextArea.setEditable(editable);
+        output = new ConsoleOutput(outputTextArea);
+        String transcript = System.getProperty("torgo.console.transcript");
+        if (transcript != null) {
+            try {
+                output.setTranscript(new File(transcript));
+            } catch (IOException ex) {
+                org.tros.utils.logging.Logging.getLogFactory().getLogger(TorgoUserInputPanel.class).warn(null, ex);
+            }
+        }
         //get default pref
         //update prefs
 
@@ -165,20 +177,22 @@ public class TorgoUserInputPanel implements TorgoTextConsole {
             }
 
             /**
-             * Clears the highlighted areas.
+             * Clears the highlighted areas and shows the remaining output.
              */
             @Override
             public void finished() {
+                output.finish();
                 Highlighter hl = inputTextArea.getHighlighter();
                 inputTextArea.setEditable(true);
                 hl.removeAllHighlights();
             }
 
             /**
-             * Clears the highlighted areas.
+             * Clears the highlighted areas and shows the remaining output.
              */
             @Override
             public void error(Exception e) {
+                output.finish();
                 Highlighter hl = inputTextArea.getHighlighter();
                 inputTextArea.setEditable(true);
                 hl.removeAllHighlights();
@@ -234,18 +248,31 @@ public class TorgoUserInputPanel implements TorgoTextConsole {
      */
     @Override
     public void clearOutputTextArea() {
+        output.clear();
         outputTextArea.clearScreen();
     }
 
     /**
-     * Append text to the output text area.
+     * Append text to the output text area. The text is buffered and shown
+     * with the next update of the output area, so this does not wait for the
+     * event thread.
      *
      * @param what
      */
     @Override
     public void appendToOutputTextArea(String what) {
         what = what.trim();
-        outputTextArea.println(what);
+        output.println(what);
+    }
+
+    /**
+     * Write all output to a file as well, appending to it.
+     *
+     * @param file the file, or null to stop writing.
+     * @throws IOException
+     */
+    public void setTranscript(File file) throws IOException {
+        output.setTranscript(file);
     }
 
     /**
@@ -105,7 +105,7 @@ public class TraceLogger implements InterpreterVisualization {
              */
             @Override
             public void currStatement(CodeBlock block, Scope scope) {
-                LOGGER.info(MessageFormat.format("Curr Statement: {0}", new Object[]{block.getParserRuleContext().getClass().getName()}));
+                LOGGER.info(MessageFormat.format("Curr Statement: {0}, Line: {1}", new Object[]{block.getClass().getName(), block.getLine()}));
             }
         });
 
@@ -6,14 +6,17 @@
  */
 package org.tros.utils.logging;
 
+import java.awt.BorderLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ComponentEvent;
 import java.awt.event.ComponentListener;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.text.MessageFormat;
 import java.util.prefs.Preferences;
 import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JFrame;
+import javax.swing.JLabel;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
@@ -85,6 +88,15 @@ public final class LogConsole extends JFrame {
 
         this.add(new JScrollPane(SwingComponentHandler.getComponent()));
 
+        //records overwritten during a log storm are counted rather than shown.
+        final JLabel droppedLabel = new JLabel();
+        droppedLabel.setVisible(false);
+        this.add(droppedLabel, BorderLayout.SOUTH);
+        sch.setDroppedListener((dropped) -> {
+            droppedLabel.setText(MessageFormat.format(Localization.getLocalizedString("LogConsoleDropped"), dropped));
+            droppedLabel.setVisible(true);
+        });
+
         final Preferences prefs = Preferences.userNodeForPackage(LogConsole.class);
         this.addComponentListener(new ComponentListener() {
 
@@ -12,7 +12,9 @@ import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
 import java.util.logging.Filter;
 import java.util.logging.Formatter;
 import java.util.logging.Handler;
@@ -24,37 +26,123 @@ import java.util.logging.SimpleFormatter;
 import javax.swing.JComponent;
 import javax.swing.JTextPane;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.text.AttributeSet;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.Element;
 import javax.swing.text.Style;
 import javax.swing.text.StyleConstants;
 import javax.swing.text.StyleContext;
 import org.tros.utils.TypeHandler;
 
 /**
+ * Shows log records in a text pane. Records are kept in a ring of fixed size
+ * until the console is next updated, so a storm of records overwrites the
+ * oldest ones, which are counted as dropped, rather than growing without
+ * bound. Updates are coalesced: all records since the last update are added
+ * to the document in one bulk insert on the event thread, and the oldest
+ * lines are removed once there are more than the limit.
  *
  * @author matta
  */
 public final class SwingComponentHandler extends Handler {
 
+    private static final LogDocument DOC;
     private static final JTextPane TEXT_AREA;
-    private static final DefaultStyledDocument DOC;
     private static final HashMap<java.util.logging.Level, Style> STYLE_MAP;
+    private static final HashMap<Style, Style> BOLD_MAP;
     private static final Style DEFAULT_STYLE;// = TEXT_AREA.addStyle(java.util.logging.Level.WARNING.toString(), null);
     private static final String FORMAT;
-    private static boolean paused;
-
-    private final ArrayList<LogRecord> records;
-    private final java.util.Timer timer;
+    private static final int DEFAULT_BUFFER = 4096;
+    private static volatile boolean paused;
+
+    private final LogRecord[] records;
+    private int first;
+    private int count;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Timer timer;
+    private LongConsumer droppedListener;
+    private long droppedShown;
     private int maxSize;
     private int timeField;
     private boolean test = false;
 
+    /**
+     * A styled document that appends runs of text in one bulk insert.
+     */
+    private static final class LogDocument extends DefaultStyledDocument {
+
+        private static final long serialVersionUID = 1L;
+
+        LogDocument(StyleContext sc) {
+            super(sc);
+        }
+
+        /**
+         * Append runs of styled text. Paragraphs are split at new lines, and
+         * each run should end with one.
+         *
+         * @param runs the text of each run.
+         * @param styles the style of each run.
+         * @throws BadLocationException
+         */
+        void append(ArrayList<StringBuilder> runs, ArrayList<AttributeSet> styles) throws BadLocationException {
+            ArrayList<ElementSpec> specs = new ArrayList<>();
+            int offset = getLength();
+            boolean afterLine = offset > 0 && getText(offset - 1, 1).charAt(0) == '\n';
+            if (afterLine) {
+                //start a paragraph after the last line rather than joining it.
+                specs.add(new ElementSpec(null, ElementSpec.EndTagType));
+                specs.add(new ElementSpec(null, ElementSpec.StartTagType));
+            }
+            for (int ii = 0; ii < runs.size(); ii++) {
+                char[] text = new char[runs.get(ii).length()];
+                runs.get(ii).getChars(0, text.length, text, 0);
+                int start = 0;
+                for (int jj = 0; jj < text.length; jj++) {
+                    if (text[jj] == '\n') {
+                        specs.add(new ElementSpec(styles.get(ii), ElementSpec.ContentType, text, start, jj - start + 1));
+                        specs.add(new ElementSpec(null, ElementSpec.EndTagType));
+                        specs.add(new ElementSpec(null, ElementSpec.StartTagType));
+                        start = jj + 1;
+                    }
+                }
+                if (start < text.length) {
+                    specs.add(new ElementSpec(styles.get(ii), ElementSpec.ContentType, text, start, text.length - start));
+                }
+            }
+            ElementSpec last = specs.get(specs.size() - 1);
+            if (afterLine && last.getType() == ElementSpec.StartTagType) {
+                //the last paragraph joins the empty one the document ends with.
+                last.setDirection(ElementSpec.JoinNextDirection);
+            }
+            insert(offset, specs.toArray(new ElementSpec[specs.size()]));
+        }
+
+        /**
+         * Remove the oldest lines when there are more than the limit. An
+         * extra eighth of the limit is removed, so the cost of moving the
+         * remaining text is spread over many updates.
+         *
+         * @param limit
+         * @throws BadLocationException
+         */
+        void trim(int limit) throws BadLocationException {
+            Element root = getDefaultRootElement();
+            int lines = root.getElementCount();
+            if (limit > 0 && lines > limit) {
+                remove(0, root.getElement(lines - (limit - limit / 8)).getStartOffset());
+            }
+        }
+    }
+
     static {
         STYLE_MAP = new HashMap<>();
 
         StyleContext sc = new StyleContext();
-        DOC = new DefaultStyledDocument(sc);
+        DOC = new LogDocument(sc);
         TEXT_AREA = new JTextPane(DOC);
         TEXT_AREA.setEditable(false);
 
@@ -125,20 +213,27 @@ public final class SwingComponentHandler extends Handler {
 
         DEFAULT_STYLE = TEXT_AREA.addStyle(java.util.logging.Level.ALL.toString(), null);
         StyleConstants.setForeground(DEFAULT_STYLE, defColor);
+
+        //bold styles for the record headers, so no style is changed while
+        //the document is being written.
+        BOLD_MAP = new HashMap<>();
+        ArrayList<Style> styles = new ArrayList<>(STYLE_MAP.values());
+        styles.add(DEFAULT_STYLE);
+        for (Style style : styles) {
+            Style bold = TEXT_AREA.addStyle(null, style);
+            StyleConstants.setBold(bold, true);
+            BOLD_MAP.put(style, bold);
+        }
     }
 
     public SwingComponentHandler() {
         configure();
         paused = false;
-        timer = new java.util.Timer(true);
-        timer.scheduleAtFixedRate(new TimerTask() {
-
-            @Override
-            public void run() {
-                timer();
-            }
-        }, timeField, timeField);
-        records = new ArrayList<>();
+        records = new LogRecord[configBuffer()];
+        timer = new Timer(timeField, (e) -> {
+            timer();
+        });
+        timer.setRepeats(false);
         Logger.getLogger(SwingComponentHandler.class.getName()).log(Level.FINE, "Started...");
     }
 
@@ -193,8 +288,8 @@ public final class SwingComponentHandler extends Handler {
         LogManager manager = LogManager.getLogManager();
         String cname = getClass().getName();
         String timerProp = manager.getProperty(cname + ".timer");
-        int time = 500;
-        if (timer != null || test) {
+        int time = 100;
+        if (timerProp != null || test) {
             try {
                 test = false;
                 time = Integer.parseInt(timerProp);
@@ -205,6 +300,18 @@ public final class SwingComponentHandler extends Handler {
         this.timeField = time;
     }
 
+    private int configBuffer() {
+        String size = LogManager.getLogManager().getProperty(getClass().getName() + ".buffer");
+        if (size != null) {
+            try {
+                return Math.max(1, Integer.parseInt(size));
+            } catch (IllegalArgumentException ex) {
+                Logger.getLogger(SwingComponentHandler.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+        return DEFAULT_BUFFER;
+    }
+
     private void configLevel() {
         LogManager manager = LogManager.getLogManager();
         String cname = getClass().getName();
@@ -265,6 +372,12 @@ public final class SwingComponentHandler extends Handler {
         this.setFilter(filt);
     }
 
+    /**
+     * Set the most lines kept in the console. When there are more, the
+     * oldest lines are removed down to seven eighths of the limit.
+     *
+     * @param value
+     */
     public void setLimit(int value) {
         maxSize = value;
     }
@@ -273,11 +386,41 @@ public final class SwingComponentHandler extends Handler {
         return maxSize;
     }
 
+    /**
+     * Get the number of records that were overwritten before they could be
+     * shown.
+     *
+     * @return
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Set a listener told the dropped count, on the event thread, when it
+     * changes.
+     *
+     * @param listener
+     */
+    public void setDroppedListener(LongConsumer listener) {
+        droppedListener = listener;
+    }
+
     @Override
     public void publish(final LogRecord record) {
-        if (record.getLevel().intValue() >= this.getLevel().intValue()) {
+        if (isLoggable(record)) {
             synchronized (records) {
-                records.add(record);
+                if (count == records.length) {
+                    records[first] = record;
+                    first = (first + 1) % records.length;
+                    dropped.incrementAndGet();
+                } else {
+                    records[(first + count) % records.length] = record;
+                    count++;
+                }
+            }
+            if (!paused && scheduled.compareAndSet(false, true)) {
+                timer.restart();
             }
         }
     }
@@ -292,8 +435,7 @@ public final class SwingComponentHandler extends Handler {
 
     @Override
     public void close() throws SecurityException {
-        timer.purge();
-        timer.cancel();
+        timer.stop();
     }
 
     public static void pause() {
@@ -304,75 +446,138 @@ public final class SwingComponentHandler extends Handler {
         return paused;
     }
 
+    /**
+     * Take the records waiting in the ring.
+     *
+     * @return
+     */
+    private LogRecord[] take() {
+        synchronized (records) {
+            LogRecord[] ret = new LogRecord[count];
+            for (int ii = 0; ii < count; ii++) {
+                int index = (first + ii) % records.length;
+                ret[ii] = records[index];
+                records[index] = null;
+            }
+            first = 0;
+            count = 0;
+            return ret;
+        }
+    }
+
+    /**
+     * Add the waiting records to the document, on the event thread.
+     */
     private void timer() {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(this::timer);
+            return;
+        }
+        scheduled.set(false);
         if (paused) {
             return;
         }
+        LogRecord[] rec = take();
+        if (rec.length > 0) {
+            final java.util.logging.Formatter f = getFormatter();
+            final Date dat = new Date();
+            //consecutive text in the same style is one run.
+            ArrayList<StringBuilder> runs = new ArrayList<>();
+            ArrayList<AttributeSet> styles = new ArrayList<>();
+            for (LogRecord record : rec) {
+                Style s = STYLE_MAP.containsKey(record.getLevel()) ? STYLE_MAP.get(record.getLevel()) : DEFAULT_STYLE;
+                append(runs, styles, BOLD_MAP.get(s), header(record, dat) + " ");
+                String body = f.format(record);
+                append(runs, styles, s, body.endsWith("\n") ? body : body + "\n");
+            }
+            try {
+                DOC.append(runs, styles);
+                DOC.trim(maxSize);
+            } catch (BadLocationException ex) {
+                Logger.getLogger(SwingComponentHandler.class.getName()).log(Level.SEVERE, null, ex);
+            }
+            TEXT_AREA.select(DOC.getLength(), DOC.getLength());
+        }
+        long d = dropped.get();
+        if (d != droppedShown && droppedListener != null) {
+            droppedShown = d;
+            droppedListener.accept(d);
+        }
+    }
 
-        final ArrayList<LogRecord> rec = new ArrayList<>();
-        synchronized (records) {
-            rec.addAll(records);
-            records.clear();
+    private static void append(ArrayList<StringBuilder> runs, ArrayList<AttributeSet> styles, AttributeSet style, String text) {
+        int last = runs.size() - 1;
+        if (last >= 0 && styles.get(last) == style) {
+            runs.get(last).append(text);
+        } else {
+            runs.add(new StringBuilder(text));
+            styles.add(style);
         }
+    }
 
-        final java.util.logging.Formatter f = getFormatter();
-        final Date dat = new Date();
-
-        SwingUtilities.invokeLater(() -> {
-            rec.forEach((record) -> {
-                try {
-                    dat.setTime(record.getMillis());
-                    String source;
-                    if (record.getSourceClassName() != null) {
-                        source = record.getSourceClassName();
-                        if (record.getSourceMethodName() != null) {
-                            source += " " + record.getSourceMethodName();
-                        }
-                    } else {
-                        source = record.getLoggerName();
-                    }
-                    StringBuilder nameBuilder = new StringBuilder();
+    private static String header(LogRecord record, Date dat) {
+        dat.setTime(record.getMillis());
+        String source;
+        if (record.getSourceClassName() != null) {
+            source = record.getSourceClassName();
+            if (record.getSourceMethodName() != null) {
+                source += " " + record.getSourceMethodName();
+            }
+        } else {
+            source = record.getLoggerName();
+        }
+        StringBuilder nameBuilder = new StringBuilder();
 
-                    String[] names = record.getLoggerName().split("\\.");
-                    for (int ii = 0; ii < names.length - 1; ii++) {
-                        nameBuilder.append(names[ii].charAt(0));
-                    }
-                    nameBuilder.append(".").append(names[names.length - 1]);
-
-                    String throwable = "";
-                    if (record.getThrown() != null) {
-                        StringWriter sw = new StringWriter();
-                        try (PrintWriter pw = new PrintWriter(sw)) {
-                            pw.println();
-                            record.getThrown().printStackTrace(pw);
-                        }
-                        throwable = sw.toString();
-                    }
-                    String toInsert = String.format(FORMAT,
-                            dat,
-                            source,
-                            nameBuilder.toString(),
-                            record.getLevel().getLocalizedName(),
-                            record.getMessage(),
-                            throwable);
-
-                    Style s = STYLE_MAP.containsKey(record.getLevel()) ? STYLE_MAP.get(record.getLevel()) : DEFAULT_STYLE;
-                    StyleConstants.setBold(s, true);
-                    DOC.insertString(DOC.getLength(), toInsert + " ", s);
-                    StyleConstants.setBold(s, false);
-                    DOC.insertString(DOC.getLength(), f.format(record), s);
-                } catch (BadLocationException ex) {
-                    Logger.getLogger(SwingComponentHandler.class.getName()).log(Level.SEVERE, null, ex);
-                }
-            });
-            TEXT_AREA.select(DOC.getLength(), DOC.getLength());
-        });
+        String loggerName = record.getLoggerName() == null ? "" : record.getLoggerName();
+        String[] names = loggerName.split("\\.");
+        for (int ii = 0; ii < names.length - 1; ii++) {
+            nameBuilder.append(names[ii].charAt(0));
+        }
+        nameBuilder.append(".").append(names[names.length - 1]);
+
+        String throwable = "";
+        if (record.getThrown() != null) {
+            StringWriter sw = new StringWriter();
+            try (PrintWriter pw = new PrintWriter(sw)) {
+                pw.println();
+                record.getThrown().printStackTrace(pw);
+            }
+            throwable = sw.toString();
+        }
+        return String.format(FORMAT,
+                dat,
+                source,
+                nameBuilder.toString(),
+                record.getLevel().getLocalizedName(),
+                record.getMessage(),
+                throwable);
     }
 
     /**
-    * For testing of publish method.
-    */
+     * For testing of publish method.
+     *
+     * @return the records waiting to be shown.
+     */
     public ArrayList<LogRecord> getRecords() {
-        return records;
+        synchronized (records) {
+            ArrayList<LogRecord> ret = new ArrayList<>(count);
+            for (int ii = 0; ii < count; ii++) {
+                ret.add(records[(first + ii) % records.length]);
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * Get the text shown in the console.
+     *
+     * @return
+     */
+    static String getText() {
+        try {
+            return DOC.getText(0, DOC.getLength());
+        } catch (BadLocationException ex) {
+            return "";
+        }
     }
 }
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.logging.Logger;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.tros.logo.antlr.LogoParser;
+import org.tros.logo.stream.StreamSink;
+import org.tros.logo.stream.StreamSinks;
+import org.tros.logo.stream.StreamingCanvas;
+import org.tros.torgo.TorgoInfo;
+import org.tros.torgo.interpreter.InterpreterThread;
+import org.tros.utils.logging.Logging;
+
+/**
+ *
+ * @author matta
+ */
+public class CompiledProgramTest {
+
+    private final static Logger LOGGER;
+    private static final String SCRIPT = "; squares\n"
+            + "to square :n\n"
+            + "  repeat 4 [fd :n rt 90]\n"
+            + "end\n"
+            + "\n"
+            + "repeat 12 [square 10 * repcount rt 30]\n";
+
+    static {
+        Logging.initLogging(TorgoInfo.INSTANCE);
+        LOGGER = Logger.getLogger(CompiledProgramTest.class.getName());
+    }
+
+    private File file;
+
+    public CompiledProgramTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("torgo-test", "." + CompiledProgram.EXTENSION);
+        try (OutputStream out = new FileOutputStream(file)) {
+            CompiledProgram.compile("dynamic-logo", SCRIPT).write(out);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        assertTrue(file.delete());
+    }
+
+    private static void checkLines(ParseTree node, CompiledProgram program) {
+        if (node instanceof TerminalNode) {
+            int start = ((TerminalNode) node).getSymbol().getStartIndex();
+            if (start >= 0) {
+                assertEquals(((TerminalNode) node).getSymbol().getLine(), program.getLine(start));
+                assertEquals(((TerminalNode) node).getSymbol().getCharPositionInLine(), start - program.getLineStart(program.getLine(start)));
+            }
+            return;
+        }
+        for (int ii = 0; ii < node.getChildCount(); ii++) {
+            checkLines(node.getChild(ii), program);
+        }
+    }
+
+    private static String draw(InterpreterThread thread, ByteArrayOutputStream out, StreamingCanvas canvas) throws Exception {
+        thread.start();
+        thread.join();
+        canvas.close();
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A compiled program loads back with its source, language, tree and
+     * positions.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testLoad() throws IOException {
+        LOGGER.info("load");
+        assertTrue(CompiledProgram.isCompiled(file.getName()));
+        assertFalse(CompiledProgram.isCompiled("square.logo"));
+        assertEquals("dynamic-logo", CompiledProgram.getLanguage(file));
+
+        CompiledProgram program = CompiledProgram.load(file);
+        assertEquals("dynamic-logo", program.getLanguage());
+        assertEquals(SCRIPT, program.getSource());
+        assertEquals(7, program.getLineCount());
+        assertEquals(0, program.getLineStart(1));
+        assertEquals(3, program.getLine(SCRIPT.indexOf("repeat 4")));
+        assertEquals(CompiledProgram.compile("dynamic-logo", SCRIPT).getTree().toStringTree(), program.getTree().toStringTree());
+        checkLines(program.getTree(), program);
+
+        CompiledProgram fromUrl = CompiledProgram.load(file.toURI().toURL());
+        assertEquals(SCRIPT, fromUrl.getSource());
+    }
+
+    /**
+     * Bad input is refused.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testErrors() throws IOException {
+        LOGGER.info("errors");
+        try {
+            CompiledProgram.compile("dynamic-logo", "repeat 4 [fd");
+            fail("A script with syntax errors should not compile.");
+        } catch (IllegalArgumentException ex) {
+            assertNotNull(ex.getMessage());
+        }
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        try {
+            CompiledProgram.read(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 10)));
+            fail("A truncated program should not load.");
+        } catch (IOException ex) {
+            assertNotNull(ex.getMessage());
+        }
+        try {
+            CompiledProgram.read(ByteBuffer.wrap(SCRIPT.getBytes(StandardCharsets.UTF_8)));
+            fail("A text file should not load.");
+        } catch (IOException ex) {
+            assertNotNull(ex.getMessage());
+        }
+    }
+
+    /**
+     * A compiled program runs the same as its source, and opening one puts
+     * its tree in the parse cache.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRun() throws Exception {
+        LOGGER.info("run");
+        DynamicLogoController controller = new DynamicLogoController();
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        StreamSink sink = StreamSinks.getSink("csv");
+        sink.start(expected, 400, 300);
+        StreamingCanvas canvas = new StreamingCanvas(400, 300, Collections.singletonList(sink));
+        String fromSource = draw(controller.createInterpreterThread(SCRIPT, canvas), expected, canvas);
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        sink = StreamSinks.getSink("csv");
+        sink.start(actual, 400, 300);
+        canvas = new StreamingCanvas(400, 300, Collections.singletonList(sink));
+        String fromProgram = draw(controller.createInterpreterThread(CompiledProgram.load(file), canvas), actual, canvas);
+        assertTrue(fromSource.split("\n").length > 12);
+        assertEquals(fromSource, fromProgram);
+
+        ProgramCache cache = ProgramCache.getDefault();
+        assertEquals(SCRIPT, controller.readSource(file));
+        long hits = cache.getMemoryHits();
+        LogoParser.ProgContext tree = cache.parse(SCRIPT);
+        assertEquals(hits + 1, cache.getMemoryHits());
+        assertNotNull(tree);
+    }
+}
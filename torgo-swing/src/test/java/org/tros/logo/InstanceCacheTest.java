@@ -0,0 +1,382 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.logging.Logger;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.tros.logo.antlr.LogoLexer;
+import org.tros.logo.antlr.LogoParser;
+import org.tros.logo.swing.DisplayList;
+import org.tros.logo.swing.DrawingSink;
+import org.tros.logo.swing.LogoPanel;
+import org.tros.logo.swing.TurtleState;
+import org.tros.torgo.TorgoInfo;
+import org.tros.torgo.interpreter.DynamicScope;
+import org.tros.utils.logging.Logging;
+
+/**
+ *
+ * @author matta
+ */
+public class InstanceCacheTest {
+
+    private final static Logger LOGGER;
+
+    static {
+        Logging.initLogging(TorgoInfo.INSTANCE);
+        LOGGER = Logger.getLogger(InstanceCacheTest.class.getName());
+    }
+
+    private static final String SCRIPT = "to square :size\n"
+            + "repeat 4 [fd :size rt 90]\n"
+            + "end\n"
+            + "to tree :size\n"
+            + "if :size < 5 [stop]\n"
+            + "fd :size lt 30 tree :size * 0.7 rt 60 tree :size * 0.7 lt 30 bk :size\n"
+            + "end\n"
+            + "to dashes :n\n"
+            + "repeat :n [pd fd 3 pu fd 3]\n"
+            + "end\n"
+            + "to spiral\n"
+            + "repeat 10 [fd repcount rt 30]\n"
+            + "end\n"
+            + "to marked :n\n"
+            + "make \"count :n\n"
+            + "fd :n\n"
+            + "end\n"
+            + "repeat 36 [square 20 rt 10]\n"
+            + "pu fd 10 pd\n"
+            + "tree 40\n"
+            + "dashes 5 dashes 5\n"
+            + "pu square 10 pd square 10\n"
+            + "repeat 3 [spiral marked 7]\n";
+
+    /**
+     * Draws step by step like the canvas, collecting the lines.
+     */
+    private static final class TurtleCanvas implements LogoCanvas {
+
+        private final InstanceCache cache;
+        private final ArrayList<double[]> lines = new ArrayList<>();
+        private double x;
+        private double y;
+        private double angle = -1.0 * (Math.PI / 2.0);
+        private boolean penUp;
+
+        TurtleCanvas(InstanceCache cache) {
+            this.cache = cache;
+        }
+
+        private void moveTo(double nx, double ny) {
+            if (!penUp) {
+                lines.add(new double[]{x, y, nx, ny});
+            }
+            x = nx;
+            y = ny;
+        }
+
+        @Override
+        public void forward(double distance) {
+            moveTo(x + (distance * Math.cos(angle)), y + (distance * Math.sin(angle)));
+        }
+
+        @Override
+        public void backward(double distance) {
+            moveTo(x - (distance * Math.cos(angle)), y - (distance * Math.sin(angle)));
+        }
+
+        @Override
+        public void left(double a) {
+            angle -= Math.PI * a / 180.0;
+        }
+
+        @Override
+        public void right(double a) {
+            angle += Math.PI * a / 180.0;
+        }
+
+        @Override
+        public void penDown() {
+            penUp = false;
+        }
+
+        @Override
+        public void penUp() {
+            penUp = true;
+        }
+
+        @Override
+        public InstanceCache getInstanceCache() {
+            return cache;
+        }
+
+        @Override
+        public double getTurtleX() {
+            return x;
+        }
+
+        @Override
+        public double getTurtleY() {
+            return y;
+        }
+
+        @Override
+        public double getTurtleAngle() {
+            return angle;
+        }
+
+        @Override
+        public void canvascolor(int red, int green, int blue) {
+        }
+
+        @Override
+        public void canvascolor(String color) {
+        }
+
+        @Override
+        public void clear() {
+        }
+
+        @Override
+        public void drawString(String message) {
+        }
+
+        @Override
+        public void fontName(String fontFace) {
+        }
+
+        @Override
+        public void fontSize(int size) {
+        }
+
+        @Override
+        public void fontStyle(int style) {
+        }
+
+        @Override
+        public void hideTurtle() {
+        }
+
+        @Override
+        public void home() {
+        }
+
+        @Override
+        public void pause(int time) {
+        }
+
+        @Override
+        public void pencolor(int red, int green, int blue, int alpha) {
+        }
+
+        @Override
+        public void pencolor(String color) {
+        }
+
+        @Override
+        public void repaint() {
+        }
+
+        @Override
+        public void message(String message) {
+        }
+
+        @Override
+        public void warning(String message) {
+        }
+
+        @Override
+        public void setXY(double x, double y) {
+        }
+
+        @Override
+        public void showTurtle() {
+        }
+    }
+
+    /**
+     * Collects every primitive a display list draws, in order.
+     */
+    private static final class RecordingSink implements DrawingSink {
+
+        private final ArrayList<Object> primitives = new ArrayList<>();
+
+        @Override
+        public void line(double x1, double y1, double x2, double y2, Color color) {
+            primitives.add(new double[]{x1, y1, x2, y2, color.getRGB()});
+        }
+
+        @Override
+        public void text(String text, double x, double y, double angle, Font font, Color color) {
+            primitives.add(text);
+        }
+
+        @Override
+        public void clear(double width, double height) {
+            primitives.add("clear");
+        }
+
+        @Override
+        public void canvasColor(Color color) {
+            primitives.add(color);
+        }
+
+        @Override
+        public void image(BufferedImage image, double x, double y) {
+            primitives.add(image);
+        }
+    }
+
+    public InstanceCacheTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private static TurtleCanvas run(InstanceCache cache) {
+        TurtleCanvas canvas = new TurtleCanvas(cache);
+        LogoParser parser = new LogoParser(new CommonTokenStream(new LogoLexer(new ANTLRInputStream(SCRIPT))));
+        LexicalListener.lexicalAnalysis(parser.prog(), canvas).getEntryPoint().process(new DynamicScope());
+        return canvas;
+    }
+
+    private static LogoPanel run(boolean instancing) {
+        LogoPanel panel = new LogoPanel(null);
+        panel.setSize(200, 200);
+        panel.reset();
+        panel.setInstancing(instancing);
+        LogoParser parser = new LogoParser(new CommonTokenStream(new LogoLexer(new ANTLRInputStream(SCRIPT))));
+        LexicalListener.lexicalAnalysis(parser.prog(), panel).getEntryPoint().process(new DynamicScope());
+        return panel;
+    }
+
+    private static ArrayList<Object> render(DisplayList list) {
+        RecordingSink sink = new RecordingSink();
+        list.render(sink, new TurtleState());
+        return sink.primitives;
+    }
+
+    private static void assertSameDrawing(TurtleCanvas expected, TurtleCanvas actual) {
+        assertEquals(expected.lines.size(), actual.lines.size());
+        for (int ii = 0; ii < expected.lines.size(); ii++) {
+            assertArrayEquals("line " + ii, expected.lines.get(ii), actual.lines.get(ii), 0.0);
+        }
+        assertEquals(expected.x, actual.x, 0.0);
+        assertEquals(expected.y, actual.y, 0.0);
+        assertEquals(expected.angle, actual.angle, 0.0);
+        assertEquals(expected.penUp, actual.penUp);
+    }
+
+    /**
+     * Stamped calls draw exactly the same lines and leave the turtle in
+     * exactly the same place as interpreting every call.
+     */
+    @Test
+    public void testMatchesStepByStep() {
+        LOGGER.info("matchesStepByStep");
+        TurtleCanvas expected = run(null);
+        InstanceCache cache = new InstanceCache();
+        TurtleCanvas actual = run(cache);
+        assertSameDrawing(expected, actual);
+        LOGGER.info(cache.toString());
+
+        //square 20 is recorded once and stamped 35 times, the tree reuses
+        //the second branch at every level, and spiral is stamped twice.
+        assertTrue(cache.getHits() >= 35 + 2 + 2);
+        assertTrue(cache.getMisses() > 0);
+        //marked sets a global, so it is always interpreted.
+        assertEquals(3, cache.getUncacheable());
+        assertTrue(cache.getMoveCount() <= cache.getMaxMoves());
+
+        //a new run starts over.
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHits());
+        assertSameDrawing(expected, run(cache));
+    }
+
+    /**
+     * The cache evicts the least recently used entries to stay within its
+     * bounds, which does not change the drawing.
+     */
+    @Test
+    public void testBounds() {
+        LOGGER.info("bounds");
+        TurtleCanvas expected = run(null);
+        InstanceCache cache = new InstanceCache(2, 64);
+        TurtleCanvas actual = run(cache);
+        assertSameDrawing(expected, actual);
+        LOGGER.info(cache.toString());
+        assertTrue(cache.size() <= 2);
+        assertTrue(cache.getMoveCount() <= 64);
+        assertTrue(cache.getEvictions() > 0);
+        assertTrue(cache.getHits() > 0);
+    }
+
+    /**
+     * The display list of a run that stamps repeated calls replays, command
+     * by command, to exactly the same lines and turtle state as the display
+     * list of a run that interprets every call. The script ends by drawing,
+     * so the last line also checks where the turtle was left.
+     */
+    @Test
+    public void testStampedDisplayList() {
+        LOGGER.info("stampedDisplayList");
+        DisplayList interpreted = run(false).cloneDrawable();
+        LogoPanel panel = run(true);
+        Assume.assumeTrue(panel.isInstancing());
+        DisplayList stamped = panel.cloneDrawable();
+        LOGGER.info(panel.getInstanceCache().toString());
+        assertTrue(panel.getInstanceCache().getHits() > 0);
+        assertTrue(stamped.size() < interpreted.size());
+
+        ArrayList<Object> expected = render(interpreted);
+        ArrayList<Object> actual = render(stamped);
+        assertEquals(expected.size(), actual.size());
+        for (int ii = 0; ii < expected.size(); ii++) {
+            if (expected.get(ii) instanceof double[]) {
+                assertArrayEquals("line " + ii, (double[]) expected.get(ii), (double[]) actual.get(ii), 0.0);
+            } else {
+                assertEquals("primitive " + ii, expected.get(ii), actual.get(ii));
+            }
+        }
+    }
+}
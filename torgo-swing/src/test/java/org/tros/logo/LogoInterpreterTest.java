@@ -0,0 +1,168 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.tros.logo.stream.StreamSink;
+import org.tros.logo.stream.StreamSinks;
+import org.tros.logo.stream.StreamingCanvas;
+import org.tros.torgo.TorgoInfo;
+import org.tros.torgo.interpreter.InterpreterThread;
+import org.tros.torgo.metrics.Metrics;
+import org.tros.utils.logging.Logging;
+
+/**
+ *
+ * @author matta
+ */
+public class LogoInterpreterTest {
+
+    private final static Logger LOGGER;
+
+    static {
+        Logging.initLogging(TorgoInfo.INSTANCE);
+        LOGGER = Logger.getLogger(LogoInterpreterTest.class.getName());
+    }
+
+    public LogoInterpreterTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test that the headless languages are the logo controllers' languages.
+     */
+    @Test
+    public void testForLanguage() {
+        LOGGER.info("forLanguage");
+        assertEquals(new DynamicLogoController().getLang(), LogoInterpreter.forLanguage("dynamic-logo").getLang());
+        assertEquals(new LexicalLogoController().getLang(), LogoInterpreter.forLanguage("lexical-logo").getLang());
+        assertTrue(LogoInterpreter.getLanguages().contains(new DynamicLogoController().getInterpreter().getLang()));
+        assertNull(LogoInterpreter.forLanguage("lisp"));
+    }
+
+    /**
+     * Test that a seeded run draws the same way every time, and differently
+     * with another seed.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRandomSeed() throws Exception {
+        LOGGER.info("randomSeed");
+        LogoInterpreter interpreter = LogoInterpreter.forLanguage("dynamic-logo");
+        interpreter.setRandomSeed(42L);
+        String first = draw(interpreter, SCRIPT);
+        assertEquals(first, draw(interpreter, SCRIPT));
+        interpreter.setRandomSeed(43L);
+        assertNotEquals(first, draw(interpreter, SCRIPT));
+    }
+
+    /**
+     * Run many seeded interpreters at once. Each run owns its random numbers,
+     * so they all draw the same thing and do not wait on each other.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRandomContention() throws Exception {
+        LOGGER.info("randomContention");
+        final LogoInterpreter interpreter = LogoInterpreter.forLanguage("dynamic-logo");
+        interpreter.setRandomSeed(7L);
+        final String expected = draw(interpreter, SCRIPT);
+        int cpus = Runtime.getRuntime().availableProcessors();
+        for (int threads : new int[]{1, cpus, cpus * 4}) {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                Callable<String> run = () -> draw(interpreter, SCRIPT);
+                long start = System.nanoTime();
+                ArrayList<Future<String>> results = new ArrayList<>();
+                for (Callable<String> task : Collections.nCopies(threads * 4, run)) {
+                    results.add(pool.submit(task));
+                }
+                for (Future<String> result : results) {
+                    assertEquals(expected, result.get());
+                }
+                LOGGER.info(String.format("%d threads: %d runs in %d ms", threads, results.size(), (System.nanoTime() - start) / 1000000));
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Test that a run is counted in the interpreter metrics.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMetrics() throws Exception {
+        LOGGER.info("metrics");
+        long statements = Metrics.counter("interpreter.statements").getCount();
+        long calls = Metrics.counter("interpreter.calls").getCount();
+        long expressions = Metrics.counter("interpreter.expressions").getCount();
+        draw(LogoInterpreter.forLanguage("dynamic-logo"), "to down :n\n"
+                + "if :n > 0 [fd 1 down :n - 1]\n"
+                + "end\n"
+                + "down 10\n");
+        assertEquals(11, Metrics.counter("interpreter.calls").getCount() - calls);
+        assertTrue(Metrics.maximum("interpreter.maxDepth").getValue() >= 11);
+        assertTrue(Metrics.counter("interpreter.statements").getCount() - statements >= 21);
+        assertTrue(Metrics.counter("interpreter.expressions").getCount() - expressions >= 22);
+    }
+
+    private static final String SCRIPT = "repeat 2000 [fd random 20 rt random 360]\n";
+
+    private static String draw(LogoInterpreter interpreter, String script) throws IOException, InterruptedException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamSink sink = StreamSinks.getSink("csv").create();
+        sink.start(out, 100, 100);
+        StreamingCanvas canvas = new StreamingCanvas(100, 100, Collections.singletonList(sink));
+        InterpreterThread thread = interpreter.createInterpreterThread(script, canvas);
+        thread.start();
+        thread.join();
+        canvas.close();
+        return out.toString("UTF-8");
+    }
+}
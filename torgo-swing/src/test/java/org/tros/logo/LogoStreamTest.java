@@ -0,0 +1,275 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.logging.Logger;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.tros.logo.stream.StreamSink;
+import org.tros.logo.stream.StreamSinks;
+import org.tros.logo.stream.StreamingCanvas;
+import org.tros.torgo.TorgoInfo;
+import org.tros.torgo.interpreter.CodeBlock;
+import org.tros.torgo.interpreter.DynamicScope;
+import org.tros.torgo.interpreter.InterpreterListener;
+import org.tros.torgo.interpreter.InterpreterThread;
+import org.tros.torgo.interpreter.ReturnValue;
+import org.tros.torgo.interpreter.Scope;
+import org.tros.utils.logging.Logging;
+
+/**
+ *
+ * @author matta
+ */
+public class LogoStreamTest {
+
+    private final static Logger LOGGER;
+
+    static {
+        Logging.initLogging(TorgoInfo.INSTANCE);
+        LOGGER = Logger.getLogger(LogoStreamTest.class.getName());
+    }
+
+    private File file;
+
+    public LogoStreamTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("torgo-stream", ".logo");
+    }
+
+    @After
+    public void tearDown() {
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    /**
+     * A generated script, like those exported from plotter tools.
+     */
+    private static String generate(int lines) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("; generated\n");
+        sb.append("to square :n\n");
+        sb.append("  repeat 4 [fd :n rt 90]\n");
+        sb.append("end\n\n");
+        for (int ii = 0; ii < lines; ii++) {
+            switch (ii % 5) {
+                case 0:
+                    sb.append("fd ").append(ii % 37).append(" rt ").append(ii % 91).append('\n');
+                    break;
+                case 1:
+                    sb.append("setxy ").append(ii % 53 - 26).append(' ').append(ii % 47 - 23).append('\n');
+                    break;
+                case 2:
+                    sb.append("square ").append(ii % 11).append('\n');
+                    break;
+                case 3:
+                    sb.append("pu fd 3 pd ; gap\n");
+                    break;
+                default:
+                    sb.append("\n");
+                    break;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String draw(InterpreterThread thread, ByteArrayOutputStream out, StreamingCanvas canvas) throws Exception {
+        thread.start();
+        thread.join();
+        canvas.close();
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A script run as it is read draws the same as when it is parsed whole.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMatchesParsed() throws Exception {
+        LOGGER.info("matchesParsed");
+        String source = generate(5000);
+        Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+        DynamicLogoController controller = new DynamicLogoController();
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        StreamSink sink = StreamSinks.getSink("csv");
+        sink.start(expected, 400, 300);
+        StreamingCanvas canvas = new StreamingCanvas(400, 300, Collections.singletonList(sink));
+        String parsed = draw(controller.createInterpreterThread(source, canvas), expected, canvas);
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        sink = StreamSinks.getSink("csv");
+        sink.start(actual, 400, 300);
+        canvas = new StreamingCanvas(400, 300, Collections.singletonList(sink));
+        String streamed = draw(controller.createInterpreterThread(file, canvas), actual, canvas);
+
+        assertTrue(parsed.split("\n").length > 5000);
+        assertEquals(parsed, streamed);
+    }
+
+    /**
+     * Lines run before the rest of the script is read, and nothing is kept
+     * once a line has run.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testBounded() throws IOException {
+        LOGGER.info("bounded");
+        final int lines = 20000;
+        final String first = "print 1\n";
+        final String line = "fd 1 rt 1\n";
+        final long total = first.length() + (long) lines * line.length();
+        //generates the script as it is read.
+        final long[] read = new long[1];
+        Reader reader = new Reader() {
+            @Override
+            public int read(char[] cbuf, int off, int len) {
+                int n = 0;
+                for (; n < len && read[0] < total; n++, read[0]++) {
+                    cbuf[off + n] = read[0] < first.length()
+                            ? first.charAt((int) read[0])
+                            : line.charAt((int) ((read[0] - first.length()) % line.length()));
+                }
+                return n == 0 ? -1 : n;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        final long[] readAtFirstMessage = {-1};
+        StreamingCanvas canvas = new StreamingCanvas(100, 100, Collections.emptyList());
+        LogoStream stream = new LogoStream(reader, canvas);
+        stream.addInterpreterListener(new InterpreterListener() {
+            @Override
+            public void started() {
+            }
+
+            @Override
+            public void finished() {
+            }
+
+            @Override
+            public void error(Exception e) {
+                fail(e.getMessage());
+            }
+
+            @Override
+            public void message(String msg) {
+                readAtFirstMessage[0] = read[0];
+            }
+
+            @Override
+            public void currStatement(CodeBlock block, Scope scope) {
+            }
+        });
+        stream.process(new DynamicScope());
+        stream.close();
+        canvas.close();
+
+        LOGGER.info(String.format("read %d of %d characters before the first line ran", readAtFirstMessage[0], total));
+        assertTrue(readAtFirstMessage[0] > 0);
+        assertTrue(readAtFirstMessage[0] < total / 10);
+        assertEquals(total, read[0]);
+        assertEquals(lines + 1, stream.getLineCount());
+        assertEquals(0, stream.getSyntaxErrorCount());
+        assertEquals(0, stream.getCommands().length);
+    }
+
+    /**
+     * Lines with syntax errors are reported and skipped, and the lines after
+     * them still run.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testSyntaxErrors() throws IOException {
+        LOGGER.info("syntaxErrors");
+        String source = "print 1\n"
+                + "repeat [ fd\n"
+                + "print 2\n"
+                + "to foo\n"
+                + "fd -\n"
+                + "end\n"
+                + "print 3\n";
+        final ArrayList<String> messages = new ArrayList<>();
+        StreamingCanvas canvas = new StreamingCanvas(100, 100, Collections.emptyList());
+        LogoStream stream = new LogoStream(new StringReader(source), canvas);
+        stream.addInterpreterListener(new InterpreterListener() {
+            @Override
+            public void started() {
+            }
+
+            @Override
+            public void finished() {
+            }
+
+            @Override
+            public void error(Exception e) {
+                fail(e.getMessage());
+            }
+
+            @Override
+            public void message(String msg) {
+                messages.add(msg);
+            }
+
+            @Override
+            public void currStatement(CodeBlock block, Scope scope) {
+            }
+        });
+        ReturnValue ret = stream.process(new DynamicScope());
+        stream.close();
+        canvas.close();
+
+        LOGGER.info(messages.toString());
+        assertEquals(ReturnValue.ProcessResult.SUCCESS, ret.getResult());
+        assertTrue(stream.getSyntaxErrorCount() >= 2);
+        assertTrue(messages.contains("1.0"));
+        assertTrue(messages.contains("2.0"));
+        assertTrue(messages.contains("3.0"));
+        long skipped = messages.stream().filter((msg) -> msg.startsWith("Syntax error")).count();
+        assertTrue(skipped >= 2);
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.stream;
+
+import java.awt.Font;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.tros.logo.DynamicLogoController;
+import org.tros.torgo.TorgoInfo;
+import org.tros.torgo.interpreter.InterpreterThread;
+import org.tros.utils.logging.Logging;
+
+/**
+ *
+ * @author matta
+ */
+public class StreamingCanvasTest {
+
+    private final static Logger LOGGER;
+
+    static {
+        Logging.initLogging(TorgoInfo.INSTANCE);
+        LOGGER = Logger.getLogger(StreamingCanvasTest.class.getName());
+    }
+
+    /**
+     * Counts lines, optionally holding up the writer until released.
+     */
+    private static final class CountingSink implements StreamSink {
+
+        private final AtomicLong lines = new AtomicLong();
+        private final CountDownLatch release;
+
+        CountingSink(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public String getName() {
+            return "count";
+        }
+
+        @Override
+        public String getExtension() {
+            return "txt";
+        }
+
+        @Override
+        public StreamSink create() {
+            return new CountingSink(release);
+        }
+
+        @Override
+        public void start(OutputStream out, int width, int height) {
+        }
+
+        @Override
+        public void line(double x1, double y1, double x2, double y2, int color) throws IOException {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                throw new IOException(ex);
+            }
+            lines.incrementAndGet();
+        }
+
+        @Override
+        public void text(String text, double x, double y, double angle, Font font, int color) {
+        }
+
+        @Override
+        public void clear() {
+        }
+
+        @Override
+        public void canvasColor(int color) {
+        }
+
+        @Override
+        public void finish() {
+        }
+    }
+
+    public StreamingCanvasTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private static byte[] stream(String sinkName, String source) throws IOException, InterruptedException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamSink sink = StreamSinks.getSink(sinkName);
+        sink.start(out, 400, 300);
+        StreamingCanvas canvas = new StreamingCanvas(400, 300, 16, 2, Collections.singletonList(sink));
+        InterpreterThread thread = new DynamicLogoController().createInterpreterThread(source, canvas);
+        thread.start();
+        thread.join();
+        canvas.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * The shipped sinks are found by the service loader.
+     */
+    @Test
+    public void testSinksLoaded() {
+        LOGGER.info("sinksLoaded");
+        assertTrue(StreamSinks.getSinks().containsAll(Arrays.asList("csv", "segments", "gcode")));
+        assertNull(StreamSinks.getSink("no-such-sink"));
+        assertNotSame(StreamSinks.getSink("csv"), StreamSinks.getSink("csv"));
+    }
+
+    /**
+     * Drawing blocks once every batch is waiting on a slow sink, so no more
+     * than the buffer capacity is ever held.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBackpressure() throws Exception {
+        LOGGER.info("backpressure");
+        CountDownLatch release = new CountDownLatch(1);
+        CountingSink sink = new CountingSink(release);
+        final StreamingCanvas canvas = new StreamingCanvas(100, 100, 16, 2, Collections.singletonList(sink));
+        Thread producer = new Thread(() -> {
+            for (int ii = 0; ii < 10000; ii++) {
+                canvas.forward(1);
+            }
+        });
+        producer.start();
+        producer.join(500);
+        assertTrue(producer.isAlive());
+        assertEquals(canvas.getBufferCapacity(), canvas.getPrimitiveCount());
+        assertEquals(0, sink.lines.get());
+
+        release.countDown();
+        producer.join();
+        canvas.close();
+        assertEquals(10000, canvas.getPrimitiveCount());
+        assertEquals(10000, sink.lines.get());
+        assertTrue(canvas.getStallCount() > 0);
+    }
+
+    /**
+     * Every segment becomes a CSV row.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCsv() throws Exception {
+        LOGGER.info("csv");
+        String csv = new String(stream("csv", "repeat 500 [fd 2 rt 1]\npu fd 10 pd\nfd 1.5"), StandardCharsets.UTF_8);
+        String[] rows = csv.split("\n");
+        assertEquals("x1,y1,x2,y2,color", rows[0]);
+        assertEquals(502, rows.length);
+        //the turtle starts in the middle heading up.
+        assertEquals("200,150,200,148,#ff000000", rows[1]);
+        assertTrue(rows[501].endsWith(",#ff000000"));
+    }
+
+    /**
+     * The binary stream has a header followed by fixed size records.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSegments() throws Exception {
+        LOGGER.info("segments");
+        byte[] bytes = stream("segments", "cs\nto square :size\nrepeat 4 [fd :size rt 90]\nend\nrepeat 100 [square 10 rt 5]");
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        byte[] magic = new byte[4];
+        in.readFully(magic);
+        assertEquals("TSEG", new String(magic, StandardCharsets.US_ASCII));
+        assertEquals(SegmentStreamSink.VERSION, in.readInt());
+        assertEquals(400, in.readInt());
+        assertEquals(300, in.readInt());
+        assertEquals(SegmentStreamSink.CLEAR, in.readByte());
+        int lines = 0;
+        while (in.available() > 0) {
+            assertEquals(SegmentStreamSink.LINE, in.readByte());
+            in.skipBytes(4 * 4 + 4);
+            lines++;
+        }
+        assertEquals(400, lines);
+    }
+
+    /**
+     * Connected segments are plotted without lifting the pen.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGCode() throws Exception {
+        LOGGER.info("gcode");
+        String gcode = new String(stream("gcode", "repeat 4 [fd 100 rt 90]\npu fd 50 pd\nfd 10"), StandardCharsets.US_ASCII);
+        String[] lines = gcode.split("\n");
+        assertEquals("G21", lines[1]);
+        assertEquals("G90", lines[2]);
+        //two strokes, each starting with a pen down.
+        assertEquals(2, gcode.split("G1 Z0", -1).length - 1);
+        assertEquals(5, gcode.split("\nG1 X", -1).length - 1);
+        //the first stroke starts at the middle, with y flipped.
+        assertTrue(gcode.contains("G0 X50 Y37.5\n"));
+        assertEquals("G0 X0 Y0", lines[lines.length - 1]);
+        assertFalse(gcode.contains("E"));
+
+        assertEquals("0", GCodeStreamSink.format(1e-4));
+        assertEquals("-2.5", GCodeStreamSink.format(-2.5));
+        assertEquals("12.346", GCodeStreamSink.format(12.3456));
+    }
+}
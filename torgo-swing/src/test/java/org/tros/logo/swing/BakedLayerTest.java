@@ -0,0 +1,171 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.logging.Logger;
+import javax.imageio.ImageIO;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.tros.torgo.TorgoInfo;
+import org.tros.utils.logging.Logging;
+
+/**
+ *
+ * @author matta
+ */
+public class BakedLayerTest {
+
+    private final static Logger LOGGER;
+    private static final int SIZE = 100;
+    private static final int STEPS = 40;
+
+    static {
+        Logging.initLogging(TorgoInfo.INSTANCE);
+        LOGGER = Logger.getLogger(BakedLayerTest.class.getName());
+    }
+
+    public BakedLayerTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Create a panel and draw a spiral with it, returning the number of
+     * commands submitted after the reset.
+     */
+    private static LogoPanel draw(int maxLiveCommands) {
+        LogoPanel panel = new LogoPanel(null);
+        panel.setSize(SIZE, SIZE);
+        panel.setMaxLiveCommands(maxLiveCommands);
+        panel.reset();
+        panel.hideTurtle();
+        for (int ii = 0; ii < STEPS; ii++) {
+            panel.pencolor(ii % 2 == 0 ? "red" : "blue");
+            panel.forward(2 + ii);
+            panel.right(50);
+        }
+        return panel;
+    }
+
+    private static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals("pixel " + x + "," + y, expected.getRGB(x, y), actual.getRGB(x, y));
+            }
+        }
+    }
+
+    /**
+     * Old commands are flattened once the limit is passed, without changing
+     * what is drawn.
+     */
+    @Test
+    public void testBake() {
+        LOGGER.info("bake");
+        LogoPanel unbaked = draw(0);
+        LogoPanel panel = draw(20);
+        assertEquals(0, unbaked.getBakedCommandCount());
+        assertTrue(panel.getBakedCommandCount() > 0);
+        assertTrue(panel.getLiveCommandCount() <= 20);
+        assertEquals(unbaked.getLiveCommandCount(), panel.getBakedCommandCount() + panel.getLiveCommandCount());
+        assertEquals(unbaked.getTurtleX(), panel.getTurtleX(), 0.0);
+
+        assertSameImage(unbaked.getBufferedImage(), panel.getBufferedImage());
+        assertEquals(unbaked.getTurtleX(), panel.getTurtleX(), 1e-9);
+        assertEquals(unbaked.getTurtleY(), panel.getTurtleY(), 1e-9);
+        assertEquals(unbaked.getTurtleAngle(), panel.getTurtleAngle(), 1e-9);
+
+        panel.reset();
+        assertEquals(0, panel.getBakedCommandCount());
+    }
+
+    /**
+     * Draft paints keep their raster across flattening instead of starting
+     * over.
+     */
+    @Test
+    public void testDraftAcrossBake() {
+        LOGGER.info("draftAcrossBake");
+        LogoPanel panel = new LogoPanel(null);
+        panel.setSize(SIZE, SIZE);
+        panel.setMaxLiveCommands(10);
+        panel.reset();
+        panel.hideTurtle();
+        panel.setRenderQuality(RenderQuality.DRAFT);
+        BufferedImage screen = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+        for (int ii = 0; ii < STEPS; ii++) {
+            panel.forward(2 + ii);
+            panel.right(50);
+            Graphics2D g2d = screen.createGraphics();
+            panel.paintComponent(g2d);
+            g2d.dispose();
+        }
+        assertTrue(panel.getBakedCommandCount() > 0);
+        assertEquals(panel.getBakedCommandCount() + panel.getLiveCommandCount(),
+                panel.getRenderMetrics().getRasterizedCommands());
+    }
+
+    /**
+     * Exports draw the flattened commands as an image. The SVG export is
+     * tested in SvgExporterTest.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testExport() throws IOException {
+        LOGGER.info("export");
+        LogoPanel panel = draw(20);
+        DisplayList snapshot = panel.cloneDrawable();
+        assertEquals(panel.getBakedCommandCount(), snapshot.getBakedCount());
+
+        TiledImageExporter png = new TiledImageExporter(snapshot, SIZE, SIZE, 1.0, 32);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        png.export(baos);
+        assertSameImage(panel.getBufferedImage(), ImageIO.read(new ByteArrayInputStream(baos.toByteArray())));
+
+        png = new TiledImageExporter(snapshot, SIZE, SIZE, 2.0, 64);
+        png.setRasterRendering(true);
+        baos = new ByteArrayOutputStream();
+        png.export(baos);
+        BufferedImage scaled = ImageIO.read(new ByteArrayInputStream(baos.toByteArray()));
+        BufferedImage layer = panel.getBufferedImage();
+        //the part before the first live command is a scaled copy of the layer.
+        assertEquals(layer.getRGB(10, 10), scaled.getRGB(21, 21));
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.logging.Logger;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.tros.torgo.TorgoInfo;
+import org.tros.utils.PathUtils;
+import org.tros.utils.logging.Logging;
+
+/**
+ *
+ * @author matta
+ */
+public class CommandStoreTest {
+
+    private final static Logger LOGGER;
+
+    static {
+        Logging.initLogging(TorgoInfo.INSTANCE);
+        LOGGER = Logger.getLogger(CommandStoreTest.class.getName());
+    }
+
+    public CommandStoreTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private static ArrayList<DrawCommand> sample() {
+        ArrayList<DrawCommand> commands = new ArrayList<>();
+        commands.add(new DrawCommand(DrawCommand.Op.CLEAR));
+        commands.add(new DrawCommand(DrawCommand.Op.HOME));
+        commands.add(new DrawCommand(DrawCommand.Op.FORWARD, 10));
+        commands.add(new DrawCommand(DrawCommand.Op.FORWARD, -1000000000000L));
+        commands.add(new DrawCommand(DrawCommand.Op.BACKWARD, 2.5));
+        commands.add(new DrawCommand(DrawCommand.Op.LEFT, 0.1));
+        commands.add(new DrawCommand(DrawCommand.Op.RIGHT, 90));
+        commands.add(new DrawCommand(DrawCommand.Op.SET_XY, 10, -20));
+        commands.add(new DrawCommand(DrawCommand.Op.SET_XY, 15, -25));
+        commands.add(new DrawCommand(DrawCommand.Op.SET_XY, 15.5, 1e300));
+        commands.add(new DrawCommand(DrawCommand.Op.SET_XY, 3, 4));
+        commands.add(new DrawCommand(DrawCommand.Op.PEN_UP));
+        commands.add(new DrawCommand(DrawCommand.Op.PEN_DOWN));
+        commands.add(new DrawCommand(DrawCommand.Op.CANVAS_COLOR, Color.yellow));
+        commands.add(new DrawCommand(DrawCommand.Op.PEN_COLOR, new Color(1, 2, 3, 4)));
+        commands.add(new DrawCommand(DrawCommand.Op.DRAW_STRING, "héllo 世界"));
+        commands.add(new DrawCommand(DrawCommand.Op.FONT_SIZE, 24));
+        commands.add(new DrawCommand(DrawCommand.Op.FONT_NAME, "Serif"));
+        commands.add(new DrawCommand(DrawCommand.Op.FONT_STYLE, 1));
+        commands.add(new DrawCommand(DrawCommand.Op.HIDE_TURTLE));
+        commands.add(new DrawCommand(DrawCommand.Op.SHOW_TURTLE));
+        commands.add(new DrawCommand(DrawCommand.Op.PAUSE, 250));
+        commands.add(new DrawCommand(DrawCommand.Op.DRAW_STRING, new String(new char[300]).replace('\0', 'x')));
+        return commands;
+    }
+
+    private static void assertReplays(ArrayList<DrawCommand> expected, CommandStore.Cursor cursor) {
+        for (DrawCommand command : expected) {
+            assertTrue(cursor.next());
+            assertEquals(command.getOp(), cursor.getOp());
+            assertEquals(command.getX(), cursor.getX(), 0.0);
+            assertEquals(command.getY(), cursor.getY(), 0.0);
+            assertEquals(command.getValue(), cursor.getValue());
+        }
+        assertFalse(cursor.next());
+    }
+
+    /**
+     * Every kind of command comes back as it went in, including across
+     * segments much smaller than some records.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        LOGGER.info("roundTrip");
+        ArrayList<DrawCommand> commands = sample();
+        for (int segmentSize : new int[]{CommandStore.SEGMENT_SIZE, 16}) {
+            CommandStore store = new CommandStore(CommandStore.DEFAULT_MEMORY_BUDGET, segmentSize, segmentSize);
+            commands.forEach(store::append);
+            assertEquals(commands.size(), store.size());
+            assertReplays(commands, store.cursor());
+            store.close();
+        }
+    }
+
+    /**
+     * A cursor only sees what was in the store when it was made.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testSnapshot() throws IOException {
+        LOGGER.info("snapshot");
+        CommandStore store = new CommandStore(CommandStore.DEFAULT_MEMORY_BUDGET, 32, 32);
+        store.append(DrawCommand.Op.FORWARD, 1, 0, null);
+        CommandStore.Cursor cursor = store.cursor();
+        for (int ii = 0; ii < 100; ii++) {
+            store.append(DrawCommand.Op.FORWARD, ii, 0, null);
+        }
+        assertTrue(cursor.next());
+        assertFalse(cursor.next());
+        cursor.setLimit(Long.MAX_VALUE);
+        int count = 0;
+        while (cursor.next()) {
+            assertEquals(count++, cursor.getX(), 0.0);
+        }
+        assertEquals(100, count);
+        store.close();
+        try {
+            store.append(DrawCommand.Op.HOME, 0, 0, null);
+            fail();
+        } catch (IllegalStateException ex) {
+        }
+        //still readable after close.
+        assertReplays(new ArrayList<>(), store.cursor(0));
+        assertEquals(101, countRecords(store.cursor()));
+    }
+
+    private static long countRecords(CommandStore.Cursor cursor) {
+        long count = 0;
+        while (cursor.next()) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Past the memory budget, segments come from a memory-mapped file which is
+     * not left behind in the temp directory.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testSpill() throws IOException {
+        LOGGER.info("spill");
+        File tmp = new File(PathUtils.getTempDir());
+        int before = countSpillFiles(tmp);
+        CommandStore store = new CommandStore(1024, 1024, 4096);
+        ArrayList<DrawCommand> commands = new ArrayList<>();
+        Random random = new Random(7);
+        for (int ii = 0; ii < 5000; ii++) {
+            DrawCommand command = ii % 3 == 0
+                    ? new DrawCommand(DrawCommand.Op.SET_XY, random.nextInt(1000) - 500, random.nextInt(1000) - 500)
+                    : new DrawCommand(ii % 3 == 1 ? DrawCommand.Op.FORWARD : DrawCommand.Op.RIGHT, random.nextDouble() * 100);
+            commands.add(command);
+            store.append(command);
+        }
+        assertEquals(1024, store.getDirectBytes());
+        assertTrue(store.getMappedBytes() > 0);
+        assertEquals(before, countSpillFiles(tmp));
+        assertReplays(commands, store.cursor());
+        store.close();
+        assertReplays(commands, store.cursor());
+    }
+
+    private static int countSpillFiles(File dir) {
+        String[] names = dir.list((d, name) -> name.startsWith("torgo-display"));
+        return names == null ? 0 : names.length;
+    }
+
+    /**
+     * Small whole-number arguments take a byte or two, and heap use does not
+     * grow with the number of commands.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testCompact() throws IOException {
+        LOGGER.info("compact");
+        final int count = 5000000;
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        long start = System.nanoTime();
+        CommandStore store = new CommandStore(8L << 20);
+        for (int ii = 0; ii < count; ii++) {
+            store.append(ii % 2 == 0 ? DrawCommand.Op.FORWARD : DrawCommand.Op.RIGHT, 1 + (ii % 100), 0, null);
+        }
+        long appendTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        assertEquals(count, countRecords(store.cursor()));
+        long replayTime = System.nanoTime() - start;
+        System.gc();
+        long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+        LOGGER.info(String.format("%d commands: %d bytes (%d direct, %d mapped), append %d ms, replay %d ms, heap %+d KB",
+                count, store.getByteCount(), store.getDirectBytes(), store.getMappedBytes(),
+                appendTime / 1000000, replayTime / 1000000, (heapAfter - heapBefore) / 1024));
+        assertTrue(store.getByteCount() <= 3L * count);
+        assertTrue(store.getMappedBytes() > 0);
+        //a list of command objects would take well over 100MB.
+        assertTrue(heapAfter - heapBefore < 32L << 20);
+        store.close();
+    }
+
+    /**
+     * Painting, flattening and exporting through the store matches replaying
+     * the commands directly.
+     */
+    @Test
+    public void testPanel() {
+        LOGGER.info("panel");
+        LogoPanel panel = new LogoPanel(null);
+        panel.setSize(60, 60);
+        panel.reset();
+        for (int ii = 0; ii < 50; ii++) {
+            panel.setXY(ii % 7 - 3, ii % 5 - 2);
+            panel.forward(ii * 0.75);
+            panel.left(33);
+        }
+        DisplayList snapshot = panel.cloneDrawable();
+        assertEquals(152, snapshot.size());
+        panel.forward(10);
+        assertEquals(152, snapshot.size());
+        assertEquals(153, panel.getLiveCommandCount());
+
+        ArrayList<DrawCommand> commands = new ArrayList<>();
+        CommandStore.Cursor cursor = snapshot.cursor();
+        while (cursor.next()) {
+            commands.add(cursor.toCommand());
+        }
+        TurtleState expected = new TurtleState();
+        expected.width = 60;
+        expected.height = 60;
+        new DisplayList(commands).render(new RasterSink(new java.awt.image.BufferedImage(60, 60, java.awt.image.BufferedImage.TYPE_INT_RGB)), expected);
+        TurtleState actual = new TurtleState();
+        actual.width = 60;
+        actual.height = 60;
+        snapshot.render(new RasterSink(new java.awt.image.BufferedImage(60, 60, java.awt.image.BufferedImage.TYPE_INT_RGB)), actual);
+        assertEquals(expected.penX, actual.penX, 0.0);
+        assertEquals(expected.penY, actual.penY, 0.0);
+        assertEquals(expected.angle, actual.angle, 0.0);
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.logging.Logger;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.tros.torgo.TorgoInfo;
+import org.tros.utils.GifSequenceWriter;
+import org.tros.utils.logging.Logging;
+
+/**
+ *
+ * @author matta
+ */
+public class GifExporterTest {
+
+    private final static Logger LOGGER;
+
+    static {
+        Logging.initLogging(TorgoInfo.INSTANCE);
+        LOGGER = Logger.getLogger(GifExporterTest.class.getName());
+    }
+
+    public GifExporterTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private static LogoPanel createPanel(int sides) {
+        LogoPanel panel = new LogoPanel(null);
+        panel.setSize(160, 120);
+        panel.reset();
+        panel.hideTurtle();
+        for (int ii = 0; ii < sides; ii++) {
+            panel.pencolor(ii % 2 == 0 ? "red" : "blue");
+            panel.forward(ii % 50);
+            panel.right(89);
+        }
+        return panel;
+    }
+
+    private static ImageReader read(byte[] gif) throws IOException {
+        ImageInputStream iis = ImageIO.createImageInputStream(new ByteArrayInputStream(gif));
+        ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+        reader.setInput(iis);
+        return reader;
+    }
+
+    private static IIOMetadataNode getNode(ImageReader reader, int index, String name) throws IOException {
+        IIOMetadataNode root = (IIOMetadataNode) reader.getImageMetadata(index).getAsTree("javax_imageio_gif_image_1.0");
+        return (IIOMetadataNode) root.getElementsByTagName(name).item(0);
+    }
+
+    /**
+     * Test of export method, of class GifExporter. Layering the delta frames
+     * has to give back the drawing.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testExport() throws IOException {
+        LOGGER.info("export");
+        LogoPanel panel = createPanel(40);
+        GifExporter exporter = new GifExporter(panel.cloneDrawable(), panel.getWidth(), panel.getHeight());
+        exporter.setCommandsPerFrame(12);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        exporter.export(baos);
+
+        ImageReader reader = read(baos.toByteArray());
+        int frames = reader.getNumImages(true);
+        assertEquals(exporter.getFrameCount(), frames);
+        //124 commands in frames of 12, plus the remainder.
+        assertEquals(11, frames);
+
+        BufferedImage composite = new BufferedImage(panel.getWidth(), panel.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = composite.createGraphics();
+        for (int ii = 0; ii < frames; ii++) {
+            BufferedImage frame = reader.read(ii);
+            IIOMetadataNode descriptor = getNode(reader, ii, "ImageDescriptor");
+            int x = Integer.parseInt(descriptor.getAttribute("imageLeftPosition"));
+            int y = Integer.parseInt(descriptor.getAttribute("imageTopPosition"));
+            if (ii == 0) {
+                assertEquals(panel.getWidth(), frame.getWidth());
+                assertEquals(panel.getHeight(), frame.getHeight());
+            } else {
+                assertTrue(frame.getWidth() * frame.getHeight() < panel.getWidth() * panel.getHeight());
+            }
+            assertEquals("doNotDispose", getNode(reader, ii, "GraphicControlExtension").getAttribute("disposalMethod"));
+            g2d.drawImage(frame, x, y, null);
+        }
+        g2d.dispose();
+
+        BufferedImage expected = new BufferedImage(panel.getWidth(), panel.getHeight(), BufferedImage.TYPE_INT_RGB);
+        g2d = expected.createGraphics();
+        TurtleState ts = new TurtleState();
+        ts.width = panel.getWidth();
+        ts.height = panel.getHeight();
+        panel.cloneDrawable().draw(g2d, ts);
+        g2d.dispose();
+
+        //the palette is limited; where lines of different colors cross the
+        //nearest entry can be up to half a step of the color cube away.
+        final int tolerance = 32;
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                Color e = new Color(expected.getRGB(x, y));
+                Color a = new Color(composite.getRGB(x, y));
+                assertTrue(Math.abs(e.getRed() - a.getRed()) <= tolerance);
+                assertTrue(Math.abs(e.getGreen() - a.getGreen()) <= tolerance);
+                assertTrue(Math.abs(e.getBlue() - a.getBlue()) <= tolerance);
+            }
+        }
+    }
+
+    /**
+     * Pauses advance virtual time, which drives sampling and frame delays.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testVirtualTime() throws IOException {
+        LOGGER.info("virtualTime");
+        LogoPanel panel = new LogoPanel(null);
+        panel.setSize(100, 100);
+        panel.reset();
+        panel.forward(10);
+        panel.pause(0);
+        panel.right(90);
+        panel.forward(10);
+        panel.pause(0);
+        panel.forward(10);
+
+        DisplayList displayList = panel.cloneDrawable();
+        //pause(0) does not sleep, but mark the pauses as taking 500ms.
+        java.util.ArrayList<DrawCommand> commands = new java.util.ArrayList<>();
+        CommandStore.Cursor cursor = displayList.cursor();
+        while (cursor.next()) {
+            commands.add(cursor.getOp() == DrawCommand.Op.PAUSE ? new DrawCommand(DrawCommand.Op.PAUSE, 500) : cursor.toCommand());
+        }
+        GifExporter exporter = new GifExporter(new DisplayList(commands), 100, 100);
+        exporter.setCommandsPerFrame(0);
+        exporter.setFrameInterval(250);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        exporter.export(baos);
+
+        ImageReader reader = read(baos.toByteArray());
+        assertEquals(3, reader.getNumImages(true));
+        assertEquals("50", getNode(reader, 0, "GraphicControlExtension").getAttribute("delayTime"));
+        assertEquals("50", getNode(reader, 1, "GraphicControlExtension").getAttribute("delayTime"));
+        assertEquals(Integer.toString(GifExporter.DEFAULT_FRAME_DELAY / 10), getNode(reader, 2, "GraphicControlExtension").getAttribute("delayTime"));
+    }
+
+    /**
+     * Compare output size and export time with writing the full canvas after
+     * every command, which is what the GIF export used to do.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testBenchmark() throws IOException {
+        LOGGER.info("benchmark");
+        LogoPanel panel = createPanel(150);
+        DisplayList displayList = panel.cloneDrawable();
+
+        long start = System.nanoTime();
+        ByteArrayOutputStream legacy = new ByteArrayOutputStream();
+        MemoryCacheImageOutputStream ios = new MemoryCacheImageOutputStream(legacy);
+        final BufferedImage image = new BufferedImage(panel.getWidth(), panel.getHeight(), BufferedImage.TYPE_INT_RGB);
+        final GifSequenceWriter writer = new GifSequenceWriter(ios, image.getType(), 1, true);
+        Graphics2D g2d = image.createGraphics();
+        DrawListener dl = (Drawable sender) -> {
+            try {
+                writer.writeToSequence(image);
+            } catch (IOException ex) {
+                fail(ex.getMessage());
+            }
+        };
+        displayList.addListener(dl);
+        TurtleState ts = new TurtleState();
+        ts.width = image.getWidth();
+        ts.height = image.getHeight();
+        displayList.draw(g2d, ts);
+        displayList.removeListener(dl);
+        writer.close();
+        ios.close();
+        long legacyTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        GifExporter exporter = new GifExporter(displayList, panel.getWidth(), panel.getHeight());
+        exporter.setCommandsPerFrame(4);
+        ByteArrayOutputStream sampled = new ByteArrayOutputStream();
+        exporter.export(sampled);
+        long sampledTime = System.nanoTime() - start;
+
+        LOGGER.info(String.format("per-command: %d bytes in %d ms; sampled: %d bytes, %d frames in %d ms",
+                legacy.size(), legacyTime / 1000000, sampled.size(), exporter.getFrameCount(), sampledTime / 1000000));
+        assertTrue(sampled.size() < legacy.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadSize() {
+        LOGGER.info("badSize");
+        GifExporter exporter = new GifExporter(new LogoPanel(null).cloneDrawable(), 10, 0);
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.logging.Logger;
+import javax.imageio.ImageIO;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.tros.torgo.TorgoInfo;
+import org.tros.utils.logging.Logging;
+
+/**
+ *
+ * @author matta
+ */
+public class RasterSinkTest {
+
+    private final static Logger LOGGER;
+
+    static {
+        Logging.initLogging(TorgoInfo.INSTANCE);
+        LOGGER = Logger.getLogger(RasterSinkTest.class.getName());
+    }
+
+    public RasterSinkTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private static BufferedImage createImage(int w, int h) {
+        BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        new RasterSink(image).clear(w, h);
+        return image;
+    }
+
+    private static int countColored(BufferedImage image) {
+        int colored = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if ((image.getRGB(x, y) & 0xffffff) != 0xffffff) {
+                    colored++;
+                }
+            }
+        }
+        return colored;
+    }
+
+    /**
+     * Test of line method, of class RasterSink.
+     */
+    @Test
+    public void testLine() {
+        LOGGER.info("line");
+        BufferedImage image = createImage(20, 20);
+        RasterSink sink = new RasterSink(image);
+        sink.line(4, 1, 14, 1, Color.red);
+        sink.line(5, 5, 5, 15, Color.blue);
+        sink.line(0, 0, 19, 19, Color.black);
+
+        for (int x = 4; x <= 14; x++) {
+            assertEquals(Color.red.getRGB(), image.getRGB(x, 1));
+        }
+        for (int y = 6; y <= 15; y++) {
+            assertEquals(Color.blue.getRGB(), image.getRGB(5, y));
+        }
+        assertEquals(Color.black.getRGB(), image.getRGB(5, 5));
+        for (int ii = 0; ii < 20; ii++) {
+            assertEquals(Color.black.getRGB(), image.getRGB(ii, ii));
+        }
+        assertEquals(11 + 10 + 20, countColored(image));
+    }
+
+    /**
+     * Lines are clipped to the image, including ones far outside of it.
+     */
+    @Test
+    public void testClip() {
+        LOGGER.info("clip");
+        BufferedImage image = createImage(10, 10);
+        RasterSink sink = new RasterSink(image);
+        sink.line(-1e9, 5, 1e9, 5, Color.black);
+        sink.line(-5, -5, -1, 20, Color.black);
+        sink.line(20, 20, 30, 30, Color.black);
+        assertEquals(10, countColored(image));
+    }
+
+    /**
+     * Translucent pens are blended over the image.
+     */
+    @Test
+    public void testBlend() {
+        LOGGER.info("blend");
+        BufferedImage image = createImage(10, 10);
+        RasterSink sink = new RasterSink(image);
+        sink.line(0, 0, 9, 0, new Color(0, 0, 0, 128));
+        Color c = new Color(image.getRGB(4, 0));
+        assertEquals(127, c.getRed());
+        assertEquals(127, c.getBlue());
+    }
+
+    /**
+     * Test of text method, of class RasterSink.
+     */
+    @Test
+    public void testText() {
+        LOGGER.info("text");
+        BufferedImage image = createImage(100, 100);
+        RasterSink sink = new RasterSink(image);
+        sink.text("Torgo", 10, 40, 0, new Font(Font.DIALOG, Font.PLAIN, 16), Color.black);
+        int straight = countColored(image);
+        assertTrue(straight > 0);
+        //everything is above the baseline except descenders.
+        for (int x = 0; x < 100; x++) {
+            for (int y = 45; y < 100; y++) {
+                assertEquals(0xffffff, image.getRGB(x, y) & 0xffffff);
+            }
+        }
+
+        image = createImage(100, 100);
+        sink = new RasterSink(image);
+        sink.text("Torgo", 50, 10, Math.PI / 2, new Font(Font.DIALOG, Font.PLAIN, 16), Color.black);
+        int rotated = countColored(image);
+        assertTrue(rotated > straight / 2);
+        //rotated a quarter turn the text runs down the image, with the tops
+        //of the letters to the right of x.
+        for (int x = 0; x < 45; x++) {
+            for (int y = 0; y < 100; y++) {
+                assertEquals(0xffffff, image.getRGB(x, y) & 0xffffff);
+            }
+        }
+    }
+
+    /**
+     * A tiled export with the raster renderer matches rendering the whole
+     * image with it.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testTiledExport() throws IOException {
+        LOGGER.info("tiledExport");
+        LogoPanel panel = new LogoPanel(null);
+        panel.setSize(120, 80);
+        panel.reset();
+        for (int ii = 0; ii < 36; ii++) {
+            panel.pencolor(ii % 2 == 0 ? "red" : "blue");
+            panel.forward(35);
+            panel.backward(35);
+            panel.right(10);
+        }
+        TiledImageExporter exporter = new TiledImageExporter(panel.cloneDrawable(), 120, 80, 2.0, 50);
+        exporter.setRasterRendering(true);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        exporter.export(baos);
+        BufferedImage tiled = ImageIO.read(new ByteArrayInputStream(baos.toByteArray()));
+
+        BufferedImage expected = createImage(240, 160);
+        RasterSink sink = new RasterSink(expected);
+        sink.setTransform(2.0, 0, 0);
+        TurtleState ts = new TurtleState();
+        ts.width = 120;
+        ts.height = 80;
+        panel.cloneDrawable().render(sink, ts);
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), tiled.getRGB(x, y));
+            }
+        }
+        assertTrue(countColored(tiled) > 0);
+    }
+
+    /**
+     * A canvas picks the raster renderer when it is selected or when running
+     * headless without antialiasing.
+     */
+    @Test
+    public void testSelection() {
+        LOGGER.info("selection");
+        LogoPanel panel = new LogoPanel(null);
+        assertTrue(panel.isAntialiasing());
+        assertFalse(panel.isRasterRendering());
+        panel.setRasterRendering(true);
+        assertTrue(panel.isRasterRendering());
+        panel.setRasterRendering(false);
+        panel.setAntialiasing(false);
+        assertEquals(java.awt.GraphicsEnvironment.isHeadless(), panel.isRasterRendering());
+
+        panel.setSize(50, 50);
+        panel.reset();
+        panel.setRasterRendering(true);
+        panel.forward(20);
+        assertEquals(Color.black.getRGB(), panel.getBufferedImage().getRGB(25, 15));
+    }
+
+    /**
+     * Compare segments per second with Java2D.
+     */
+    @Test
+    public void testBenchmark() {
+        LOGGER.info("benchmark");
+        final int segments = 200000;
+        final int size = 512;
+        double[] coords = new double[segments * 4];
+        Random random = new Random(42);
+        for (int ii = 0; ii < coords.length; ii++) {
+            coords[ii] = random.nextDouble() * size;
+        }
+
+        BufferedImage image = createImage(size, size);
+        Graphics2D g2d = image.createGraphics();
+        Graphics2DSink java2d = new Graphics2DSink(g2d);
+        long java2dTime = time(java2d, coords);
+        java2d.setAntialiasing(false);
+        long java2dNoAaTime = time(java2d, coords);
+        g2d.dispose();
+
+        RasterSink raster = new RasterSink(image);
+        //warm up.
+        time(raster, coords);
+        long rasterTime = time(raster, coords);
+
+        LOGGER.info(String.format("segments/s: java2d %.0f, java2d (no aa) %.0f, raster %.0f",
+                segments * 1e9 / java2dTime, segments * 1e9 / java2dNoAaTime, segments * 1e9 / rasterTime));
+        assertTrue(rasterTime < java2dTime);
+    }
+
+    private static long time(DrawingSink sink, double[] coords) {
+        long start = System.nanoTime();
+        for (int ii = 0; ii < coords.length; ii += 4) {
+            sink.line(coords[ii], coords[ii + 1], coords[ii + 2], coords[ii + 3], Color.black);
+        }
+        return System.nanoTime() - start;
+    }
+}
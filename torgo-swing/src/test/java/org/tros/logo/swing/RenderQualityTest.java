@@ -0,0 +1,207 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationTargetException;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.tros.torgo.TorgoInfo;
+import org.tros.torgo.interpreter.InterpreterListener;
+import org.tros.utils.logging.Logging;
+
+/**
+ *
+ * @author matta
+ */
+public class RenderQualityTest {
+
+    private final static Logger LOGGER;
+
+    static {
+        Logging.initLogging(TorgoInfo.INSTANCE);
+        LOGGER = Logger.getLogger(RenderQualityTest.class.getName());
+    }
+
+    public RenderQualityTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private static LogoPanel createPanel(int size) {
+        LogoPanel panel = new LogoPanel(null);
+        panel.setSize(size, size);
+        panel.reset();
+        panel.hideTurtle();
+        return panel;
+    }
+
+    private static void paint(LogoPanel panel, BufferedImage screen) {
+        Graphics2D g2d = screen.createGraphics();
+        panel.paintComponent(g2d);
+        g2d.dispose();
+    }
+
+    private static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals("pixel " + x + "," + y, expected.getRGB(x, y), actual.getRGB(x, y));
+            }
+        }
+    }
+
+    /**
+     * Draft paints only rasterize new commands but end up with the same image
+     * as a full replay.
+     */
+    @Test
+    public void testDraftIsIncremental() {
+        LOGGER.info("draftIsIncremental");
+        final int size = 100;
+        LogoPanel panel = createPanel(size);
+        panel.setRenderQuality(RenderQuality.DRAFT);
+        BufferedImage screen = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        for (int ii = 0; ii < 20; ii++) {
+            panel.forward(10 + ii);
+            panel.right(36 + ii);
+            paint(panel, screen);
+        }
+        RenderMetrics metrics = panel.getRenderMetrics();
+        DisplayList snapshot = panel.cloneDrawable();
+        assertEquals(20, metrics.getDraftFrames());
+        assertEquals(0, metrics.getFullFrames());
+        assertEquals(snapshot.size(), metrics.getRasterizedCommands());
+
+        BufferedImage expected = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        TurtleState ts = new TurtleState();
+        ts.width = size;
+        ts.height = size;
+        snapshot.render(new RasterSink(expected), ts);
+        assertSameImage(expected, screen);
+        assertEquals(ts.penX, panel.getTurtleX(), 0.0);
+        assertEquals(ts.penY, panel.getTurtleY(), 0.0);
+
+        //a reset starts the raster over.
+        panel.reset();
+        panel.hideTurtle();
+        panel.forward(5);
+        paint(panel, screen);
+        assertEquals(snapshot.size() + panel.cloneDrawable().size(), metrics.getRasterizedCommands());
+    }
+
+    /**
+     * Finishing a run swaps in a full quality render, which is reused until
+     * the display list changes.
+     *
+     * @throws InterruptedException
+     * @throws InvocationTargetException
+     */
+    @Test
+    public void testQualityWhenFinished() throws InterruptedException, InvocationTargetException {
+        LOGGER.info("qualityWhenFinished");
+        java.util.prefs.Preferences prefs = java.util.prefs.Preferences.userNodeForPackage(LogoMenuBar.class);
+        Assume.assumeTrue(prefs.getBoolean(LogoMenuBar.DRAFT_WHILE_RUNNING, true)
+                && prefs.getBoolean(LogoMenuBar.QUALITY_WHEN_FINISHED, true));
+
+        final int size = 80;
+        LogoPanel panel = createPanel(size);
+        RenderMetrics metrics = panel.getRenderMetrics();
+        InterpreterListener listener = panel.getRenderQualityListener();
+        BufferedImage screen = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+
+        listener.started();
+        assertEquals(RenderQuality.DRAFT, panel.getRenderQuality());
+        panel.left(30);
+        panel.forward(30);
+        paint(panel, screen);
+        assertEquals(1, metrics.getDraftFrames());
+
+        listener.finished();
+        long end = System.currentTimeMillis() + 10000;
+        while (metrics.getQualityRenders() == 0 && System.currentTimeMillis() < end) {
+            SwingUtilities.invokeAndWait(() -> {
+            });
+        }
+        assertEquals(1, metrics.getQualityRenders());
+        assertEquals(RenderQuality.FULL, panel.getRenderQuality());
+
+        paint(panel, screen);
+        assertEquals(1, metrics.getCachedFrames());
+        assertEquals(0, metrics.getFullFrames());
+        BufferedImage expected = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        TurtleState ts = new TurtleState();
+        ts.width = size;
+        ts.height = size;
+        Graphics2D g2d = expected.createGraphics();
+        panel.cloneDrawable().draw(g2d, ts);
+        g2d.dispose();
+        assertSameImage(expected, screen);
+
+        panel.forward(10);
+        paint(panel, screen);
+        assertEquals(1, metrics.getCachedFrames());
+        assertEquals(1, metrics.getFullFrames());
+    }
+
+    /**
+     * A run that stops with an error leaves draft mode like a finished run.
+     *
+     * @throws InterruptedException
+     * @throws InvocationTargetException
+     */
+    @Test
+    public void testErrorLeavesDraft() throws InterruptedException, InvocationTargetException {
+        LOGGER.info("errorLeavesDraft");
+        java.util.prefs.Preferences prefs = java.util.prefs.Preferences.userNodeForPackage(LogoMenuBar.class);
+        Assume.assumeTrue(prefs.getBoolean(LogoMenuBar.DRAFT_WHILE_RUNNING, true));
+
+        LogoPanel panel = createPanel(40);
+        InterpreterListener listener = panel.getRenderQualityListener();
+        listener.started();
+        assertEquals(RenderQuality.DRAFT, panel.getRenderQuality());
+        panel.forward(10);
+
+        listener.error(new IllegalStateException());
+        long end = System.currentTimeMillis() + 10000;
+        while (panel.getRenderQuality() != RenderQuality.FULL && System.currentTimeMillis() < end) {
+            SwingUtilities.invokeAndWait(() -> {
+            });
+        }
+        assertEquals(RenderQuality.FULL, panel.getRenderQuality());
+    }
+}
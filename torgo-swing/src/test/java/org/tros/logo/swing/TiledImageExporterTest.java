@@ -0,0 +1,202 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import javax.imageio.ImageIO;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.tros.torgo.TorgoInfo;
+import org.tros.utils.logging.Logging;
+
+/**
+ *
+ * @author matta
+ */
+public class TiledImageExporterTest {
+
+    private final static Logger LOGGER;
+
+    static {
+        Logging.initLogging(TorgoInfo.INSTANCE);
+        LOGGER = Logger.getLogger(TiledImageExporterTest.class.getName());
+    }
+
+    public TiledImageExporterTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private static LogoPanel createPanel() {
+        LogoPanel panel = new LogoPanel(null);
+        panel.setSize(120, 80);
+        panel.reset();
+        panel.pencolor("red");
+        panel.forward(30);
+        panel.right(90);
+        panel.forward(50);
+        panel.pencolor(0, 0, 255, 255);
+        panel.setXY(-50, 30);
+        panel.penUp();
+        panel.forward(500);
+        panel.penDown();
+        panel.backward(20);
+        return panel;
+    }
+
+    /**
+     * Test of export method, of class TiledImageExporter. The tiled output
+     * must match rendering the whole image at once.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testExport() throws IOException {
+        LOGGER.info("export");
+        LogoPanel panel = createPanel();
+        double scale = 3.0;
+
+        TiledImageExporter exporter = new TiledImageExporter(panel.cloneDrawable(), panel.getWidth(), panel.getHeight(), scale, 64);
+        AtomicInteger progress = new AtomicInteger();
+        exporter.addExportListener(new ExportListenerImpl() {
+            @Override
+            public void progress(int completed, int total) {
+                progress.incrementAndGet();
+                assertTrue(completed <= total);
+            }
+        });
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        exporter.export(baos);
+        BufferedImage tiled = ImageIO.read(new ByteArrayInputStream(baos.toByteArray()));
+
+        assertEquals(360, tiled.getWidth());
+        assertEquals(240, tiled.getHeight());
+        //6 columns by 4 rows of 64 pixel tiles.
+        assertEquals(24, progress.get());
+
+        BufferedImage expected = new BufferedImage(tiled.getWidth(), tiled.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = expected.createGraphics();
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, expected.getWidth(), expected.getHeight());
+        g2d.scale(scale, scale);
+        TurtleState ts = new TurtleState();
+        ts.width = panel.getWidth();
+        ts.height = panel.getHeight();
+        panel.draw(g2d, ts);
+        g2d.dispose();
+
+        int colored = 0;
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), tiled.getRGB(x, y));
+                if ((tiled.getRGB(x, y) & 0xffffff) != 0xffffff) {
+                    colored++;
+                }
+            }
+        }
+        assertTrue(colored > 0);
+    }
+
+    /**
+     * A cancelled background export fires cancelled and removes the file.
+     *
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    @Test
+    public void testCancel() throws IOException, InterruptedException {
+        LOGGER.info("cancel");
+        LogoPanel panel = createPanel();
+        TiledImageExporter exporter = new TiledImageExporter(panel.cloneDrawable(), panel.getWidth(), panel.getHeight(), 10.0);
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        AtomicBoolean finished = new AtomicBoolean(false);
+        exporter.addExportListener(new ExportListenerImpl() {
+            @Override
+            public void cancelled() {
+                cancelled.set(true);
+            }
+
+            @Override
+            public void finished() {
+                finished.set(true);
+            }
+        });
+        File f = File.createTempFile("tiled", ".png");
+        exporter.cancel();
+        exporter.start(f).join();
+
+        assertTrue(exporter.isCancelled());
+        assertTrue(cancelled.get());
+        assertFalse(finished.get());
+        assertFalse(f.exists());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadScale() {
+        LOGGER.info("badScale");
+        TiledImageExporter exporter = new TiledImageExporter(new LogoPanel(null), 10, 10, 0);
+    }
+
+    private static class ExportListenerImpl implements ExportListener {
+
+        @Override
+        public void started() {
+        }
+
+        @Override
+        public void progress(int completed, int total) {
+        }
+
+        @Override
+        public void finished() {
+        }
+
+        @Override
+        public void cancelled() {
+        }
+
+        @Override
+        public void error(Exception e) {
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.logo.swing;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.logging.Logger;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.tros.torgo.TorgoInfo;
+import org.tros.utils.logging.Logging;
+
+/**
+ *
+ * @author matta
+ */
+public class TimelineTest {
+
+    private final static Logger LOGGER;
+    private static final int SIZE = 100;
+    private static final int STEPS = 300;
+
+    static {
+        Logging.initLogging(TorgoInfo.INSTANCE);
+        LOGGER = Logger.getLogger(TimelineTest.class.getName());
+    }
+
+    public TimelineTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Append a spiral to a store, recording it in the timeline.
+     */
+    private static void draw(CommandStore store, Timeline timeline) {
+        for (int ii = 0; ii < STEPS; ii++) {
+            DrawCommand[] commands = {
+                new DrawCommand(DrawCommand.Op.PEN_COLOR, ii % 3 == 0 ? java.awt.Color.red : java.awt.Color.blue),
+                new DrawCommand(DrawCommand.Op.FORWARD, 3 + (ii % 40)),
+                new DrawCommand(DrawCommand.Op.RIGHT, 37)
+            };
+            for (DrawCommand command : commands) {
+                store.append(command);
+                timeline.record(command, store);
+            }
+        }
+    }
+
+    /**
+     * Replay the first commands of a list from the start.
+     */
+    private static BufferedImage replay(DisplayList list, long count) {
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2 = image.createGraphics();
+        g2.setColor(java.awt.Color.white);
+        g2.fillRect(0, 0, SIZE, SIZE);
+        TurtleState ts = new TurtleState();
+        ts.width = SIZE;
+        ts.height = SIZE;
+        Graphics2DSink sink = new Graphics2DSink(g2);
+        list.renderBaked(sink, ts);
+        CommandStore.Cursor cursor = list.cursor();
+        for (long ii = list.getBakedCount(); ii < count && cursor.next(); ii++) {
+            cursor.render(sink, ts);
+        }
+        g2.dispose();
+        return image;
+    }
+
+    private static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals("pixel " + x + "," + y, expected.getRGB(x, y), actual.getRGB(x, y));
+            }
+        }
+    }
+
+    /**
+     * Seeking from a keyframe draws the same as replaying from the start.
+     */
+    @Test
+    public void testSeek() {
+        LOGGER.info("seek");
+        CommandStore store = new CommandStore(CommandStore.DEFAULT_MEMORY_BUDGET);
+        Timeline timeline = new Timeline(SIZE, SIZE, true, 64, Long.MAX_VALUE);
+        draw(store, timeline);
+        DisplayList list = new DisplayList(null, store, store.size());
+        assertEquals(store.size(), timeline.size());
+        assertEquals(store.size() / 64 + 1, timeline.getKeyframeCount());
+
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+        for (long index : new long[]{0, 1, 63, 64, 65, 500, 640, store.size()}) {
+            assertEquals(index, timeline.seek(index, list, image));
+            assertSameImage(replay(list, index), image);
+        }
+        assertEquals(store.size(), timeline.seek(store.size() + 10, list, image));
+    }
+
+    /**
+     * Keyframes are thinned to stay under the memory budget, and seeking
+     * still draws the same.
+     */
+    @Test
+    public void testMemoryBudget() {
+        LOGGER.info("memoryBudget");
+        final long budget = 2048;
+        CommandStore store = new CommandStore(CommandStore.DEFAULT_MEMORY_BUDGET);
+        Timeline timeline = new Timeline(SIZE, SIZE, true, 16, budget);
+        draw(store, timeline);
+        DisplayList list = new DisplayList(null, store, store.size());
+        assertTrue(timeline.getKeyframeCount() > 1);
+        assertTrue(timeline.getKeyframeBytes() <= budget);
+        assertTrue(timeline.getInterval() > 16);
+
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+        for (long index : new long[]{17, 333, 700, store.size() - 1}) {
+            assertEquals(index, timeline.seek(index, list, image));
+            assertSameImage(replay(list, index), image);
+        }
+    }
+
+    /**
+     * Seeking past the flattened commands of a panel picks up from the
+     * raster layer; seeking into them stops at the keyframe before.
+     */
+    @Test
+    public void testSeekAfterBake() {
+        LOGGER.info("seekAfterBake");
+        LogoPanel panel = new LogoPanel(null);
+        panel.setSize(SIZE, SIZE);
+        panel.setMaxLiveCommands(50);
+        panel.reset();
+        for (int ii = 0; ii < STEPS; ii++) {
+            panel.forward(3 + (ii % 40));
+            panel.right(37);
+        }
+        Timeline timeline = panel.getTimeline();
+        assertNotNull(timeline);
+        DisplayList list = panel.cloneDrawable();
+        long total = list.getBakedCount() + list.size();
+        assertTrue(list.getBakedCount() > 0);
+        assertEquals(total, timeline.size());
+
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+        assertEquals(total, timeline.seek(total, list, image));
+        assertSameImage(replay(list, total), image);
+        assertEquals(0, timeline.seek(list.getBakedCount() - 1, list, image));
+
+        panel.setScrubIndex(10);
+        assertEquals(10, panel.getScrubIndex());
+        panel.reset();
+        assertEquals(-1, panel.getScrubIndex());
+        assertNotSame(timeline, panel.getTimeline());
+    }
+
+    /**
+     * An animation can start part way through the drawing.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testGifStart() throws IOException {
+        LOGGER.info("gifStart");
+        CommandStore store = new CommandStore(CommandStore.DEFAULT_MEMORY_BUDGET);
+        Timeline timeline = new Timeline(SIZE, SIZE, true, 64, Long.MAX_VALUE);
+        draw(store, timeline);
+        DisplayList list = new DisplayList(null, store, store.size());
+
+        GifExporter whole = new GifExporter(list, SIZE, SIZE);
+        whole.setCommandsPerFrame(30);
+        whole.export(new ByteArrayOutputStream());
+        GifExporter part = new GifExporter(list, SIZE, SIZE);
+        part.setCommandsPerFrame(30);
+        part.setStart(store.size() / 2, timeline);
+        part.export(new ByteArrayOutputStream());
+        assertTrue(part.getFrameCount() > 0);
+        assertTrue(part.getFrameCount() < whole.getFrameCount());
+
+        //without a timeline the start is replayed rather than ignored.
+        GifExporter replayed = new GifExporter(list, SIZE, SIZE);
+        replayed.setCommandsPerFrame(30);
+        replayed.setStart(store.size() / 2, null);
+        replayed.export(new ByteArrayOutputStream());
+        assertEquals(part.getFrameCount(), replayed.getFrameCount());
+    }
+}
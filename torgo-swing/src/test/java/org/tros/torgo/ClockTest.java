@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.torgo;
+
+import java.util.logging.Logger;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.tros.logo.swing.LogoPanel;
+import org.tros.utils.logging.Logging;
+
+/**
+ *
+ * @author matta
+ */
+public class ClockTest {
+
+    private final static Logger LOGGER;
+
+    static {
+        Logging.initLogging(TorgoInfo.INSTANCE);
+        LOGGER = Logger.getLogger(ClockTest.class.getName());
+    }
+
+    public ClockTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Waiting on the virtual clock moves it forward without sleeping.
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void testVirtualClock() throws InterruptedException {
+        LOGGER.info("virtualClock");
+        VirtualClock clock = new VirtualClock();
+        long start = System.nanoTime();
+        for (int ii = 0; ii < 1000; ii++) {
+            clock.sleep(3600000);
+        }
+        assertTrue(System.nanoTime() - start < 1000000000L);
+        assertEquals(3600000000L, clock.currentTimeMillis());
+        assertEquals(1000, clock.getSleepCount());
+
+        clock.sleep(-5);
+        assertEquals(3600000000L, clock.currentTimeMillis());
+        clock.reset();
+        assertEquals(0, clock.currentTimeMillis());
+
+        Thread.currentThread().interrupt();
+        try {
+            clock.sleep(10);
+            fail("An interrupted wait should throw.");
+        } catch (InterruptedException ex) {
+            assertFalse(Thread.currentThread().isInterrupted());
+        }
+    }
+
+    /**
+     * The clock can be picked with a system property.
+     */
+    @Test
+    public void testDefault() {
+        LOGGER.info("default");
+        String saved = System.getProperty("torgo.clock");
+        try {
+            System.setProperty("torgo.clock", "virtual");
+            assertTrue(Clock.getDefault() instanceof VirtualClock);
+            System.setProperty("torgo.clock", "system");
+            assertSame(SystemClock.INSTANCE, Clock.getDefault());
+        } finally {
+            if (saved == null) {
+                System.clearProperty("torgo.clock");
+            } else {
+                System.setProperty("torgo.clock", saved);
+            }
+        }
+    }
+
+    /**
+     * Pauses on a canvas with a virtual clock return at once, but are still
+     * recorded in the drawing.
+     */
+    @Test
+    public void testPanelPause() {
+        LOGGER.info("panelPause");
+        LogoPanel panel = new LogoPanel(null);
+        VirtualClock clock = new VirtualClock();
+        panel.setClock(clock);
+        assertSame(clock, panel.getClock());
+        long before = panel.getLiveCommandCount();
+        long start = System.nanoTime();
+        panel.pause(60000);
+        assertTrue(System.nanoTime() - start < 1000000000L);
+        assertEquals(60000, clock.currentTimeMillis());
+        assertEquals(before + 1, panel.getLiveCommandCount());
+    }
+}
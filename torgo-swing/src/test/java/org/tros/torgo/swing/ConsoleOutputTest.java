@@ -0,0 +1,196 @@
+/*
+ * Copyright 2015-2017 Matthew Aguirre
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tros.torgo.swing;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.tros.torgo.TorgoInfo;
+import org.tros.utils.logging.Logging;
+
+/**
+ *
+ * @author matta
+ */
+public class ConsoleOutputTest {
+
+    private final static Logger LOGGER;
+
+    static {
+        Logging.initLogging(TorgoInfo.INSTANCE);
+        LOGGER = Logger.getLogger(ConsoleOutputTest.class.getName());
+    }
+
+    public ConsoleOutputTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    private static void flush(ConsoleOutput output) throws InterruptedException, InvocationTargetException {
+        SwingUtilities.invokeAndWait(output::flush);
+    }
+
+    private static String[] lines(JConsole console) throws InterruptedException, InvocationTargetException {
+        final String[] text = new String[1];
+        SwingUtilities.invokeAndWait(() -> {
+            text[0] = console.getText();
+        });
+        return text[0].split("\n");
+    }
+
+    /**
+     * Test that buffered lines are shown in order, and that only the last
+     * lines up to the limit are kept.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testPrintln() throws Exception {
+        LOGGER.info("println");
+        JConsole console = new JConsole();
+        ConsoleOutput output = new ConsoleOutput(console, 100, 10);
+        for (int ii = 0; ii < 10; ii++) {
+            output.println("line " + ii);
+        }
+        flush(output);
+        String[] lines = lines(console);
+        assertEquals("line 9", lines[lines.length - 1]);
+        assertEquals("line 0", lines[lines.length - 10]);
+
+        for (int ii = 0; ii < 10000; ii++) {
+            output.println("more " + ii);
+        }
+        flush(output);
+        lines = lines(console);
+        assertTrue(lines.length <= 100 + 100 / 8);
+        assertEquals("more 9999", lines[lines.length - 1]);
+        assertEquals("more 9900", lines[lines.length - 100]);
+
+        output.println("cleared");
+        output.clear();
+        flush(output);
+        assertEquals("more 9999", lines(console)[lines(console).length - 1]);
+    }
+
+    /**
+     * Test that the timer shows lines without an explicit flush.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testUpdate() throws Exception {
+        LOGGER.info("update");
+        JConsole console = new JConsole();
+        ConsoleOutput output = new ConsoleOutput(console, 100, 10);
+        output.println("timed");
+        long deadline = System.currentTimeMillis() + 5000;
+        String[] lines = lines(console);
+        while (!"timed".equals(lines[lines.length - 1]) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            lines = lines(console);
+        }
+        assertEquals("timed", lines[lines.length - 1]);
+    }
+
+    /**
+     * Test that the transcript keeps every line, including the ones no
+     * longer in the console, and is appended to after a run finishes.
+     *
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testTranscript() throws IOException {
+        LOGGER.info("transcript");
+        File file = File.createTempFile("torgo-transcript", ".txt");
+        file.deleteOnExit();
+        ConsoleOutput output = new ConsoleOutput(new JConsole(), 10, 10);
+        output.setTranscript(file);
+        for (int ii = 0; ii < 1000; ii++) {
+            output.println("line " + ii);
+        }
+        output.flush();
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(1000, lines.size());
+        assertEquals("line 0", lines.get(0));
+        assertEquals("line 999", lines.get(999));
+        output.println("after run");
+        output.finish();
+        output.println("next run");
+        output.finish();
+        lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(1002, lines.size());
+        assertEquals("after run", lines.get(1000));
+        assertEquals("next run", lines.get(1001));
+        output.setTranscript(null);
+        output.println("not written");
+        output.flush();
+        assertEquals(1002, Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).size());
+    }
+
+    /**
+     * Compare printing each line to the console against buffering the lines.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testBenchmark() throws Exception {
+        LOGGER.info("benchmark");
+        final int count = 20000;
+        JConsole console = new JConsole();
+        long start = System.nanoTime();
+        for (int ii = 0; ii < count; ii++) {
+            console.println("line " + ii);
+        }
+        long direct = System.nanoTime() - start;
+
+        console = new JConsole();
+        ConsoleOutput output = new ConsoleOutput(console, ConsoleOutput.DEFAULT_LIMIT, ConsoleOutput.DEFAULT_INTERVAL);
+        start = System.nanoTime();
+        for (int ii = 0; ii < count; ii++) {
+            output.println("line " + ii);
+        }
+        flush(output);
+        long buffered = System.nanoTime() - start;
+        String[] lines = lines(console);
+        assertEquals("line " + (count - 1), lines[lines.length - 1]);
+        LOGGER.info(String.format("%d lines: println %d ms, buffered %d ms", count, direct / 1000000, buffered / 1000000));
+    }
+}
@@ -29,6 +29,7 @@ import org.tros.torgo.swing.TorgoToolBarTest;
 import java.util.logging.LogRecord;
 import java.util.logging.Level;
 import java.lang.reflect.Method;
+import javax.swing.SwingUtilities;
 import org.tros.utils.logging.SwingComponentHandler;
 /**
  *
@@ -121,4 +122,69 @@ public class SwingComponentHandlerTest {
         handler.testConfigure(5);
         assertFalse(handler.checkTesting());
     }
+
+    /**
+     * Test that a storm of records while paused keeps only the newest ones
+     * and counts the rest as dropped.
+     */
+    @Test
+    public void testStorm() {
+        SwingComponentHandler handler = new SwingComponentHandler();
+        int capacity = 4096;
+        if (!handler.isPaused()) {
+            SwingComponentHandler.pause();
+        }
+        try {
+            LogRecord last = null;
+            for (int ii = 0; ii < capacity * 3; ii++) {
+                last = new LogRecord(Level.INFO, "storm " + ii);
+                handler.publish(last);
+            }
+            assertEquals(capacity, handler.getRecords().size());
+            assertSame(last, handler.getRecords().get(capacity - 1));
+            assertEquals(capacity * 2, handler.getDropped());
+        } finally {
+            SwingComponentHandler.pause();
+            handler.close();
+        }
+    }
+
+    /**
+     * Test that records are added to the console in one update and that old
+     * lines are removed.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testUpdate() throws Exception {
+        SwingComponentHandler handler = new SwingComponentHandler();
+        handler.setLimit(40);
+        final long[] shown = new long[1];
+        handler.setDroppedListener((dropped) -> {
+            shown[0] = dropped;
+        });
+        for (int ii = 0; ii < 100; ii++) {
+            LogRecord record = new LogRecord(Level.WARNING, "update " + ii);
+            record.setLoggerName("org.tros.update");
+            handler.publish(record);
+        }
+        Method method = handler.getClass().getDeclaredMethod("timer", (Class[]) null);
+        method.setAccessible(true);
+        SwingUtilities.invokeAndWait(() -> {
+            try {
+                method.invoke(handler, (Object[]) null);
+            } catch (ReflectiveOperationException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        String text = SwingComponentHandler.getText();
+        assertTrue(text.contains("update 99 "));
+        assertFalse(text.contains("update 0 "));
+        String[] lines = text.split("\n");
+        assertTrue(lines.length <= 40);
+        assertTrue(lines[lines.length - 1].contains("update 99"));
+        assertTrue(handler.getRecords().isEmpty());
+        assertEquals(0, shown[0]);
+        handler.close();
+    }
 }